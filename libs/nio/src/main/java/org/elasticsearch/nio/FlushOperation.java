@@ -56,6 +56,13 @@ public class FlushOperation {
         return internalIndex == length;
     }
 
+    /**
+     * Returns the number of bytes of this operation that still have to be flushed.
+     */
+    public int remaining() {
+        return length - internalIndex;
+    }
+
     public void incrementIndex(int delta) {
         internalIndex += delta;
         assert length >= internalIndex : "Should never increment index past length [length=" + length + ", post-increment index="
@@ -35,6 +35,7 @@ import java.security.AccessController;
 import java.security.PrivilegedActionException;
 import java.security.PrivilegedExceptionAction;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -318,6 +319,56 @@ public abstract class SocketChannelContext extends ChannelContext<SocketChannel>
         return totalBytesFlushed;
     }
 
+    /**
+     * Flushes the pending flush operations in order. Rather than issuing one write per operation, the bytes of as many operations as
+     * fit are copied into the io buffer and written with a single call, which saves syscalls when many small messages are queued.
+     * Every operation that has been fully written is completed.
+     *
+     * @return true if all pending flush operations were flushed
+     */
+    protected boolean flushPendingToChannel() throws IOException {
+        ByteBuffer ioBuffer = getSelector().getIoBuffer();
+        while (pendingFlushes.isEmpty() == false) {
+            ioBuffer.clear();
+            ioBuffer.limit(Math.min(WRITE_LIMIT, ioBuffer.limit()));
+            Iterator<FlushOperation> operations = pendingFlushes.iterator();
+            while (ioBuffer.hasRemaining() && operations.hasNext()) {
+                FlushOperation operation = operations.next();
+                if (operation.isFullyFlushed() == false) {
+                    ByteBufferUtils.copyBytes(operation.getBuffersToWrite(ioBuffer.remaining()), ioBuffer);
+                }
+            }
+            ioBuffer.flip();
+            int bytesFlushed = 0;
+            if (ioBuffer.hasRemaining()) {
+                try {
+                    bytesFlushed = rawChannel.write(ioBuffer);
+                } catch (IOException e) {
+                    closeNow = true;
+                    throw e;
+                }
+            }
+            final boolean allBytesFlushed = ioBuffer.hasRemaining() == false;
+
+            FlushOperation flushOperation;
+            while ((flushOperation = pendingFlushes.peekFirst()) != null) {
+                int delta = Math.min(bytesFlushed, flushOperation.remaining());
+                flushOperation.incrementIndex(delta);
+                bytesFlushed -= delta;
+                if (flushOperation.isFullyFlushed() == false) {
+                    break;
+                }
+                currentFlushOperationComplete();
+            }
+            assert bytesFlushed == 0 : "flushed bytes [" + bytesFlushed + "] that do not belong to a pending flush operation";
+
+            if (allBytesFlushed == false) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     private void configureSocket(Socket socket, boolean isConnectComplete) throws IOException {
         if (socketOptionsSet) {
             return;
@@ -24,6 +24,7 @@ import org.elasticsearch.common.util.PageCacheRecycler;
 import org.elasticsearch.test.ESTestCase;
 import org.junit.Before;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.SocketChannel;
@@ -228,6 +229,42 @@ public class BytesChannelContextTests extends ESTestCase {
         assertFalse(context.readyForFlush());
     }
 
+    @SuppressWarnings("unchecked")
+    public void testQueuedWritesAreCoalescedIntoSingleWrite() throws IOException {
+        BiConsumer<Void, Exception> listener2 = mock(BiConsumer.class);
+        BiConsumer<Void, Exception> listener3 = mock(BiConsumer.class);
+        context.queueWriteOperation(new FlushReadyWrite(context, new ByteBuffer[] {ByteBuffer.wrap(new byte[] {1, 2})}, listener));
+        context.queueWriteOperation(new FlushReadyWrite(context, new ByteBuffer[] {ByteBuffer.wrap(new byte[] {3}),
+            ByteBuffer.wrap(new byte[] {4, 5})}, listener2));
+        context.queueWriteOperation(new FlushReadyWrite(context, new ByteBuffer[] {ByteBuffer.wrap(new byte[] {6, 7, 8})}, listener3));
+
+        ByteArrayOutputStream written = new ByteArrayOutputStream();
+        when(rawChannel.write(any(ByteBuffer.class))).thenAnswer(invocationOnMock -> {
+            ByteBuffer buffer = (ByteBuffer) invocationOnMock.getArguments()[0];
+            // only accept the first operation and part of the second
+            int bytesWritten = Math.min(4, buffer.remaining());
+            for (int i = 0; i < bytesWritten; i++) {
+                written.write(buffer.get());
+            }
+            return bytesWritten;
+        });
+        context.flushChannel();
+
+        verify(rawChannel, times(1)).write(any(ByteBuffer.class));
+        assertArrayEquals(new byte[] {1, 2, 3, 4}, written.toByteArray());
+        verify(selector).executeListener(listener, null);
+        verify(selector, times(0)).executeListener(listener2, null);
+        assertTrue(context.readyForFlush());
+
+        context.flushChannel();
+
+        verify(rawChannel, times(2)).write(any(ByteBuffer.class));
+        assertArrayEquals(new byte[] {1, 2, 3, 4, 5, 6, 7, 8}, written.toByteArray());
+        verify(selector).executeListener(listener2, null);
+        verify(selector).executeListener(listener3, null);
+        assertFalse(context.readyForFlush());
+    }
+
     public void testWhenIOExceptionThrownListenerIsCalled() throws IOException {
         assertFalse(context.readyForFlush());
 
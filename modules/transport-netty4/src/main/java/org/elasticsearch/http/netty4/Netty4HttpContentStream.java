@@ -0,0 +1,176 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.http.netty4;
+
+import io.netty.channel.Channel;
+import io.netty.handler.codec.http.HttpContent;
+import io.netty.handler.codec.http.LastHttpContent;
+import org.elasticsearch.common.bytes.ReleasableBytesReference;
+import org.elasticsearch.http.HttpContentStream;
+import org.elasticsearch.transport.netty4.Netty4Utils;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+
+/**
+ * The content of a request which is passed to its handler in parts as it is received, see {@link Netty4HttpContentStreamHandler}. Auto
+ * read is turned off for the channel until the last part is received, so that the next part is only read from the network once the
+ * handler requests it. The state of the stream is only accessed on the event loop of the channel.
+ */
+class Netty4HttpContentStream implements HttpContentStream {
+
+    private final Channel channel;
+
+    /**
+     * Parts which have been received but not requested by the handler yet. A single read may be decoded into several parts.
+     */
+    private final Queue<HttpContent> receivedParts = new ArrayDeque<>();
+
+    private Handler handler;
+    private boolean requested;
+    private boolean lastPartReceived;
+
+    /**
+     * Whether no more parts are passed to the handler, because it received the last part or a failure or the content was discarded.
+     */
+    private boolean closed;
+
+    /**
+     * A failure that is passed to the handler once it is set.
+     */
+    private Exception failure;
+
+    Netty4HttpContentStream(Channel channel) {
+        this.channel = channel;
+    }
+
+    @Override
+    public void setHandler(Handler handler) {
+        runOnEventLoop(() -> {
+            assert this.handler == null : "handler is already set";
+            this.handler = handler;
+            maybeNotifyHandler();
+        });
+    }
+
+    @Override
+    public void next() {
+        runOnEventLoop(() -> {
+            assert requested == false : "next part is already requested";
+            requested = true;
+            maybeNotifyHandler();
+        });
+    }
+
+    /**
+     * Receives the next part of the content from the channel.
+     */
+    void onPartReceived(HttpContent part) {
+        assert channel.eventLoop().inEventLoop();
+        assert lastPartReceived == false : "received a part after the last part";
+        if (part instanceof LastHttpContent) {
+            lastPartReceived = true;
+            // the whole content has been read, continue reading the requests that follow it
+            channel.config().setAutoRead(true);
+        }
+        if (closed) {
+            part.release();
+        } else if (part.decoderResult().isFailure()) {
+            part.release();
+            final Throwable cause = part.decoderResult().cause();
+            onFailure(cause instanceof Exception ? (Exception) cause : new Exception(cause));
+        } else {
+            receivedParts.add(part);
+            maybeNotifyHandler();
+        }
+    }
+
+    /**
+     * Fails the stream, the handler receives the failure instead of the rest of the content.
+     */
+    void onFailure(Exception e) {
+        assert channel.eventLoop().inEventLoop();
+        if (closed) {
+            return;
+        }
+        closed = true;
+        releaseReceivedParts();
+        failure = e;
+        maybeNotifyHandler();
+    }
+
+    /**
+     * Discards the part of the content that has not been consumed yet, which is called once the request is released after its response
+     * has been sent. The rest of the content is read and dropped so that the requests which follow it on the channel can be handled.
+     */
+    void discard() {
+        runOnEventLoop(() -> {
+            closed = true;
+            releaseReceivedParts();
+            if (lastPartReceived == false) {
+                channel.config().setAutoRead(true);
+            }
+        });
+    }
+
+    private void maybeNotifyHandler() {
+        if (handler == null) {
+            return;
+        }
+        if (failure != null) {
+            final Exception e = failure;
+            failure = null;
+            handler.onFailure(e);
+            return;
+        }
+        if (closed || requested == false) {
+            return;
+        }
+        final HttpContent part = receivedParts.poll();
+        if (part == null) {
+            if (lastPartReceived == false) {
+                // auto read is off, so read the next part now that the handler asked for it
+                channel.read();
+            }
+            return;
+        }
+        requested = false;
+        final boolean isLast = part instanceof LastHttpContent;
+        if (isLast) {
+            closed = true;
+        }
+        handler.onPart(new ReleasableBytesReference(Netty4Utils.toBytesReference(part.content()), part::release), isLast);
+    }
+
+    private void releaseReceivedParts() {
+        HttpContent part;
+        while ((part = receivedParts.poll()) != null) {
+            part.release();
+        }
+    }
+
+    private void runOnEventLoop(Runnable runnable) {
+        if (channel.eventLoop().inEventLoop()) {
+            runnable.run();
+        } else {
+            channel.eventLoop().execute(runnable);
+        }
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.http.netty4;
+
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.handler.codec.http.DefaultFullHttpRequest;
+import io.netty.handler.codec.http.EmptyHttpHeaders;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.HttpContent;
+import io.netty.handler.codec.http.HttpObjectAggregator;
+import io.netty.handler.codec.http.HttpRequest;
+import io.netty.handler.codec.http.HttpUtil;
+import io.netty.handler.codec.http.LastHttpContent;
+import org.elasticsearch.ElasticsearchStatusException;
+import org.elasticsearch.http.AbstractHttpServerTransport;
+import org.elasticsearch.rest.RestRequest;
+import org.elasticsearch.rest.RestStatus;
+
+import java.nio.channels.ClosedChannelException;
+import java.util.function.BiPredicate;
+
+/**
+ * Passes the content of requests whose handler {@link AbstractHttpServerTransport#supportsIncrementalContent consumes it incrementally}
+ * on in parts as it is received, instead of leaving it to the {@link HttpObjectAggregator} to aggregate it in memory first. Such a request
+ * is passed on as soon as its headers are received, as a {@link StreamedHttpRequest} without content, and its content is read from the
+ * network as the request handler consumes it, see {@link Netty4HttpContentStream}. All other requests pass through unchanged.
+ */
+class Netty4HttpContentStreamHandler extends ChannelInboundHandlerAdapter {
+
+    private final BiPredicate<RestRequest.Method, String> supportsIncrementalContent;
+    private final long maxContentLength;
+
+    /**
+     * The stream of the request whose content is currently being received, if it is streamed.
+     */
+    private Netty4HttpContentStream currentStream;
+    private long currentContentLength;
+
+    Netty4HttpContentStreamHandler(BiPredicate<RestRequest.Method, String> supportsIncrementalContent, long maxContentLength) {
+        this.supportsIncrementalContent = supportsIncrementalContent;
+        this.maxContentLength = maxContentLength;
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        if (currentStream != null && msg instanceof HttpContent) {
+            final Netty4HttpContentStream stream = currentStream;
+            final HttpContent part = (HttpContent) msg;
+            if (part instanceof LastHttpContent) {
+                currentStream = null;
+            }
+            currentContentLength += part.content().readableBytes();
+            if (currentContentLength > maxContentLength) {
+                stream.onFailure(new ElasticsearchStatusException("request content is larger than the maximum of [{}] bytes",
+                    RestStatus.REQUEST_ENTITY_TOO_LARGE, maxContentLength));
+            }
+            stream.onPartReceived(part);
+        } else if (msg instanceof HttpRequest && msg instanceof FullHttpRequest == false && isStreamed((HttpRequest) msg)) {
+            assert currentStream == null : "received the next request before the content of the previous one";
+            currentStream = new Netty4HttpContentStream(ctx.channel());
+            currentContentLength = 0L;
+            // only read the content as the request handler consumes it
+            ctx.channel().config().setAutoRead(false);
+            ctx.fireChannelRead(new StreamedHttpRequest((HttpRequest) msg, currentStream));
+        } else {
+            ctx.fireChannelRead(msg);
+        }
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        if (currentStream != null) {
+            currentStream.onFailure(new ClosedChannelException());
+            currentStream = null;
+        }
+        super.channelInactive(ctx);
+    }
+
+    private boolean isStreamed(HttpRequest request) {
+        if (request.decoderResult().isSuccess() == false || HttpUtil.is100ContinueExpected(request)) {
+            // leave it to the aggregator to respond to these
+            return false;
+        }
+        if (HttpUtil.isTransferEncodingChunked(request) == false) {
+            final long contentLength;
+            try {
+                contentLength = HttpUtil.getContentLength(request, -1L);
+            } catch (NumberFormatException e) {
+                return false;
+            }
+            if (contentLength <= 0 || contentLength > maxContentLength) {
+                // there is no content to stream, or the aggregator rejects it as too large
+                return false;
+            }
+        }
+        final RestRequest.Method method;
+        try {
+            method = Netty4HttpRequest.translateRequestMethod(request.method());
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+        return supportsIncrementalContent.test(method, request.uri());
+    }
+
+    /**
+     * A request whose content is received after it is passed on, through its {@link #contentStream()}. Releasing the request discards
+     * the part of the content which has not been consumed.
+     */
+    static final class StreamedHttpRequest extends DefaultFullHttpRequest {
+
+        private final Netty4HttpContentStream contentStream;
+
+        StreamedHttpRequest(HttpRequest request, Netty4HttpContentStream contentStream) {
+            super(request.protocolVersion(), request.method(), request.uri(), Unpooled.buffer(0), request.headers(),
+                EmptyHttpHeaders.INSTANCE);
+            this.contentStream = contentStream;
+        }
+
+        Netty4HttpContentStream contentStream() {
+            return contentStream;
+        }
+
+        @Override
+        public boolean release() {
+            return discardContentIfReleased(super.release());
+        }
+
+        @Override
+        public boolean release(int decrement) {
+            return discardContentIfReleased(super.release(decrement));
+        }
+
+        private boolean discardContentIfReleased(boolean released) {
+            if (released) {
+                contentStream.discard();
+            }
+            return released;
+        }
+    }
+}
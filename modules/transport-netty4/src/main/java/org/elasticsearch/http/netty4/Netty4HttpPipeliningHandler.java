@@ -22,22 +22,57 @@ package org.elasticsearch.http.netty4;
 import io.netty.channel.ChannelDuplexHandler;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelPromise;
+import io.netty.handler.codec.http.DefaultHttpContent;
 import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.LastHttpContent;
 import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.message.ParameterizedMessage;
+import org.elasticsearch.common.bytes.ReleasableBytesReference;
 import org.elasticsearch.common.collect.Tuple;
+import org.elasticsearch.common.util.PageCacheRecycler;
+import org.elasticsearch.http.HttpPipelinedMessage;
 import org.elasticsearch.http.HttpPipelinedRequest;
 import org.elasticsearch.http.HttpPipeliningAggregator;
+import org.elasticsearch.rest.ChunkedRestResponseBody;
+import org.elasticsearch.transport.netty4.Netty4Utils;
 
 import java.nio.channels.ClosedChannelException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Queue;
 
 /**
  * Implements HTTP pipelining ordering, ensuring that responses are completely served in the same order as their corresponding requests.
+ * Chunked responses are streamed: each chunk of their body is only serialized once the channel is writable, so that only a few pages
+ * of a large response are held in memory at any time. Responses that become ready while a chunked response is being streamed are queued
+ * behind it.
  */
 public class Netty4HttpPipeliningHandler extends ChannelDuplexHandler {
 
+    /**
+     * The approximate size of each chunk of a chunked response body.
+     */
+    static final int CHUNK_SIZE_HINT = PageCacheRecycler.BYTE_PAGE_SIZE;
+
     private final Logger logger;
-    private final HttpPipeliningAggregator<Netty4HttpResponse, ChannelPromise> aggregator;
+    private final HttpPipeliningAggregator<HttpPipelinedMessage, ChannelPromise> aggregator;
+
+    /**
+     * Responses which are ready to be written, in order, but which are waiting for a chunked response ahead of them to complete.
+     */
+    private final Queue<Tuple<HttpPipelinedMessage, ChannelPromise>> queuedWrites = new ArrayDeque<>();
+
+    /**
+     * The chunked response which is currently being streamed, if any.
+     */
+    private Tuple<Netty4ChunkedHttpResponse, ChannelPromise> currentChunkedWrite;
+
+    /**
+     * Whether we are currently writing responses, flushing while doing so may synchronously change the writability of the channel and we
+     * must not start writing again from {@link #channelWritabilityChanged} in that case.
+     */
+    private boolean writing;
 
     /**
      * Construct a new pipelining handler; this handler should be used downstream of HTTP decoding/aggregation.
@@ -60,14 +95,11 @@ public class Netty4HttpPipeliningHandler extends ChannelDuplexHandler {
 
     @Override
     public void write(final ChannelHandlerContext ctx, final Object msg, final ChannelPromise promise) {
-        assert msg instanceof Netty4HttpResponse : "Invalid message type: " + msg.getClass();
-        Netty4HttpResponse response = (Netty4HttpResponse) msg;
+        assert msg instanceof Netty4HttpResponse || msg instanceof Netty4ChunkedHttpResponse : "Invalid message type: " + msg.getClass();
+        HttpPipelinedMessage response = (HttpPipelinedMessage) msg;
         boolean success = false;
         try {
-            List<Tuple<Netty4HttpResponse, ChannelPromise>> readyResponses = aggregator.write(response, promise);
-            for (Tuple<Netty4HttpResponse, ChannelPromise> readyResponse : readyResponses) {
-                ctx.write(readyResponse.v1(), readyResponse.v2());
-            }
+            queuedWrites.addAll(aggregator.write(response, promise));
             success = true;
         } catch (IllegalStateException e) {
             ctx.channel().close();
@@ -76,15 +108,111 @@ public class Netty4HttpPipeliningHandler extends ChannelDuplexHandler {
                 promise.setFailure(new ClosedChannelException());
             }
         }
+        if (success) {
+            doWrite(ctx);
+        }
+    }
+
+    @Override
+    public void channelWritabilityChanged(ChannelHandlerContext ctx) {
+        if (writing == false && currentChunkedWrite != null && ctx.channel().isWritable()) {
+            doWrite(ctx);
+            ctx.flush();
+        }
+        ctx.fireChannelWritabilityChanged();
+    }
+
+    private void doWrite(ChannelHandlerContext ctx) {
+        assert writing == false : "already writing";
+        writing = true;
+        try {
+            while (currentChunkedWrite == null || continueChunkedWrite(ctx)) {
+                final Tuple<HttpPipelinedMessage, ChannelPromise> readyResponse = queuedWrites.poll();
+                if (readyResponse == null) {
+                    return;
+                }
+                if (readyResponse.v1() instanceof Netty4ChunkedHttpResponse) {
+                    // write the head of the response now, its body follows chunk by chunk
+                    ctx.write(readyResponse.v1());
+                    currentChunkedWrite = new Tuple<>((Netty4ChunkedHttpResponse) readyResponse.v1(), readyResponse.v2());
+                } else {
+                    ctx.write(readyResponse.v1(), readyResponse.v2());
+                }
+            }
+        } finally {
+            writing = false;
+        }
+    }
+
+    /**
+     * Writes chunks of the current chunked response for as long as the channel is writable.
+     *
+     * @return {@code true} if the chunked response was completely written, {@code false} if we must wait for the channel to become
+     *         writable again
+     */
+    private boolean continueChunkedWrite(ChannelHandlerContext ctx) {
+        final Netty4ChunkedHttpResponse response = currentChunkedWrite.v1();
+        final ChunkedRestResponseBody body = response.body();
+        try {
+            while (body.isDone() == false) {
+                if (ctx.channel().isWritable() == false) {
+                    ctx.flush();
+                    if (currentChunkedWrite == null) {
+                        // flushing failed and closed the channel, which already failed the response
+                        return false;
+                    }
+                    if (ctx.channel().isWritable() == false) {
+                        // we resume in channelWritabilityChanged once enough of what we flushed has been sent
+                        return false;
+                    }
+                }
+                final ReleasableBytesReference chunk = body.encodeChunk(CHUNK_SIZE_HINT, response.bigArrays());
+                if (chunk.length() == 0) {
+                    // an empty chunk would terminate the chunked encoding
+                    chunk.close();
+                } else {
+                    ctx.write(new DefaultHttpContent(Netty4Utils.toByteBuf(chunk))).addListener(f -> chunk.close());
+                }
+            }
+        } catch (Exception e) {
+            logger.debug(new ParameterizedMessage("failed to serialize chunk of response to [{}]", ctx.channel()), e);
+            final ChannelPromise promise = currentChunkedWrite.v2();
+            currentChunkedWrite = null;
+            promise.tryFailure(e);
+            ctx.channel().close();
+            return false;
+        }
+        final ChannelPromise promise = currentChunkedWrite.v2();
+        currentChunkedWrite = null;
+        ctx.write(LastHttpContent.EMPTY_LAST_CONTENT, promise);
+        return true;
     }
 
     @Override
     public void close(ChannelHandlerContext ctx, ChannelPromise promise) {
-        List<Tuple<Netty4HttpResponse, ChannelPromise>> inflightResponses = aggregator.removeAllInflightResponses();
+        failInflightResponses();
+        ctx.close(promise);
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        // the peer may disconnect without us closing the channel, fail whatever we still hold on to in that case too
+        failInflightResponses();
+        super.channelInactive(ctx);
+    }
+
+    private void failInflightResponses() {
+        List<Tuple<HttpPipelinedMessage, ChannelPromise>> inflightResponses = new ArrayList<>(aggregator.removeAllInflightResponses());
+        inflightResponses.addAll(queuedWrites);
+        queuedWrites.clear();
+        if (currentChunkedWrite != null) {
+            inflightResponses.add(new Tuple<>(currentChunkedWrite.v1(), currentChunkedWrite.v2()));
+            currentChunkedWrite = null;
+        }
 
         if (inflightResponses.isEmpty() == false) {
             ClosedChannelException closedChannelException = new ClosedChannelException();
-            for (Tuple<Netty4HttpResponse, ChannelPromise> inflightResponse : inflightResponses) {
+            for (Tuple<HttpPipelinedMessage, ChannelPromise> inflightResponse : inflightResponses) {
                 try {
                     inflightResponse.v2().setFailure(closedChannelException);
                 } catch (RuntimeException e) {
@@ -92,6 +220,5 @@ public class Netty4HttpPipeliningHandler extends ChannelDuplexHandler {
                 }
             }
         }
-        ctx.close(promise);
     }
 }
@@ -31,7 +31,10 @@ import io.netty.handler.codec.http.cookie.Cookie;
 import io.netty.handler.codec.http.cookie.ServerCookieDecoder;
 import io.netty.handler.codec.http.cookie.ServerCookieEncoder;
 import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.http.HttpContentStream;
 import org.elasticsearch.http.HttpRequest;
+import org.elasticsearch.rest.ChunkedRestResponseBody;
 import org.elasticsearch.rest.RestRequest;
 import org.elasticsearch.rest.RestStatus;
 import org.elasticsearch.transport.netty4.Netty4Utils;
@@ -52,25 +55,32 @@ public class Netty4HttpRequest implements HttpRequest {
     private final FullHttpRequest request;
     private final boolean pooled;
     private final BytesReference content;
+    private final Netty4HttpContentStream contentStream;
 
     Netty4HttpRequest(FullHttpRequest request, int sequence) {
         this(request, new HttpHeadersMap(request.headers()), sequence, new AtomicBoolean(false), true,
-            Netty4Utils.toBytesReference(request.content()));
+            Netty4Utils.toBytesReference(request.content()),
+            request instanceof Netty4HttpContentStreamHandler.StreamedHttpRequest
+                ? ((Netty4HttpContentStreamHandler.StreamedHttpRequest) request).contentStream() : null);
     }
 
     private Netty4HttpRequest(FullHttpRequest request, HttpHeadersMap headers, int sequence, AtomicBoolean released, boolean pooled,
-                              BytesReference content) {
+                              BytesReference content, Netty4HttpContentStream contentStream) {
         this.request = request;
         this.sequence = sequence;
         this.headers = headers;
         this.content = content;
         this.pooled = pooled;
         this.released = released;
+        this.contentStream = contentStream;
     }
 
     @Override
     public RestRequest.Method method() {
-        HttpMethod httpMethod = request.method();
+        return translateRequestMethod(request.method());
+    }
+
+    static RestRequest.Method translateRequestMethod(HttpMethod httpMethod) {
         if (httpMethod == HttpMethod.GET)
             return RestRequest.Method.GET;
 
@@ -117,6 +127,11 @@ public class Netty4HttpRequest implements HttpRequest {
         return content;
     }
 
+    @Override
+    public HttpContentStream contentStream() {
+        return contentStream;
+    }
+
     @Override
     public void release() {
         if (pooled && released.compareAndSet(false, true)) {
@@ -127,7 +142,8 @@ public class Netty4HttpRequest implements HttpRequest {
     @Override
     public HttpRequest releaseAndCopy() {
         assert released.get() == false;
-        if (pooled == false) {
+        if (pooled == false || contentStream != null) {
+            // the content of a streamed request is received after the request, so it can't be copied here
             return this;
         }
         try {
@@ -135,7 +151,7 @@ public class Netty4HttpRequest implements HttpRequest {
             return new Netty4HttpRequest(
                 new DefaultFullHttpRequest(request.protocolVersion(), request.method(), request.uri(), copiedContent, request.headers(),
                     request.trailingHeaders()),
-                headers, sequence, new AtomicBoolean(false), false, Netty4Utils.toBytesReference(copiedContent));
+                headers, sequence, new AtomicBoolean(false), false, Netty4Utils.toBytesReference(copiedContent), null);
         } finally {
             release();
         }
@@ -180,7 +196,7 @@ public class Netty4HttpRequest implements HttpRequest {
         FullHttpRequest requestWithoutHeader = new DefaultFullHttpRequest(request.protocolVersion(), request.method(), request.uri(),
             request.content(), headersWithoutContentTypeHeader, trailingHeaders);
         return new Netty4HttpRequest(requestWithoutHeader, new HttpHeadersMap(requestWithoutHeader.headers()), sequence, released,
-            pooled, content);
+            pooled, content, contentStream);
     }
 
     @Override
@@ -188,6 +204,17 @@ public class Netty4HttpRequest implements HttpRequest {
         return new Netty4HttpResponse(this, status, content);
     }
 
+    @Override
+    public boolean supportsChunkedResponses() {
+        // chunked transfer encoding was only introduced in HTTP/1.1
+        return request.protocolVersion().equals(io.netty.handler.codec.http.HttpVersion.HTTP_1_1);
+    }
+
+    @Override
+    public Netty4ChunkedHttpResponse createResponse(RestStatus status, ChunkedRestResponseBody content, BigArrays bigArrays) {
+        return new Netty4ChunkedHttpResponse(this, status, content, bigArrays);
+    }
+
     public FullHttpRequest nettyRequest() {
         return request;
     }
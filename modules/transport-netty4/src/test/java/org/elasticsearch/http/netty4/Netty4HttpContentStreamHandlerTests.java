@@ -0,0 +1,200 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.http.netty4;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.DefaultFullHttpRequest;
+import io.netty.handler.codec.http.DefaultHttpContent;
+import io.netty.handler.codec.http.DefaultHttpRequest;
+import io.netty.handler.codec.http.DefaultLastHttpContent;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpRequest;
+import io.netty.handler.codec.http.LastHttpContent;
+import org.elasticsearch.ElasticsearchStatusException;
+import org.elasticsearch.common.bytes.ReleasableBytesReference;
+import org.elasticsearch.http.HttpContentStream;
+import org.elasticsearch.rest.RestRequest;
+import org.elasticsearch.rest.RestStatus;
+import org.elasticsearch.test.ESTestCase;
+
+import java.nio.channels.ClosedChannelException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static io.netty.handler.codec.http.HttpVersion.HTTP_1_1;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+
+public class Netty4HttpContentStreamHandlerTests extends ESTestCase {
+
+    private static final int MAX_CONTENT_LENGTH = 1024;
+
+    public void testRequestsPassThroughIfNotStreamed() {
+        final EmbeddedChannel channel = newChannel();
+
+        final DefaultFullHttpRequest fullRequest = new DefaultFullHttpRequest(HTTP_1_1, HttpMethod.POST, "/_bulk");
+        channel.writeInbound(fullRequest);
+        assertThat(channel.readInbound(), sameInstance(fullRequest));
+        fullRequest.release();
+
+        final HttpRequest otherPath = newRequest(HttpMethod.POST, "/_search", 10);
+        channel.writeInbound(otherPath);
+        assertThat(channel.readInbound(), sameInstance(otherPath));
+        channel.writeInbound(LastHttpContent.EMPTY_LAST_CONTENT);
+        assertThat(channel.readInbound(), sameInstance(LastHttpContent.EMPTY_LAST_CONTENT));
+
+        final HttpRequest tooLarge = newRequest(HttpMethod.POST, "/_bulk", MAX_CONTENT_LENGTH + 1);
+        channel.writeInbound(tooLarge);
+        assertThat(channel.readInbound(), sameInstance(tooLarge));
+
+        assertTrue(channel.config().isAutoRead());
+        channel.finishAndReleaseAll();
+    }
+
+    public void testContentIsPassedToHandlerWhenRequested() {
+        final EmbeddedChannel channel = newChannel();
+        channel.writeInbound(newRequest(HttpMethod.POST, "/_bulk?refresh=true", 6));
+        final Object msg = channel.readInbound();
+        assertThat(msg, instanceOf(Netty4HttpContentStreamHandler.StreamedHttpRequest.class));
+        assertFalse(channel.config().isAutoRead());
+        final HttpContentStream stream = ((Netty4HttpContentStreamHandler.StreamedHttpRequest) msg).contentStream();
+
+        final RecordingHandler handler = new RecordingHandler();
+        stream.setHandler(handler);
+        channel.writeInbound(new DefaultHttpContent(content("abc")));
+        assertThat(channel.readInbound(), nullValue());
+        assertThat(handler.parts, empty());
+
+        stream.next();
+        assertThat(handler.parts, contains("abc"));
+        assertFalse(handler.lastPartReceived);
+
+        channel.writeInbound(new DefaultLastHttpContent(content("def")));
+        assertTrue(channel.config().isAutoRead());
+        assertThat(handler.parts, contains("abc"));
+        stream.next();
+        assertThat(handler.parts, contains("abc", "def"));
+        assertTrue(handler.lastPartReceived);
+
+        // the next request is not streamed
+        final DefaultFullHttpRequest nextRequest = new DefaultFullHttpRequest(HTTP_1_1, HttpMethod.GET, "/");
+        channel.writeInbound(nextRequest);
+        assertThat(channel.readInbound(), sameInstance(nextRequest));
+        nextRequest.release();
+
+        ((Netty4HttpContentStreamHandler.StreamedHttpRequest) msg).release();
+        channel.finishAndReleaseAll();
+    }
+
+    public void testContentIsDiscardedWhenRequestIsReleased() {
+        final EmbeddedChannel channel = newChannel();
+        channel.writeInbound(newRequest(HttpMethod.PUT, "/_bulk", 6));
+        final Netty4HttpContentStreamHandler.StreamedHttpRequest request = channel.readInbound();
+        final ByteBuf firstPart = content("abc");
+        channel.writeInbound(new DefaultHttpContent(firstPart));
+
+        request.release();
+        assertTrue(channel.config().isAutoRead());
+        assertEquals(0, firstPart.refCnt());
+
+        final ByteBuf lastPart = content("def");
+        channel.writeInbound(new DefaultLastHttpContent(lastPart));
+        assertThat(channel.readInbound(), nullValue());
+        assertEquals(0, lastPart.refCnt());
+        channel.finishAndReleaseAll();
+    }
+
+    public void testHandlerIsFailedIfContentIsTooLarge() {
+        final EmbeddedChannel channel = newChannel();
+        final HttpRequest head = new DefaultHttpRequest(HTTP_1_1, HttpMethod.POST, "/_bulk");
+        head.headers().set(HttpHeaderNames.TRANSFER_ENCODING, "chunked");
+        channel.writeInbound(head);
+        final Netty4HttpContentStreamHandler.StreamedHttpRequest request = channel.readInbound();
+        final RecordingHandler handler = new RecordingHandler();
+        request.contentStream().setHandler(handler);
+
+        final ByteBuf part = Unpooled.wrappedBuffer(new byte[MAX_CONTENT_LENGTH + 1]);
+        channel.writeInbound(new DefaultHttpContent(part));
+        assertThat(handler.failure, instanceOf(ElasticsearchStatusException.class));
+        assertEquals(RestStatus.REQUEST_ENTITY_TOO_LARGE, ((ElasticsearchStatusException) handler.failure).status());
+        assertThat(handler.parts, empty());
+        assertEquals(0, part.refCnt());
+
+        request.release();
+        channel.finishAndReleaseAll();
+    }
+
+    public void testHandlerIsFailedIfChannelIsClosed() {
+        final EmbeddedChannel channel = newChannel();
+        channel.writeInbound(newRequest(HttpMethod.POST, "/_bulk", 6));
+        final Netty4HttpContentStreamHandler.StreamedHttpRequest request = channel.readInbound();
+        final RecordingHandler handler = new RecordingHandler();
+        request.contentStream().setHandler(handler);
+        request.contentStream().next();
+
+        channel.close();
+        assertThat(handler.failure, instanceOf(ClosedChannelException.class));
+        request.release();
+    }
+
+    private static EmbeddedChannel newChannel() {
+        return new EmbeddedChannel(new Netty4HttpContentStreamHandler(
+            (method, uri) -> method != RestRequest.Method.GET && uri.startsWith("/_bulk"), MAX_CONTENT_LENGTH));
+    }
+
+    private static HttpRequest newRequest(HttpMethod method, String uri, int contentLength) {
+        final HttpRequest request = new DefaultHttpRequest(HTTP_1_1, method, uri);
+        request.headers().set(HttpHeaderNames.CONTENT_LENGTH, contentLength);
+        return request;
+    }
+
+    private static ByteBuf content(String content) {
+        return Unpooled.copiedBuffer(content, StandardCharsets.UTF_8);
+    }
+
+    private static class RecordingHandler implements HttpContentStream.Handler {
+
+        private final List<String> parts = new ArrayList<>();
+        private boolean lastPartReceived;
+        private Exception failure;
+
+        @Override
+        public void onPart(ReleasableBytesReference part, boolean isLast) {
+            try {
+                parts.add(part.utf8ToString());
+                lastPartReceived = isLast;
+            } finally {
+                part.close();
+            }
+        }
+
+        @Override
+        public void onFailure(Exception e) {
+            failure = e;
+        }
+    }
+}
@@ -27,18 +27,24 @@ import io.netty.channel.embedded.EmbeddedChannel;
 import io.netty.handler.codec.http.DefaultFullHttpRequest;
 import io.netty.handler.codec.http.FullHttpRequest;
 import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpContent;
 import io.netty.handler.codec.http.HttpMethod;
 import io.netty.handler.codec.http.HttpRequest;
 import io.netty.handler.codec.http.LastHttpContent;
 import io.netty.handler.codec.http.QueryStringDecoder;
+import org.elasticsearch.common.CheckedConsumer;
 import org.elasticsearch.common.Randomness;
 import org.elasticsearch.common.bytes.BytesArray;
 import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.io.UTF8StreamWriter;
+import org.elasticsearch.common.util.BigArrays;
 import org.elasticsearch.http.HttpPipelinedRequest;
+import org.elasticsearch.rest.ChunkedRestResponseBody;
 import org.elasticsearch.rest.RestStatus;
 import org.elasticsearch.test.ESTestCase;
 import org.junit.After;
 
+import java.io.IOException;
 import java.nio.channels.ClosedChannelException;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
@@ -56,6 +62,7 @@ import java.util.stream.IntStream;
 
 import static io.netty.handler.codec.http.HttpHeaderNames.CONTENT_LENGTH;
 import static io.netty.handler.codec.http.HttpVersion.HTTP_1_1;
+import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.core.Is.is;
 
 public class Netty4HttpPipeliningHandlerTests extends ESTestCase {
@@ -208,6 +215,99 @@ public class Netty4HttpPipeliningHandlerTests extends ESTestCase {
         }
     }
 
+    public void testChunkedResponsesAreStreamedInOrder() {
+        final EmbeddedChannel embeddedChannel = new EmbeddedChannel(new Netty4HttpPipeliningHandler(logger, 2));
+        embeddedChannel.writeInbound(createHttpRequest("/0"));
+        embeddedChannel.writeInbound(createHttpRequest("/1"));
+        final HttpPipelinedRequest<FullHttpRequest> chunkedRequest = embeddedChannel.readInbound();
+        final HttpPipelinedRequest<FullHttpRequest> fullRequest = embeddedChannel.readInbound();
+
+        // enough lines to exceed the high water mark of the channel a few times over
+        final List<String> lines = randomList(1000, 2000, () -> randomAlphaOfLengthBetween(100, 200));
+        final Netty4ChunkedHttpResponse chunkedResponse =
+            new Netty4HttpRequest(chunkedRequest.getRequest(), chunkedRequest.getSequence()).createResponse(RestStatus.OK,
+                ChunkedRestResponseBody.fromTextChunks("text/plain; charset=UTF-8", lines.stream()
+                    .<CheckedConsumer<UTF8StreamWriter, IOException>>map(line -> out -> out.append(line).append('\n')).iterator()),
+                BigArrays.NON_RECYCLING_INSTANCE);
+        final Netty4HttpResponse fullResponse = new Netty4HttpRequest(fullRequest.getRequest(), fullRequest.getSequence())
+            .createResponse(RestStatus.OK, new BytesArray("1".getBytes(StandardCharsets.UTF_8)));
+
+        // the second response must wait for the chunked one ahead of it
+        final ChannelPromise fullPromise = embeddedChannel.newPromise();
+        embeddedChannel.writeAndFlush(fullResponse, fullPromise);
+        assertFalse(fullPromise.isDone());
+        assertThat(embeddedChannel.outboundMessages().size(), is(0));
+
+        final ChannelPromise chunkedPromise = embeddedChannel.newPromise();
+        embeddedChannel.writeAndFlush(chunkedResponse, chunkedPromise);
+        assertTrue(chunkedPromise.isSuccess());
+        assertTrue(fullPromise.isSuccess());
+
+        assertSame(chunkedResponse, embeddedChannel.readOutbound());
+        final StringBuilder content = new StringBuilder();
+        int chunks = 0;
+        Object msg;
+        while ((msg = embeddedChannel.readOutbound()) instanceof LastHttpContent == false) {
+            content.append(((HttpContent) msg).content().toString(StandardCharsets.UTF_8));
+            chunks++;
+        }
+        assertThat(content.toString(), is(lines.stream().map(line -> line + "\n").collect(Collectors.joining())));
+        assertThat(chunks, greaterThan(1));
+        assertReadHttpMessageHasContent(embeddedChannel, "1");
+        assertTrue(embeddedChannel.isOpen());
+    }
+
+    public void testResponsesAreFailedWhenClientDisconnectsDuringChunkedResponse() {
+        final EmbeddedChannel embeddedChannel = new EmbeddedChannel(new Netty4HttpPipeliningHandler(logger, 4));
+        final List<HttpPipelinedRequest<FullHttpRequest>> requests = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            embeddedChannel.writeInbound(createHttpRequest("/" + i));
+            requests.add(embeddedChannel.readInbound());
+        }
+
+        // keep the channel unwritable so that the chunked response is still being streamed when the client goes away
+        embeddedChannel.unsafe().outboundBuffer().setUserDefinedWritability(1, false);
+
+        // the response to the second request must wait for the chunked one ahead of it
+        final ChannelPromise queuedPromise = embeddedChannel.newPromise();
+        embeddedChannel.writeAndFlush(createFullResponse(requests.get(1), "1"), queuedPromise);
+
+        final HttpPipelinedRequest<FullHttpRequest> chunkedRequest = requests.get(0);
+        final Netty4ChunkedHttpResponse chunkedResponse =
+            new Netty4HttpRequest(chunkedRequest.getRequest(), chunkedRequest.getSequence()).createResponse(RestStatus.OK,
+                ChunkedRestResponseBody.fromTextChunks("text/plain; charset=UTF-8", randomList(1, 10, () -> randomAlphaOfLength(10))
+                    .stream().<CheckedConsumer<UTF8StreamWriter, IOException>>map(line -> out -> out.append(line)).iterator()),
+                BigArrays.NON_RECYCLING_INSTANCE);
+        final ChannelPromise chunkedPromise = embeddedChannel.newPromise();
+        embeddedChannel.writeAndFlush(chunkedResponse, chunkedPromise);
+
+        // the response to the fourth request is held back until the third request is answered
+        final ChannelPromise inflightPromise = embeddedChannel.newPromise();
+        embeddedChannel.writeAndFlush(createFullResponse(requests.get(3), "3"), inflightPromise);
+
+        assertSame(chunkedResponse, embeddedChannel.readOutbound());
+        assertNull(embeddedChannel.readOutbound());
+        for (ChannelPromise promise : List.of(queuedPromise, chunkedPromise, inflightPromise)) {
+            assertFalse(promise.isDone());
+        }
+
+        // the client disconnects without the server closing the channel
+        embeddedChannel.pipeline().fireChannelInactive();
+        for (ChannelPromise promise : List.of(queuedPromise, chunkedPromise, inflightPromise)) {
+            assertTrue(promise.isDone());
+            assertTrue(promise.cause() instanceof ClosedChannelException);
+        }
+
+        // becoming writable again must not resume the failed chunked response
+        embeddedChannel.unsafe().outboundBuffer().setUserDefinedWritability(1, true);
+        assertNull(embeddedChannel.readOutbound());
+    }
+
+    private static Netty4HttpResponse createFullResponse(HttpPipelinedRequest<FullHttpRequest> pipelinedRequest, String content) {
+        return new Netty4HttpRequest(pipelinedRequest.getRequest(), pipelinedRequest.getSequence())
+            .createResponse(RestStatus.OK, new BytesArray(content.getBytes(StandardCharsets.UTF_8)));
+    }
+
 
     private void assertReadHttpMessageHasContent(EmbeddedChannel embeddedChannel, String expectedContent) {
         FullHttpResponse response = (FullHttpResponse) embeddedChannel.outboundMessages().poll();
@@ -28,21 +28,29 @@ import org.elasticsearch.action.ActionRunnable;
 import org.elasticsearch.action.support.GroupedActionListener;
 import org.elasticsearch.action.support.PlainActionFuture;
 import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.UUIDs;
 import org.elasticsearch.common.blobstore.BlobContainer;
 import org.elasticsearch.common.blobstore.BlobMetaData;
 import org.elasticsearch.common.blobstore.BlobPath;
 import org.elasticsearch.common.blobstore.DeleteResult;
+import org.elasticsearch.common.blobstore.MultipartBlobWrite;
 import org.elasticsearch.common.blobstore.support.AbstractBlobContainer;
+import org.elasticsearch.common.blobstore.support.AbstractMultipartBlobWrite;
 import org.elasticsearch.threadpool.ThreadPool;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.HttpURLConnection;
 import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.NoSuchFileException;
+import java.util.Base64;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.concurrent.ExecutorService;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 public class AzureBlobContainer extends AbstractBlobContainer {
 
@@ -109,6 +117,59 @@ public class AzureBlobContainer extends AbstractBlobContainer {
         writeBlob(blobName, inputStream, blobSize, failIfAlreadyExists);
     }
 
+    @Override
+    public boolean supportsMultipartWrites() {
+        return true;
+    }
+
+    /**
+     * Uploads each part as an uncommitted block and commits the list of blocks once all parts were written. Blocks that are not
+     * committed are discarded by the service, so aborting the write leaves nothing to clean up.
+     */
+    @Override
+    public MultipartBlobWrite startMultipartWrite(String blobName, long blobSize, int targetPartCount, boolean failIfAlreadyExists) {
+        final long partSize = AbstractMultipartBlobWrite.partSize(blobSize, targetPartCount, getMinBlockSizeInBytes(),
+            AzureStorageService.MAX_BLOCK_SIZE.getBytes(), AzureStorageService.MAX_BLOCKS);
+        // block ids must have the same length within a blob, the random prefix keeps them apart from those of concurrent writes
+        final String blockIdPrefix = UUIDs.randomBase64UUID() + "-";
+        return new AbstractMultipartBlobWrite(blobName, blobSize, partSize) {
+
+            @Override
+            protected void doWritePart(int part, InputStream inputStream) throws IOException {
+                logger.trace("uploadBlock({}, {}, stream, {})", buildKey(blobName), part, partBytes(part));
+                try {
+                    blobStore.uploadBlock(buildKey(blobName), blockId(part), inputStream, partBytes(part));
+                } catch (URISyntaxException | StorageException e) {
+                    throw new IOException("Can not write part [" + part + "] of blob " + blobName, e);
+                }
+            }
+
+            @Override
+            protected void doComplete() throws IOException {
+                final List<String> blockIds = IntStream.range(0, numberOfParts()).mapToObj(this::blockId).collect(Collectors.toList());
+                try {
+                    blobStore.commitBlockList(buildKey(blobName), blockIds, failIfAlreadyExists);
+                } catch (URISyntaxException | StorageException e) {
+                    throw new IOException("Can not write blob " + blobName, e);
+                }
+            }
+
+            @Override
+            protected void doAbort() {
+            }
+
+            private String blockId(int part) {
+                final String blockId = blockIdPrefix + String.format(Locale.ROOT, "%06d", part);
+                return Base64.getEncoder().encodeToString(blockId.getBytes(StandardCharsets.UTF_8));
+            }
+        };
+    }
+
+    // package private for testing
+    long getMinBlockSizeInBytes() {
+        return AzureStorageService.MIN_BLOCK_SIZE.getBytes();
+    }
+
     @Override
     public DeleteResult delete() throws IOException {
         try {
@@ -34,6 +34,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.net.URISyntaxException;
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Executor;
 import java.util.function.Function;
@@ -118,4 +119,14 @@ public class AzureBlobStore implements BlobStore {
         throws URISyntaxException, StorageException, IOException {
         service.writeBlob(this.clientName, container, blobName, inputStream, blobSize, failIfAlreadyExists);
     }
+
+    public void uploadBlock(String blobName, String blockId, InputStream inputStream, long length)
+        throws URISyntaxException, StorageException, IOException {
+        service.uploadBlock(this.clientName, container, blobName, blockId, inputStream, length);
+    }
+
+    public void commitBlockList(String blobName, List<String> blockIds, boolean failIfAlreadyExists)
+        throws URISyntaxException, StorageException, IOException {
+        service.commitBlockList(this.clientName, container, blobName, blockIds, failIfAlreadyExists);
+    }
 }
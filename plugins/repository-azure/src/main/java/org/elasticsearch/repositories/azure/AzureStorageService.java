@@ -31,6 +31,7 @@ import com.microsoft.azure.storage.blob.BlobInputStream;
 import com.microsoft.azure.storage.blob.BlobListingDetails;
 import com.microsoft.azure.storage.blob.BlobProperties;
 import com.microsoft.azure.storage.blob.BlobRequestOptions;
+import com.microsoft.azure.storage.blob.BlockEntry;
 import com.microsoft.azure.storage.blob.CloudBlob;
 import com.microsoft.azure.storage.blob.CloudBlobClient;
 import com.microsoft.azure.storage.blob.CloudBlobContainer;
@@ -66,11 +67,13 @@ import java.util.Collections;
 import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Executor;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 import static java.util.Collections.emptyMap;
 
@@ -84,6 +87,22 @@ public class AzureStorageService {
      */
     public static final ByteSizeValue MAX_CHUNK_SIZE = new ByteSizeValue(256, ByteSizeUnit.MB);
 
+    /**
+     * The minimum size of a block of a block blob that is uploaded in several blocks, blocks of at least 4MB are uploaded with high
+     * throughput by the service.
+     */
+    public static final ByteSizeValue MIN_BLOCK_SIZE = new ByteSizeValue(4, ByteSizeUnit.MB);
+
+    /**
+     * {@link com.microsoft.azure.storage.blob.BlobConstants#MAX_BLOCK_SIZE}
+     */
+    public static final ByteSizeValue MAX_BLOCK_SIZE = new ByteSizeValue(100, ByteSizeUnit.MB);
+
+    /**
+     * The maximum number of blocks of a block blob.
+     */
+    public static final int MAX_BLOCKS = 50_000;
+
     // 'package' for testing
     volatile Map<String, AzureStorageSettings> storageSettings = emptyMap();
 
@@ -341,6 +360,47 @@ public class AzureStorageService {
         logger.trace(() -> new ParameterizedMessage("writeBlob({}, stream, {}) - done", blobName, blobSize));
     }
 
+    /**
+     * Uploads a block of a block blob, which only becomes part of the blob once it was committed by {@link #commitBlockList}. Blocks
+     * that are never committed are discarded by the service.
+     */
+    public void uploadBlock(String account, String container, String blobName, String blockId, InputStream inputStream, long length)
+        throws URISyntaxException, StorageException, IOException {
+        assert inputStream.markSupported()
+            : "Should not be used with non-mark supporting streams as their retry handling in the SDK is broken";
+        logger.trace(() -> new ParameterizedMessage("uploadBlock({}, {}, stream, {})", blobName, blockId, length));
+        final Tuple<CloudBlobClient, Supplier<OperationContext>> client = client(account);
+        final CloudBlobContainer blobContainer = client.v1().getContainerReference(container);
+        final CloudBlockBlob blob = blobContainer.getBlockBlobReference(blobName);
+        SocketAccess.doPrivilegedVoidException(() ->
+            blob.uploadBlock(blockId, inputStream, length, AccessCondition.generateEmptyCondition(), getBlobRequestOptionsForWriteBlob(),
+                client.v2().get()));
+    }
+
+    /**
+     * Writes a block blob that consists of the given previously uploaded blocks, in order.
+     */
+    public void commitBlockList(String account, String container, String blobName, List<String> blockIds, boolean failIfAlreadyExists)
+        throws URISyntaxException, StorageException, IOException {
+        logger.trace(() -> new ParameterizedMessage("commitBlockList({}, {} blocks)", blobName, blockIds.size()));
+        final Tuple<CloudBlobClient, Supplier<OperationContext>> client = client(account);
+        final CloudBlobContainer blobContainer = client.v1().getContainerReference(container);
+        final CloudBlockBlob blob = blobContainer.getBlockBlobReference(blobName);
+        final List<BlockEntry> blocks = blockIds.stream().map(BlockEntry::new).collect(Collectors.toList());
+        try {
+            final AccessCondition accessCondition =
+                failIfAlreadyExists ? AccessCondition.generateIfNotExistsCondition() : AccessCondition.generateEmptyCondition();
+            SocketAccess.doPrivilegedVoidException(() ->
+                blob.commitBlockList(blocks, accessCondition, getBlobRequestOptionsForWriteBlob(), client.v2().get()));
+        } catch (final StorageException se) {
+            if (failIfAlreadyExists && se.getHttpStatusCode() == HttpURLConnection.HTTP_CONFLICT &&
+                StorageErrorCodeStrings.BLOB_ALREADY_EXISTS.equals(se.getErrorCode())) {
+                throw new FileAlreadyExistsException(blobName, null, se.getMessage());
+            }
+            throw se;
+        }
+    }
+
     // package private for testing
     BlobRequestOptions getBlobRequestOptionsForWriteBlob() {
         return null;
@@ -23,13 +23,16 @@ import com.microsoft.azure.storage.RetryExponentialRetry;
 import com.microsoft.azure.storage.RetryPolicyFactory;
 import com.microsoft.azure.storage.blob.BlobRequestOptions;
 import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
 import com.sun.net.httpserver.HttpServer;
 import fixture.azure.AzureHttpHandler;
 import org.elasticsearch.cluster.metadata.RepositoryMetaData;
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.Strings;
 import org.elasticsearch.common.SuppressForbidden;
 import org.elasticsearch.common.blobstore.BlobContainer;
 import org.elasticsearch.common.blobstore.BlobPath;
+import org.elasticsearch.common.blobstore.MultipartBlobWrite;
 import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.io.Streams;
 import org.elasticsearch.common.lucene.store.ByteArrayIndexInput;
@@ -55,9 +58,11 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
+import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.NoSuchFileException;
 import java.util.Arrays;
 import java.util.Base64;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
@@ -70,6 +75,7 @@ import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.elasticsearch.repositories.azure.AzureRepository.Repository.CONTAINER_SETTING;
@@ -109,6 +115,10 @@ public class AzureBlobContainerRetriesTests extends ESTestCase {
     }
 
     private BlobContainer createBlobContainer(final int maxRetries) {
+        return createBlobContainer(maxRetries, null);
+    }
+
+    private BlobContainer createBlobContainer(final int maxRetries, final @Nullable Integer minBlockSize) {
         final Settings.Builder clientSettings = Settings.builder();
         final String clientName = randomAlphaOfLength(5).toLowerCase(Locale.ROOT);
 
@@ -145,7 +155,16 @@ public class AzureBlobContainerRetriesTests extends ESTestCase {
                 .put(ACCOUNT_SETTING.getKey(), clientName)
                 .build());
 
-        return new AzureBlobContainer(BlobPath.cleanPath(), new AzureBlobStore(repositoryMetaData, service, threadPool), threadPool);
+        final AzureBlobStore blobStore = new AzureBlobStore(repositoryMetaData, service, threadPool);
+        if (minBlockSize == null) {
+            return new AzureBlobContainer(BlobPath.cleanPath(), blobStore, threadPool);
+        }
+        return new AzureBlobContainer(BlobPath.cleanPath(), blobStore, threadPool) {
+            @Override
+            long getMinBlockSizeInBytes() {
+                return minBlockSize;
+            }
+        };
     }
 
     public void testReadNonexistentBlobThrowsNoSuchFileException() {
@@ -297,6 +316,88 @@ public class AzureBlobContainerRetriesTests extends ESTestCase {
         assertThat(blocks.isEmpty(), is(true));
     }
 
+    public void testMultipartWriteWithRetries() throws Exception {
+        // a small minimum block size keeps the blocks small, each block is then uploaded with a single request
+        final int minBlockSize = randomIntBetween(128, 1024);
+        final int numberOfParts = randomIntBetween(2, 4);
+        final byte[] data = randomBytes(randomIntBetween((numberOfParts - 1) * minBlockSize + 1, numberOfParts * minBlockSize));
+
+        final AzureHttpHandler handler = new AzureHttpHandler("container");
+        final AtomicInteger commitRequests = new AtomicInteger();
+        httpServer.createContext("/container/write_multipart_blob", new HttpHandler() {
+
+            private final AtomicInteger writeRequests = new AtomicInteger();
+
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                final Map<String, String> params = new HashMap<>();
+                RestUtils.decodeQueryString(exchange.getRequestURI().getQuery(), 0, params);
+                final boolean commit = "blocklist".equals(params.get("comp"));
+                if (commit) {
+                    commitRequests.incrementAndGet();
+                }
+                if ((commit || params.containsKey("blockid")) && writeRequests.incrementAndGet() % 2 == 1) {
+                    // every block upload and the commit of the block list fail once before they succeed
+                    Streams.readFully(exchange.getRequestBody());
+                    AzureHttpHandler.sendError(exchange, randomFrom(RestStatus.INTERNAL_SERVER_ERROR, RestStatus.SERVICE_UNAVAILABLE));
+                    exchange.close();
+                    return;
+                }
+                handler.handle(exchange);
+            }
+        });
+
+        final BlobContainer blobContainer = createBlobContainer(3, minBlockSize);
+        try (MultipartBlobWrite write = blobContainer.startMultipartWrite("write_multipart_blob", data.length, numberOfParts, false)) {
+            assertThat(write.numberOfParts(), equalTo(numberOfParts));
+            final List<Integer> parts = IntStream.range(0, numberOfParts).boxed().collect(Collectors.toList());
+            Collections.shuffle(parts, random());
+            for (int part : parts) {
+                write.writePart(part, partInputStream(write, part, data));
+            }
+            write.complete();
+        }
+        assertThat(commitRequests.get(), equalTo(2));
+        // the uploaded blocks are consumed by the commit of the block list
+        assertThat(handler.blobs().keySet(), equalTo(Collections.singleton("/container/write_multipart_blob")));
+        assertArrayEquals(data, BytesReference.toBytes(handler.blobs().get("/container/write_multipart_blob")));
+
+        try (MultipartBlobWrite write = blobContainer.startMultipartWrite("write_multipart_blob", data.length, numberOfParts, true)) {
+            for (int part = 0; part < write.numberOfParts(); part++) {
+                write.writePart(part, partInputStream(write, part, data));
+            }
+            expectThrows(FileAlreadyExistsException.class, write::complete);
+        }
+        assertArrayEquals(data, BytesReference.toBytes(handler.blobs().get("/container/write_multipart_blob")));
+    }
+
+    public void testIncompleteMultipartWriteIsAborted() throws Exception {
+        final int minBlockSize = randomIntBetween(128, 1024);
+        final int numberOfParts = randomIntBetween(2, 4);
+        final byte[] data = randomBytes(randomIntBetween((numberOfParts - 1) * minBlockSize + 1, numberOfParts * minBlockSize));
+
+        final AzureHttpHandler handler = new AzureHttpHandler("container");
+        final AtomicBoolean committed = new AtomicBoolean();
+        httpServer.createContext("/container/write_aborted_blob", exchange -> {
+            if (exchange.getRequestURI().getQuery().contains("comp=blocklist")) {
+                committed.set(true);
+            }
+            handler.handle(exchange);
+        });
+
+        final BlobContainer blobContainer = createBlobContainer(1, minBlockSize);
+        try (MultipartBlobWrite write = blobContainer.startMultipartWrite("write_aborted_blob", data.length, numberOfParts, false)) {
+            final int writtenParts = randomIntBetween(1, numberOfParts - 1);
+            for (int part = 0; part < writtenParts; part++) {
+                write.writePart(part, partInputStream(write, part, data));
+            }
+            expectThrows(IllegalStateException.class, write::complete);
+        }
+        // uncommitted blocks are discarded by the service, so the blob must never have been committed
+        assertThat(committed.get(), is(false));
+        assertThat(handler.blobs().containsKey("/container/write_aborted_blob"), is(false));
+    }
+
     public void testRetryUntilFail() throws IOException {
         final AtomicBoolean requestReceived = new AtomicBoolean(false);
         httpServer.createContext("/container/write_blob_max_retries", exchange -> {
@@ -335,6 +436,12 @@ public class AzureBlobContainerRetriesTests extends ESTestCase {
         }
     }
 
+    private static InputStream partInputStream(MultipartBlobWrite write, int part, byte[] data) {
+        final int offset = Math.toIntExact(write.partOffset(part));
+        final int length = Math.toIntExact(write.partBytes(part));
+        return new InputStreamIndexInput(new ByteArrayIndexInput("part", data, offset, length), length);
+    }
+
     private static byte[] randomBlobContent() {
         return randomByteArrayOfLength(randomIntBetween(1, frequently() ? 512 : 1 << 20)); // rarely up to 1mb
     }
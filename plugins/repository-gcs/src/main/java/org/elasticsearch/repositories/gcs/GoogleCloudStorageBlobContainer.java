@@ -19,17 +19,21 @@
 
 package org.elasticsearch.repositories.gcs;
 
+import org.elasticsearch.common.UUIDs;
 import org.elasticsearch.common.blobstore.BlobContainer;
 import org.elasticsearch.common.blobstore.BlobMetaData;
 import org.elasticsearch.common.blobstore.BlobPath;
 import org.elasticsearch.common.blobstore.DeleteResult;
+import org.elasticsearch.common.blobstore.MultipartBlobWrite;
 import org.elasticsearch.common.blobstore.support.AbstractBlobContainer;
+import org.elasticsearch.common.blobstore.support.AbstractMultipartBlobWrite;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 class GoogleCloudStorageBlobContainer extends AbstractBlobContainer {
 
@@ -72,6 +76,46 @@ class GoogleCloudStorageBlobContainer extends AbstractBlobContainer {
         writeBlob(blobName, inputStream, blobSize, failIfAlreadyExists);
     }
 
+    @Override
+    public boolean supportsMultipartWrites() {
+        return true;
+    }
+
+    /**
+     * Writes each part as a temporary blob and composes them into the target blob once all parts were written.
+     */
+    @Override
+    public MultipartBlobWrite startMultipartWrite(String blobName, long blobSize, int targetPartCount, boolean failIfAlreadyExists) {
+        final long partSize = AbstractMultipartBlobWrite.partSize(blobSize, targetPartCount,
+            blobStore.getLargeBlobThresholdInBytes(), Long.MAX_VALUE, GoogleCloudStorageBlobStore.MAX_COMPOSE_SOURCES);
+        final String partPrefix = blobName + "-part-" + UUIDs.randomBase64UUID() + "-";
+        return new AbstractMultipartBlobWrite(blobName, blobSize, partSize) {
+
+            @Override
+            protected void doWritePart(int part, InputStream inputStream) throws IOException {
+                blobStore.writeBlob(buildKey(partPrefix + part), inputStream, partBytes(part), false);
+            }
+
+            @Override
+            protected void doComplete() throws IOException {
+                try {
+                    blobStore.composeBlob(buildKey(blobName), partBlobNames(), failIfAlreadyExists);
+                } finally {
+                    doAbort();
+                }
+            }
+
+            @Override
+            protected void doAbort() throws IOException {
+                blobStore.deleteBlobsIgnoringIfNotExists(partBlobNames());
+            }
+
+            private List<String> partBlobNames() {
+                return IntStream.range(0, numberOfParts()).mapToObj(part -> buildKey(partPrefix + part)).collect(Collectors.toList());
+            }
+        };
+    }
+
     @Override
     public DeleteResult delete() throws IOException {
         return blobStore.deleteDirectory(path().buildAsString());
@@ -78,6 +78,10 @@ class GoogleCloudStorageBlobStore implements BlobStore {
     // https://cloud.google.com/storage/docs/json_api/v1/how-tos/resumable-upload
     public static final int LARGE_BLOB_THRESHOLD_BYTE_SIZE = 5 * 1024 * 1024;
 
+    // The maximum number of blobs that can be concatenated in a single compose request
+    // https://cloud.google.com/storage/docs/composite-objects
+    static final int MAX_COMPOSE_SOURCES = 32;
+
     private final String bucketName;
     private final String clientName;
     private final GoogleCloudStorageService storageService;
@@ -314,6 +318,31 @@ class GoogleCloudStorageBlobStore implements BlobStore {
         }
     }
 
+    /**
+     * Concatenates the given source blobs, at most {@link #MAX_COMPOSE_SOURCES} of them, into a new blob, see
+     * https://cloud.google.com/storage/docs/composite-objects
+     * @param blobName the name of the blob to create
+     * @param sourceBlobNames the names of the blobs to concatenate, in order
+     * @param failIfAlreadyExists whether to throw a FileAlreadyExistsException if the given blob already exists
+     */
+    void composeBlob(String blobName, List<String> sourceBlobNames, boolean failIfAlreadyExists) throws IOException {
+        assert sourceBlobNames.size() <= MAX_COMPOSE_SOURCES : "can't compose more than " + MAX_COMPOSE_SOURCES + " blobs";
+        final Storage.ComposeRequest.Builder composeRequest = Storage.ComposeRequest.newBuilder()
+            .addSource(sourceBlobNames)
+            .setTarget(BlobInfo.newBuilder(bucketName, blobName).build());
+        if (failIfAlreadyExists) {
+            composeRequest.setTargetOptions(Storage.BlobTargetOption.doesNotExist());
+        }
+        try {
+            SocketAccess.doPrivilegedVoidIOException(() -> client().compose(composeRequest.build()));
+        } catch (final StorageException se) {
+            if (failIfAlreadyExists && se.getCode() == HTTP_PRECON_FAILED) {
+                throw new FileAlreadyExistsException(blobName, null, se.getMessage());
+            }
+            throw se;
+        }
+    }
+
     /**
      * Deletes the given path and all its children.
      *
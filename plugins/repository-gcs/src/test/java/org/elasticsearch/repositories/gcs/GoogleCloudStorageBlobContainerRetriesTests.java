@@ -23,8 +23,11 @@ import com.google.cloud.http.HttpTransportOptions;
 import com.google.cloud.storage.StorageException;
 import com.google.cloud.storage.StorageOptions;
 import com.sun.net.httpserver.HttpContext;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
 import com.sun.net.httpserver.HttpServer;
 import fixture.gcs.FakeOAuth2HttpHandler;
+import fixture.gcs.GoogleCloudStorageHttpHandler;
 import org.apache.http.HttpStatus;
 import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.Strings;
@@ -32,6 +35,7 @@ import org.elasticsearch.common.SuppressForbidden;
 import org.elasticsearch.common.UUIDs;
 import org.elasticsearch.common.blobstore.BlobContainer;
 import org.elasticsearch.common.blobstore.BlobPath;
+import org.elasticsearch.common.blobstore.MultipartBlobWrite;
 import org.elasticsearch.common.bytes.BytesArray;
 import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.collect.Tuple;
@@ -57,8 +61,10 @@ import java.io.InputStream;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.SocketTimeoutException;
+import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.NoSuchFileException;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
@@ -68,6 +74,8 @@ import java.util.Optional;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import static fixture.gcs.GoogleCloudStorageHttpHandler.getContentRangeEnd;
 import static fixture.gcs.GoogleCloudStorageHttpHandler.getContentRangeLimit;
@@ -80,6 +88,7 @@ import static org.elasticsearch.repositories.gcs.GoogleCloudStorageClientSetting
 import static org.elasticsearch.repositories.gcs.GoogleCloudStorageClientSettings.READ_TIMEOUT_SETTING;
 import static org.elasticsearch.repositories.gcs.GoogleCloudStorageClientSettings.TOKEN_URI_SETTING;
 import static org.elasticsearch.repositories.gcs.TestUtils.createServiceAccount;
+import static org.hamcrest.Matchers.anEmptyMap;
 import static org.hamcrest.Matchers.anyOf;
 import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.equalTo;
@@ -113,6 +122,11 @@ public class GoogleCloudStorageBlobContainerRetriesTests extends ESTestCase {
     }
 
     private BlobContainer createBlobContainer(final int maxRetries, final @Nullable TimeValue readTimeout) {
+        return createBlobContainer(maxRetries, readTimeout, null);
+    }
+
+    private BlobContainer createBlobContainer(final int maxRetries, final @Nullable TimeValue readTimeout,
+                                              final @Nullable Integer largeBlobThreshold) {
         final Settings.Builder clientSettings = Settings.builder();
         final String client = randomAlphaOfLength(5).toLowerCase(Locale.ROOT);
         clientSettings.put(ENDPOINT_SETTING.getConcreteSettingForNamespace(client).getKey(), httpServerUrl());
@@ -160,7 +174,14 @@ public class GoogleCloudStorageBlobContainerRetriesTests extends ESTestCase {
             })
         );
 
-        final GoogleCloudStorageBlobStore blobStore = new GoogleCloudStorageBlobStore("bucket", client, service);
+        final GoogleCloudStorageBlobStore blobStore = largeBlobThreshold == null
+            ? new GoogleCloudStorageBlobStore("bucket", client, service)
+            : new GoogleCloudStorageBlobStore("bucket", client, service) {
+                @Override
+                long getLargeBlobThresholdInBytes() {
+                    return largeBlobThreshold;
+                }
+            };
         httpContexts.forEach(httpContext -> httpServer.removeContext(httpContext));
 
         return new GoogleCloudStorageBlobContainer(BlobPath.cleanPath(), blobStore);
@@ -426,6 +447,85 @@ public class GoogleCloudStorageBlobContainerRetriesTests extends ESTestCase {
         assertThat(allow410Gone.get(), is(false));
     }
 
+    public void testMultipartWriteWithRetries() throws Exception {
+        // a small threshold keeps the parts small, each part is then uploaded with a single multipart upload request
+        final int largeBlobThreshold = randomIntBetween(128, 1024);
+        final int numberOfParts = randomIntBetween(2, 4);
+        final byte[] data = randomBytes(randomIntBetween((numberOfParts - 1) * largeBlobThreshold + 1, numberOfParts * largeBlobThreshold));
+
+        final GoogleCloudStorageHttpHandler handler = new GoogleCloudStorageHttpHandler("bucket");
+        final AtomicInteger composeRequests = new AtomicInteger();
+        final BlobContainer blobContainer = createBlobContainer(3, null, largeBlobThreshold);
+        httpServer.createContext("/", new HttpHandler() {
+
+            private final AtomicInteger writeRequests = new AtomicInteger();
+
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                final boolean compose = exchange.getRequestURI().getPath().endsWith("/compose");
+                if (compose) {
+                    composeRequests.incrementAndGet();
+                }
+                if ((compose || exchange.getRequestURI().getPath().startsWith("/upload/")) && writeRequests.incrementAndGet() % 2 == 1) {
+                    // every part upload and compose request fails once before it succeeds
+                    Streams.readFully(exchange.getRequestBody());
+                    exchange.sendResponseHeaders(HttpStatus.SC_INTERNAL_SERVER_ERROR, -1);
+                    exchange.close();
+                    return;
+                }
+                handler.handle(exchange);
+            }
+        });
+
+        try (MultipartBlobWrite write = blobContainer.startMultipartWrite("write_multipart_blob", data.length, numberOfParts, false)) {
+            assertThat(write.numberOfParts(), equalTo(numberOfParts));
+            final List<Integer> parts = IntStream.range(0, numberOfParts).boxed().collect(Collectors.toList());
+            Collections.shuffle(parts, random());
+            for (int part : parts) {
+                write.writePart(part, partInputStream(write, part, data));
+            }
+            write.complete();
+        }
+        assertThat(composeRequests.get(), equalTo(2));
+        // the temporary part blobs are removed once they were composed
+        assertThat(handler.blobs().keySet(), equalTo(Collections.singleton("write_multipart_blob")));
+        assertArrayEquals(data, BytesReference.toBytes(handler.blobs().get("write_multipart_blob")));
+
+        try (MultipartBlobWrite write = blobContainer.startMultipartWrite("write_multipart_blob", data.length, numberOfParts, true)) {
+            for (int part = 0; part < write.numberOfParts(); part++) {
+                write.writePart(part, partInputStream(write, part, data));
+            }
+            expectThrows(FileAlreadyExistsException.class, write::complete);
+        }
+        assertThat(handler.blobs().keySet(), equalTo(Collections.singleton("write_multipart_blob")));
+    }
+
+    public void testIncompleteMultipartWriteIsAborted() throws Exception {
+        final int largeBlobThreshold = randomIntBetween(128, 1024);
+        final int numberOfParts = randomIntBetween(2, 4);
+        final byte[] data = randomBytes(randomIntBetween((numberOfParts - 1) * largeBlobThreshold + 1, numberOfParts * largeBlobThreshold));
+
+        final GoogleCloudStorageHttpHandler handler = new GoogleCloudStorageHttpHandler("bucket");
+        final BlobContainer blobContainer = createBlobContainer(1, null, largeBlobThreshold);
+        httpServer.createContext("/", handler);
+
+        try (MultipartBlobWrite write = blobContainer.startMultipartWrite("write_aborted_blob", data.length, numberOfParts, false)) {
+            final int writtenParts = randomIntBetween(1, numberOfParts - 1);
+            for (int part = 0; part < writtenParts; part++) {
+                write.writePart(part, partInputStream(write, part, data));
+            }
+            assertThat(handler.blobs().size(), equalTo(writtenParts));
+            expectThrows(IllegalStateException.class, write::complete);
+        }
+        assertThat(handler.blobs(), anEmptyMap());
+    }
+
+    private static InputStream partInputStream(MultipartBlobWrite write, int part, byte[] data) {
+        final int offset = Math.toIntExact(write.partOffset(part));
+        final int length = Math.toIntExact(write.partBytes(part));
+        return new InputStreamIndexInput(new ByteArrayIndexInput("part", data, offset, length), length);
+    }
+
     private static byte[] randomBlobContent() {
         return randomByteArrayOfLength(randomIntBetween(1, frequently() ? 512 : 1 << 20)); // rarely up to 1mb
     }
@@ -43,9 +43,12 @@ import org.elasticsearch.common.blobstore.BlobContainer;
 import org.elasticsearch.common.blobstore.BlobMetaData;
 import org.elasticsearch.common.blobstore.BlobPath;
 import org.elasticsearch.common.blobstore.DeleteResult;
+import org.elasticsearch.common.blobstore.MultipartBlobWrite;
 import org.elasticsearch.common.blobstore.support.AbstractBlobContainer;
+import org.elasticsearch.common.blobstore.support.AbstractMultipartBlobWrite;
 import org.elasticsearch.common.blobstore.support.PlainBlobMetaData;
 import org.elasticsearch.common.collect.Tuple;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
 
 import java.io.IOException;
 import java.io.InputStream;
@@ -54,12 +57,15 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import static org.elasticsearch.repositories.s3.S3Repository.MAX_FILE_SIZE;
 import static org.elasticsearch.repositories.s3.S3Repository.MAX_FILE_SIZE_USING_MULTIPART;
+import static org.elasticsearch.repositories.s3.S3Repository.MAX_MULTIPART_PARTS;
+import static org.elasticsearch.repositories.s3.S3Repository.MAX_PART_SIZE_USING_MULTIPART;
 import static org.elasticsearch.repositories.s3.S3Repository.MIN_PART_SIZE_USING_MULTIPART;
 
 class S3BlobContainer extends AbstractBlobContainer {
@@ -112,6 +118,90 @@ class S3BlobContainer extends AbstractBlobContainer {
         writeBlob(blobName, inputStream, blobSize, failIfAlreadyExists);
     }
 
+    @Override
+    public boolean supportsMultipartWrites() {
+        return true;
+    }
+
+    /**
+     * Writes the parts as the parts of a S3 multipart upload. This implementation ignores the failIfAlreadyExists flag for the same
+     * reason as {@link #writeBlob}.
+     */
+    @Override
+    public MultipartBlobWrite startMultipartWrite(String blobName, long blobSize, int targetPartCount, boolean failIfAlreadyExists)
+        throws IOException {
+        if (blobSize > MAX_FILE_SIZE_USING_MULTIPART.getBytes()) {
+            throw new IllegalArgumentException("Multipart upload request size [" + blobSize
+                + "] can't be larger than " + MAX_FILE_SIZE_USING_MULTIPART);
+        }
+        final long partSize = AbstractMultipartBlobWrite.partSize(blobSize, targetPartCount, MIN_PART_SIZE_USING_MULTIPART.getBytes(),
+            MAX_PART_SIZE_USING_MULTIPART.getBytes(), MAX_MULTIPART_PARTS);
+        final String bucketName = blobStore.bucket();
+        final String key = buildKey(blobName);
+        final InitiateMultipartUploadRequest initRequest = new InitiateMultipartUploadRequest(bucketName, key);
+        initRequest.setStorageClass(blobStore.getStorageClass());
+        initRequest.setCannedACL(blobStore.getCannedACL());
+        if (blobStore.serverSideEncryption()) {
+            final ObjectMetadata md = new ObjectMetadata();
+            md.setSSEAlgorithm(ObjectMetadata.AES_256_SERVER_SIDE_ENCRYPTION);
+            initRequest.setObjectMetadata(md);
+        }
+        final String uploadId;
+        try (AmazonS3Reference clientReference = blobStore.clientReference()) {
+            uploadId = SocketAccess.doPrivileged(() -> clientReference.client().initiateMultipartUpload(initRequest).getUploadId());
+        } catch (final AmazonClientException e) {
+            throw new IOException("Unable to start multipart upload of object [" + blobName + "]", e);
+        }
+        if (Strings.isEmpty(uploadId)) {
+            throw new IOException("Failed to initialize multipart upload " + blobName);
+        }
+        return new AbstractMultipartBlobWrite(blobName, blobSize, partSize) {
+
+            private final Map<Integer, PartETag> partETags = ConcurrentCollections.newConcurrentMap();
+
+            @Override
+            protected void doWritePart(int part, InputStream inputStream) throws IOException {
+                assert inputStream.markSupported() : "No mark support on inputStream breaks the S3 SDK's ability to retry requests";
+                final UploadPartRequest uploadRequest = new UploadPartRequest();
+                uploadRequest.setBucketName(bucketName);
+                uploadRequest.setKey(key);
+                uploadRequest.setUploadId(uploadId);
+                uploadRequest.setPartNumber(part + 1);
+                uploadRequest.setInputStream(inputStream);
+                uploadRequest.setPartSize(partBytes(part));
+                uploadRequest.setLastPart(part == numberOfParts() - 1);
+                try (AmazonS3Reference clientReference = blobStore.clientReference()) {
+                    final UploadPartResult uploadResponse =
+                        SocketAccess.doPrivileged(() -> clientReference.client().uploadPart(uploadRequest));
+                    partETags.put(part, uploadResponse.getPartETag());
+                } catch (final AmazonClientException e) {
+                    throw new IOException("Unable to upload part [" + part + "] of object [" + blobName + "]", e);
+                }
+            }
+
+            @Override
+            protected void doComplete() throws IOException {
+                final List<PartETag> parts = new ArrayList<>(new TreeMap<>(partETags).values());
+                final CompleteMultipartUploadRequest complRequest = new CompleteMultipartUploadRequest(bucketName, key, uploadId, parts);
+                try (AmazonS3Reference clientReference = blobStore.clientReference()) {
+                    SocketAccess.doPrivilegedVoid(() -> clientReference.client().completeMultipartUpload(complRequest));
+                } catch (final AmazonClientException e) {
+                    throw new IOException("Unable to complete multipart upload of object [" + blobName + "]", e);
+                }
+            }
+
+            @Override
+            protected void doAbort() throws IOException {
+                final AbortMultipartUploadRequest abortRequest = new AbortMultipartUploadRequest(bucketName, key, uploadId);
+                try (AmazonS3Reference clientReference = blobStore.clientReference()) {
+                    SocketAccess.doPrivilegedVoid(() -> clientReference.client().abortMultipartUpload(abortRequest));
+                } catch (final AmazonClientException e) {
+                    throw new IOException("Unable to abort multipart upload of object [" + blobName + "]", e);
+                }
+            }
+        };
+    }
+
     @Override
     public DeleteResult delete() throws IOException {
         final AtomicLong deletedBlobs = new AtomicLong();
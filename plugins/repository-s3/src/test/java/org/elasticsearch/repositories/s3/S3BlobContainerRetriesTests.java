@@ -31,6 +31,7 @@ import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.SuppressForbidden;
 import org.elasticsearch.common.blobstore.BlobContainer;
 import org.elasticsearch.common.blobstore.BlobPath;
+import org.elasticsearch.common.blobstore.MultipartBlobWrite;
 import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.io.Streams;
 import org.elasticsearch.common.lucene.store.ByteArrayIndexInput;
@@ -41,6 +42,7 @@ import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.unit.ByteSizeUnit;
 import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
 import org.elasticsearch.common.util.concurrent.CountDown;
 import org.elasticsearch.core.internal.io.IOUtils;
 import org.elasticsearch.mocksocket.MockHttpServer;
@@ -56,13 +58,19 @@ import java.net.SocketTimeoutException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.NoSuchFileException;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import static org.elasticsearch.repositories.s3.S3ClientSettings.DISABLE_CHUNKED_ENCODING;
 import static org.elasticsearch.repositories.s3.S3ClientSettings.ENDPOINT_SETTING;
@@ -71,6 +79,7 @@ import static org.elasticsearch.repositories.s3.S3ClientSettings.READ_TIMEOUT_SE
 import static org.hamcrest.Matchers.anyOf;
 import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.lessThan;
@@ -393,6 +402,142 @@ public class S3BlobContainerRetriesTests extends ESTestCase {
         assertThat(countDownComplete.isCountedDown(), is(true));
     }
 
+    public void testMultipartWriteWithRetries() throws Exception {
+        final BlobContainer blobContainer = createBlobContainer(randomIntBetween(1, 3), null, true, null);
+        final long minPartSize = S3Repository.MIN_PART_SIZE_USING_MULTIPART.getBytes();
+        final long blobSize = randomLongBetween(minPartSize + 1, 3 * minPartSize + 512);
+
+        // every request fails once before it succeeds
+        final CountDown countDownInitiate = new CountDown(2);
+        final Map<String, Integer> partAttempts = ConcurrentCollections.newConcurrentMap();
+        final Map<Integer, Long> uploadedParts = ConcurrentCollections.newConcurrentMap();
+        final Map<Integer, String> partETags = ConcurrentCollections.newConcurrentMap();
+        final CountDown countDownComplete = new CountDown(2);
+        final AtomicReference<String> completeRequest = new AtomicReference<>();
+
+        httpServer.createContext("/bucket/write_multipart_blob", exchange -> {
+            final String query = exchange.getRequestURI().getQuery();
+            if ("POST".equals(exchange.getRequestMethod()) && query.equals("uploads")) {
+                if (countDownInitiate.countDown()) {
+                    sendXmlResponse(exchange, "<InitiateMultipartUploadResult>\n" +
+                        "  <Bucket>bucket</Bucket>\n" +
+                        "  <Key>write_multipart_blob</Key>\n" +
+                        "  <UploadId>TEST</UploadId>\n" +
+                        "</InitiateMultipartUploadResult>");
+                    return;
+                }
+            } else if ("PUT".equals(exchange.getRequestMethod()) && query.contains("uploadId=TEST") && query.contains("partNumber=")) {
+                final String partNumber = query.replaceAll(".*partNumber=([0-9]+).*", "$1");
+                final MD5DigestCalculatingInputStream md5 = new MD5DigestCalculatingInputStream(exchange.getRequestBody());
+                final BytesReference bytes = Streams.readFully(md5);
+                if (partAttempts.merge(partNumber, 1, Integer::sum) > 1) {
+                    final String etag = Base16.encodeAsString(md5.getMd5Digest());
+                    uploadedParts.put(Integer.parseInt(partNumber), (long) bytes.length());
+                    partETags.put(Integer.parseInt(partNumber), etag);
+                    exchange.getResponseHeaders().add("ETag", etag);
+                    exchange.sendResponseHeaders(HttpStatus.SC_OK, -1);
+                    exchange.close();
+                    return;
+                }
+            } else if ("POST".equals(exchange.getRequestMethod()) && query.equals("uploadId=TEST")) {
+                final String body = Streams.readFully(exchange.getRequestBody()).utf8ToString();
+                if (countDownComplete.countDown()) {
+                    completeRequest.set(body);
+                    sendXmlResponse(exchange, "<CompleteMultipartUploadResult>\n" +
+                        "  <Bucket>bucket</Bucket>\n" +
+                        "  <Key>write_multipart_blob</Key>\n" +
+                        "</CompleteMultipartUploadResult>");
+                    return;
+                }
+            } else {
+                fail("unexpected request [" + exchange.getRequestMethod() + " " + exchange.getRequestURI() + "]");
+            }
+            Streams.readFully(exchange.getRequestBody());
+            exchange.sendResponseHeaders(randomFrom(HttpStatus.SC_INTERNAL_SERVER_ERROR, HttpStatus.SC_BAD_GATEWAY,
+                HttpStatus.SC_SERVICE_UNAVAILABLE, HttpStatus.SC_GATEWAY_TIMEOUT), -1);
+            exchange.close();
+        });
+
+        try (MultipartBlobWrite write = blobContainer.startMultipartWrite("write_multipart_blob", blobSize, randomIntBetween(2, 4),
+            false)) {
+            assertThat(write.numberOfParts(), greaterThan(1));
+            final List<Integer> parts = IntStream.range(0, write.numberOfParts()).boxed().collect(Collectors.toList());
+            Collections.shuffle(parts, random());
+            for (int part : parts) {
+                write.writePart(part, new ZeroInputStream(write.partBytes(part)));
+            }
+            write.complete();
+
+            assertThat(uploadedParts.size(), equalTo(write.numberOfParts()));
+            long uploadedBytes = 0L;
+            for (int part = 0; part < write.numberOfParts(); part++) {
+                assertThat(uploadedParts.get(part + 1), equalTo(write.partBytes(part)));
+                uploadedBytes += uploadedParts.get(part + 1);
+            }
+            assertThat(uploadedBytes, equalTo(blobSize));
+            // the parts are completed in order, whatever the order they were written in
+            final Matcher matcher = Pattern.compile("<PartNumber>([0-9]+)</PartNumber><ETag>([^<]+)</ETag>").matcher(completeRequest.get());
+            for (int part = 1; part <= write.numberOfParts(); part++) {
+                assertTrue(completeRequest.get(), matcher.find());
+                assertThat(matcher.group(1), equalTo(Integer.toString(part)));
+                assertThat(matcher.group(2), equalTo(partETags.get(part)));
+            }
+            assertFalse(matcher.find());
+        }
+        assertThat(countDownInitiate.isCountedDown(), is(true));
+    }
+
+    public void testIncompleteMultipartWriteIsAborted() throws Exception {
+        final BlobContainer blobContainer = createBlobContainer(randomIntBetween(1, 3), null, true, null);
+        final long minPartSize = S3Repository.MIN_PART_SIZE_USING_MULTIPART.getBytes();
+        final long blobSize = randomLongBetween(minPartSize + 1, 3 * minPartSize + 512);
+
+        final AtomicInteger uploadedParts = new AtomicInteger();
+        final AtomicBoolean aborted = new AtomicBoolean();
+        httpServer.createContext("/bucket/write_aborted_blob", exchange -> {
+            final String query = exchange.getRequestURI().getQuery();
+            final MD5DigestCalculatingInputStream md5 = new MD5DigestCalculatingInputStream(exchange.getRequestBody());
+            Streams.readFully(md5);
+            if ("POST".equals(exchange.getRequestMethod()) && query.equals("uploads")) {
+                sendXmlResponse(exchange, "<InitiateMultipartUploadResult>\n" +
+                    "  <Bucket>bucket</Bucket>\n" +
+                    "  <Key>write_aborted_blob</Key>\n" +
+                    "  <UploadId>TEST</UploadId>\n" +
+                    "</InitiateMultipartUploadResult>");
+            } else if ("PUT".equals(exchange.getRequestMethod()) && query.contains("uploadId=TEST") && query.contains("partNumber=")) {
+                uploadedParts.incrementAndGet();
+                exchange.getResponseHeaders().add("ETag", Base16.encodeAsString(md5.getMd5Digest()));
+                exchange.sendResponseHeaders(HttpStatus.SC_OK, -1);
+                exchange.close();
+            } else if ("DELETE".equals(exchange.getRequestMethod()) && query.equals("uploadId=TEST")) {
+                assertTrue(aborted.compareAndSet(false, true));
+                exchange.sendResponseHeaders(HttpStatus.SC_NO_CONTENT, -1);
+                exchange.close();
+            } else {
+                fail("unexpected request [" + exchange.getRequestMethod() + " " + exchange.getRequestURI() + "]");
+            }
+        });
+
+        try (MultipartBlobWrite write = blobContainer.startMultipartWrite("write_aborted_blob", blobSize, randomIntBetween(2, 4),
+            false)) {
+            final int writtenParts = randomIntBetween(0, write.numberOfParts() - 1);
+            for (int part = 0; part < writtenParts; part++) {
+                write.writePart(part, new ZeroInputStream(write.partBytes(part)));
+            }
+            expectThrows(IllegalStateException.class, write::complete);
+            assertThat(uploadedParts.get(), equalTo(writtenParts));
+        }
+        assertTrue(aborted.get());
+    }
+
+    private static void sendXmlResponse(HttpExchange exchange, String body) throws IOException {
+        final byte[] response = ("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" + body).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/xml");
+        exchange.sendResponseHeaders(HttpStatus.SC_OK, response.length);
+        exchange.getResponseBody().write(response);
+        exchange.close();
+    }
+
     private static byte[] randomBlobContent() {
         return randomByteArrayOfLength(randomIntBetween(1, frequently() ? 512 : 1 << 20)); // rarely up to 1mb
     }
@@ -22,6 +22,7 @@ package org.elasticsearch.transport.nio;
 import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.nio.BytesWriteHandler;
 import org.elasticsearch.nio.InboundChannelBuffer;
+import org.elasticsearch.transport.TcpHeader;
 import org.elasticsearch.transport.TcpTransport;
 
 import java.io.IOException;
@@ -38,7 +39,14 @@ public class TcpReadWriteHandler extends BytesWriteHandler {
 
     @Override
     public int consumeReads(InboundChannelBuffer channelBuffer) throws IOException {
-        BytesReference bytesReference = BytesReference.fromByteBuffers(channelBuffer.sliceBuffersTo(channelBuffer.getIndex()));
+        // Only look at the size header until the whole frame has arrived, so that buffering a large message does not slice all of
+        // the pages that have been read so far on every read.
+        int headerLength = (int) Math.min(channelBuffer.getIndex(), TcpHeader.BYTES_REQUIRED_FOR_MESSAGE_SIZE);
+        int frameLength = TcpTransport.readFrameLength(BytesReference.fromByteBuffers(channelBuffer.sliceBuffersTo(headerLength)));
+        if (frameLength == -1 || frameLength > channelBuffer.getIndex()) {
+            return 0;
+        }
+        BytesReference bytesReference = BytesReference.fromByteBuffers(channelBuffer.sliceBuffersTo(frameLength));
         return transport.consumeNetworkReads(channel, bytesReference);
     }
 }
@@ -39,8 +39,9 @@ public class DeleteSnapshotRequestBuilder extends MasterNodeOperationRequestBuil
     /**
      * Constructs delete snapshot request builder with specified repository and snapshot names
      */
-    public DeleteSnapshotRequestBuilder(ElasticsearchClient client, DeleteSnapshotAction action, String repository, String snapshot) {
-        super(client, action, new DeleteSnapshotRequest(repository, snapshot));
+    public DeleteSnapshotRequestBuilder(ElasticsearchClient client, DeleteSnapshotAction action, String repository,
+                                        String... snapshots) {
+        super(client, action, new DeleteSnapshotRequest(repository, snapshots));
     }
 
     /**
@@ -55,13 +56,13 @@ public class DeleteSnapshotRequestBuilder extends MasterNodeOperationRequestBuil
     }
 
     /**
-     * Sets the snapshot name
+     * Sets the snapshot names
      *
-     * @param snapshot snapshot name
+     * @param snapshots snapshot names
      * @return this builder
      */
-    public DeleteSnapshotRequestBuilder setSnapshot(String snapshot) {
-        request.snapshot(snapshot);
+    public DeleteSnapshotRequestBuilder setSnapshots(String... snapshots) {
+        request.snapshots(snapshots);
         return this;
     }
 }
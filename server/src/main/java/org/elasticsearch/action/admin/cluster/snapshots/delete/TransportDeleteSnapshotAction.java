@@ -36,6 +36,7 @@ import org.elasticsearch.threadpool.ThreadPool;
 import org.elasticsearch.transport.TransportService;
 
 import java.io.IOException;
+import java.util.Arrays;
 
 /**
  * Transport action for delete snapshot operation
@@ -71,7 +72,7 @@ public class TransportDeleteSnapshotAction extends TransportMasterNodeAction<Del
     @Override
     protected void masterOperation(Task task, final DeleteSnapshotRequest request, ClusterState state,
                                    final ActionListener<AcknowledgedResponse> listener) {
-        snapshotsService.deleteSnapshot(request.repository(), request.snapshot(),
+        snapshotsService.deleteSnapshots(request.repository(), Arrays.asList(request.snapshots()),
             ActionListener.map(listener, v -> new AcknowledgedResponse(true)), false);
     }
 }
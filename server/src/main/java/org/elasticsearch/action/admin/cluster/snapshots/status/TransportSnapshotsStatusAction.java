@@ -19,7 +19,6 @@
 
 package org.elasticsearch.action.admin.cluster.snapshots.status;
 
-import com.carrotsearch.hppc.cursors.ObjectCursor;
 import com.carrotsearch.hppc.cursors.ObjectObjectCursor;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -46,6 +45,7 @@ import org.elasticsearch.snapshots.Snapshot;
 import org.elasticsearch.snapshots.SnapshotId;
 import org.elasticsearch.snapshots.SnapshotInfo;
 import org.elasticsearch.snapshots.SnapshotMissingException;
+import org.elasticsearch.snapshots.SnapshotShardsService;
 import org.elasticsearch.snapshots.SnapshotsService;
 import org.elasticsearch.tasks.Task;
 import org.elasticsearch.threadpool.ThreadPool;
@@ -69,15 +69,19 @@ public class TransportSnapshotsStatusAction extends TransportMasterNodeAction<Sn
 
     private final SnapshotsService snapshotsService;
 
+    private final SnapshotShardsService snapshotShardsService;
+
     private final NodeClient client;
 
     @Inject
     public TransportSnapshotsStatusAction(TransportService transportService, ClusterService clusterService,
-                                          ThreadPool threadPool, SnapshotsService snapshotsService, NodeClient client,
+                                          ThreadPool threadPool, SnapshotsService snapshotsService,
+                                          SnapshotShardsService snapshotShardsService, NodeClient client,
                                           ActionFilters actionFilters, IndexNameExpressionResolver indexNameExpressionResolver) {
         super(SnapshotsStatusAction.NAME, transportService, clusterService, threadPool, actionFilters,
               SnapshotsStatusRequest::new, indexNameExpressionResolver);
         this.snapshotsService = snapshotsService;
+        this.snapshotShardsService = snapshotShardsService;
         this.client = client;
     }
 
@@ -103,21 +107,26 @@ public class TransportSnapshotsStatusAction extends TransportMasterNodeAction<Sn
         List<SnapshotsInProgress.Entry> currentSnapshots =
             snapshotsService.currentSnapshots(request.repository(), Arrays.asList(request.snapshots()));
         if (currentSnapshots.isEmpty()) {
-            buildResponse(request, currentSnapshots, null, listener);
+            buildResponse(request, currentSnapshots, Collections.emptyMap(), null, listener);
             return;
         }
 
+        // The data nodes periodically report the progress of their shards, only ask the nodes that did not report it yet
+        final Map<Snapshot, Map<ShardId, IndexShardSnapshotStatus.Copy>> reportedProgress = new HashMap<>();
         Set<String> nodesIds = new HashSet<>();
         for (SnapshotsInProgress.Entry entry : currentSnapshots) {
-            for (ObjectCursor<SnapshotsInProgress.ShardSnapshotStatus> status : entry.shards().values()) {
-                if (status.value.nodeId() != null) {
+            final Map<ShardId, IndexShardSnapshotStatus.Copy> reportedShards =
+                snapshotShardsService.reportedSnapshotShards(entry.snapshot());
+            reportedProgress.put(entry.snapshot(), reportedShards);
+            for (ObjectObjectCursor<ShardId, SnapshotsInProgress.ShardSnapshotStatus> status : entry.shards()) {
+                if (status.value.nodeId() != null && reportedShards.containsKey(status.key) == false) {
                     nodesIds.add(status.value.nodeId());
                 }
             }
         }
 
         if (!nodesIds.isEmpty()) {
-            // There are still some snapshots running - check their progress
+            // There are still some snapshots running without reported progress - check their progress
             Snapshot[] snapshots = new Snapshot[currentSnapshots.size()];
             for (int i = 0; i < currentSnapshots.size(); i++) {
                 snapshots[i] = currentSnapshots.get(i).snapshot();
@@ -129,16 +138,17 @@ public class TransportSnapshotsStatusAction extends TransportMasterNodeAction<Sn
                     ActionRunnable.wrap(listener,
                         l -> buildResponse(
                             request, snapshotsService.currentSnapshots(request.repository(), Arrays.asList(request.snapshots())),
-                            nodeSnapshotStatuses, l))
+                            reportedProgress, nodeSnapshotStatuses, l))
                 ), listener::onFailure));
         } else {
-            // We don't have any in-progress shards, just return current stats
-            buildResponse(request, currentSnapshots, null, listener);
+            // We don't have any in-progress shards or know about their progress already, just return current stats
+            buildResponse(request, currentSnapshots, reportedProgress, null, listener);
         }
 
     }
 
     private void buildResponse(SnapshotsStatusRequest request, List<SnapshotsInProgress.Entry> currentSnapshotEntries,
+                               Map<Snapshot, Map<ShardId, IndexShardSnapshotStatus.Copy>> reportedProgress,
                                TransportNodesSnapshotsStatus.NodesSnapshotStatus nodeSnapshotStatuses,
                                ActionListener<SnapshotsStatusResponse> listener) {
         // First process snapshot that are currently processed
@@ -154,44 +164,8 @@ public class TransportSnapshotsStatusAction extends TransportMasterNodeAction<Sn
 
             for (SnapshotsInProgress.Entry entry : currentSnapshotEntries) {
                 currentSnapshotNames.add(entry.snapshot().getSnapshotId().getName());
-                List<SnapshotIndexShardStatus> shardStatusBuilder = new ArrayList<>();
-                for (ObjectObjectCursor<ShardId, SnapshotsInProgress.ShardSnapshotStatus> shardEntry : entry.shards()) {
-                    SnapshotsInProgress.ShardSnapshotStatus status = shardEntry.value;
-                    if (status.nodeId() != null) {
-                        // We should have information about this shard from the shard:
-                        TransportNodesSnapshotsStatus.NodeSnapshotStatus nodeStatus = nodeSnapshotStatusMap.get(status.nodeId());
-                        if (nodeStatus != null) {
-                            Map<ShardId, SnapshotIndexShardStatus> shardStatues = nodeStatus.status().get(entry.snapshot());
-                            if (shardStatues != null) {
-                                SnapshotIndexShardStatus shardStatus = shardStatues.get(shardEntry.key);
-                                if (shardStatus != null) {
-                                    // We have full information about this shard
-                                    shardStatusBuilder.add(shardStatus);
-                                    continue;
-                                }
-                            }
-                        }
-                    }
-                    final SnapshotIndexShardStage stage;
-                    switch (shardEntry.value.state()) {
-                        case FAILED:
-                        case ABORTED:
-                        case MISSING:
-                            stage = SnapshotIndexShardStage.FAILURE;
-                            break;
-                        case INIT:
-                        case WAITING:
-                            stage = SnapshotIndexShardStage.STARTED;
-                            break;
-                        case SUCCESS:
-                            stage = SnapshotIndexShardStage.DONE;
-                            break;
-                        default:
-                            throw new IllegalArgumentException("Unknown snapshot state " + shardEntry.value.state());
-                    }
-                    SnapshotIndexShardStatus shardStatus = new SnapshotIndexShardStatus(shardEntry.key, stage);
-                    shardStatusBuilder.add(shardStatus);
-                }
+                final List<SnapshotIndexShardStatus> shardStatusBuilder = buildShardStatuses(entry, nodeSnapshotStatusMap,
+                    reportedProgress.getOrDefault(entry.snapshot(), Collections.emptyMap()));
                 builder.add(new SnapshotStatus(entry.snapshot(), entry.state(),
                     Collections.unmodifiableList(shardStatusBuilder), entry.includeGlobalState(), entry.startTime(),
                     Math.max(threadPool.absoluteTimeInMillis() - entry.startTime(), 0L)));
@@ -206,6 +180,66 @@ public class TransportSnapshotsStatusAction extends TransportMasterNodeAction<Sn
         }
     }
 
+    /**
+     * Builds the status of the shards of a running snapshot from the status that the data nodes returned, if any, or otherwise from
+     * the progress that they reported to this master node.
+     */
+    // package private for testing
+    static List<SnapshotIndexShardStatus> buildShardStatuses(
+            SnapshotsInProgress.Entry entry, Map<String, TransportNodesSnapshotsStatus.NodeSnapshotStatus> nodeSnapshotStatusMap,
+            Map<ShardId, IndexShardSnapshotStatus.Copy> reportedShards) {
+        List<SnapshotIndexShardStatus> shardStatusBuilder = new ArrayList<>();
+        for (ObjectObjectCursor<ShardId, SnapshotsInProgress.ShardSnapshotStatus> shardEntry : entry.shards()) {
+            SnapshotsInProgress.ShardSnapshotStatus status = shardEntry.value;
+            if (status.nodeId() != null) {
+                // We should have information about this shard from the shard:
+                TransportNodesSnapshotsStatus.NodeSnapshotStatus nodeStatus = nodeSnapshotStatusMap.get(status.nodeId());
+                if (nodeStatus != null) {
+                    Map<ShardId, SnapshotIndexShardStatus> shardStatues = nodeStatus.status().get(entry.snapshot());
+                    if (shardStatues != null) {
+                        SnapshotIndexShardStatus shardStatus = shardStatues.get(shardEntry.key);
+                        if (shardStatus != null) {
+                            // We have full information about this shard
+                            shardStatusBuilder.add(shardStatus);
+                            continue;
+                        }
+                    }
+                }
+                final IndexShardSnapshotStatus.Copy reportedStatus = reportedShards.get(shardEntry.key);
+                if (reportedStatus != null && reportedStatus.getStage() != IndexShardSnapshotStatus.Stage.ABORTED) {
+                    final boolean completed = reportedStatus.getStage() == IndexShardSnapshotStatus.Stage.DONE
+                        || reportedStatus.getStage() == IndexShardSnapshotStatus.Stage.FAILURE;
+                    // Skip progress that was reported before the shard completed, the report of its completion is on its way
+                    if (completed || status.state().completed() == false) {
+                        shardStatusBuilder.add(
+                            new SnapshotIndexShardStatus(shardEntry.key, reportedStatus, completed ? null : status.nodeId()));
+                        continue;
+                    }
+                }
+            }
+            final SnapshotIndexShardStage stage;
+            switch (shardEntry.value.state()) {
+                case FAILED:
+                case ABORTED:
+                case MISSING:
+                    stage = SnapshotIndexShardStage.FAILURE;
+                    break;
+                case INIT:
+                case WAITING:
+                    stage = SnapshotIndexShardStage.STARTED;
+                    break;
+                case SUCCESS:
+                    stage = SnapshotIndexShardStage.DONE;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown snapshot state " + shardEntry.value.state());
+            }
+            SnapshotIndexShardStatus shardStatus = new SnapshotIndexShardStatus(shardEntry.key, stage);
+            shardStatusBuilder.add(shardStatus);
+        }
+        return shardStatusBuilder;
+    }
+
     private void loadRepositoryData(SnapshotsStatusRequest request, List<SnapshotStatus> builder, Set<String> currentSnapshotNames,
                                     String repositoryName, ActionListener<SnapshotsStatusResponse> listener) {
         final Set<String> requestedSnapshotNames = Sets.newHashSet(request.snapshots());
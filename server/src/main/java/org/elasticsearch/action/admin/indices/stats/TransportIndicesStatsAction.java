@@ -57,6 +57,12 @@ public class TransportIndicesStatsAction extends TransportBroadcastByNodeAction<
         this.indicesService = indicesService;
     }
 
+    @Override
+    protected boolean coalesceIdenticalNodeRequests() {
+        // stats are read-only, so concurrent identical requests, e.g. from monitoring, can share a single collection
+        return true;
+    }
+
     /**
      * Status goes across *all* shards.
      */
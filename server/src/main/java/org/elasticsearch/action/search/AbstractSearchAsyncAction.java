@@ -198,9 +198,16 @@ abstract class AbstractSearchAsyncAction<Result extends SearchPhaseResult> exten
                 assert shardRoutings.skip() == false;
                 performPhaseOnShard(index, shardRoutings, shardRoutings.nextOrNull());
             }
+            onInitialShardRequestsStarted();
         }
     }
 
+    /**
+     * Called once the phase was started on the first copy of each shard. Implementations that hold back shard requests in order to
+     * send them together must send them now.
+     */
+    protected void onInitialShardRequestsStarted() {}
+
     void skipShard(SearchShardIterator iterator) {
         successfulOps.incrementAndGet();
         skippedOps.incrementAndGet();
@@ -219,7 +226,7 @@ abstract class AbstractSearchAsyncAction<Result extends SearchPhaseResult> exten
         if (shard == null) {
             fork(() -> onShardFailure(shardIndex, null, null, shardIt, new NoShardAvailableActionException(shardIt.shardId())));
         } else {
-            final PendingExecutions pendingExecutions = throttleConcurrentRequests ?
+            final PendingExecutions pendingExecutions = throttleConcurrentRequests && isSentInNodeBatch(shardIt, shard) == false ?
                 pendingExecutionsPerNode.computeIfAbsent(shard.currentNodeId(), n -> new PendingExecutions(maxConcurrentRequestsPerNode))
                 : null;
             Runnable r = () -> {
@@ -257,7 +264,7 @@ abstract class AbstractSearchAsyncAction<Result extends SearchPhaseResult> exten
                     }
                 }
             };
-            if (throttleConcurrentRequests) {
+            if (pendingExecutions != null) {
                 pendingExecutions.tryRun(r);
             } else {
                 r.run();
@@ -265,6 +272,14 @@ abstract class AbstractSearchAsyncAction<Result extends SearchPhaseResult> exten
         }
     }
 
+    /**
+     * Whether the request for the given shard copy is held back and sent together with the other requests to the same node. Such
+     * requests are not subject to the limit of concurrent shard requests per node, it is up to the node to limit them.
+     */
+    protected boolean isSentInNodeBatch(SearchShardIterator shardIt, ShardRouting shard) {
+        return false;
+    }
+
     /**
      * Sends the request to the actual shard.
      * @param shardIt the shards iterator
@@ -615,7 +630,9 @@ abstract class AbstractSearchAsyncAction<Result extends SearchPhaseResult> exten
     protected abstract SearchPhase getNextPhase(SearchPhaseResults<Result> results, SearchPhaseContext context);
 
     private void executeNext(PendingExecutions pendingExecutions, Thread originalThread) {
-        executeNext(pendingExecutions == null ? null : pendingExecutions::finishAndRunNext, originalThread);
+        if (pendingExecutions != null || throttleConcurrentRequests == false) {
+            executeNext(pendingExecutions == null ? null : pendingExecutions::finishAndRunNext, originalThread);
+        }
     }
 
     void executeNext(Runnable runnable, Thread originalThread) {
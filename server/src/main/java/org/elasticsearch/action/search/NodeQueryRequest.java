@@ -0,0 +1,130 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.action.search;
+
+import org.elasticsearch.action.IndicesRequest;
+import org.elasticsearch.action.support.IndicesOptions;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.elasticsearch.search.internal.ShardSearchRequest;
+import org.elasticsearch.tasks.Task;
+import org.elasticsearch.tasks.TaskId;
+import org.elasticsearch.transport.TransportRequest;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A request to execute the query phase on several shards of the same node. The search source, which is the same for all shards, is
+ * only sent once. The node executes at most {@link #getMaxConcurrentShardRequests()} shard requests at the same time.
+ */
+public final class NodeQueryRequest extends TransportRequest implements IndicesRequest {
+
+    private final List<ShardSearchRequest> shardRequests;
+    private final int maxConcurrentShardRequests;
+
+    public NodeQueryRequest(List<ShardSearchRequest> shardRequests, int maxConcurrentShardRequests) {
+        if (shardRequests.isEmpty()) {
+            throw new IllegalArgumentException("a node query request requires at least one shard request");
+        }
+        if (maxConcurrentShardRequests < 1) {
+            throw new IllegalArgumentException("maxConcurrentShardRequests must be >= 1 but was [" + maxConcurrentShardRequests + "]");
+        }
+        final SearchSourceBuilder source = shardRequests.get(0).source();
+        for (ShardSearchRequest shardRequest : shardRequests) {
+            if (shardRequest.source() != source) {
+                throw new IllegalArgumentException("all shard requests of a node query request must share the same source");
+            }
+        }
+        this.shardRequests = Collections.unmodifiableList(new ArrayList<>(shardRequests));
+        this.maxConcurrentShardRequests = maxConcurrentShardRequests;
+    }
+
+    public NodeQueryRequest(StreamInput in) throws IOException {
+        super(in);
+        maxConcurrentShardRequests = in.readVInt();
+        final SearchSourceBuilder source = in.readOptionalWriteable(SearchSourceBuilder::new);
+        final int size = in.readVInt();
+        final List<ShardSearchRequest> shardRequests = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            shardRequests.add(ShardSearchRequest.readWithSharedSource(in, source));
+        }
+        this.shardRequests = Collections.unmodifiableList(shardRequests);
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        super.writeTo(out);
+        out.writeVInt(maxConcurrentShardRequests);
+        out.writeOptionalWriteable(shardRequests.get(0).source());
+        out.writeVInt(shardRequests.size());
+        for (ShardSearchRequest shardRequest : shardRequests) {
+            shardRequest.writeToWithoutSource(out);
+        }
+    }
+
+    public List<ShardSearchRequest> getShardRequests() {
+        return shardRequests;
+    }
+
+    public int getMaxConcurrentShardRequests() {
+        return maxConcurrentShardRequests;
+    }
+
+    @Override
+    public String[] indices() {
+        final Set<String> indices = new LinkedHashSet<>();
+        for (ShardSearchRequest shardRequest : shardRequests) {
+            if (shardRequest.indices() != null) {
+                indices.addAll(Arrays.asList(shardRequest.indices()));
+            }
+        }
+        return indices.toArray(new String[0]);
+    }
+
+    @Override
+    public IndicesOptions indicesOptions() {
+        return shardRequests.get(0).indicesOptions();
+    }
+
+    @Override
+    public Task createTask(long id, String type, String action, TaskId parentTaskId, Map<String, String> headers) {
+        return new SearchShardTask(id, type, action, getDescription(), parentTaskId, headers);
+    }
+
+    @Override
+    public String getDescription() {
+        final StringBuilder sb = new StringBuilder("shardIds[");
+        for (int i = 0; i < shardRequests.size(); i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append(shardRequests.get(i).shardId());
+        }
+        return sb.append("]").toString();
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.action.search;
+
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.search.query.QuerySearchResult;
+import org.elasticsearch.transport.TransportResponse;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The response to a {@link NodeQueryRequest}, holding either the {@link QuerySearchResult} or the failure of each shard request, in
+ * the order of {@link NodeQueryRequest#getShardRequests()}.
+ */
+public final class NodeQueryResponse extends TransportResponse {
+
+    private final List<Object> results;
+
+    /**
+     * @param results one {@link QuerySearchResult} or {@link Exception} per shard request
+     */
+    public NodeQueryResponse(List<?> results) {
+        for (Object result : results) {
+            assert result instanceof QuerySearchResult || result instanceof Exception : "unexpected result " + result;
+        }
+        this.results = Collections.unmodifiableList(new ArrayList<>(results));
+    }
+
+    public NodeQueryResponse(StreamInput in) throws IOException {
+        super(in);
+        final int size = in.readVInt();
+        final List<Object> results = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            if (in.readBoolean()) {
+                results.add(new QuerySearchResult(in));
+            } else {
+                results.add(in.readException());
+            }
+        }
+        this.results = Collections.unmodifiableList(results);
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        out.writeVInt(results.size());
+        for (Object result : results) {
+            if (result instanceof QuerySearchResult) {
+                out.writeBoolean(true);
+                ((QuerySearchResult) result).writeTo(out);
+            } else {
+                out.writeBoolean(false);
+                out.writeException((Exception) result);
+            }
+        }
+    }
+
+    /**
+     * Returns the number of shard results.
+     */
+    public int size() {
+        return results.size();
+    }
+
+    /**
+     * Returns the result of the shard request with the given index, or {@code null} if it failed.
+     */
+    public QuerySearchResult getResult(int index) {
+        final Object result = results.get(index);
+        return result instanceof QuerySearchResult ? (QuerySearchResult) result : null;
+    }
+
+    /**
+     * Returns the failure of the shard request with the given index, or {@code null} if it succeeded.
+     */
+    public Exception getFailure(int index) {
+        final Object result = results.get(index);
+        return result instanceof Exception ? (Exception) result : null;
+    }
+}
@@ -19,10 +19,15 @@
 
 package org.elasticsearch.action.search;
 
+import org.elasticsearch.ExceptionsHelper;
 import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.common.breaker.CircuitBreakingException;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
+import org.elasticsearch.node.NodeClosedException;
 import org.elasticsearch.node.ResponseCollectorService;
 import org.elasticsearch.search.SearchPhaseResult;
 import org.elasticsearch.search.query.QuerySearchResult;
+import org.elasticsearch.transport.ConnectTransportException;
 import org.elasticsearch.transport.Transport;
 
 import java.util.Objects;
@@ -31,7 +36,9 @@ import java.util.function.BiFunction;
 /**
  * A wrapper of search action listeners (search results) that unwraps the query
  * result to get the piggybacked queue size and service time EWMA, adding those
- * values to the coordinating nodes' {@link ResponseCollectorService}.
+ * values to the coordinating nodes' {@link ResponseCollectorService}. It also
+ * records the piggybacked CPU and heap usage, and failures that indicate an
+ * overloaded or unreachable node.
  */
 public final class SearchExecutionStatsCollector implements ActionListener<SearchPhaseResult> {
 
@@ -63,6 +70,7 @@ public final class SearchExecutionStatsCollector implements ActionListener<Searc
             // EWMA/queue size may be -1 if the query node doesn't support capturing it
             if (serviceTimeEWMA > 0 && queueSize >= 0) {
                 collector.addNodeStatistics(nodeId, queueSize, responseDuration, serviceTimeEWMA);
+                collector.addNodeLoad(nodeId, queryResult.nodeCpuPercent(), queryResult.nodeHeapUsedPercent());
             }
         }
         listener.onResponse(response);
@@ -70,6 +78,20 @@ public final class SearchExecutionStatsCollector implements ActionListener<Searc
 
     @Override
     public void onFailure(Exception e) {
+        if (nodeId != null && isNodeFailure(e)) {
+            collector.addNodeFailure(nodeId);
+        }
         listener.onFailure(e);
     }
+
+    /**
+     * Returns whether the failure says something about the state of the node, rather than about the request.
+     */
+    static boolean isNodeFailure(Exception e) {
+        final Throwable cause = ExceptionsHelper.unwrapCause(e);
+        return cause instanceof EsRejectedExecutionException
+            || cause instanceof CircuitBreakingException
+            || cause instanceof ConnectTransportException
+            || cause instanceof NodeClosedException;
+    }
 }
@@ -20,14 +20,19 @@
 package org.elasticsearch.action.search;
 
 import org.apache.logging.log4j.Logger;
+import org.elasticsearch.Version;
 import org.elasticsearch.action.ActionListener;
 import org.elasticsearch.cluster.routing.GroupShardsIterator;
 import org.elasticsearch.cluster.routing.ShardRouting;
 import org.elasticsearch.search.SearchPhaseResult;
 import org.elasticsearch.search.builder.SearchSourceBuilder;
 import org.elasticsearch.search.internal.AliasFilter;
+import org.elasticsearch.search.internal.ShardSearchRequest;
 import org.elasticsearch.transport.Transport;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Executor;
@@ -37,6 +42,9 @@ final class SearchQueryThenFetchAsyncAction extends AbstractSearchAsyncAction<Se
 
     private final SearchPhaseController searchPhaseController;
     private final SearchProgressListener progressListener;
+    private final int maxConcurrentShardRequests;
+    // the shard requests held back per node until the phase started on all shards, null once they were sent or if not batching
+    private Map<String, NodeQueryBatch> pendingBatches;
 
     SearchQueryThenFetchAsyncAction(final Logger logger, final SearchTransportService searchTransportService,
             final BiFunction<String, String, Transport.Connection> nodeIdToConnection, final Map<String, AliasFilter> aliasFilter,
@@ -44,23 +52,91 @@ final class SearchQueryThenFetchAsyncAction extends AbstractSearchAsyncAction<Se
             final SearchPhaseController searchPhaseController, final Executor executor,
             final SearchRequest request, final ActionListener<SearchResponse> listener,
             final GroupShardsIterator<SearchShardIterator> shardsIts, final TransportSearchAction.SearchTimeProvider timeProvider,
-            long clusterStateVersion, SearchTask task, SearchResponse.Clusters clusters) {
+            long clusterStateVersion, SearchTask task, SearchResponse.Clusters clusters, boolean batchQueryPhase) {
+        // when batching, the data nodes limit the number of concurrent shard requests instead
         super("query", logger, searchTransportService, nodeIdToConnection, aliasFilter, concreteIndexBoosts, indexRoutings,
                 executor, request, listener, shardsIts, timeProvider, clusterStateVersion, task,
                 searchPhaseController.newSearchPhaseResults(task.getProgressListener(), request, shardsIts.size()),
                 request.getMaxConcurrentShardRequests(), clusters);
         this.searchPhaseController = searchPhaseController;
         this.progressListener = task.getProgressListener();
+        this.maxConcurrentShardRequests = request.getMaxConcurrentShardRequests();
+        this.pendingBatches = canBatch(batchQueryPhase, shardsIts) ? new HashMap<>() : null;
         final SearchProgressListener progressListener = task.getProgressListener();
         final SearchSourceBuilder sourceBuilder = request.source();
         progressListener.notifyListShards(progressListener.searchShards(this.shardsIts),
             sourceBuilder == null || sourceBuilder.size() != 0);
     }
 
+    /**
+     * Whether the shard requests to the same node can be sent as a single request. This is only done for searches on more than one
+     * shard, which do not fetch in the query phase, and only within the local cluster.
+     */
+    private static boolean canBatch(boolean batchQueryPhase, GroupShardsIterator<SearchShardIterator> shardsIts) {
+        if (batchQueryPhase == false || shardsIts.size() <= 1) {
+            return false;
+        }
+        for (SearchShardIterator shardsIt : shardsIts) {
+            if (shardsIt.getClusterAlias() != null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     protected void executePhaseOnShard(final SearchShardIterator shardIt, final ShardRouting shard,
                                        final SearchActionListener<SearchPhaseResult> listener) {
-        getSearchTransport().sendExecuteQuery(getConnection(shardIt.getClusterAlias(), shard.currentNodeId()),
-            buildShardSearchRequest(shardIt), getTask(), listener);
+        final Transport.Connection connection = getConnection(shardIt.getClusterAlias(), shard.currentNodeId());
+        final ShardSearchRequest request = buildShardSearchRequest(shardIt);
+        if (addToBatch(connection, request, listener) == false) {
+            getSearchTransport().sendExecuteQuery(connection, request, getTask(), listener);
+        }
+    }
+
+    @Override
+    protected boolean isSentInNodeBatch(SearchShardIterator shardIt, ShardRouting shard) {
+        final Transport.Connection connection;
+        try {
+            connection = getConnection(shardIt.getClusterAlias(), shard.currentNodeId());
+        } catch (Exception e) {
+            // the shard request fails on its own
+            return false;
+        }
+        return canAddToBatch(connection);
+    }
+
+    private synchronized boolean canAddToBatch(Transport.Connection connection) {
+        // retries of failed shards are sent on their own
+        return pendingBatches != null && connection.getVersion().onOrAfter(Version.V_8_0_0);
+    }
+
+    private synchronized boolean addToBatch(Transport.Connection connection, ShardSearchRequest request,
+                                            SearchActionListener<SearchPhaseResult> listener) {
+        if (canAddToBatch(connection) == false) {
+            return false;
+        }
+        pendingBatches.computeIfAbsent(connection.getNode().getId(), n -> new NodeQueryBatch(connection)).add(request, listener);
+        return true;
+    }
+
+    @Override
+    protected void onInitialShardRequestsStarted() {
+        final Map<String, NodeQueryBatch> batches;
+        synchronized (this) {
+            batches = pendingBatches;
+            pendingBatches = null;
+        }
+        if (batches == null) {
+            return;
+        }
+        for (NodeQueryBatch batch : batches.values()) {
+            if (batch.requests.size() == 1) {
+                getSearchTransport().sendExecuteQuery(batch.connection, batch.requests.get(0), getTask(), batch.listeners.get(0));
+            } else {
+                getSearchTransport().sendExecuteNodeQuery(batch.connection,
+                    new NodeQueryRequest(batch.requests, maxConcurrentShardRequests), getTask(), batch.listeners);
+            }
+        }
     }
 
     @Override
@@ -72,4 +148,19 @@ final class SearchQueryThenFetchAsyncAction extends AbstractSearchAsyncAction<Se
     protected SearchPhase getNextPhase(final SearchPhaseResults<SearchPhaseResult> results, final SearchPhaseContext context) {
         return new FetchSearchPhase(results, searchPhaseController, context);
     }
+
+    private static final class NodeQueryBatch {
+        private final Transport.Connection connection;
+        private final List<ShardSearchRequest> requests = new ArrayList<>();
+        private final List<SearchActionListener<SearchPhaseResult>> listeners = new ArrayList<>();
+
+        NodeQueryBatch(Transport.Connection connection) {
+            this.connection = connection;
+        }
+
+        void add(ShardSearchRequest request, SearchActionListener<SearchPhaseResult> listener) {
+            requests.add(request);
+            listeners.add(listener);
+        }
+    }
 }
@@ -31,6 +31,7 @@ import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.io.stream.Writeable;
 import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
+import org.elasticsearch.common.util.concurrent.CountDown;
 import org.elasticsearch.search.SearchPhaseResult;
 import org.elasticsearch.search.SearchService;
 import org.elasticsearch.search.dfs.DfsSearchResult;
@@ -56,8 +57,12 @@ import org.elasticsearch.transport.TransportService;
 
 import java.io.IOException;
 import java.io.UncheckedIOException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import java.util.function.BiFunction;
 
 /**
@@ -71,6 +76,7 @@ public class SearchTransportService {
     public static final String CLEAR_SCROLL_CONTEXTS_ACTION_NAME = "indices:data/read/search[clear_scroll_contexts]";
     public static final String DFS_ACTION_NAME = "indices:data/read/search[phase/dfs]";
     public static final String QUERY_ACTION_NAME = "indices:data/read/search[phase/query]";
+    public static final String NODE_QUERY_ACTION_NAME = "indices:data/read/search[phase/query/node]";
     public static final String QUERY_ID_ACTION_NAME = "indices:data/read/search[phase/query/id]";
     public static final String QUERY_SCROLL_ACTION_NAME = "indices:data/read/search[phase/query/scroll]";
     public static final String QUERY_FETCH_SCROLL_ACTION_NAME = "indices:data/read/search[phase/query+fetch/scroll]";
@@ -137,6 +143,43 @@ public class SearchTransportService {
                 new ConnectionCountingHandler<>(handler, reader, clientConnections, connection.getNode().getId()));
     }
 
+    /**
+     * Executes the query phase on several shards of the node of the given connection with a single request. The listeners are
+     * notified in the order of {@link NodeQueryRequest#getShardRequests()}.
+     */
+    public void sendExecuteNodeQuery(Transport.Connection connection, final NodeQueryRequest request, SearchTask task,
+                                     final List<SearchActionListener<SearchPhaseResult>> listeners) {
+        assert request.getShardRequests().size() == listeners.size();
+        assert request.getShardRequests().stream().allMatch(r -> r.numberOfShards() > 1) : "single shard searches also fetch";
+        final List<ActionListener<SearchPhaseResult>> handlers = new ArrayList<>(listeners.size());
+        for (SearchActionListener<SearchPhaseResult> listener : listeners) {
+            @SuppressWarnings("unchecked")
+            final ActionListener<SearchPhaseResult> handler = responseWrapper.apply(connection, listener);
+            handlers.add(handler);
+        }
+        transportService.sendChildRequest(connection, NODE_QUERY_ACTION_NAME, request, task,
+            new ConnectionCountingHandler<>(new ActionListener<NodeQueryResponse>() {
+                @Override
+                public void onResponse(NodeQueryResponse response) {
+                    for (int i = 0; i < handlers.size(); i++) {
+                        final QuerySearchResult result = response.getResult(i);
+                        if (result != null) {
+                            handlers.get(i).onResponse(result);
+                        } else {
+                            handlers.get(i).onFailure(response.getFailure(i));
+                        }
+                    }
+                }
+
+                @Override
+                public void onFailure(Exception e) {
+                    for (ActionListener<SearchPhaseResult> handler : handlers) {
+                        handler.onFailure(e);
+                    }
+                }
+            }, NodeQueryResponse::new, clientConnections, connection.getNode().getId()));
+    }
+
     public void sendExecuteQuery(Transport.Connection connection, final QuerySearchRequest request, SearchTask task,
                                  final SearchActionListener<QuerySearchResult> listener) {
         transportService.sendChildRequest(connection, QUERY_ID_ACTION_NAME, request, task,
@@ -337,6 +380,11 @@ public class SearchTransportService {
         TransportActionProxy.registerProxyActionWithDynamicResponseType(transportService, QUERY_ACTION_NAME,
             (request) -> ((ShardSearchRequest)request).numberOfShards() == 1 ? QueryFetchSearchResult::new : QuerySearchResult::new);
 
+        transportService.registerRequestHandler(NODE_QUERY_ACTION_NAME, ThreadPool.Names.SAME, NodeQueryRequest::new,
+            (request, channel, task) -> executeNodeQuery(searchService, request, (SearchShardTask) task,
+                new ChannelActionListener<>(channel, NODE_QUERY_ACTION_NAME, request)));
+        TransportActionProxy.registerProxyAction(transportService, NODE_QUERY_ACTION_NAME, NodeQueryResponse::new);
+
         transportService.registerRequestHandler(QUERY_ID_ACTION_NAME, ThreadPool.Names.SAME, QuerySearchRequest::new,
             (request, channel, task) -> {
                 searchService.executeQueryPhase(request, (SearchShardTask) task,
@@ -380,6 +428,72 @@ public class SearchTransportService {
         TransportActionProxy.registerProxyAction(transportService, QUERY_CAN_MATCH_NAME, SearchService.CanMatchResponse::new);
     }
 
+    /**
+     * Executes the query phase for all shards of the given request, at most {@link NodeQueryRequest#getMaxConcurrentShardRequests()}
+     * at a time, and responds once all of them completed. A shard whose query phase throws instead of notifying its listener fails on
+     * its own, like any other shard failure.
+     */
+    static void executeNodeQuery(SearchService searchService, NodeQueryRequest request, SearchShardTask task,
+                                 ActionListener<NodeQueryResponse> listener) {
+        final List<ShardSearchRequest> shardRequests = request.getShardRequests();
+        final AtomicReferenceArray<Object> results = new AtomicReferenceArray<>(shardRequests.size());
+        final AtomicInteger nextShard = new AtomicInteger();
+        final CountDown countDown = new CountDown(shardRequests.size());
+        // the number of shards that may be started but were not yet; only the thread that raises it from zero starts shards, so that
+        // shards that complete while another one is being started don't start the next one recursively
+        final AtomicInteger shardsToStart = new AtomicInteger();
+        final Runnable startShards = new Runnable() {
+            @Override
+            public void run() {
+                if (shardsToStart.getAndIncrement() > 0) {
+                    return;
+                }
+                do {
+                    final int shard = nextShard.getAndIncrement();
+                    if (shard < shardRequests.size()) {
+                        startShard(shard);
+                    }
+                } while (shardsToStart.decrementAndGet() > 0);
+            }
+
+            private void startShard(int shard) {
+                final ActionListener<SearchPhaseResult> shardListener = ActionListener.notifyOnce(new ActionListener<>() {
+                    @Override
+                    public void onResponse(SearchPhaseResult result) {
+                        assert result instanceof QuerySearchResult : "unexpected result " + result;
+                        onShardDone(result);
+                    }
+
+                    @Override
+                    public void onFailure(Exception e) {
+                        onShardDone(e);
+                    }
+
+                    private void onShardDone(Object result) {
+                        results.set(shard, result);
+                        if (countDown.countDown()) {
+                            final List<Object> shardResults = new ArrayList<>(results.length());
+                            for (int i = 0; i < results.length(); i++) {
+                                shardResults.add(results.get(i));
+                            }
+                            listener.onResponse(new NodeQueryResponse(shardResults));
+                        } else {
+                            run();
+                        }
+                    }
+                });
+                try {
+                    searchService.executeQueryPhase(shardRequests.get(shard), task, shardListener);
+                } catch (Exception e) {
+                    shardListener.onFailure(e);
+                }
+            }
+        };
+        final int concurrency = Math.min(request.getMaxConcurrentShardRequests(), shardRequests.size());
+        for (int i = 0; i < concurrency; i++) {
+            startShards.run();
+        }
+    }
 
     /**
      * Returns a connection to the given node on the provided cluster. If the cluster alias is <code>null</code> the node will be resolved
@@ -45,6 +45,7 @@ import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.io.stream.Writeable;
 import org.elasticsearch.tasks.Task;
 import org.elasticsearch.threadpool.ThreadPool;
+import org.elasticsearch.transport.CoalescingTransportRequestHandler;
 import org.elasticsearch.transport.NodeShouldNotConnectException;
 import org.elasticsearch.transport.TransportChannel;
 import org.elasticsearch.transport.TransportException;
@@ -111,8 +112,21 @@ public abstract class TransportBroadcastByNodeAction<Request extends BroadcastRe
 
         transportNodeBroadcastAction = actionName + "[n]";
 
+        final TransportRequestHandler<NodeRequest> nodeRequestHandler = coalesceIdenticalNodeRequests()
+            ? new CoalescingTransportRequestHandler<>(new BroadcastByNodeTransportRequestHandler(),
+                transportService.getThreadPool().getThreadContext(), (out, nodeRequest) -> nodeRequest.writeCoalescingKey(out))
+            : new BroadcastByNodeTransportRequestHandler();
         transportService.registerRequestHandler(transportNodeBroadcastAction, executor, false, canTripCircuitBreaker, NodeRequest::new,
-            new BroadcastByNodeTransportRequestHandler());
+            nodeRequestHandler);
+    }
+
+    /**
+     * Whether node-level requests that are identical to one that is still being executed on this node should share its execution and
+     * response instead of being executed again. Only actions whose shard-level operations are read-only and whose results depend on
+     * nothing but the request should return {@code true}. This is called from the constructor.
+     */
+    protected boolean coalesceIdenticalNodeRequests() {
+        return false;
     }
 
     private Response newResponse(
@@ -490,6 +504,16 @@ public abstract class TransportBroadcastByNodeAction<Request extends BroadcastRe
             out.writeList(shards);
             out.writeString(nodeId);
         }
+
+        /**
+         * Writes this request like {@link #writeTo} does, but without the parent tasks of this request and of the indices-level request,
+         * which differ between the callers of identical requests.
+         */
+        void writeCoalescingKey(StreamOutput out) throws IOException {
+            CoalescingTransportRequestHandler.writeWithoutParentTask(out, indicesLevelRequest);
+            out.writeList(shards);
+            out.writeString(nodeId);
+        }
     }
 
     class NodeResponse extends TransportResponse {
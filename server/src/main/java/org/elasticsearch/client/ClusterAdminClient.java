@@ -527,9 +527,9 @@ public interface ClusterAdminClient extends ElasticsearchClient {
     void deleteSnapshot(DeleteSnapshotRequest request, ActionListener<AcknowledgedResponse> listener);
 
     /**
-     * Delete snapshot.
+     * Delete snapshots.
      */
-    DeleteSnapshotRequestBuilder prepareDeleteSnapshot(String repository, String snapshot);
+    DeleteSnapshotRequestBuilder prepareDeleteSnapshot(String repository, String... snapshot);
 
     /**
      * Restores a snapshot.
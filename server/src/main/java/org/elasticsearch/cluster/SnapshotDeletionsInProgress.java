@@ -28,6 +28,8 @@ import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.repositories.RepositoryOperation;
 import org.elasticsearch.snapshots.Snapshot;
+import org.elasticsearch.snapshots.SnapshotId;
+import org.elasticsearch.snapshots.SnapshotsService;
 
 import java.io.IOException;
 import java.util.ArrayList;
@@ -141,6 +143,11 @@ public class SnapshotDeletionsInProgress extends AbstractNamedDiffable<Custom> i
             {
                 builder.field("repository", entry.snapshot.getRepository());
                 builder.field("snapshot", entry.snapshot.getSnapshotId().getName());
+                builder.startArray("snapshots");
+                for (SnapshotId snapshotId : entry.snapshots) {
+                    builder.value(snapshotId.getName());
+                }
+                builder.endArray();
                 builder.humanReadableField("start_time_millis", "start_time", new TimeValue(entry.startTime));
                 builder.field("repository_state_id", entry.repositoryStateId);
             }
@@ -167,11 +174,18 @@ public class SnapshotDeletionsInProgress extends AbstractNamedDiffable<Custom> i
      */
     public static final class Entry implements Writeable, RepositoryOperation {
         private final Snapshot snapshot;
+        private final List<SnapshotId> snapshots;
         private final long startTime;
         private final long repositoryStateId;
 
         public Entry(Snapshot snapshot, long startTime, long repositoryStateId) {
-            this.snapshot = snapshot;
+            this(snapshot.getRepository(), Collections.singletonList(snapshot.getSnapshotId()), startTime, repositoryStateId);
+        }
+
+        public Entry(String repository, List<SnapshotId> snapshots, long startTime, long repositoryStateId) {
+            assert snapshots.isEmpty() == false : "must delete at least one snapshot";
+            this.snapshot = new Snapshot(repository, snapshots.get(0));
+            this.snapshots = Collections.unmodifiableList(snapshots);
             this.startTime = startTime;
             this.repositoryStateId = repositoryStateId;
         }
@@ -180,15 +194,27 @@ public class SnapshotDeletionsInProgress extends AbstractNamedDiffable<Custom> i
             this.snapshot = new Snapshot(in);
             this.startTime = in.readVLong();
             this.repositoryStateId = in.readLong();
+            if (in.getVersion().onOrAfter(SnapshotsService.MULTI_DELETE_VERSION)) {
+                this.snapshots = Collections.unmodifiableList(in.readList(SnapshotId::new));
+            } else {
+                this.snapshots = Collections.singletonList(snapshot.getSnapshotId());
+            }
         }
 
         /**
-         * The snapshot to delete.
+         * The first of the snapshots to delete.
          */
         public Snapshot getSnapshot() {
             return snapshot;
         }
 
+        /**
+         * All snapshots to delete.
+         */
+        public List<SnapshotId> getSnapshots() {
+            return snapshots;
+        }
+
         /**
          * The start time in milliseconds for deleting the snapshots.
          */
@@ -206,13 +232,14 @@ public class SnapshotDeletionsInProgress extends AbstractNamedDiffable<Custom> i
             }
             Entry that = (Entry) o;
             return snapshot.equals(that.snapshot)
+                       && snapshots.equals(that.snapshots)
                        && startTime == that.startTime
                        && repositoryStateId == that.repositoryStateId;
         }
 
         @Override
         public int hashCode() {
-            return Objects.hash(snapshot, startTime, repositoryStateId);
+            return Objects.hash(snapshot, snapshots, startTime, repositoryStateId);
         }
 
         @Override
@@ -220,6 +247,9 @@ public class SnapshotDeletionsInProgress extends AbstractNamedDiffable<Custom> i
             snapshot.writeTo(out);
             out.writeVLong(startTime);
             out.writeLong(repositoryStateId);
+            if (out.getVersion().onOrAfter(SnapshotsService.MULTI_DELETE_VERSION)) {
+                out.writeList(snapshots);
+            }
         }
 
         @Override
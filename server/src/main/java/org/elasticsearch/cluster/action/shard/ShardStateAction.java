@@ -87,6 +87,10 @@ public class ShardStateAction {
     // we keep track of these shards in order to avoid sending duplicate failed shard requests for a single failing shard.
     private final TransportRequestDeduplicator<FailedShardEntry> remoteFailedShardsDeduplicator = new TransportRequestDeduplicator<>();
 
+    // shards that are reported as started but not yet acknowledged by the master; a shard that is started locally is reported again on
+    // every cluster state update until the master marks it as started, so we collapse these into a single in-flight request per shard.
+    private final TransportRequestDeduplicator<StartedShardEntry> startedShardsDeduplicator = new TransportRequestDeduplicator<>();
+
     @Inject
     public ShardStateAction(ClusterService clusterService, TransportService transportService,
                             AllocationService allocationService, RerouteService rerouteService, ThreadPool threadPool) {
@@ -482,7 +486,12 @@ public class ShardStateAction {
                              final ActionListener<Void> listener,
                              final ClusterState currentState) {
         StartedShardEntry entry = new StartedShardEntry(shardRouting.shardId(), shardRouting.allocationId().getId(), primaryTerm, message);
-        sendShardAction(SHARD_STARTED_ACTION_NAME, currentState, entry, listener);
+        startedShardsDeduplicator.executeOnce(entry, listener,
+            (req, reqListener) -> sendShardAction(SHARD_STARTED_ACTION_NAME, currentState, req, reqListener));
+    }
+
+    int startedShardsCacheSize() {
+        return startedShardsDeduplicator.size();
     }
 
     private static class ShardStartedTransportHandler implements TransportRequestHandler<StartedShardEntry> {
@@ -638,6 +647,22 @@ public class ShardStateAction {
             return String.format(Locale.ROOT,  "StartedShardEntry{shardId [%s], allocationId [%s], primary term [%d], message [%s]}",
                 shardId, allocationId, primaryTerm, message);
         }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            StartedShardEntry that = (StartedShardEntry) o;
+            // Exclude message from equals and hashCode
+            return Objects.equals(this.shardId, that.shardId) &&
+                Objects.equals(this.allocationId, that.allocationId) &&
+                primaryTerm == that.primaryTerm;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(shardId, allocationId, primaryTerm);
+        }
     }
 
     public static class NoLongerPrimaryShardException extends ElasticsearchException {
@@ -811,11 +811,7 @@ public class IndexNameExpressionResolver {
 
         private static Map<String, AliasOrIndex> suffixWildcard(Context context, MetaData metaData, String expression) {
             assert expression.length() >= 2 : "expression [" + expression + "] should have at least a length of 2";
-            String fromPrefix = expression.substring(0, expression.length() - 1);
-            char[] toPrefixCharArr = fromPrefix.toCharArray();
-            toPrefixCharArr[toPrefixCharArr.length - 1]++;
-            String toPrefix = new String(toPrefixCharArr);
-            SortedMap<String,AliasOrIndex> subMap = metaData.getAliasAndIndexLookup().subMap(fromPrefix, toPrefix);
+            SortedMap<String,AliasOrIndex> subMap = prefixSubMap(metaData, expression.substring(0, expression.length() - 1));
             if (context.getOptions().ignoreAliases()) {
                  return subMap.entrySet().stream()
                         .filter(entry -> entry.getValue().isAlias() == false)
@@ -826,7 +822,12 @@ public class IndexNameExpressionResolver {
 
         private static Map<String, AliasOrIndex> otherWildcard(Context context, MetaData metaData, String expression) {
             final String pattern = expression;
-            return metaData.getAliasAndIndexLookup()
+            // only names that start with the literal prefix of the pattern can match, so avoid visiting all other indices and aliases
+            final int firstWildcard = pattern.indexOf('*');
+            final SortedMap<String, AliasOrIndex> candidates = firstWildcard > 0
+                ? prefixSubMap(metaData, pattern.substring(0, firstWildcard))
+                : metaData.getAliasAndIndexLookup();
+            return candidates
                 .entrySet()
                 .stream()
                 .filter(e -> context.getOptions().ignoreAliases() == false || e.getValue().isAlias() == false)
@@ -834,6 +835,17 @@ public class IndexNameExpressionResolver {
                 .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
         }
 
+        /**
+         * Returns a view of the indices and aliases whose names start with the given non-empty prefix.
+         */
+        private static SortedMap<String, AliasOrIndex> prefixSubMap(MetaData metaData, String prefix) {
+            assert prefix.isEmpty() == false : "prefix must not be empty";
+            char[] toPrefixCharArr = prefix.toCharArray();
+            toPrefixCharArr[toPrefixCharArr.length - 1]++;
+            String toPrefix = new String(toPrefixCharArr);
+            return metaData.getAliasAndIndexLookup().subMap(prefix, toPrefix);
+        }
+
         private static Set<String> expand(Context context, IndexMetaData.State excludeState, Map<String, AliasOrIndex> matches) {
             Set<String> expand = new HashSet<>();
             for (Map.Entry<String, AliasOrIndex> entry : matches.entrySet()) {
@@ -39,6 +39,11 @@ public interface ClusterApplier {
      */
     void onNewClusterState(String source, Supplier<ClusterState> clusterStateSupplier, ClusterApplyListener listener);
 
+    /**
+     * @return the cumulative time spent in each step of applying cluster states
+     */
+    ClusterApplierRecordingService.Stats getStats();
+
     /**
      * Listener for results of cluster state application
      */
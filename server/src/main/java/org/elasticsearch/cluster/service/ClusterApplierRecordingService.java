@@ -0,0 +1,177 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.cluster.service;
+
+import org.elasticsearch.cluster.ClusterStateApplier;
+import org.elasticsearch.cluster.ClusterStateListener;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.io.stream.Writeable;
+import org.elasticsearch.common.metrics.MeanMetric;
+import org.elasticsearch.common.xcontent.ToXContentFragment;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+
+import java.io.IOException;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps track of the cumulative time spent in each step of applying cluster states, such as calling each {@link ClusterStateApplier} and
+ * notifying each {@link ClusterStateListener}, so that it is possible to find out which components make cluster state application slow.
+ */
+public class ClusterApplierRecordingService {
+
+    private final Map<String, MeanMetric> recordedActions = new HashMap<>();
+
+    synchronized void record(String action, long timeSpentMillis) {
+        recordedActions.computeIfAbsent(action, k -> new MeanMetric()).inc(timeSpentMillis);
+    }
+
+    synchronized void remove(String action) {
+        recordedActions.remove(action);
+    }
+
+    /**
+     * Returns the recorded steps, sorted by descending cumulative execution time.
+     */
+    synchronized Stats getStats() {
+        return new Stats(recordedActions.entrySet().stream()
+            .map(e -> new Recording(e.getKey(), e.getValue().count(), e.getValue().sum()))
+            .sorted(Comparator.comparingLong(Recording::getCumulativeExecutionTimeMillis).reversed()
+                .thenComparing(Recording::getName))
+            .collect(Collectors.toList()));
+    }
+
+    public static class Stats implements Writeable, ToXContentFragment {
+
+        private final List<Recording> recordings;
+
+        public Stats(List<Recording> recordings) {
+            this.recordings = recordings;
+        }
+
+        public Stats(StreamInput in) throws IOException {
+            this(in.readList(Recording::new));
+        }
+
+        public List<Recording> getRecordings() {
+            return recordings;
+        }
+
+        @Override
+        public void writeTo(StreamOutput out) throws IOException {
+            out.writeList(recordings);
+        }
+
+        @Override
+        public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+            builder.startObject("cluster_applier_stats");
+            builder.startArray("recordings");
+            for (Recording recording : recordings) {
+                recording.toXContent(builder, params);
+            }
+            builder.endArray();
+            builder.endObject();
+            return builder;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Stats stats = (Stats) o;
+            return Objects.equals(recordings, stats.recordings);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(recordings);
+        }
+    }
+
+    public static class Recording implements Writeable, ToXContentFragment {
+
+        private final String name;
+        private final long count;
+        private final long cumulativeExecutionTimeMillis;
+
+        public Recording(String name, long count, long cumulativeExecutionTimeMillis) {
+            this.name = name;
+            this.count = count;
+            this.cumulativeExecutionTimeMillis = cumulativeExecutionTimeMillis;
+        }
+
+        public Recording(StreamInput in) throws IOException {
+            this(in.readString(), in.readVLong(), in.readVLong());
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getCumulativeExecutionTimeMillis() {
+            return cumulativeExecutionTimeMillis;
+        }
+
+        @Override
+        public void writeTo(StreamOutput out) throws IOException {
+            out.writeString(name);
+            out.writeVLong(count);
+            out.writeVLong(cumulativeExecutionTimeMillis);
+        }
+
+        @Override
+        public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+            builder.startObject();
+            builder.field("name", name);
+            builder.field("cumulative_execution_count", count);
+            builder.field("cumulative_execution_time_millis", cumulativeExecutionTimeMillis);
+            builder.endObject();
+            return builder;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Recording that = (Recording) o;
+            return count == that.count && cumulativeExecutionTimeMillis == that.cumulativeExecutionTimeMillis && name.equals(that.name);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(name, count, cumulativeExecutionTimeMillis);
+        }
+
+        @Override
+        public String toString() {
+            return "Recording{name='" + name + "', count=" + count
+                + ", cumulativeExecutionTimeMillis=" + cumulativeExecutionTimeMillis + '}';
+        }
+    }
+}
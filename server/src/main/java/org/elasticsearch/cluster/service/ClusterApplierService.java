@@ -66,7 +66,6 @@ import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 import static org.elasticsearch.common.util.concurrent.EsExecutors.daemonThreadFactory;
 
@@ -109,6 +108,8 @@ public class ClusterApplierService extends AbstractLifecycleComponent implements
 
     private NodeConnectionsService nodeConnectionsService;
 
+    private final ClusterApplierRecordingService recordingService = new ClusterApplierRecordingService();
+
     public ClusterApplierService(String nodeName, Settings settings, ClusterSettings clusterSettings, ThreadPool threadPool) {
         this.clusterSettings = clusterSettings;
         this.threadPool = threadPool;
@@ -237,6 +238,7 @@ public class ClusterApplierService extends AbstractLifecycleComponent implements
         normalPriorityStateAppliers.remove(applier);
         highPriorityStateAppliers.remove(applier);
         lowPriorityStateAppliers.remove(applier);
+        recordingService.remove(applierTimingName(applier));
     }
 
     /**
@@ -251,6 +253,7 @@ public class ClusterApplierService extends AbstractLifecycleComponent implements
      */
     public void removeListener(ClusterStateListener listener) {
         clusterStateListeners.remove(listener);
+        recordingService.remove(listenerTimingName(listener));
     }
 
     /**
@@ -468,7 +471,7 @@ public class ClusterApplierService extends AbstractLifecycleComponent implements
         }
 
         logger.trace("connecting to nodes of cluster state with version {}", newClusterState.version());
-        try (Releasable ignored = stopWatch.timing("connecting to new nodes")) {
+        try (Releasable ignored = recordedTiming(stopWatch, "connecting to new nodes")) {
             connectToNodesAndWait(newClusterState);
         }
 
@@ -476,7 +479,7 @@ public class ClusterApplierService extends AbstractLifecycleComponent implements
         if (clusterChangedEvent.state().blocks().disableStatePersistence() == false && clusterChangedEvent.metaDataChanged()) {
             logger.debug("applying settings from cluster state with version {}", newClusterState.version());
             final Settings incomingSettings = clusterChangedEvent.state().metaData().settings();
-            try (Releasable ignored = stopWatch.timing("applying settings")) {
+            try (Releasable ignored = recordedTiming(stopWatch, "applying settings")) {
                 clusterSettings.applySettings(incomingSettings);
             }
         }
@@ -507,23 +510,51 @@ public class ClusterApplierService extends AbstractLifecycleComponent implements
     private void callClusterStateAppliers(ClusterChangedEvent clusterChangedEvent, StopWatch stopWatch) {
         clusterStateAppliers.forEach(applier -> {
             logger.trace("calling [{}] with change to version [{}]", applier, clusterChangedEvent.state().version());
-            try (Releasable ignored = stopWatch.timing("running applier [" + applier + "]")) {
+            try (Releasable ignored = recordedTiming(stopWatch, applierTimingName(applier))) {
                 applier.applyClusterState(clusterChangedEvent);
             }
         });
     }
 
     private void callClusterStateListeners(ClusterChangedEvent clusterChangedEvent, StopWatch stopWatch) {
-        Stream.concat(clusterStateListeners.stream(), timeoutClusterStateListeners.stream()).forEach(listener -> {
-            try {
-                logger.trace("calling [{}] with change to version [{}]", listener, clusterChangedEvent.state().version());
-                try (Releasable ignored = stopWatch.timing("notifying listener [" + listener + "]")) {
-                    listener.clusterChanged(clusterChangedEvent);
-                }
-            } catch (Exception ex) {
-                logger.warn("failed to notify ClusterStateListener", ex);
-            }
-        });
+        clusterStateListeners.forEach(listener -> callClusterStateListener(clusterChangedEvent,
+            recordedTiming(stopWatch, listenerTimingName(listener)), listener));
+        // timeout listeners come and go with individual requests so only their contribution to the slow task log is kept
+        timeoutClusterStateListeners.forEach(listener -> callClusterStateListener(clusterChangedEvent,
+            stopWatch.timing(listenerTimingName(listener)), listener));
+    }
+
+    private void callClusterStateListener(ClusterChangedEvent clusterChangedEvent, Releasable timing, ClusterStateListener listener) {
+        try (Releasable ignored = timing) {
+            logger.trace("calling [{}] with change to version [{}]", listener, clusterChangedEvent.state().version());
+            listener.clusterChanged(clusterChangedEvent);
+        } catch (Exception ex) {
+            logger.warn("failed to notify ClusterStateListener", ex);
+        }
+    }
+
+    private static String applierTimingName(ClusterStateApplier applier) {
+        return "running applier [" + applier + "]";
+    }
+
+    private static String listenerTimingName(ClusterStateListener listener) {
+        return "notifying listener [" + listener + "]";
+    }
+
+    /**
+     * Times the given step on the given stop watch and also adds its duration to the cumulative statistics exposed by {@link #getStats()}.
+     */
+    private Releasable recordedTiming(StopWatch stopWatch, String name) {
+        final Releasable timing = stopWatch.timing(name);
+        return () -> {
+            timing.close();
+            recordingService.record(name, stopWatch.lastTaskTime().millis());
+        };
+    }
+
+    @Override
+    public ClusterApplierRecordingService.Stats getStats() {
+        return recordingService.getStats();
     }
 
     private static class SafeClusterApplyListener implements ClusterApplyListener {
@@ -77,6 +77,14 @@ public class MasterService extends AbstractLifecycleComponent {
         Setting.positiveTimeSetting("cluster.service.slow_master_task_logging_threshold", TimeValue.timeValueSeconds(10),
             Setting.Property.Dynamic, Setting.Property.NodeScope);
 
+    /**
+     * The maximum number of tasks sharing an executor that are processed in a single cluster state update. Tasks beyond this limit
+     * are processed in a later batch, after the batches of other executors of the same priority that were queued in the meantime.
+     */
+    public static final Setting<Integer> MASTER_SERVICE_MAX_TASK_BATCH_SIZE_SETTING =
+        Setting.intSetting("cluster.service.max_task_batch_size", Integer.MAX_VALUE, 1,
+            Setting.Property.Dynamic, Setting.Property.NodeScope);
+
     static final String MASTER_UPDATE_THREAD_NAME = "masterService#updateTask";
 
     ClusterStatePublisher clusterStatePublisher;
@@ -87,6 +95,8 @@ public class MasterService extends AbstractLifecycleComponent {
 
     private volatile TimeValue slowTaskLoggingThreshold;
 
+    private volatile int maxTaskBatchSize;
+
     protected final ThreadPool threadPool;
 
     private volatile PrioritizedEsThreadPoolExecutor threadPoolExecutor;
@@ -98,6 +108,9 @@ public class MasterService extends AbstractLifecycleComponent {
         this.slowTaskLoggingThreshold = MASTER_SERVICE_SLOW_TASK_LOGGING_THRESHOLD_SETTING.get(settings);
         clusterSettings.addSettingsUpdateConsumer(MASTER_SERVICE_SLOW_TASK_LOGGING_THRESHOLD_SETTING, this::setSlowTaskLoggingThreshold);
 
+        this.maxTaskBatchSize = MASTER_SERVICE_MAX_TASK_BATCH_SIZE_SETTING.get(settings);
+        clusterSettings.addSettingsUpdateConsumer(MASTER_SERVICE_MAX_TASK_BATCH_SIZE_SETTING, this::setMaxTaskBatchSize);
+
         this.threadPool = threadPool;
     }
 
@@ -105,6 +118,14 @@ public class MasterService extends AbstractLifecycleComponent {
         this.slowTaskLoggingThreshold = slowTaskLoggingThreshold;
     }
 
+    private void setMaxTaskBatchSize(int maxTaskBatchSize) {
+        this.maxTaskBatchSize = maxTaskBatchSize;
+        final Batcher taskBatcher = this.taskBatcher;
+        if (taskBatcher != null) {
+            taskBatcher.setMaxBatchSize(maxTaskBatchSize);
+        }
+    }
+
     public synchronized void setClusterStatePublisher(ClusterStatePublisher publisher) {
         clusterStatePublisher = publisher;
     }
@@ -119,6 +140,7 @@ public class MasterService extends AbstractLifecycleComponent {
         Objects.requireNonNull(clusterStateSupplier, "please set a cluster state supplier before starting");
         threadPoolExecutor = createThreadPoolExecutor();
         taskBatcher = new Batcher(logger, threadPoolExecutor);
+        taskBatcher.setMaxBatchSize(maxTaskBatchSize);
     }
 
     protected PrioritizedEsThreadPoolExecutor createThreadPoolExecutor() {
@@ -30,6 +30,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
@@ -40,6 +41,9 @@ import java.util.stream.Collectors;
 /**
  * Batching support for {@link PrioritizedEsThreadPoolExecutor}
  * Tasks that share the same batching key are batched (see {@link BatchedTask#batchingKey})
+ * A batch contains at most {@link #setMaxBatchSize(int) maxBatchSize} tasks. Tasks beyond that limit remain queued and are
+ * executed in a later batch, behind the tasks with other batching keys of the same priority that were queued in the meantime,
+ * so that a single batching key cannot starve the others.
  */
 public abstract class TaskBatcher {
 
@@ -47,12 +51,27 @@ public abstract class TaskBatcher {
     private final PrioritizedEsThreadPoolExecutor threadExecutor;
     // package visible for tests
     final Map<Object, LinkedHashSet<BatchedTask>> tasksPerBatchingKey = new HashMap<>();
+    private volatile int maxBatchSize = Integer.MAX_VALUE;
 
     public TaskBatcher(Logger logger, PrioritizedEsThreadPoolExecutor threadExecutor) {
         this.logger = logger;
         this.threadExecutor = threadExecutor;
     }
 
+    /**
+     * Sets the maximum number of tasks sharing a batching key that are executed together in a single batch.
+     */
+    public void setMaxBatchSize(int maxBatchSize) {
+        if (maxBatchSize < 1) {
+            throw new IllegalArgumentException("max batch size must be at least 1 but was [" + maxBatchSize + "]");
+        }
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
     public void submitTasks(List<? extends BatchedTask> tasks, @Nullable TimeValue timeout) throws EsRejectedExecutionException {
         if (tasks.isEmpty()) {
             return;
@@ -79,6 +98,7 @@ public abstract class TaskBatcher {
                 }
             }
             existingTasks.addAll(tasks);
+            firstTask.scheduled = true;
         }
 
         if (timeout != null) {
@@ -101,15 +121,25 @@ public abstract class TaskBatcher {
             Object batchingKey = firstTask.batchingKey;
             assert tasks.stream().allMatch(t -> t.batchingKey == batchingKey) :
                 "tasks submitted in a batch should share the same batching key: " + tasks;
+            BatchedTask toReschedule = null;
             synchronized (tasksPerBatchingKey) {
                 LinkedHashSet<BatchedTask> existingTasks = tasksPerBatchingKey.get(batchingKey);
                 if (existingTasks != null) {
                     existingTasks.removeAll(toRemove);
                     if (existingTasks.isEmpty()) {
                         tasksPerBatchingKey.remove(batchingKey);
+                    } else {
+                        // the executor dropped the runnables of the timed out tasks, which may have stood in for the remaining ones
+                        for (BatchedTask task : toRemove) {
+                            task.scheduled = false;
+                        }
+                        toReschedule = taskToReschedule(existingTasks);
                     }
                 }
             }
+            if (toReschedule != null) {
+                reschedule(toReschedule);
+            }
             onTimeout(toRemove, timeout);
         }
     }
@@ -126,10 +156,17 @@ public abstract class TaskBatcher {
         if (updateTask.processed.get() == false) {
             final List<BatchedTask> toExecute = new ArrayList<>();
             final Map<String, List<BatchedTask>> processTasksBySource = new HashMap<>();
+            BatchedTask toReschedule = null;
             synchronized (tasksPerBatchingKey) {
+                // this runnable is leaving the executor queue, so it no longer stands in for the tasks that remain queued
+                updateTask.scheduled = false;
                 LinkedHashSet<BatchedTask> pending = tasksPerBatchingKey.remove(updateTask.batchingKey);
                 if (pending != null) {
-                    for (BatchedTask task : pending) {
+                    final int maxBatchSize = this.maxBatchSize;
+                    final Iterator<BatchedTask> iterator = pending.iterator();
+                    while (iterator.hasNext() && toExecute.size() < maxBatchSize) {
+                        final BatchedTask task = iterator.next();
+                        iterator.remove();
                         if (task.processed.getAndSet(true) == false) {
                             logger.trace("will process {}", task);
                             toExecute.add(task);
@@ -138,9 +175,19 @@ public abstract class TaskBatcher {
                             logger.trace("skipping {}, already processed", task);
                         }
                     }
+                    if (pending.isEmpty() == false) {
+                        logger.trace("batch for [{}] reached the limit of [{}] tasks, [{}] tasks remain queued",
+                            updateTask.batchingKey, maxBatchSize, pending.size());
+                        tasksPerBatchingKey.put(updateTask.batchingKey, pending);
+                        toReschedule = taskToReschedule(pending);
+                    }
                 }
             }
 
+            if (toReschedule != null) {
+                reschedule(toReschedule);
+            }
+
             if (toExecute.isEmpty() == false) {
                 final String tasksSummary = processTasksBySource.entrySet().stream().map(entry -> {
                     String tasks = updateTask.describeTasks(entry.getValue());
@@ -152,6 +199,29 @@ public abstract class TaskBatcher {
         }
     }
 
+    /**
+     * The remaining tasks of a batching key need a runnable in the executor queue. If none of them has a runnable that is still waiting
+     * in the executor queue, returns the oldest one, marked as scheduled, to be re-submitted, which puts it behind the tasks queued in
+     * the meantime. Must be called while holding the {@link #tasksPerBatchingKey} lock.
+     */
+    @Nullable
+    private static BatchedTask taskToReschedule(LinkedHashSet<BatchedTask> pending) {
+        if (pending.stream().anyMatch(task -> task.scheduled)) {
+            return null;
+        }
+        final BatchedTask toReschedule = pending.iterator().next();
+        toReschedule.scheduled = true;
+        return toReschedule;
+    }
+
+    private void reschedule(BatchedTask toReschedule) {
+        try {
+            threadExecutor.execute(toReschedule);
+        } catch (EsRejectedExecutionException e) {
+            logger.debug("failed to reschedule remaining tasks of batch [{}], executor is shutting down", toReschedule);
+        }
+    }
+
     /**
      * Action to be implemented by the specific batching implementation
      * All tasks have the given batching key.
@@ -176,6 +246,11 @@ public abstract class TaskBatcher {
          * the task object that is wrapped
          */
         protected final Object task;
+        /**
+         * whether this task was handed to the executor and did not run yet; only accessed while holding the
+         * {@link TaskBatcher#tasksPerBatchingKey} lock
+         */
+        boolean scheduled;
 
         protected BatchedTask(Priority priority, String source, Object batchingKey, Object task) {
             super(priority, source);
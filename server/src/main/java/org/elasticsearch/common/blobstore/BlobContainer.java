@@ -89,6 +89,34 @@ public interface BlobContainer {
      */
     void writeBlobAtomic(String blobName, InputStream inputStream, long blobSize, boolean failIfAlreadyExists) throws IOException;
 
+    /**
+     * Whether this container supports writing blobs in several parts concurrently, see {@link #startMultipartWrite}.
+     */
+    default boolean supportsMultipartWrites() {
+        return false;
+    }
+
+    /**
+     * Starts writing a new blob with the given name in several parts that may be written concurrently. The container chooses the size
+     * of the parts according to the limits of the underlying store, so the returned write may have more or fewer parts than requested.
+     * The returned write must be closed, which discards the written parts unless it was completed.
+     *
+     * @param   blobName
+     *          The name of the blob to write.
+     * @param   blobSize
+     *          The size of the blob to be written, in bytes.
+     * @param   targetPartCount
+     *          The number of parts the caller would like to write concurrently.
+     * @param   failIfAlreadyExists
+     *          whether to throw a FileAlreadyExistsException on completion if the given blob already exists
+     * @throws  UnsupportedOperationException if this container does not {@link #supportsMultipartWrites support multipart writes}
+     * @throws  IOException if the write could not be started.
+     */
+    default MultipartBlobWrite startMultipartWrite(String blobName, long blobSize, int targetPartCount, boolean failIfAlreadyExists)
+        throws IOException {
+        throw new UnsupportedOperationException("multipart writes are not supported by [" + getClass().getSimpleName() + "]");
+    }
+
     /**
      * Deletes this container and all its contents from the repository.
      *
@@ -0,0 +1,67 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.common.blobstore;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * A blob that is written from several parts, see {@link BlobContainer#startMultipartWrite}. The parts may be written concurrently and
+ * in any order. The blob only becomes visible once {@link #complete()} returned, closing a write that did not complete discards the
+ * parts that were written so far.
+ */
+public interface MultipartBlobWrite extends Closeable {
+
+    /**
+     * The number of parts the blob is split into.
+     */
+    int numberOfParts();
+
+    /**
+     * The offset of the given part within the blob.
+     */
+    long partOffset(int part);
+
+    /**
+     * The number of bytes of the given part. All parts have the same size except for the last one which holds the remaining bytes.
+     */
+    long partBytes(int part);
+
+    /**
+     * Reads the content of the given part from the input stream and writes it. Writing a part again replaces its previous content.
+     *
+     * @param   part
+     *          The index of the part, starting at {@code 0}.
+     * @param   inputStream
+     *          The input stream from which to retrieve the {@link #partBytes} bytes of the part.
+     * @throws  IOException if the input stream could not be read, or the part could not be written.
+     */
+    void writePart(int part, InputStream inputStream) throws IOException;
+
+    /**
+     * Assembles the parts into the blob once all of them were written.
+     *
+     * @throws  java.nio.file.FileAlreadyExistsException if the write was started with {@code failIfAlreadyExists} and a blob by the
+     *          same name already exists
+     * @throws  IOException if the blob could not be written.
+     */
+    void complete() throws IOException;
+}
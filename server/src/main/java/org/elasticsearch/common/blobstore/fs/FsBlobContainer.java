@@ -24,7 +24,9 @@ import org.elasticsearch.common.blobstore.BlobContainer;
 import org.elasticsearch.common.blobstore.BlobMetaData;
 import org.elasticsearch.common.blobstore.BlobPath;
 import org.elasticsearch.common.blobstore.DeleteResult;
+import org.elasticsearch.common.blobstore.MultipartBlobWrite;
 import org.elasticsearch.common.blobstore.support.AbstractBlobContainer;
+import org.elasticsearch.common.blobstore.support.AbstractMultipartBlobWrite;
 import org.elasticsearch.common.blobstore.support.PlainBlobMetaData;
 import org.elasticsearch.core.internal.io.IOUtils;
 import org.elasticsearch.core.internal.io.Streams;
@@ -34,6 +36,8 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.DirectoryStream;
 import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.FileVisitResult;
@@ -188,6 +192,69 @@ public class FsBlobContainer extends AbstractBlobContainer {
         }
     }
 
+    @Override
+    public boolean supportsMultipartWrites() {
+        return true;
+    }
+
+    /**
+     * Writes the parts to a temporary blob at their offsets and atomically moves it to the target blob once all parts were written.
+     */
+    @Override
+    public MultipartBlobWrite startMultipartWrite(String blobName, long blobSize, int targetPartCount, boolean failIfAlreadyExists)
+        throws IOException {
+        final long partSize = AbstractMultipartBlobWrite.partSize(blobSize, targetPartCount, 1L, Long.MAX_VALUE, Integer.MAX_VALUE);
+        final String tempBlob = tempBlobName(blobName);
+        final Path tempBlobPath = path.resolve(tempBlob);
+        final FileChannel channel = FileChannel.open(tempBlobPath, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        return new AbstractMultipartBlobWrite(blobName, blobSize, partSize) {
+
+            @Override
+            protected void doWritePart(int part, InputStream inputStream) throws IOException {
+                final long length = partBytes(part);
+                final ByteBuffer buffer = ByteBuffer.allocate(Math.toIntExact(Math.min(length, blobStore.bufferSizeInBytes())));
+                long position = partOffset(part);
+                long remaining = length;
+                while (remaining > 0) {
+                    final int read = inputStream.read(buffer.array(), 0, Math.toIntExact(Math.min(remaining, buffer.capacity())));
+                    if (read < 0) {
+                        throw new IOException("part [" + part + "] of [" + blobName + "] ended after [" + (length - remaining)
+                            + "] bytes but should have [" + length + "] bytes");
+                    }
+                    buffer.clear();
+                    buffer.limit(read);
+                    while (buffer.hasRemaining()) {
+                        position += channel.write(buffer, position);
+                    }
+                    remaining -= read;
+                }
+            }
+
+            @Override
+            protected void doComplete() throws IOException {
+                try {
+                    channel.close();
+                    IOUtils.fsync(tempBlobPath, false);
+                    moveBlobAtomic(tempBlob, blobName, failIfAlreadyExists);
+                } catch (IOException ex) {
+                    try {
+                        deleteBlobsIgnoringIfNotExists(Collections.singletonList(tempBlob));
+                    } catch (IOException e) {
+                        ex.addSuppressed(e);
+                    }
+                    throw ex;
+                } finally {
+                    IOUtils.fsync(path, true);
+                }
+            }
+
+            @Override
+            protected void doAbort() throws IOException {
+                IOUtils.close(channel, () -> deleteBlobsIgnoringIfNotExists(Collections.singletonList(tempBlob)));
+            }
+        };
+    }
+
     public void moveBlobAtomic(final String sourceBlobName, final String targetBlobName, final boolean failIfAlreadyExists)
         throws IOException {
         final Path sourceBlobPath = path.resolve(sourceBlobName);
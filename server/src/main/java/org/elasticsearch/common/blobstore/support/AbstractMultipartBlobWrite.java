@@ -0,0 +1,129 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.common.blobstore.support;
+
+import org.elasticsearch.common.blobstore.MultipartBlobWrite;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * A base abstract multipart blob write that splits the blob into parts and keeps track of the parts that were written.
+ */
+public abstract class AbstractMultipartBlobWrite implements MultipartBlobWrite {
+
+    protected final String blobName;
+    private final long blobSize;
+    private final long partSize;
+    private final int numberOfParts;
+    private final AtomicIntegerArray writtenParts;
+    private volatile boolean completed;
+
+    protected AbstractMultipartBlobWrite(String blobName, long blobSize, long partSize) {
+        if (partSize <= 0) {
+            throw new IllegalArgumentException("part size must be positive but was [" + partSize + "]");
+        }
+        this.blobName = blobName;
+        this.blobSize = blobSize;
+        this.partSize = partSize;
+        this.numberOfParts = Math.toIntExact(Math.max(1L, (blobSize + partSize - 1) / partSize));
+        this.writtenParts = new AtomicIntegerArray(numberOfParts);
+    }
+
+    /**
+     * Computes the size of the parts a blob should be split into so that it is split into about {@code targetPartCount} parts, within
+     * the limits of the underlying store.
+     *
+     * @throws IllegalArgumentException if the blob can not be split into at most {@code maxPartCount} parts of at most
+     *                                  {@code maxPartSize} bytes
+     */
+    public static long partSize(long blobSize, int targetPartCount, long minPartSize, long maxPartSize, int maxPartCount) {
+        long partSize = (blobSize + targetPartCount - 1) / targetPartCount;
+        partSize = Math.max(partSize, minPartSize);
+        partSize = Math.max(partSize, (blobSize + maxPartCount - 1) / maxPartCount);
+        if (partSize > maxPartSize) {
+            throw new IllegalArgumentException("blob of [" + blobSize + "] bytes can't be split into at most [" + maxPartCount
+                + "] parts of at most [" + maxPartSize + "] bytes");
+        }
+        return Math.max(1L, partSize);
+    }
+
+    @Override
+    public int numberOfParts() {
+        return numberOfParts;
+    }
+
+    @Override
+    public long partOffset(int part) {
+        Objects.checkIndex(part, numberOfParts);
+        return part * partSize;
+    }
+
+    @Override
+    public long partBytes(int part) {
+        Objects.checkIndex(part, numberOfParts);
+        return Math.min(partSize, blobSize - partOffset(part));
+    }
+
+    @Override
+    public final void writePart(int part, InputStream inputStream) throws IOException {
+        Objects.checkIndex(part, numberOfParts);
+        if (completed) {
+            throw new IllegalStateException("multipart write of [" + blobName + "] is already completed");
+        }
+        doWritePart(part, inputStream);
+        writtenParts.set(part, 1);
+    }
+
+    @Override
+    public final void complete() throws IOException {
+        for (int part = 0; part < numberOfParts; part++) {
+            if (writtenParts.get(part) == 0) {
+                throw new IllegalStateException("part [" + part + "] of [" + blobName + "] was not written");
+            }
+        }
+        doComplete();
+        completed = true;
+    }
+
+    @Override
+    public final void close() throws IOException {
+        if (completed == false) {
+            doAbort();
+        }
+    }
+
+    /**
+     * Writes the {@link #partBytes} bytes of the given part.
+     */
+    protected abstract void doWritePart(int part, InputStream inputStream) throws IOException;
+
+    /**
+     * Assembles the written parts into the blob.
+     */
+    protected abstract void doComplete() throws IOException;
+
+    /**
+     * Discards the parts that were written so far.
+     */
+    protected abstract void doAbort() throws IOException;
+}
@@ -195,6 +195,25 @@ public final class Channels {
         assert length == 0 : "wrote more then expected bytes (length=" + length + ")";
     }
 
+    /**
+     * Writes part of a byte array to a {@link FileChannel} at the given position, without changing the position of the channel
+     *
+     * @param source          byte array to copy from
+     * @param offset          start copying from this offset
+     * @param length          how many bytes to copy
+     * @param channel         target FileChannel
+     * @param channelPosition position in the channel to write the bytes to
+     */
+    public static void writeToChannel(byte[] source, int offset, int length, FileChannel channel, long channelPosition)
+        throws IOException {
+        final int end = offset + length;
+        final ByteBuffer buffer = ByteBuffer.wrap(source, offset, length);
+        while (buffer.position() < end) {
+            buffer.limit(Math.min(end, buffer.position() + WRITE_CHUNK_SIZE));
+            channelPosition += channel.write(buffer, channelPosition);
+        }
+    }
+
     /**
      * Writes a {@link java.nio.ByteBuffer} to a {@link java.nio.channels.WritableByteChannel}
      *
@@ -0,0 +1,74 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.common.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Tracks how often a duration in milliseconds falls into each of a fixed set of buckets whose bounds grow exponentially. The bucket
+ * at index {@code i} counts durations in {@code [2^(i-1), 2^i)}, the first bucket counts durations below one millisecond and the
+ * last bucket counts everything from {@code 2^(BUCKET_COUNT - 2)} upwards.
+ */
+public class ExponentialBucketHistogram {
+
+    public static final int BUCKET_COUNT = 18;
+
+    private final LongAdder[] buckets;
+
+    public ExponentialBucketHistogram() {
+        buckets = new LongAdder[BUCKET_COUNT];
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * @return the exclusive upper bound in milliseconds of each bucket but the last, which has no upper bound.
+     */
+    public static long[] getBucketUpperBounds() {
+        long[] bounds = new long[BUCKET_COUNT - 1];
+        for (int i = 0; i < bounds.length; i++) {
+            bounds[i] = 1L << i;
+        }
+        return bounds;
+    }
+
+    public void add(long millis) {
+        buckets[bucketIndex(millis)].increment();
+    }
+
+    static int bucketIndex(long millis) {
+        if (millis <= 0) {
+            return 0;
+        }
+        return Math.min(BUCKET_COUNT - 1, 64 - Long.numberOfLeadingZeros(millis));
+    }
+
+    /**
+     * @return the number of durations recorded in each bucket, indexed as described on this class.
+     */
+    public long[] getHistogram() {
+        long[] histogram = new long[BUCKET_COUNT];
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            histogram[i] = buckets[i].sum();
+        }
+        return histogram;
+    }
+}
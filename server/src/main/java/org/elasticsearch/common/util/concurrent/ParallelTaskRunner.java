@@ -0,0 +1,97 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.common.util.concurrent;
+
+import org.elasticsearch.ExceptionsHelper;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Runs a known number of tasks on the calling thread and on helper threads of an executor, and returns once all of them ran.
+ * <p>
+ * The calling thread and the helpers claim the tasks one at a time until none are left. The calling thread only waits for the tasks that
+ * a running helper already claimed, so all tasks run even if no helper gets to run because the executor is busy or rejects them. This
+ * makes it safe to use from a thread of the same executor. Once a task fails, the remaining unclaimed tasks are skipped.
+ */
+public final class ParallelTaskRunner {
+
+    @FunctionalInterface
+    public interface Task {
+        void run(int index) throws Exception;
+    }
+
+    private ParallelTaskRunner() {
+    }
+
+    /**
+     * Runs the tasks {@code 0} to {@code numberOfTasks - 1} on this thread and on at most {@code maxConcurrency - 1} helpers.
+     *
+     * @throws IOException          if the first task that failed threw an {@link IOException}; other failures are rethrown as runtime
+     *                              exceptions, and the failures of further tasks are suppressed by the first one
+     * @throws InterruptedException if this thread was interrupted while waiting for the tasks that helpers claimed
+     */
+    public static void run(int numberOfTasks, int maxConcurrency, Executor executor, Task task) throws IOException, InterruptedException {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("max concurrency must be at least 1 but was [" + maxConcurrency + "]");
+        }
+        final AtomicInteger nextTask = new AtomicInteger();
+        final CountDownLatch completedTasks = new CountDownLatch(numberOfTasks);
+        final AtomicReference<Exception> failure = new AtomicReference<>();
+        final Runnable runTasks = () -> {
+            int index;
+            while ((index = nextTask.getAndIncrement()) < numberOfTasks) {
+                try {
+                    task.run(index);
+                    completedTasks.countDown();
+                } catch (Exception e) {
+                    if (failure.compareAndSet(null, e) == false) {
+                        failure.get().addSuppressed(e);
+                    }
+                    // stop claiming further tasks and release the waiting thread for the tasks that won't run
+                    completedTasks.countDown();
+                    for (int skipped = Math.min(numberOfTasks, nextTask.getAndSet(numberOfTasks)); skipped < numberOfTasks; skipped++) {
+                        completedTasks.countDown();
+                    }
+                }
+            }
+        };
+        for (int helper = 1; helper < Math.min(numberOfTasks, maxConcurrency); helper++) {
+            try {
+                executor.execute(runTasks);
+            } catch (EsRejectedExecutionException e) {
+                // this thread runs the remaining tasks on its own
+                break;
+            }
+        }
+        runTasks.run();
+        completedTasks.await();
+        final Exception e = failure.get();
+        if (e != null) {
+            if (e instanceof IOException) {
+                throw (IOException) e;
+            }
+            throw ExceptionsHelper.convertToRuntime(e);
+        }
+    }
+}
@@ -0,0 +1,398 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.gateway;
+
+import org.elasticsearch.Version;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.FailedNodeException;
+import org.elasticsearch.action.support.nodes.BaseNodeResponse;
+import org.elasticsearch.action.support.nodes.BaseNodesResponse;
+import org.elasticsearch.cluster.node.DiscoveryNode;
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.io.stream.Writeable;
+import org.elasticsearch.common.util.concurrent.CountDown;
+import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.tasks.Task;
+import org.elasticsearch.threadpool.ThreadPool;
+import org.elasticsearch.transport.TransportException;
+import org.elasticsearch.transport.TransportRequest;
+import org.elasticsearch.transport.TransportResponse;
+import org.elasticsearch.transport.TransportResponseHandler;
+import org.elasticsearch.transport.TransportService;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Fetches shard data from the nodes in batches. The fetches that {@link AsyncShardFetch} starts while the {@link GatewayAllocator}
+ * allocates unassigned shards are queued, and {@link #flush()} sends them at the end of the round as one request per node that lists
+ * the shards to fetch, rather than one request per shard and node. The requests are split so that none of them lists more than
+ * {@link #MAX_SHARDS_PER_REQUEST} shards, which keeps fetching the data of different shards on a node concurrent. The data of a shard
+ * is passed on as soon as all the nodes of its fetch responded.
+ * <p>
+ * Nodes before {@link #BATCHING_VERSION} can't handle batched requests, so their data is still fetched through the per-shard
+ * {@link AsyncShardFetch.Lister} that this fetcher falls back to.
+ */
+public class BatchedShardFetcher<T extends BaseNodeResponse> implements AsyncShardFetch.Lister<BaseNodesResponse<T>, T> {
+
+    static final Version BATCHING_VERSION = Version.V_8_0_0;
+
+    /**
+     * The maximum number of shards that are fetched with a single request to a node.
+     */
+    static final int MAX_SHARDS_PER_REQUEST = 100;
+
+    private final TransportService transportService;
+    private final String actionName;
+    private final Writeable.Reader<T> nodeResponseReader;
+    private final NodesResponseFactory<T> nodesResponseFactory;
+    private final AsyncShardFetch.Lister<BaseNodesResponse<T>, T> fallback;
+
+    // guarded by this
+    private Map<DiscoveryNode, List<ShardFetch>> queuedFetches = new LinkedHashMap<>();
+
+    /**
+     * @param transportService     the transport service to send the batched requests with
+     * @param actionName           the name of the batched action the nodes registered with {@link #registerNodeHandler}
+     * @param nodeResponseReader   reads the data of a single shard on a single node
+     * @param nodesResponseFactory creates the response of a shard's fetch from the data and failures of all its nodes
+     * @param fallback             the per-shard lister for the nodes that don't support batching
+     */
+    public BatchedShardFetcher(TransportService transportService, String actionName, Writeable.Reader<T> nodeResponseReader,
+                               NodesResponseFactory<T> nodesResponseFactory, AsyncShardFetch.Lister<BaseNodesResponse<T>, T> fallback) {
+        this.transportService = transportService;
+        this.actionName = actionName;
+        this.nodeResponseReader = nodeResponseReader;
+        this.nodesResponseFactory = nodesResponseFactory;
+        this.fallback = fallback;
+    }
+
+    /**
+     * Returns the name of the batched variant of the given nodes action.
+     */
+    public static String batchActionName(String actionName) {
+        return actionName + "[batch][n]";
+    }
+
+    /**
+     * Queues the fetch of the given shard's data until the next {@link #flush()}.
+     */
+    @Override
+    public void list(ShardId shardId, @Nullable String customDataPath, DiscoveryNode[] nodes,
+                     ActionListener<BaseNodesResponse<T>> listener) {
+        assert nodes.length > 0 : "no nodes to fetch [" + shardId + "] from";
+        final ShardFetch fetch = new ShardFetch(shardId, customDataPath, nodes.length, listener);
+        final List<DiscoveryNode> legacyNodes = new ArrayList<>();
+        synchronized (this) {
+            for (DiscoveryNode node : nodes) {
+                if (node.getVersion().onOrAfter(BATCHING_VERSION)) {
+                    queuedFetches.computeIfAbsent(node, n -> new ArrayList<>()).add(fetch);
+                } else {
+                    legacyNodes.add(node);
+                }
+            }
+        }
+        if (legacyNodes.isEmpty() == false) {
+            fallback.list(shardId, customDataPath, legacyNodes.toArray(new DiscoveryNode[0]), new ActionListener<>() {
+                @Override
+                public void onResponse(BaseNodesResponse<T> response) {
+                    assert response.getNodes().size() + response.failures().size() == legacyNodes.size()
+                        : "expected a result per node but got " + response.getNodes() + " and " + response.failures();
+                    response.getNodes().forEach(fetch::onNodeResponse);
+                    response.failures().forEach(fetch::onNodeFailure);
+                }
+
+                @Override
+                public void onFailure(Exception e) {
+                    for (DiscoveryNode node : legacyNodes) {
+                        fetch.onNodeFailure(new FailedNodeException(node.getId(), "total failure in fetching", e));
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Sends the fetches that were queued since the last flush.
+     */
+    public void flush() {
+        final Map<DiscoveryNode, List<ShardFetch>> fetchesToSend;
+        synchronized (this) {
+            if (queuedFetches.isEmpty()) {
+                return;
+            }
+            fetchesToSend = queuedFetches;
+            queuedFetches = new LinkedHashMap<>();
+        }
+        for (Map.Entry<DiscoveryNode, List<ShardFetch>> entry : fetchesToSend.entrySet()) {
+            final List<ShardFetch> fetches = entry.getValue();
+            for (int from = 0; from < fetches.size(); from += MAX_SHARDS_PER_REQUEST) {
+                sendRequest(entry.getKey(), fetches.subList(from, Math.min(from + MAX_SHARDS_PER_REQUEST, fetches.size())));
+            }
+        }
+    }
+
+    // for tests
+    synchronized int numberOfQueuedFetches() {
+        return queuedFetches.values().stream().mapToInt(List::size).sum();
+    }
+
+    private void sendRequest(DiscoveryNode node, List<ShardFetch> fetches) {
+        final List<ShardToFetch> shards = new ArrayList<>(fetches.size());
+        for (ShardFetch fetch : fetches) {
+            shards.add(new ShardToFetch(fetch.shardId, fetch.customDataPath));
+        }
+        transportService.sendRequest(node, actionName, new NodeRequest(shards), new TransportResponseHandler<NodeResponse<T>>() {
+            @Override
+            public NodeResponse<T> read(StreamInput in) throws IOException {
+                return new NodeResponse<>(in, nodeResponseReader);
+            }
+
+            @Override
+            public void handleResponse(NodeResponse<T> response) {
+                assert response.size() == fetches.size() : "expected [" + fetches.size() + "] results but got [" + response.size() + "]";
+                for (int i = 0; i < fetches.size(); i++) {
+                    final Exception failure = response.getFailure(i);
+                    if (failure == null) {
+                        fetches.get(i).onNodeResponse(response.getResult(i));
+                    } else {
+                        fetches.get(i).onNodeFailure(new FailedNodeException(node.getId(), "Failed node [" + node.getId() + "]", failure));
+                    }
+                }
+            }
+
+            @Override
+            public void handleException(TransportException exp) {
+                for (ShardFetch fetch : fetches) {
+                    fetch.onNodeFailure(new FailedNodeException(node.getId(), "Failed node [" + node.getId() + "]", exp));
+                }
+            }
+
+            @Override
+            public String executor() {
+                return ThreadPool.Names.SAME;
+            }
+        });
+    }
+
+    /**
+     * Registers the handler of batched requests on the nodes, which fetches the data of each of the listed shards in turn.
+     *
+     * @param actionName the name of the batched action, see {@link #batchActionName}
+     * @param executor   the executor to fetch the data on
+     * @param operation  fetches the data of a single shard on this node
+     */
+    public static <T extends BaseNodeResponse> void registerNodeHandler(TransportService transportService, String actionName,
+                                                                        String executor, ShardOperation<T> operation) {
+        transportService.registerRequestHandler(actionName, executor, NodeRequest::new, (request, channel, task) -> {
+            final List<Object> results = new ArrayList<>(request.getShards().size());
+            for (ShardToFetch shard : request.getShards()) {
+                try {
+                    results.add(operation.fetch(shard.shardId, shard.customDataPath, task));
+                } catch (Exception e) {
+                    results.add(e);
+                }
+            }
+            channel.sendResponse(new NodeResponse<T>(results));
+        });
+    }
+
+    @FunctionalInterface
+    public interface NodesResponseFactory<T extends BaseNodeResponse> {
+        BaseNodesResponse<T> newResponse(List<T> responses, List<FailedNodeException> failures);
+    }
+
+    @FunctionalInterface
+    public interface ShardOperation<T extends BaseNodeResponse> {
+        T fetch(ShardId shardId, @Nullable String customDataPath, Task task);
+    }
+
+    /**
+     * The fetch of a single shard's data from all the nodes it was started for.
+     */
+    private final class ShardFetch {
+
+        private final ShardId shardId;
+        private final String customDataPath;
+        private final ActionListener<BaseNodesResponse<T>> listener;
+        private final CountDown countDown;
+        private final List<T> responses = new ArrayList<>();
+        private final List<FailedNodeException> failures = new ArrayList<>();
+
+        ShardFetch(ShardId shardId, String customDataPath, int numberOfNodes, ActionListener<BaseNodesResponse<T>> listener) {
+            this.shardId = shardId;
+            this.customDataPath = customDataPath;
+            this.listener = listener;
+            this.countDown = new CountDown(numberOfNodes);
+        }
+
+        void onNodeResponse(T response) {
+            synchronized (this) {
+                responses.add(response);
+            }
+            onNodeDone();
+        }
+
+        void onNodeFailure(FailedNodeException failure) {
+            synchronized (this) {
+                failures.add(failure);
+            }
+            onNodeDone();
+        }
+
+        private void onNodeDone() {
+            if (countDown.countDown()) {
+                final BaseNodesResponse<T> response;
+                synchronized (this) {
+                    response = nodesResponseFactory.newResponse(responses, failures);
+                }
+                listener.onResponse(response);
+            }
+        }
+    }
+
+    static final class ShardToFetch implements Writeable {
+
+        private final ShardId shardId;
+        @Nullable
+        private final String customDataPath;
+
+        ShardToFetch(ShardId shardId, String customDataPath) {
+            this.shardId = shardId;
+            this.customDataPath = customDataPath;
+        }
+
+        ShardToFetch(StreamInput in) throws IOException {
+            shardId = new ShardId(in);
+            customDataPath = in.readOptionalString();
+        }
+
+        @Override
+        public void writeTo(StreamOutput out) throws IOException {
+            shardId.writeTo(out);
+            out.writeOptionalString(customDataPath);
+        }
+
+        ShardId getShardId() {
+            return shardId;
+        }
+
+        String getCustomDataPath() {
+            return customDataPath;
+        }
+    }
+
+    /**
+     * A request to fetch the data of several shards from a node.
+     */
+    static final class NodeRequest extends TransportRequest {
+
+        private final List<ShardToFetch> shards;
+
+        NodeRequest(List<ShardToFetch> shards) {
+            this.shards = Collections.unmodifiableList(shards);
+        }
+
+        NodeRequest(StreamInput in) throws IOException {
+            super(in);
+            shards = in.readList(ShardToFetch::new);
+        }
+
+        @Override
+        public void writeTo(StreamOutput out) throws IOException {
+            super.writeTo(out);
+            out.writeList(shards);
+        }
+
+        List<ShardToFetch> getShards() {
+            return shards;
+        }
+    }
+
+    /**
+     * The response to a {@link NodeRequest}, holding either the data or the failure of each shard, in the order of the request.
+     */
+    static final class NodeResponse<T extends BaseNodeResponse> extends TransportResponse {
+
+        private final List<Object> results;
+
+        NodeResponse(List<Object> results) {
+            for (Object result : results) {
+                assert result instanceof BaseNodeResponse || result instanceof Exception : "unexpected result " + result;
+            }
+            this.results = Collections.unmodifiableList(results);
+        }
+
+        NodeResponse(StreamInput in, Writeable.Reader<T> reader) throws IOException {
+            super(in);
+            final int size = in.readVInt();
+            final List<Object> results = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                if (in.readBoolean()) {
+                    results.add(reader.read(in));
+                } else {
+                    results.add(in.readException());
+                }
+            }
+            this.results = Collections.unmodifiableList(results);
+        }
+
+        @Override
+        public void writeTo(StreamOutput out) throws IOException {
+            out.writeVInt(results.size());
+            for (Object result : results) {
+                if (result instanceof BaseNodeResponse) {
+                    out.writeBoolean(true);
+                    ((BaseNodeResponse) result).writeTo(out);
+                } else {
+                    out.writeBoolean(false);
+                    out.writeException((Exception) result);
+                }
+            }
+        }
+
+        int size() {
+            return results.size();
+        }
+
+        /**
+         * Returns the data of the shard with the given index, or {@code null} if fetching it failed.
+         */
+        @SuppressWarnings("unchecked")
+        T getResult(int index) {
+            final Object result = results.get(index);
+            return result instanceof BaseNodeResponse ? (T) result : null;
+        }
+
+        /**
+         * Returns the failure of the shard with the given index, or {@code null} if its data was fetched.
+         */
+        Exception getFailure(int index) {
+            final Object result = results.get(index);
+            return result instanceof Exception ? (Exception) result : null;
+        }
+    }
+}
@@ -36,6 +36,7 @@ import org.elasticsearch.cluster.routing.ShardRouting;
 import org.elasticsearch.cluster.routing.allocation.AllocateUnassignedDecision;
 import org.elasticsearch.cluster.routing.allocation.FailedShard;
 import org.elasticsearch.cluster.routing.allocation.RoutingAllocation;
+import org.elasticsearch.cluster.service.ClusterService;
 import org.elasticsearch.common.Priority;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.lease.Releasables;
@@ -43,9 +44,12 @@ import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
 import org.elasticsearch.common.util.set.Sets;
 import org.elasticsearch.gateway.AsyncShardFetch.Lister;
 import org.elasticsearch.gateway.TransportNodesListGatewayStartedShards.NodeGatewayStartedShards;
+import org.elasticsearch.gateway.TransportNodesListGatewayStartedShards.NodesGatewayStartedShards;
 import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.indices.store.TransportNodesListShardStoreMetaData;
 import org.elasticsearch.indices.store.TransportNodesListShardStoreMetaData.NodeStoreFilesMetaData;
+import org.elasticsearch.indices.store.TransportNodesListShardStoreMetaData.NodesStoreFilesMetaData;
+import org.elasticsearch.transport.TransportService;
 
 import java.util.Collections;
 import java.util.List;
@@ -63,6 +67,9 @@ public class GatewayAllocator {
     private final PrimaryShardAllocator primaryShardAllocator;
     private final ReplicaShardAllocator replicaShardAllocator;
 
+    private final BatchedShardFetcher<NodeGatewayStartedShards> startedShardsFetcher;
+    private final BatchedShardFetcher<NodeStoreFilesMetaData> storeFilesFetcher;
+
     private final ConcurrentMap<ShardId, AsyncShardFetch<NodeGatewayStartedShards>>
         asyncFetchStarted = ConcurrentCollections.newConcurrentMap();
     private final ConcurrentMap<ShardId, AsyncShardFetch<NodeStoreFilesMetaData>>
@@ -70,10 +77,23 @@ public class GatewayAllocator {
     private Set<String> lastSeenEphemeralIds = Collections.emptySet();
 
     @Inject
-    public GatewayAllocator(RerouteService rerouteService, NodeClient client) {
+    public GatewayAllocator(RerouteService rerouteService, NodeClient client, TransportService transportService,
+                            ClusterService clusterService) {
         this.rerouteService = rerouteService;
-        this.primaryShardAllocator = new InternalPrimaryShardAllocator(client);
-        this.replicaShardAllocator = new InternalReplicaShardAllocator(client);
+        this.primaryShardAllocator = new InternalPrimaryShardAllocator();
+        this.replicaShardAllocator = new InternalReplicaShardAllocator();
+        this.startedShardsFetcher = new BatchedShardFetcher<>(transportService,
+            TransportNodesListGatewayStartedShards.BATCH_ACTION_NAME, NodeGatewayStartedShards::new,
+            (responses, failures) -> new NodesGatewayStartedShards(clusterService.getClusterName(), responses, failures),
+            (shardId, customDataPath, nodes, listener) -> client.executeLocally(TransportNodesListGatewayStartedShards.TYPE,
+                new TransportNodesListGatewayStartedShards.Request(shardId, customDataPath, nodes),
+                ActionListener.wrap(listener::onResponse, listener::onFailure)));
+        this.storeFilesFetcher = new BatchedShardFetcher<>(transportService,
+            TransportNodesListShardStoreMetaData.BATCH_ACTION_NAME, NodeStoreFilesMetaData::new,
+            (responses, failures) -> new NodesStoreFilesMetaData(clusterService.getClusterName(), responses, failures),
+            (shardId, customDataPath, nodes, listener) -> client.executeLocally(TransportNodesListShardStoreMetaData.TYPE,
+                new TransportNodesListShardStoreMetaData.Request(shardId, customDataPath, nodes),
+                ActionListener.wrap(listener::onResponse, listener::onFailure)));
     }
 
     public void cleanCaches() {
@@ -88,6 +108,8 @@ public class GatewayAllocator {
         this.rerouteService = null;
         this.primaryShardAllocator = null;
         this.replicaShardAllocator = null;
+        this.startedShardsFetcher = null;
+        this.storeFilesFetcher = null;
     }
 
     public int getNumberOfInFlightFetch() {
@@ -119,7 +141,11 @@ public class GatewayAllocator {
         assert primaryShardAllocator != null;
         assert replicaShardAllocator != null;
         ensureAsyncFetchStorePrimaryRecency(allocation);
-        innerAllocatedUnassigned(allocation, primaryShardAllocator, replicaShardAllocator);
+        try {
+            innerAllocatedUnassigned(allocation, primaryShardAllocator, replicaShardAllocator);
+        } finally {
+            flushShardFetches();
+        }
     }
 
     // allow for testing infra to change shard allocators implementation
@@ -142,15 +168,29 @@ public class GatewayAllocator {
      * {@link AllocateUnassignedDecision#NOT_TAKEN} is returned.
      */
     public AllocateUnassignedDecision decideUnassignedShardAllocation(ShardRouting unassignedShard, RoutingAllocation routingAllocation) {
-        if (unassignedShard.primary()) {
-            assert primaryShardAllocator != null;
-            return primaryShardAllocator.makeAllocationDecision(unassignedShard, routingAllocation, logger);
-        } else {
-            assert replicaShardAllocator != null;
-            return replicaShardAllocator.makeAllocationDecision(unassignedShard, routingAllocation, logger);
+        try {
+            if (unassignedShard.primary()) {
+                assert primaryShardAllocator != null;
+                return primaryShardAllocator.makeAllocationDecision(unassignedShard, routingAllocation, logger);
+            } else {
+                assert replicaShardAllocator != null;
+                return replicaShardAllocator.makeAllocationDecision(unassignedShard, routingAllocation, logger);
+            }
+        } finally {
+            flushShardFetches();
         }
     }
 
+    /**
+     * Sends the shard data fetches that the allocators started, batched per node.
+     */
+    private void flushShardFetches() {
+        assert startedShardsFetcher != null;
+        assert storeFilesFetcher != null;
+        startedShardsFetcher.flush();
+        storeFilesFetcher.flush();
+    }
+
     /**
      * Clear the fetched data for the primary to ensure we do not cancel recoveries based on excessively stale data.
      */
@@ -207,16 +247,10 @@ public class GatewayAllocator {
 
     class InternalPrimaryShardAllocator extends PrimaryShardAllocator {
 
-        private final NodeClient client;
-
-        InternalPrimaryShardAllocator(NodeClient client) {
-            this.client = client;
-        }
-
         @Override
         protected AsyncShardFetch.FetchResult<NodeGatewayStartedShards> fetchData(ShardRouting shard, RoutingAllocation allocation) {
             // explicitely type lister, some IDEs (Eclipse) are not able to correctly infer the function type
-            Lister<BaseNodesResponse<NodeGatewayStartedShards>, NodeGatewayStartedShards> lister = this::listStartedShards;
+            Lister<BaseNodesResponse<NodeGatewayStartedShards>, NodeGatewayStartedShards> lister = startedShardsFetcher;
             AsyncShardFetch<NodeGatewayStartedShards> fetch =
                 asyncFetchStarted.computeIfAbsent(shard.shardId(),
                             shardId -> new InternalAsyncFetch<>(logger, "shard_started", shardId,
@@ -230,27 +264,14 @@ public class GatewayAllocator {
             }
             return shardState;
         }
-
-        private void listStartedShards(ShardId shardId, String customDataPath, DiscoveryNode[] nodes,
-                                       ActionListener<BaseNodesResponse<NodeGatewayStartedShards>> listener) {
-            var request = new TransportNodesListGatewayStartedShards.Request(shardId, customDataPath, nodes);
-            client.executeLocally(TransportNodesListGatewayStartedShards.TYPE, request,
-                ActionListener.wrap(listener::onResponse, listener::onFailure));
-        }
     }
 
     class InternalReplicaShardAllocator extends ReplicaShardAllocator {
 
-        private final NodeClient client;
-
-        InternalReplicaShardAllocator(NodeClient client) {
-            this.client = client;
-        }
-
         @Override
         protected AsyncShardFetch.FetchResult<NodeStoreFilesMetaData> fetchData(ShardRouting shard, RoutingAllocation allocation) {
             // explicitely type lister, some IDEs (Eclipse) are not able to correctly infer the function type
-            Lister<BaseNodesResponse<NodeStoreFilesMetaData>, NodeStoreFilesMetaData> lister = this::listStoreFilesMetaData;
+            Lister<BaseNodesResponse<NodeStoreFilesMetaData>, NodeStoreFilesMetaData> lister = storeFilesFetcher;
             AsyncShardFetch<NodeStoreFilesMetaData> fetch = asyncFetchStore.computeIfAbsent(shard.shardId(),
                     shardId -> new InternalAsyncFetch<>(logger, "shard_store", shard.shardId(),
                         IndexMetaData.INDEX_DATA_PATH_SETTING.get(allocation.metaData().index(shard.index()).getSettings()), lister));
@@ -262,13 +283,6 @@ public class GatewayAllocator {
             return shardStores;
         }
 
-        private void listStoreFilesMetaData(ShardId shardId, String customDataPath, DiscoveryNode[] nodes,
-                                            ActionListener<BaseNodesResponse<NodeStoreFilesMetaData>> listener) {
-            var request = new TransportNodesListShardStoreMetaData.Request(shardId, customDataPath, nodes);
-            client.executeLocally(TransportNodesListShardStoreMetaData.TYPE, request,
-                ActionListener.wrap(listener::onResponse, listener::onFailure));
-        }
-
         @Override
         protected boolean hasInitiatedFetching(ShardRouting shard) {
             return asyncFetchStore.get(shard.shardId()) != null;
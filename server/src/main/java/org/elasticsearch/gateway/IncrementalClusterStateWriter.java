@@ -30,6 +30,8 @@ import org.elasticsearch.common.settings.ClusterSettings;
 import org.elasticsearch.common.settings.Setting;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
 import org.elasticsearch.index.Index;
 
 import java.util.ArrayList;
@@ -38,7 +40,13 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.LongSupplier;
 
 /**
@@ -51,7 +59,15 @@ public class IncrementalClusterStateWriter {
     public static final Setting<TimeValue> SLOW_WRITE_LOGGING_THRESHOLD = Setting.timeSetting("gateway.slow_write_logging_threshold",
         TimeValue.timeValueSeconds(10), TimeValue.ZERO, Setting.Property.NodeScope, Setting.Property.Dynamic);
 
+    /**
+     * The maximum number of index metadata files that are written concurrently when persisting a cluster state. Each file is fsynced
+     * individually, so writing them in parallel avoids waiting for thousands of sequential fsyncs when many indices changed at once.
+     */
+    public static final Setting<Integer> INDEX_METADATA_WRITE_CONCURRENCY = Setting.intSetting("gateway.index_metadata_write_concurrency",
+        4, 1, Setting.Property.NodeScope, Setting.Property.Dynamic);
+
     private final MetaStateService metaStateService;
+    private final Executor executor;
 
     // On master-eligible nodes we call updateClusterState under the Coordinator's mutex; on master-ineligible data nodes we call
     // updateClusterState on the (unique) cluster applier thread; on other nodes we never call updateClusterState. In all cases there's
@@ -62,22 +78,30 @@ public class IncrementalClusterStateWriter {
     private boolean incrementalWrite;
 
     private volatile TimeValue slowWriteLoggingThreshold;
+    private volatile int indexMetaDataWriteConcurrency;
 
     IncrementalClusterStateWriter(Settings settings, ClusterSettings clusterSettings, MetaStateService metaStateService, Manifest manifest,
-                                  ClusterState clusterState, LongSupplier relativeTimeMillisSupplier) {
+                                  ClusterState clusterState, LongSupplier relativeTimeMillisSupplier, Executor executor) {
         this.metaStateService = metaStateService;
+        this.executor = executor;
         this.previousManifest = manifest;
         this.previousClusterState = clusterState;
         this.relativeTimeMillisSupplier = relativeTimeMillisSupplier;
         this.incrementalWrite = false;
         this.slowWriteLoggingThreshold = SLOW_WRITE_LOGGING_THRESHOLD.get(settings);
         clusterSettings.addSettingsUpdateConsumer(SLOW_WRITE_LOGGING_THRESHOLD, this::setSlowWriteLoggingThreshold);
+        this.indexMetaDataWriteConcurrency = INDEX_METADATA_WRITE_CONCURRENCY.get(settings);
+        clusterSettings.addSettingsUpdateConsumer(INDEX_METADATA_WRITE_CONCURRENCY, this::setIndexMetaDataWriteConcurrency);
     }
 
     private void setSlowWriteLoggingThreshold(TimeValue slowWriteLoggingThreshold) {
         this.slowWriteLoggingThreshold = slowWriteLoggingThreshold;
     }
 
+    private void setIndexMetaDataWriteConcurrency(int indexMetaDataWriteConcurrency) {
+        this.indexMetaDataWriteConcurrency = indexMetaDataWriteConcurrency;
+    }
+
     void setCurrentTerm(long currentTerm) throws WriteStateException {
         Manifest manifest = new Manifest(currentTerm, previousManifest.getClusterStateVersion(), previousManifest.getGlobalGeneration(),
             new HashMap<>(previousManifest.getIndexGenerations()));
@@ -146,10 +170,16 @@ public class IncrementalClusterStateWriter {
         Iterable<IndexMetaDataAction> actions = resolveIndexMetaDataActions(previouslyWrittenIndices, relevantIndices, previousMetaData,
             newState.metaData());
 
+        List<IndexMetaDataAction> writeActions = new ArrayList<>();
         for (IndexMetaDataAction action : actions) {
-            long generation = action.execute(writer);
-            newIndices.put(action.getIndex(), generation);
+            if (action instanceof KeepPreviousGeneration) {
+                long generation = action.execute(writer);
+                newIndices.put(action.getIndex(), generation);
+            } else {
+                writeActions.add(action);
+            }
         }
+        newIndices.putAll(writer.executeConcurrently(writeActions, executor, indexMetaDataWriteConcurrency));
 
         return newIndices;
     }
@@ -268,16 +298,19 @@ public class IncrementalClusterStateWriter {
         private final Manifest previousManifest;
         private final MetaStateService metaStateService;
         private boolean finished;
+        // set while index metadata is written concurrently, in which case a failed write must not roll back the transaction until all
+        // other in-flight writes have completed
+        private boolean deferRollback;
 
-        private int indicesWritten;
-        private int indicesSkipped;
+        private final AtomicInteger indicesWritten = new AtomicInteger();
+        private final AtomicInteger indicesSkipped = new AtomicInteger();
 
         AtomicClusterStateWriter(MetaStateService metaStateService, Manifest previousManifest) {
             this.metaStateService = metaStateService;
             assert previousManifest != null;
             this.previousManifest = previousManifest;
-            this.commitCleanupActions = new ArrayList<>();
-            this.rollbackCleanupActions = new ArrayList<>();
+            this.commitCleanupActions = Collections.synchronizedList(new ArrayList<>());
+            this.rollbackCleanupActions = Collections.synchronizedList(new ArrayList<>());
             this.finished = false;
         }
 
@@ -309,11 +342,83 @@ public class IncrementalClusterStateWriter {
                 commitCleanupActions.add(() -> metaStateService.cleanupIndex(index, generation));
                 return generation;
             } catch (WriteStateException e) {
-                rollback();
+                if (deferRollback == false) {
+                    rollback();
+                }
                 throw e;
             }
         }
 
+        /**
+         * Executes the given actions using up to {@code concurrency} threads. The calling thread executes actions too, so progress does
+         * not depend on the availability of threads in the given executor. If an action fails then no further actions are started, and
+         * the transaction is rolled back once the actions that are already running have completed.
+         *
+         * @return the new index metadata state generation for each of the given actions, keyed by index.
+         * @throws WriteStateException if any of the actions failed.
+         */
+        Map<Index, Long> executeConcurrently(List<IndexMetaDataAction> actions, Executor executor, int concurrency)
+            throws WriteStateException {
+            assert finished == false : FINISHED_MSG;
+            final Map<Index, Long> generations = new HashMap<>();
+            if (concurrency <= 1 || actions.size() <= 1) {
+                for (IndexMetaDataAction action : actions) {
+                    generations.put(action.getIndex(), action.execute(this));
+                }
+                return generations;
+            }
+
+            final Queue<IndexMetaDataAction> queue = ConcurrentCollections.newQueue();
+            queue.addAll(actions);
+            final Map<Index, Long> concurrentGenerations = ConcurrentCollections.newConcurrentMap();
+            final AtomicReference<WriteStateException> failure = new AtomicReference<>();
+            final Runnable drain = () -> {
+                IndexMetaDataAction action;
+                while (failure.get() == null && (action = queue.poll()) != null) {
+                    try {
+                        concurrentGenerations.put(action.getIndex(), action.execute(this));
+                    } catch (WriteStateException e) {
+                        if (failure.compareAndSet(null, e) == false) {
+                            failure.get().addSuppressed(e);
+                        }
+                    } catch (RuntimeException e) {
+                        final WriteStateException writeStateException
+                            = new WriteStateException(false, "failed to write index metadata for " + action.getIndex(), e);
+                        if (failure.compareAndSet(null, writeStateException) == false) {
+                            failure.get().addSuppressed(writeStateException);
+                        }
+                    }
+                }
+            };
+
+            deferRollback = true;
+            final List<ConcurrentWriter> writers = new ArrayList<>();
+            try {
+                for (int i = 1; i < Math.min(concurrency, actions.size()); i++) {
+                    final ConcurrentWriter writer = new ConcurrentWriter(drain);
+                    writers.add(writer);
+                    try {
+                        executor.execute(writer);
+                    } catch (EsRejectedExecutionException e) {
+                        logger.debug("failed to fork index metadata writer, writing on the calling thread instead", e);
+                        break;
+                    }
+                }
+                drain.run();
+            } finally {
+                writers.forEach(ConcurrentWriter::awaitOrCancel);
+                deferRollback = false;
+            }
+
+            if (failure.get() != null) {
+                rollback();
+                throw failure.get();
+            }
+            assert concurrentGenerations.size() == actions.size() : concurrentGenerations.keySet() + " vs " + actions;
+            generations.putAll(concurrentGenerations);
+            return generations;
+        }
+
         void writeManifestAndCleanup(String reason, Manifest manifest) throws WriteStateException {
             assert finished == false : FINISHED_MSG;
             try {
@@ -338,19 +443,61 @@ public class IncrementalClusterStateWriter {
         }
 
         void incrementIndicesWritten() {
-            indicesWritten++;
+            indicesWritten.incrementAndGet();
         }
 
         void incrementIndicesSkipped() {
-            indicesSkipped++;
+            indicesSkipped.incrementAndGet();
         }
 
         int getIndicesWritten() {
-            return indicesWritten;
+            return indicesWritten.get();
         }
 
         int getIndicesSkipped() {
-            return indicesSkipped;
+            return indicesSkipped.get();
+        }
+    }
+
+    /**
+     * A task that helps draining the queue of index metadata writes on a forked thread. The thread that forked it may cancel it if it did
+     * not start yet, otherwise it waits for its completion.
+     */
+    private static class ConcurrentWriter implements Runnable {
+        private final Runnable drain;
+        private final AtomicBoolean started = new AtomicBoolean();
+        private final CountDownLatch completed = new CountDownLatch(1);
+
+        ConcurrentWriter(Runnable drain) {
+            this.drain = drain;
+        }
+
+        @Override
+        public void run() {
+            if (started.compareAndSet(false, true)) {
+                try {
+                    drain.run();
+                } finally {
+                    completed.countDown();
+                }
+            }
+        }
+
+        void awaitOrCancel() {
+            if (started.compareAndSet(false, true) == false) {
+                boolean interrupted = false;
+                while (true) {
+                    try {
+                        completed.await();
+                        break;
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    }
+                }
+                if (interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+            }
         }
     }
 
@@ -68,6 +68,7 @@ public class TransportNodesListGatewayStartedShards extends
 
     public static final String ACTION_NAME = "internal:gateway/local/started_shards";
     public static final ActionType<NodesGatewayStartedShards> TYPE = new ActionType<>(ACTION_NAME, NodesGatewayStartedShards::new);
+    public static final String BATCH_ACTION_NAME = BatchedShardFetcher.batchActionName(ACTION_NAME);
 
     private final Settings settings;
     private final NodeEnvironment nodeEnv;
@@ -85,6 +86,8 @@ public class TransportNodesListGatewayStartedShards extends
         this.nodeEnv = env;
         this.indicesService = indicesService;
         this.namedXContentRegistry = namedXContentRegistry;
+        BatchedShardFetcher.registerNodeHandler(transportService, BATCH_ACTION_NAME, ThreadPool.Names.FETCH_SHARD_STARTED,
+            (shardId, customDataPath, task) -> nodeOperation(new NodeRequest(shardId, customDataPath), task));
     }
 
     @Override
@@ -250,6 +253,11 @@ public class TransportNodesListGatewayStartedShards extends
             this.customDataPath = Objects.requireNonNull(request.getCustomDataPath());
         }
 
+        NodeRequest(ShardId shardId, @Nullable String customDataPath) {
+            this.shardId = Objects.requireNonNull(shardId);
+            this.customDataPath = customDataPath;
+        }
+
         @Override
         public void writeTo(StreamOutput out) throws IOException {
             super.writeTo(out);
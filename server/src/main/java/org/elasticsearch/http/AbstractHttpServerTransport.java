@@ -38,6 +38,7 @@ import org.elasticsearch.common.transport.PortsRange;
 import org.elasticsearch.common.transport.TransportAddress;
 import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.common.util.concurrent.EsExecutors;
 import org.elasticsearch.common.util.concurrent.ThreadContext;
 import org.elasticsearch.common.xcontent.NamedXContentRegistry;
 import org.elasticsearch.rest.RestChannel;
@@ -75,6 +76,7 @@ public abstract class AbstractHttpServerTransport extends AbstractLifecycleCompo
     protected final Dispatcher dispatcher;
     protected final CorsHandler.Config corsConfig;
     private final NamedXContentRegistry xContentRegistry;
+    private final HttpResponseCompressor responseCompressor;
 
     protected final PortsRange port;
     protected final ByteSizeValue maxContentLength;
@@ -95,6 +97,8 @@ public abstract class AbstractHttpServerTransport extends AbstractLifecycleCompo
         this.xContentRegistry = xContentRegistry;
         this.dispatcher = dispatcher;
         this.handlingSettings = HttpHandlingSettings.fromSettings(settings);
+        this.responseCompressor = new HttpResponseCompressor(handlingSettings.getCompressionLevel(),
+            EsExecutors.numberOfProcessors(settings));
         this.corsConfig = CorsHandler.fromSettings(settings);
 
         // we can't make the network.bind_host a fallback since we already fall back to http.host hence the extra conditional here
@@ -211,6 +215,7 @@ public abstract class AbstractHttpServerTransport extends AbstractLifecycleCompo
 
     @Override
     protected void doClose() {
+        responseCompressor.close();
     }
 
     /**
@@ -291,6 +296,14 @@ public abstract class AbstractHttpServerTransport extends AbstractLifecycleCompo
         logger.trace(() -> new ParameterizedMessage("Http channel accepted: {}", httpChannel));
     }
 
+    /**
+     * Whether the content of a request with the given method and uri should be received in parts after the request is dispatched, rather
+     * than in full before, because the request handler it is dispatched to consumes its content incrementally.
+     */
+    public boolean supportsIncrementalContent(RestRequest.Method method, String uri) {
+        return dispatcher.supportsIncrementalContent(method, uri);
+    }
+
     /**
      * This method handles an incoming http request.
      *
@@ -360,11 +373,13 @@ public abstract class AbstractHttpServerTransport extends AbstractLifecycleCompo
             RestChannel innerChannel;
             ThreadContext threadContext = threadPool.getThreadContext();
             try {
-                innerChannel = new DefaultRestChannel(httpChannel, httpRequest, restRequest, bigArrays, handlingSettings, threadContext);
+                innerChannel = new DefaultRestChannel(httpChannel, httpRequest, restRequest, bigArrays, handlingSettings, threadContext,
+                    responseCompressor);
             } catch (final IllegalArgumentException e) {
                 badRequestCause = ExceptionsHelper.useOrSuppress(badRequestCause, e);
                 final RestRequest innerRequest = RestRequest.requestWithoutParameters(xContentRegistry, httpRequest, httpChannel);
-                innerChannel = new DefaultRestChannel(httpChannel, httpRequest, innerRequest, bigArrays, handlingSettings, threadContext);
+                innerChannel = new DefaultRestChannel(httpChannel, httpRequest, innerRequest, bigArrays, handlingSettings, threadContext,
+                    responseCompressor);
             }
             channel = innerChannel;
         }
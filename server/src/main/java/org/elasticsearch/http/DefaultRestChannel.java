@@ -22,6 +22,7 @@ package org.elasticsearch.http;
 import org.elasticsearch.action.ActionListener;
 import org.elasticsearch.common.bytes.BytesArray;
 import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.bytes.ReleasableBytesReference;
 import org.elasticsearch.common.io.stream.BytesStreamOutput;
 import org.elasticsearch.common.io.stream.ReleasableBytesStreamOutput;
 import org.elasticsearch.common.lease.Releasable;
@@ -30,11 +31,14 @@ import org.elasticsearch.common.network.CloseableChannel;
 import org.elasticsearch.common.util.BigArrays;
 import org.elasticsearch.common.util.concurrent.ThreadContext;
 import org.elasticsearch.rest.AbstractRestChannel;
+import org.elasticsearch.rest.ChunkedRestResponseBody;
 import org.elasticsearch.rest.RestChannel;
 import org.elasticsearch.rest.RestRequest;
 import org.elasticsearch.rest.RestResponse;
 import org.elasticsearch.rest.RestStatus;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
@@ -59,15 +63,17 @@ public class DefaultRestChannel extends AbstractRestChannel implements RestChann
     private final HttpHandlingSettings settings;
     private final ThreadContext threadContext;
     private final HttpChannel httpChannel;
+    private final HttpResponseCompressor compressor;
 
     DefaultRestChannel(HttpChannel httpChannel, HttpRequest httpRequest, RestRequest request, BigArrays bigArrays,
-                       HttpHandlingSettings settings, ThreadContext threadContext) {
+                       HttpHandlingSettings settings, ThreadContext threadContext, HttpResponseCompressor compressor) {
         super(request, settings.getDetailedErrorsEnabled());
         this.httpChannel = httpChannel;
         this.httpRequest = httpRequest;
         this.bigArrays = bigArrays;
         this.settings = settings;
         this.threadContext = threadContext;
+        this.compressor = compressor;
     }
 
     @Override
@@ -85,22 +91,52 @@ public class DefaultRestChannel extends AbstractRestChannel implements RestChann
 
         boolean success = false;
         try {
-            final BytesReference content = restResponse.content();
-            if (content instanceof Releasable) {
-                toClose.add((Releasable) content);
-            }
-
-            BytesReference finalContent = content;
+            boolean isHeadRequest = false;
             try {
-                if (request.method() == RestRequest.Method.HEAD) {
-                    finalContent = BytesArray.EMPTY;
-                }
+                isHeadRequest = request.method() == RestRequest.Method.HEAD;
             } catch (IllegalArgumentException ignored) {
                 assert restResponse.status() == RestStatus.METHOD_NOT_ALLOWED :
                     "request HTTP method is unsupported but HTTP status is not METHOD_NOT_ALLOWED(405)";
             }
 
-            final HttpResponse httpResponse = httpRequest.createResponse(restResponse.status(), finalContent);
+            final ChunkedRestResponseBody chunkedContent = restResponse.chunkedContent();
+            final HttpResponse httpResponse;
+            final String contentLength;
+            boolean compressed = false;
+            if (chunkedContent != null && isHeadRequest == false && httpRequest.supportsChunkedResponses()) {
+                // the chunks are released by the http channel as they are written out, the length is not known up front
+                httpResponse = httpRequest.createResponse(restResponse.status(), chunkedContent, bigArrays);
+                contentLength = null;
+            } else {
+                final BytesReference content;
+                if (chunkedContent != null) {
+                    try {
+                        content = ChunkedRestResponseBody.serializeFully(chunkedContent, bigArrays);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                } else {
+                    content = restResponse.content();
+                    assert content != null : "response has neither content nor chunked content";
+                }
+                if (content instanceof Releasable) {
+                    toClose.add((Releasable) content);
+                }
+                if (isHeadRequest) {
+                    httpResponse = httpRequest.createResponse(restResponse.status(), BytesArray.EMPTY);
+                    contentLength = String.valueOf(content.length());
+                } else if (shouldCompress(restResponse, content)) {
+                    // compress here rather than leaving it to the network layer, which would do it on the event loop
+                    final ReleasableBytesReference compressedContent = compressor.compress(content, bigArrays);
+                    toClose.add(compressedContent);
+                    httpResponse = httpRequest.createResponse(restResponse.status(), compressedContent);
+                    contentLength = String.valueOf(compressedContent.length());
+                    compressed = true;
+                } else {
+                    httpResponse = httpRequest.createResponse(restResponse.status(), content);
+                    contentLength = String.valueOf(content.length());
+                }
+            }
 
             // TODO: Ideally we should move the setting of Cors headers into :server
             // NioCorsHandler.setCorsResponseHeaders(nettyRequest, resp, corsConfig);
@@ -116,8 +152,13 @@ public class DefaultRestChannel extends AbstractRestChannel implements RestChann
 
             // If our response doesn't specify a content-type header, set one
             setHeaderField(httpResponse, CONTENT_TYPE, restResponse.contentType(), false);
-            // If our response has no content-length, calculate and set one
-            setHeaderField(httpResponse, CONTENT_LENGTH, String.valueOf(restResponse.content().length()), false);
+            if (contentLength != null) {
+                // If our response has no content-length, calculate and set one
+                setHeaderField(httpResponse, CONTENT_LENGTH, contentLength, false);
+            }
+            if (compressed) {
+                setHeaderField(httpResponse, HttpResponseCompressor.CONTENT_ENCODING, HttpResponseCompressor.GZIP);
+            }
 
             addCookies(httpResponse);
 
@@ -136,6 +177,18 @@ public class DefaultRestChannel extends AbstractRestChannel implements RestChann
         }
     }
 
+    private boolean shouldCompress(RestResponse restResponse, BytesReference content) {
+        if (settings.isCompression() == false || content.length() == 0) {
+            return false;
+        }
+        for (String header : restResponse.getHeaders().keySet()) {
+            if (HttpResponseCompressor.CONTENT_ENCODING.equalsIgnoreCase(header)) {
+                return false;
+            }
+        }
+        return HttpResponseCompressor.acceptsGzip(request.header(HttpResponseCompressor.ACCEPT_ENCODING));
+    }
+
     private void setHeaderField(HttpResponse response, String headerField, String value) {
         setHeaderField(response, headerField, value, true);
     }
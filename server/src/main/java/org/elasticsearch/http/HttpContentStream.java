@@ -0,0 +1,59 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.http;
+
+import org.elasticsearch.common.bytes.ReleasableBytesReference;
+
+/**
+ * The content of an http request which is received in parts after the request has been dispatched, rather than in full before. The
+ * transport only reads the next part from the network once the consumer {@link #next() requests} it, so a consumer that processes the
+ * content more slowly than the client sends it pushes back on the client instead of buffering the content.
+ *
+ * Once the response to the request is sent and the request is released, any content that has not been consumed yet is discarded.
+ */
+public interface HttpContentStream {
+
+    /**
+     * Sets the handler which receives the parts of the content. Must be called exactly once, before the first call to {@link #next()}.
+     */
+    void setHandler(Handler handler);
+
+    /**
+     * Requests the next part of the content, which is passed to the handler once it has been received, possibly on the calling thread.
+     * Must not be called again before the handler received the requested part, nor after it received the last part or a failure.
+     */
+    void next();
+
+    interface Handler {
+
+        /**
+         * Receives the next part of the content, which the handler must release once it no longer needs it.
+         *
+         * @param part   the next part of the content, which may be empty
+         * @param isLast whether this is the last part of the content
+         */
+        void onPart(ReleasableBytesReference part, boolean isLast);
+
+        /**
+         * Called instead of {@link #onPart} if the rest of the content can't be received, for instance because the channel was closed.
+         */
+        void onFailure(Exception e);
+    }
+}
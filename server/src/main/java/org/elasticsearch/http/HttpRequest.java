@@ -19,10 +19,15 @@
 
 package org.elasticsearch.http;
 
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.rest.ChunkedRestResponseBody;
 import org.elasticsearch.rest.RestRequest;
 import org.elasticsearch.rest.RestStatus;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
 import java.util.Map;
 
@@ -52,6 +57,18 @@ public interface HttpRequest {
 
     BytesReference content();
 
+    /**
+     * The stream of the content of this request if it is received in parts after the request is dispatched, which transports only do for
+     * requests whose handler {@link org.elasticsearch.rest.RestHandler#supportsIncrementalContent() supports it}. The {@link #content()}
+     * of such a request is empty.
+     *
+     * @return the content stream, or {@code null} if the content of this request has been received in full
+     */
+    @Nullable
+    default HttpContentStream contentStream() {
+        return null;
+    }
+
     /**
      * Get all of the headers and values associated with the headers. Modifications of this map are not supported.
      */
@@ -68,6 +85,30 @@ public interface HttpRequest {
      */
     HttpResponse createResponse(RestStatus status, BytesReference content);
 
+    /**
+     * Whether responses to this request can be sent in chunks using
+     * {@link #createResponse(RestStatus, ChunkedRestResponseBody, BigArrays)}. If not, chunked response bodies are fully serialized and
+     * sent using {@link #createResponse(RestStatus, BytesReference)} instead.
+     */
+    default boolean supportsChunkedResponses() {
+        return false;
+    }
+
+    /**
+     * Create an http response from this request and the supplied status and chunked content. The content is serialized into pages
+     * obtained from the given {@link BigArrays} as the channel becomes writable. Implementations that don't
+     * {@link #supportsChunkedResponses() support chunked responses} serialize the whole content on heap up front and create the response
+     * using {@link #createResponse(RestStatus, BytesReference)}.
+     */
+    default HttpResponse createResponse(RestStatus status, ChunkedRestResponseBody content, BigArrays bigArrays) {
+        try {
+            // not recycled, nothing releases the pages of a response with plain content once it has been sent
+            return createResponse(status, ChunkedRestResponseBody.serializeFully(content, BigArrays.NON_RECYCLING_INSTANCE));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
     /**
      * Release any resources associated with this request. Implementations should be idempotent. The behavior of {@link #content()}
      * after this method has been invoked is undefined and implementation specific.
@@ -0,0 +1,144 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.http;
+
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.BytesRefIterator;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.bytes.ReleasableBytesReference;
+import org.elasticsearch.common.io.stream.ReleasableBytesStreamOutput;
+import org.elasticsearch.common.lease.Releasable;
+import org.elasticsearch.common.util.BigArrays;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Gzip-compresses HTTP response bodies on the thread that sends the response, which is usually a worker thread rather than a network
+ * event loop. {@link Deflater} instances are expensive to create and hold native memory, so a bounded number of them is pooled and
+ * reused across responses. Responses that already carry a {@code content-encoding} header are left alone by the network layer's
+ * compressor.
+ */
+final class HttpResponseCompressor implements Releasable {
+
+    static final String ACCEPT_ENCODING = "accept-encoding";
+    static final String CONTENT_ENCODING = "content-encoding";
+    static final String GZIP = "gzip";
+
+    private static final byte[] GZIP_HEADER = new byte[] {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+
+    private final int compressionLevel;
+    private final BlockingQueue<Deflater> deflaters;
+
+    HttpResponseCompressor(int compressionLevel, int maxPooledDeflaters) {
+        this.compressionLevel = compressionLevel;
+        this.deflaters = new ArrayBlockingQueue<>(maxPooledDeflaters);
+    }
+
+    /**
+     * Returns whether a client sending the given {@code accept-encoding} header accepts a gzip-compressed response.
+     */
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String encoding : acceptEncoding.split(",")) {
+            final String[] parts = encoding.split(";");
+            final String name = parts[0].trim().toLowerCase(Locale.ROOT);
+            if (name.equals(GZIP) || name.equals("*")) {
+                boolean accepted = true;
+                for (int i = 1; i < parts.length; i++) {
+                    final String parameter = parts[i].trim();
+                    if (parameter.startsWith("q=")) {
+                        try {
+                            accepted = Double.parseDouble(parameter.substring(2)) > 0;
+                        } catch (NumberFormatException e) {
+                            accepted = false;
+                        }
+                    }
+                }
+                if (accepted) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Compresses the given content into the gzip format using buffers obtained from the given {@link BigArrays}. The caller must
+     * release the returned reference once it has been sent.
+     */
+    ReleasableBytesReference compress(BytesReference content, BigArrays bigArrays) {
+        Deflater deflater = deflaters.poll();
+        if (deflater == null) {
+            deflater = new Deflater(compressionLevel, true);
+        }
+        final ReleasableBytesStreamOutput out = new ReleasableBytesStreamOutput(bigArrays);
+        boolean success = false;
+        try {
+            out.writeBytes(GZIP_HEADER);
+            final CRC32 crc = new CRC32();
+            final DeflaterOutputStream deflaterOutputStream = new DeflaterOutputStream(out, deflater);
+            final BytesRefIterator iterator = content.iterator();
+            BytesRef slice;
+            while ((slice = iterator.next()) != null) {
+                crc.update(slice.bytes, slice.offset, slice.length);
+                deflaterOutputStream.write(slice.bytes, slice.offset, slice.length);
+            }
+            deflaterOutputStream.finish();
+            writeIntLE(out, (int) crc.getValue());
+            writeIntLE(out, content.length());
+            success = true;
+            return out.bytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            deflater.reset();
+            if (deflaters.offer(deflater) == false) {
+                deflater.end();
+            }
+            if (success == false) {
+                out.close();
+            }
+        }
+    }
+
+    private static void writeIntLE(ReleasableBytesStreamOutput out, int value) throws IOException {
+        out.writeByte((byte) value);
+        out.writeByte((byte) (value >>> 8));
+        out.writeByte((byte) (value >>> 16));
+        out.writeByte((byte) (value >>> 24));
+    }
+
+    @Override
+    public void close() {
+        Deflater deflater;
+        while ((deflater = deflaters.poll()) != null) {
+            deflater.end();
+        }
+    }
+}
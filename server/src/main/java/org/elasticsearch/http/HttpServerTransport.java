@@ -60,5 +60,16 @@ public interface HttpServerTransport extends LifecycleComponent {
          */
         void dispatchBadRequest(RestChannel channel, ThreadContext threadContext, Throwable cause);
 
+        /**
+         * Whether the request with the given method and uri is dispatched to a request handler that consumes the content of requests in
+         * parts as it is received, see {@link HttpRequest#contentStream()}.
+         *
+         * @param method the method of the request
+         * @param uri    the uri of the request, with the query string
+         */
+        default boolean supportsIncrementalContent(RestRequest.Method method, String uri) {
+            return false;
+        }
+
     }
 }
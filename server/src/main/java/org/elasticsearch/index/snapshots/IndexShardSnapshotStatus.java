@@ -19,6 +19,11 @@
 
 package org.elasticsearch.index.snapshots;
 
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.io.stream.Writeable;
+
+import java.io.IOException;
 import java.util.Objects;
 import java.util.concurrent.atomic.AtomicReference;
 
@@ -152,6 +157,14 @@ public class IndexShardSnapshotStatus {
         processedSize += size;
     }
 
+    /**
+     * Adds bytes of a file that is still being processed to the processed size, so that the progress of large files is visible
+     * before they complete
+     */
+    public synchronized void addProcessedBytes(long bytes) {
+        processedSize += bytes;
+    }
+
     /**
      * Returns a copy of the current {@link IndexShardSnapshotStatus}. This method is
      * intended to be used when a coherent state of {@link IndexShardSnapshotStatus} is needed.
@@ -188,7 +201,7 @@ public class IndexShardSnapshotStatus {
     /**
      * Returns an immutable state of {@link IndexShardSnapshotStatus} at a given point in time.
      */
-    public static class Copy {
+    public static class Copy implements Writeable {
 
         private final Stage stage;
         private final long startTime;
@@ -219,6 +232,35 @@ public class IndexShardSnapshotStatus {
             this.failure = failure;
         }
 
+        public Copy(StreamInput in) throws IOException {
+            this.stage = in.readEnum(Stage.class);
+            this.startTime = in.readLong();
+            this.totalTime = in.readLong();
+            this.incrementalFileCount = in.readVInt();
+            this.totalFileCount = in.readVInt();
+            this.processedFileCount = in.readVInt();
+            this.incrementalSize = in.readVLong();
+            this.totalSize = in.readVLong();
+            this.processedSize = in.readVLong();
+            this.indexVersion = in.readLong();
+            this.failure = in.readOptionalString();
+        }
+
+        @Override
+        public void writeTo(StreamOutput out) throws IOException {
+            out.writeEnum(stage);
+            out.writeLong(startTime);
+            out.writeLong(totalTime);
+            out.writeVInt(incrementalFileCount);
+            out.writeVInt(totalFileCount);
+            out.writeVInt(processedFileCount);
+            out.writeVLong(incrementalSize);
+            out.writeVLong(totalSize);
+            out.writeVLong(processedSize);
+            out.writeLong(indexVersion);
+            out.writeOptionalString(failure);
+        }
+
         public Stage getStage() {
             return stage;
         }
@@ -263,6 +305,34 @@ public class IndexShardSnapshotStatus {
             return failure;
         }
 
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            final Copy that = (Copy) o;
+            return stage == that.stage
+                && startTime == that.startTime
+                && totalTime == that.totalTime
+                && incrementalFileCount == that.incrementalFileCount
+                && totalFileCount == that.totalFileCount
+                && processedFileCount == that.processedFileCount
+                && incrementalSize == that.incrementalSize
+                && totalSize == that.totalSize
+                && processedSize == that.processedSize
+                && indexVersion == that.indexVersion
+                && Objects.equals(failure, that.failure);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(stage, startTime, totalTime, incrementalFileCount, totalFileCount, processedFileCount,
+                incrementalSize, totalSize, processedSize, indexVersion, failure);
+        }
+
         @Override
         public String toString() {
             return "index shard snapshot status (" +
@@ -23,6 +23,7 @@ import org.apache.lucene.store.Directory;
 import org.apache.lucene.store.FilterDirectory;
 import org.apache.lucene.store.IOContext;
 import org.apache.lucene.store.IndexOutput;
+import org.elasticsearch.common.lease.Releasable;
 import org.elasticsearch.common.lucene.store.FilterIndexOutput;
 import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.common.util.SingleObjectCache;
@@ -169,6 +170,22 @@ final class ByteSizeCachingDirectory extends FilterDirectory {
         };
     }
 
+    /**
+     * Tracks a file that is written without going through this directory like an output of this directory, until the returned
+     * {@link Releasable} is closed.
+     */
+    Releasable trackExternalOutput() {
+        synchronized (this) {
+            numOpenOutputs++;
+        }
+        return () -> {
+            synchronized (this) {
+                numOpenOutputs--;
+                modCount++;
+            }
+        };
+    }
+
     @Override
     public void deleteFile(String name) throws IOException {
         try {
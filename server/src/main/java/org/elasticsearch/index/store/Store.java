@@ -40,24 +40,30 @@ import org.apache.lucene.store.BufferedChecksum;
 import org.apache.lucene.store.ByteArrayDataInput;
 import org.apache.lucene.store.ChecksumIndexInput;
 import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
 import org.apache.lucene.store.FilterDirectory;
 import org.apache.lucene.store.IOContext;
 import org.apache.lucene.store.IndexInput;
 import org.apache.lucene.store.IndexOutput;
 import org.apache.lucene.store.Lock;
+import org.apache.lucene.store.MMapDirectory;
+import org.apache.lucene.store.NIOFSDirectory;
 import org.apache.lucene.store.SimpleFSDirectory;
 import org.apache.lucene.util.ArrayUtil;
 import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.BytesRefBuilder;
 import org.apache.lucene.util.Version;
 import org.elasticsearch.ExceptionsHelper;
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.UUIDs;
 import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.io.Channels;
 import org.elasticsearch.common.io.Streams;
 import org.elasticsearch.common.io.stream.BytesStreamOutput;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.io.stream.Writeable;
+import org.elasticsearch.common.lease.Releasable;
 import org.elasticsearch.common.logging.Loggers;
 import org.elasticsearch.common.lucene.Lucene;
 import org.elasticsearch.common.lucene.store.ByteArrayIndexInput;
@@ -88,8 +94,10 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.PrintStream;
 import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
 import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
@@ -485,6 +493,70 @@ public class Store extends AbstractIndexShardComponent implements Closeable, Ref
         return output;
     }
 
+    /**
+     * Creates the given file for writes at arbitrary positions, which allows writing parts of the file concurrently. The writes bypass
+     * the directory, so this is only possible if the directory of this store is one of the plain file system directories, which do
+     * nothing but write to the file. Returns {@code null} otherwise, in which case the file must be written sequentially, for instance
+     * through {@link #createVerifyingOutput}. The file must be verified separately, see {@link #verifyParts}.
+     */
+    @Nullable
+    public PositionalOutput createPositionalOutput(String fileName) throws IOException {
+        ensureOpen();
+        final ByteSizeCachingDirectory sizeCachingDirectory = (ByteSizeCachingDirectory) directory.getDelegate();
+        final Directory fileSystemDirectory = sizeCachingDirectory.getDelegate();
+        if (isPlainFileSystemDirectory(fileSystemDirectory) == false) {
+            return null;
+        }
+        final Path path = ((FSDirectory) fileSystemDirectory).getDirectory().resolve(fileName);
+        final Releasable outputTracker = sizeCachingDirectory.trackExternalOutput();
+        boolean success = false;
+        try {
+            final PositionalOutput output =
+                new PositionalOutput(FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE), outputTracker);
+            success = true;
+            return output;
+        } finally {
+            if (success == false) {
+                outputTracker.close();
+            }
+        }
+    }
+
+    private static boolean isPlainFileSystemDirectory(Directory directory) {
+        final Class<? extends Directory> directoryClass = directory.getClass();
+        return directoryClass == NIOFSDirectory.class || directoryClass == MMapDirectory.class
+            || directoryClass == SimpleFSDirectory.class || directoryClass == FsDirectoryFactory.HybridDirectory.class
+            || directoryClass == FsDirectoryFactory.PreLoadMMapDirectory.class;
+    }
+
+    /**
+     * A file that is written at arbitrary positions, see {@link #createPositionalOutput}.
+     */
+    public static final class PositionalOutput implements Closeable {
+
+        private final FileChannel channel;
+        private final Releasable outputTracker;
+
+        private PositionalOutput(FileChannel channel, Releasable outputTracker) {
+            this.channel = channel;
+            this.outputTracker = outputTracker;
+        }
+
+        /**
+         * Writes the given bytes at the given position of the file. This may be called concurrently for different positions.
+         */
+        public void writeBytes(byte[] bytes, int offset, int length, long position) throws IOException {
+            Channels.writeToChannel(bytes, offset, length, channel, position);
+        }
+
+        @Override
+        public void close() throws IOException {
+            try (Releasable ignored = outputTracker) {
+                channel.close();
+            }
+        }
+    }
+
     public static void verify(IndexOutput output) throws IOException {
         if (output instanceof VerifyingIndexOutput) {
             ((VerifyingIndexOutput) output).verify();
@@ -502,6 +574,111 @@ public class Store extends AbstractIndexShardComponent implements Closeable, Ref
         }
     }
 
+    /**
+     * Opens an input over {@code length} bytes of the given file starting at {@code offset}, which computes the checksum of the bytes
+     * that precede the footer checksum of the file. Bytes that are read again after seeking back are only digested once. Once all parts
+     * of a file were fully read through such inputs, {@link #verifyParts} verifies the whole file without reading it again.
+     */
+    public static IndexInput openVerifyingPartInput(IndexInput input, long offset, long length) throws IOException {
+        return verifyingPartInput(input.slice("verifying part", offset, length), offset, input.length());
+    }
+
+    /**
+     * Like {@link #openVerifyingPartInput} but for a part of a file that is read through an input of its own, such as a part that is
+     * downloaded on its own. The part starts at {@code offset} in a file of {@code fileLength} bytes.
+     */
+    public static IndexInput verifyingPartInput(IndexInput part, long offset, long fileLength) {
+        return new VerifyingIndexInput(part, fileLength - 8 - offset);
+    }
+
+    /**
+     * Verifies a file that was fully read through the given inputs of {@link #openVerifyingPartInput} or {@link #verifyingPartInput},
+     * which must cover the file in order.
+     * The checksums of the parts are combined into the checksum of the file, which must match the footer checksum and the metadata.
+     */
+    public static void verifyParts(StoreFileMetaData md, List<IndexInput> parts) throws IOException {
+        long length = 0L;
+        long checksum = 0L;
+        final byte[] footerChecksum = new byte[8];
+        for (IndexInput input : parts) {
+            final VerifyingIndexInput part = (VerifyingIndexInput) input;
+            if (part.verifiedPosition != part.length()) {
+                throw new IllegalStateException("part [" + part + "] of [" + md.name() + "] was not fully read");
+            }
+            final long digestedBytes = Math.min(Math.max(part.checksumPosition, 0L), part.length());
+            checksum = crc32Combine(checksum, part.getChecksum(), digestedBytes);
+            // the footer checksum might be spread over several parts, each part holds the bytes of it that it read at their position
+            for (long i = Math.max(0L, -part.checksumPosition); i < Math.min(8L, part.length() - part.checksumPosition); i++) {
+                footerChecksum[(int) i] = part.checksum[(int) i];
+            }
+            length += part.length();
+        }
+        if (length != md.length()) {
+            throw new CorruptIndexException("expected length=" + md.length() + " != read length: " + length + " : file truncated?",
+                md.name());
+        }
+        final String actualChecksum = digestToString(checksum);
+        final String storedChecksum = digestToString(new ByteArrayDataInput(footerChecksum).readLong());
+        if (actualChecksum.equals(storedChecksum) == false || actualChecksum.equals(md.checksum()) == false) {
+            throw new CorruptIndexException("verification failed : calculated=" + actualChecksum + " stored=" + storedChecksum +
+                " metadata checksum=" + md.checksum(), md.name());
+        }
+    }
+
+    /**
+     * Returns the CRC32 of the concatenation of two byte sequences given the CRC32 of each of them and the length of the second one,
+     * like {@code crc32_combine} of zlib does.
+     */
+    static long crc32Combine(long crc1, long crc2, long length2) {
+        if (length2 <= 0) {
+            return crc1;
+        }
+        // operators that apply 2^n zero bits to a CRC, starting with the operator for a single zero bit
+        long[] even = new long[32];
+        long[] odd = new long[32];
+        odd[0] = 0xedb88320L;
+        long row = 1L;
+        for (int n = 1; n < 32; n++) {
+            odd[n] = row;
+            row <<= 1;
+        }
+        gf2MatrixSquare(even, odd); // two zero bits
+        gf2MatrixSquare(odd, even); // four zero bits
+        // apply length2 zero bytes to crc1, the first squaring yields the operator for a single zero byte
+        do {
+            gf2MatrixSquare(even, odd);
+            if ((length2 & 1) != 0) {
+                crc1 = gf2MatrixTimes(even, crc1);
+            }
+            length2 >>= 1;
+            if (length2 == 0) {
+                break;
+            }
+            gf2MatrixSquare(odd, even);
+            if ((length2 & 1) != 0) {
+                crc1 = gf2MatrixTimes(odd, crc1);
+            }
+            length2 >>= 1;
+        } while (length2 != 0);
+        return crc1 ^ crc2;
+    }
+
+    private static long gf2MatrixTimes(long[] matrix, long vector) {
+        long sum = 0L;
+        for (int i = 0; vector != 0; i++, vector >>>= 1) {
+            if ((vector & 1) != 0) {
+                sum ^= matrix[i];
+            }
+        }
+        return sum;
+    }
+
+    private static void gf2MatrixSquare(long[] square, long[] matrix) {
+        for (int n = 0; n < 32; n++) {
+            square[n] = gf2MatrixTimes(matrix, matrix[n]);
+        }
+    }
+
     public boolean checkIntegrityNoException(StoreFileMetaData md) {
         return checkIntegrityNoException(md, directory());
     }
@@ -1220,10 +1397,19 @@ public class Store extends AbstractIndexShardComponent implements Closeable, Ref
         }
 
         VerifyingIndexInput(IndexInput input, Checksum digest) {
+            this(input, digest, input.length() - 8);
+        }
+
+        // the checksum position is relative to the start of the input, it is outside of it if the input is a part of a file
+        VerifyingIndexInput(IndexInput input, long checksumPosition) {
+            this(input, new BufferedChecksum(new CRC32()), checksumPosition);
+        }
+
+        private VerifyingIndexInput(IndexInput input, Checksum digest, long checksumPosition) {
             super("VerifyingIndexInput(" + input + ")");
             this.input = input;
             this.digest = digest;
-            checksumPosition = input.length() - 8;
+            this.checksumPosition = checksumPosition;
         }
 
         @Override
@@ -29,11 +29,13 @@ import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.lease.Releasable;
 import org.elasticsearch.common.util.concurrent.AbstractRefCounted;
 import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
+import org.elasticsearch.core.internal.io.IOUtils;
 import org.elasticsearch.index.store.Store;
 import org.elasticsearch.index.store.StoreFileMetaData;
 import org.elasticsearch.transport.Transports;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
@@ -54,6 +56,8 @@ public class MultiFileWriter extends AbstractRefCounted implements Releasable {
         this.ensureOpen = ensureOpen;
     }
 
+    private static final int BUFFER_SIZE = 8 * 1024;
+
     private final Runnable ensureOpen;
     private final AtomicBoolean closed = new AtomicBoolean(false);
     private final Logger logger;
@@ -74,6 +78,37 @@ public class MultiFileWriter extends AbstractRefCounted implements Releasable {
         writer.writeChunk(new FileChunk(fileMetaData, content, position, lastChunk));
     }
 
+    /**
+     * Writes the complete contents of the given file from the given stream to its temporary file. If that fails, the temporary file is
+     * removed again so that the file can still be received through {@link #writeFileChunk} afterwards.
+     */
+    public void writeFile(StoreFileMetaData fileMetaData, InputStream stream) throws IOException {
+        assert Transports.assertNotTransportThread("multi_file_writer");
+        final String name = fileMetaData.name();
+        final String temporaryFileName = getTempNameForFile(name);
+        final IndexOutput indexOutput = openAndPutIndexOutput(name, fileMetaData, store);
+        boolean success = false;
+        try {
+            final byte[] buffer = new byte[BUFFER_SIZE];
+            int length;
+            while ((length = stream.read(buffer)) > 0) {
+                indexOutput.writeBytes(buffer, 0, length);
+            }
+            Store.verify(indexOutput);
+            indexOutput.close();
+            store.directory().sync(Collections.singleton(temporaryFileName));
+            success = true;
+        } finally {
+            openIndexOutputs.remove(name);
+            if (success == false) {
+                IOUtils.closeWhileHandlingException(indexOutput);
+                tempFileNames.remove(temporaryFileName);
+                store.deleteQuiet(temporaryFileName);
+            }
+        }
+        indexState.addRecoveredBytesToFile(name, fileMetaData.length());
+    }
+
     /** Get a temporary name for the provided file name. */
     String getTempNameForFile(String origFile) {
         return tempFilePrefix + origFile;
@@ -21,9 +21,11 @@ package org.elasticsearch.indices.recovery;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.message.ParameterizedMessage;
 import org.elasticsearch.ExceptionsHelper;
 import org.elasticsearch.action.ActionListener;
 import org.elasticsearch.action.support.ChannelActionListener;
+import org.elasticsearch.action.support.GroupedActionListener;
 import org.elasticsearch.action.support.PlainActionFuture;
 import org.elasticsearch.cluster.routing.ShardRouting;
 import org.elasticsearch.common.Nullable;
@@ -35,14 +37,24 @@ import org.elasticsearch.index.IndexService;
 import org.elasticsearch.index.shard.IndexEventListener;
 import org.elasticsearch.index.shard.IndexShard;
 import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.index.snapshots.blobstore.BlobStoreIndexShardSnapshot;
+import org.elasticsearch.index.snapshots.blobstore.SnapshotFiles;
+import org.elasticsearch.index.store.StoreFileMetaData;
 import org.elasticsearch.indices.IndicesService;
+import org.elasticsearch.repositories.IndexId;
+import org.elasticsearch.repositories.RepositoriesService;
+import org.elasticsearch.repositories.Repository;
+import org.elasticsearch.repositories.RepositoryData;
+import org.elasticsearch.repositories.blobstore.BlobStoreRepository;
 import org.elasticsearch.tasks.Task;
 import org.elasticsearch.threadpool.ThreadPool;
 import org.elasticsearch.transport.TransportChannel;
 import org.elasticsearch.transport.TransportRequestHandler;
 import org.elasticsearch.transport.TransportService;
 
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -64,15 +76,17 @@ public class PeerRecoverySourceService extends AbstractLifecycleComponent implem
     private final TransportService transportService;
     private final IndicesService indicesService;
     private final RecoverySettings recoverySettings;
+    private final RepositoriesService repositoriesService;
 
     final OngoingRecoveries ongoingRecoveries = new OngoingRecoveries();
 
     @Inject
     public PeerRecoverySourceService(TransportService transportService, IndicesService indicesService,
-                                     RecoverySettings recoverySettings) {
+                                     RecoverySettings recoverySettings, RepositoriesService repositoriesService) {
         this.transportService = transportService;
         this.indicesService = indicesService;
         this.recoverySettings = recoverySettings;
+        this.repositoriesService = repositoriesService;
         transportService.registerRequestHandler(Actions.START_RECOVERY, ThreadPool.Names.GENERIC, StartRecoveryRequest::new,
             new StartRecoveryTransportRequestHandler());
     }
@@ -115,10 +129,108 @@ public class PeerRecoverySourceService extends AbstractLifecycleComponent implem
             throw new DelayRecoveryException("source shard is not marked yet as relocating to [" + request.targetNode() + "]");
         }
 
-        RecoverySourceHandler handler = ongoingRecoveries.addNewRecovery(request, shard);
+        final long shardSizeInBytes = shard.storeStats().sizeInBytes();
+        final RecoveryBandwidthScheduler.Throttle throttle =
+            recoverySettings.bandwidthScheduler().register(request.isPrimaryRelocation(), () -> shardSizeInBytes);
+        final RecoverySourceHandler handler;
+        try {
+            handler = ongoingRecoveries.addNewRecovery(request, shard, throttle);
+        } catch (Exception e) {
+            throttle.close();
+            throw e;
+        }
         logger.trace("[{}][{}] starting recovery to {}", request.shardId().getIndex().getName(), request.shardId().id(),
             request.targetNode());
-        handler.recoverToTarget(ActionListener.runAfter(listener, () -> ongoingRecoveries.remove(shard, handler)));
+        handler.recoverToTarget(ActionListener.runAfter(listener, () -> {
+            throttle.close();
+            ongoingRecoveries.remove(shard, handler);
+        }));
+    }
+
+    /**
+     * Looks through the snapshots of the given shard in all registered repositories for the one that has the most bytes of the given files
+     * in common with the shard copy that is recovered. Files are only used if they are identical in name, length and checksum. Completes
+     * the listener with {@code null} if there is no such snapshot.
+     */
+    private void findSnapshotFiles(ShardId shardId, List<StoreFileMetaData> files,
+                                   ActionListener<RecoverySourceHandler.SnapshotFilesToRecover> listener) {
+        final List<BlobStoreRepository> repositories = new ArrayList<>();
+        if (recoverySettings.useSnapshots()) {
+            for (Repository repository : repositoriesService.getRepositories().values()) {
+                if (repository instanceof BlobStoreRepository) {
+                    repositories.add((BlobStoreRepository) repository);
+                }
+            }
+        }
+        if (repositories.isEmpty()) {
+            listener.onResponse(null);
+            return;
+        }
+        final GroupedActionListener<RecoverySourceHandler.SnapshotFilesToRecover> candidatesListener = new GroupedActionListener<>(
+            ActionListener.map(listener, candidates -> candidates.stream()
+                .max(Comparator.comparingLong(candidate -> candidate.files.stream().mapToLong(StoreFileMetaData::length).sum()))
+                .orElse(null)),
+            repositories.size());
+        for (BlobStoreRepository repository : repositories) {
+            repository.getRepositoryData(new ActionListener<>() {
+                @Override
+                public void onResponse(RepositoryData repositoryData) {
+                    RecoverySourceHandler.SnapshotFilesToRecover snapshotFiles = null;
+                    try {
+                        snapshotFiles = findSnapshotFiles(repository, repositoryData, shardId, files);
+                    } catch (Exception e) {
+                        logFailure(e);
+                    }
+                    candidatesListener.onResponse(snapshotFiles);
+                }
+
+                @Override
+                public void onFailure(Exception e) {
+                    logFailure(e);
+                    candidatesListener.onResponse(null);
+                }
+
+                private void logFailure(Exception e) {
+                    logger.debug(() -> new ParameterizedMessage("{} failed to look for files to recover in repository [{}]",
+                        shardId, repository.getMetadata().name()), e);
+                }
+            });
+        }
+    }
+
+    @Nullable
+    private static RecoverySourceHandler.SnapshotFilesToRecover findSnapshotFiles(BlobStoreRepository repository,
+                                                                                  RepositoryData repositoryData, ShardId shardId,
+                                                                                  List<StoreFileMetaData> files) throws IOException {
+        final IndexId indexId = repositoryData.getIndices().get(shardId.getIndexName());
+        if (indexId == null) {
+            return null;
+        }
+        final String shardGeneration = repositoryData.shardGenerations().getShardGen(indexId, shardId.id());
+        if (shardGeneration == null) {
+            return null; // shard level metadata of snapshots from older versions is not tracked by the repository data
+        }
+        RecoverySourceHandler.SnapshotFilesToRecover bestSnapshotFiles = null;
+        long bestSnapshotBytes = 0L;
+        for (SnapshotFiles snapshotFiles : repository.loadShardSnapshots(indexId, shardId.id(), shardGeneration)) {
+            final List<StoreFileMetaData> matchingFiles = new ArrayList<>();
+            long matchingBytes = 0L;
+            for (StoreFileMetaData file : files) {
+                for (BlobStoreIndexShardSnapshot.FileInfo fileInfo : snapshotFiles.indexFiles()) {
+                    if (fileInfo.physicalName().equals(file.name()) && fileInfo.isSame(file)) {
+                        matchingFiles.add(file);
+                        matchingBytes += file.length();
+                        break;
+                    }
+                }
+            }
+            if (matchingBytes > bestSnapshotBytes) {
+                bestSnapshotBytes = matchingBytes;
+                bestSnapshotFiles = new RecoverySourceHandler.SnapshotFilesToRecover(repository.getMetadata().name(), indexId,
+                    shardGeneration, snapshotFiles.snapshot(), matchingFiles);
+            }
+        }
+        return bestSnapshotFiles;
     }
 
     class StartRecoveryTransportRequestHandler implements TransportRequestHandler<StartRecoveryRequest> {
@@ -140,10 +252,11 @@ public class PeerRecoverySourceService extends AbstractLifecycleComponent implem
         @Nullable
         private List<ActionListener<Void>> emptyListeners;
 
-        synchronized RecoverySourceHandler addNewRecovery(StartRecoveryRequest request, IndexShard shard) {
+        synchronized RecoverySourceHandler addNewRecovery(StartRecoveryRequest request, IndexShard shard,
+                                                          RecoveryBandwidthScheduler.Throttle throttle) {
             assert lifecycle.started();
             final ShardRecoveryContext shardContext = ongoingRecoveries.computeIfAbsent(shard, s -> new ShardRecoveryContext());
-            RecoverySourceHandler handler = shardContext.addNewRecovery(request, shard);
+            RecoverySourceHandler handler = shardContext.addNewRecovery(request, shard, throttle);
             shard.recoveryStats().incCurrentAsSource();
             return handler;
         }
@@ -207,25 +320,30 @@ public class PeerRecoverySourceService extends AbstractLifecycleComponent implem
             /**
              * Adds recovery source handler.
              */
-            synchronized RecoverySourceHandler addNewRecovery(StartRecoveryRequest request, IndexShard shard) {
+            synchronized RecoverySourceHandler addNewRecovery(StartRecoveryRequest request, IndexShard shard,
+                                                              RecoveryBandwidthScheduler.Throttle throttle) {
                 for (RecoverySourceHandler existingHandler : recoveryHandlers) {
                     if (existingHandler.getRequest().targetAllocationId().equals(request.targetAllocationId())) {
                         throw new DelayRecoveryException("recovery with same target already registered, waiting for " +
                             "previous recovery attempt to be cancelled or completed");
                     }
                 }
-                RecoverySourceHandler handler = createRecoverySourceHandler(request, shard);
+                RecoverySourceHandler handler = createRecoverySourceHandler(request, shard, throttle);
                 recoveryHandlers.add(handler);
                 return handler;
             }
 
-            private RecoverySourceHandler createRecoverySourceHandler(StartRecoveryRequest request, IndexShard shard) {
+            private RecoverySourceHandler createRecoverySourceHandler(StartRecoveryRequest request, IndexShard shard,
+                                                                     RecoveryBandwidthScheduler.Throttle throttle) {
                 RecoverySourceHandler handler;
                 final RemoteRecoveryTargetHandler recoveryTarget =
                     new RemoteRecoveryTargetHandler(request.recoveryId(), request.shardId(), transportService,
-                        request.targetNode(), recoverySettings, throttleTime -> shard.recoveryStats().addThrottleTime(throttleTime));
+                        request.targetNode(), recoverySettings, throttle,
+                        throttleTime -> shard.recoveryStats().addThrottleTime(throttleTime));
                 handler = new RecoverySourceHandler(shard, recoveryTarget, shard.getThreadPool(), request,
-                    Math.toIntExact(recoverySettings.getChunkSize().getBytes()), recoverySettings.getMaxConcurrentFileChunks());
+                    Math.toIntExact(recoverySettings.getChunkSize().getBytes()), recoverySettings.getMaxConcurrentFileChunks(),
+                    recoverySettings.getMaxConcurrentOperations(),
+                    (files, listener) -> findSnapshotFiles(request.shardId(), files, listener));
                 return handler;
             }
         }
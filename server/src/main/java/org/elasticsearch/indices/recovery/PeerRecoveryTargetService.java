@@ -23,7 +23,6 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.apache.logging.log4j.message.ParameterizedMessage;
 import org.apache.lucene.store.AlreadyClosedException;
-import org.apache.lucene.store.RateLimiter;
 import org.elasticsearch.ElasticsearchException;
 import org.elasticsearch.ElasticsearchTimeoutException;
 import org.elasticsearch.ExceptionsHelper;
@@ -50,9 +49,13 @@ import org.elasticsearch.index.shard.IndexShard;
 import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.index.shard.ShardNotFoundException;
 import org.elasticsearch.index.store.Store;
+import org.elasticsearch.index.store.StoreFileMetaData;
 import org.elasticsearch.index.translog.Translog;
 import org.elasticsearch.index.translog.TranslogCorruptedException;
 import org.elasticsearch.indices.recovery.RecoveriesCollection.RecoveryRef;
+import org.elasticsearch.repositories.RepositoriesService;
+import org.elasticsearch.repositories.Repository;
+import org.elasticsearch.repositories.blobstore.BlobStoreRepository;
 import org.elasticsearch.tasks.Task;
 import org.elasticsearch.threadpool.ThreadPool;
 import org.elasticsearch.transport.ConnectTransportException;
@@ -64,8 +67,9 @@ import org.elasticsearch.transport.TransportResponseHandler;
 import org.elasticsearch.transport.TransportService;
 
 import java.io.IOException;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.List;
 import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 import static org.elasticsearch.common.unit.TimeValue.timeValueMillis;
 import static org.elasticsearch.index.seqno.SequenceNumbers.UNASSIGNED_SEQ_NO;
@@ -88,6 +92,7 @@ public class PeerRecoveryTargetService implements IndexEventListener {
         public static final String PREPARE_TRANSLOG = "internal:index/shard/recovery/prepare_translog";
         public static final String FINALIZE = "internal:index/shard/recovery/finalize";
         public static final String HANDOFF_PRIMARY_CONTEXT = "internal:index/shard/recovery/handoff_primary_context";
+        public static final String RESTORE_FILES_FROM_SNAPSHOT = "internal:index/shard/recovery/restore_files_from_snapshot";
     }
 
     private final ThreadPool threadPool;
@@ -96,15 +101,17 @@ public class PeerRecoveryTargetService implements IndexEventListener {
 
     private final RecoverySettings recoverySettings;
     private final ClusterService clusterService;
+    private final RepositoriesService repositoriesService;
 
     private final RecoveriesCollection onGoingRecoveries;
 
     public PeerRecoveryTargetService(ThreadPool threadPool, TransportService transportService,
-            RecoverySettings recoverySettings, ClusterService clusterService) {
+            RecoverySettings recoverySettings, ClusterService clusterService, RepositoriesService repositoriesService) {
         this.threadPool = threadPool;
         this.transportService = transportService;
         this.recoverySettings = recoverySettings;
         this.clusterService = clusterService;
+        this.repositoriesService = repositoriesService;
         this.onGoingRecoveries = new RecoveriesCollection(logger, threadPool);
 
         transportService.registerRequestHandler(Actions.FILES_INFO, ThreadPool.Names.GENERIC, RecoveryFilesInfoRequest::new,
@@ -124,6 +131,8 @@ public class PeerRecoveryTargetService implements IndexEventListener {
                 ThreadPool.Names.GENERIC,
                 RecoveryHandoffPrimaryContextRequest::new,
                 new HandoffPrimaryContextRequestHandler());
+        transportService.registerRequestHandler(Actions.RESTORE_FILES_FROM_SNAPSHOT, ThreadPool.Names.GENERIC,
+            RecoveryRestoreFilesFromSnapshotRequest::new, new RestoreFilesFromSnapshotRequestHandler());
     }
 
     @Override
@@ -504,9 +513,6 @@ public class PeerRecoveryTargetService implements IndexEventListener {
 
     class FileChunkTransportRequestHandler implements TransportRequestHandler<RecoveryFileChunkRequest> {
 
-        // How many bytes we've copied since we last called RateLimiter.pause
-        final AtomicLong bytesSinceLastPause = new AtomicLong();
-
         @Override
         public void messageReceived(final RecoveryFileChunkRequest request, TransportChannel channel, Task task) throws Exception {
             try (RecoveryRef recoveryRef = onGoingRecoveries.getRecoverySafe(request.recoveryId(), request.shardId())) {
@@ -516,16 +522,11 @@ public class PeerRecoveryTargetService implements IndexEventListener {
                     indexState.addSourceThrottling(request.sourceThrottleTimeInNanos());
                 }
 
-                RateLimiter rateLimiter = recoverySettings.rateLimiter();
-                if (rateLimiter != null) {
-                    long bytes = bytesSinceLastPause.addAndGet(request.content().length());
-                    if (bytes > rateLimiter.getMinPauseCheckBytes()) {
-                        // Time to pause
-                        bytesSinceLastPause.addAndGet(-bytes);
-                        long throttleTimeInNanos = rateLimiter.pause(bytes);
-                        indexState.addTargetThrottling(throttleTimeInNanos);
-                        recoveryTarget.indexShard().recoveryStats().addThrottleTime(throttleTimeInNanos);
-                    }
+                final long throttleTimeInNanos = recoveryTarget.bandwidthThrottle(recoverySettings.bandwidthScheduler())
+                    .maybePause(request.content().length());
+                if (throttleTimeInNanos > 0) {
+                    indexState.addTargetThrottling(throttleTimeInNanos);
+                    recoveryTarget.indexShard().recoveryStats().addThrottleTime(throttleTimeInNanos);
                 }
                 final ActionListener<TransportResponse> listener = new ChannelActionListener<>(channel, Actions.FILE_CHUNK, request);
                 recoveryTarget.writeFileChunk(request.metadata(), request.position(), request.content(), request.lastChunk(),
@@ -534,6 +535,31 @@ public class PeerRecoveryTargetService implements IndexEventListener {
         }
     }
 
+    class RestoreFilesFromSnapshotRequestHandler implements TransportRequestHandler<RecoveryRestoreFilesFromSnapshotRequest> {
+
+        @Override
+        public void messageReceived(RecoveryRestoreFilesFromSnapshotRequest request, TransportChannel channel, Task task)
+            throws Exception {
+            try (RecoveryRef recoveryRef = onGoingRecoveries.getRecoverySafe(request.recoveryId(), request.shardId())) {
+                final ActionListener<RecoveryRestoreFilesFromSnapshotResponse> listener =
+                    new ChannelActionListener<>(channel, Actions.RESTORE_FILES_FROM_SNAPSHOT, request);
+                final ActionListener<List<String>> failedFilesListener =
+                    ActionListener.map(listener, RecoveryRestoreFilesFromSnapshotResponse::new);
+                final Repository repository = repositoriesService.getRepositories().get(request.repository());
+                if (repository instanceof BlobStoreRepository) {
+                    final RecoveryTarget recoveryTarget = recoveryRef.target();
+                    recoveryTarget.restoreFilesFromSnapshot((BlobStoreRepository) repository, request.indexId(),
+                        request.shardGeneration(), request.snapshot(), request.files(), request.totalTranslogOps(),
+                        threadPool.executor(ThreadPool.Names.SNAPSHOT), recoverySettings.getMaxConcurrentSnapshotFileDownloads(),
+                        recoveryTarget.bandwidthThrottle(recoverySettings.bandwidthScheduler()), failedFilesListener);
+                } else {
+                    // the repository is not available on this node, the recovery source has to send all files
+                    failedFilesListener.onResponse(request.files().stream().map(StoreFileMetaData::name).collect(Collectors.toList()));
+                }
+            }
+        }
+    }
+
     class RecoveryRunner extends AbstractRunnable {
 
         final long recoveryId;
@@ -0,0 +1,261 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.indices.recovery;
+
+import org.apache.lucene.store.RateLimiter;
+import org.apache.lucene.store.RateLimiter.SimpleRateLimiter;
+import org.elasticsearch.common.lease.Releasable;
+import org.elasticsearch.common.unit.ByteSizeUnit;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Shares the recovery bandwidth of this node, as configured by {@link RecoverySettings#INDICES_RECOVERY_MAX_BYTES_PER_SEC_SETTING},
+ * between all the recoveries that this node currently takes part in, both as the source and as the target. Each recovery
+ * {@link #register registers} a {@link Throttle} that limits its own traffic to the share of the bandwidth it was allocated.
+ * <p>
+ * The bandwidth is allocated with weighted max-min fairness. Primary relocations and recoveries that have little data left to copy are
+ * weighted higher than other recoveries so that they complete sooner. Recoveries that did not use most of their share since the last
+ * allocation are limited by something else, such as the disks or the network, and are only allocated a bit more than what they used so
+ * that the rest of their share goes to the recoveries that can use it. The allocation is recomputed when recoveries start or complete and
+ * otherwise at most once per {@link #REBALANCE_INTERVAL_NANOS} while data is being transferred.
+ */
+public final class RecoveryBandwidthScheduler {
+
+    static final long REBALANCE_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    /**
+     * Recoveries with at most this many bytes left to copy have their weight doubled.
+     */
+    static final long SMALL_RECOVERY_BYTES = ByteSizeUnit.MB.toBytes(512);
+
+    /**
+     * A recovery that used less than this fraction of its allocated bandwidth is considered to be limited by something else.
+     */
+    private static final double SATURATION_THRESHOLD = 0.8;
+
+    /**
+     * How much more than its measured throughput a recovery that was limited by something else is allocated, so that it can speed up.
+     */
+    private static final double DEMAND_HEADROOM = 1.5;
+
+    /**
+     * The minimum fraction of the node's bandwidth that is allocated to each recovery that is limited by something else.
+     */
+    private static final double MIN_SHARE = 0.05;
+
+    private final LongSupplier relativeTimeInNanos;
+    private final Set<Throttle> throttles = new LinkedHashSet<>();
+    private double maxMBPerSec;
+    private volatile long lastRebalanceNanos;
+
+    RecoveryBandwidthScheduler(double maxMBPerSec, LongSupplier relativeTimeInNanos) {
+        this.maxMBPerSec = maxMBPerSec;
+        this.relativeTimeInNanos = relativeTimeInNanos;
+        this.lastRebalanceNanos = relativeTimeInNanos.getAsLong();
+    }
+
+    /**
+     * Registers a new recovery. The returned {@link Throttle} must be closed once the recovery completed.
+     *
+     * @param primary       whether the recovering shard copy is a primary
+     * @param expectedBytes supplies the number of bytes this recovery is expected to copy, which may change while it is running
+     */
+    public Throttle register(boolean primary, LongSupplier expectedBytes) {
+        final Throttle throttle = new Throttle(primary, expectedBytes);
+        synchronized (this) {
+            throttles.add(throttle);
+            allocate();
+        }
+        return throttle;
+    }
+
+    /**
+     * Updates the bandwidth of this node, a value of {@code 0} or less disables throttling.
+     */
+    synchronized void setMaxMBPerSec(double maxMBPerSec) {
+        this.maxMBPerSec = maxMBPerSec;
+        allocate();
+    }
+
+    synchronized int activeRecoveries() {
+        return throttles.size();
+    }
+
+    private synchronized void unregister(Throttle throttle) {
+        if (throttles.remove(throttle)) {
+            allocate();
+        }
+    }
+
+    private void maybeRebalance() {
+        final long now = relativeTimeInNanos.getAsLong();
+        if (now - lastRebalanceNanos >= REBALANCE_INTERVAL_NANOS) {
+            synchronized (this) {
+                if (now - lastRebalanceNanos >= REBALANCE_INTERVAL_NANOS) {
+                    rebalance(now);
+                }
+            }
+        }
+    }
+
+    /**
+     * Measures the throughput of each recovery since the last rebalance, then allocates the bandwidth again.
+     */
+    synchronized void rebalance(long now) {
+        final double elapsedSeconds = (now - lastRebalanceNanos) / (double) TimeUnit.SECONDS.toNanos(1);
+        lastRebalanceNanos = now;
+        for (Throttle throttle : throttles) {
+            final long bytes = throttle.bytesSinceRebalance.getAndSet(0L);
+            final double usedMBPerSec = bytes / elapsedSeconds / ByteSizeUnit.MB.toBytes(1);
+            if (throttle.allocatedMBPerSec > 0 && usedMBPerSec < throttle.allocatedMBPerSec * SATURATION_THRESHOLD) {
+                throttle.demandMBPerSec = Math.max(usedMBPerSec * DEMAND_HEADROOM, maxMBPerSec * MIN_SHARE);
+            } else {
+                throttle.demandMBPerSec = Double.POSITIVE_INFINITY;
+            }
+        }
+        allocate();
+    }
+
+    /**
+     * Allocates the bandwidth using weighted max-min fairness: recoveries whose demand is below their weighted share get what they need
+     * and the remaining bandwidth is shared between the other recoveries according to their weights.
+     */
+    private void allocate() {
+        assert Thread.holdsLock(this);
+        if (maxMBPerSec <= 0) {
+            for (Throttle throttle : throttles) {
+                throttle.setMBPerSec(0);
+            }
+            return;
+        }
+        for (Throttle throttle : throttles) {
+            throttle.weight = throttle.computeWeight();
+        }
+        final List<Throttle> unsatisfied = new ArrayList<>(throttles);
+        double remainingMBPerSec = maxMBPerSec;
+        while (unsatisfied.isEmpty() == false) {
+            final double totalWeight = unsatisfied.stream().mapToDouble(throttle -> throttle.weight).sum();
+            final double availableMBPerSec = remainingMBPerSec;
+            boolean allocated = false;
+            for (Iterator<Throttle> iterator = unsatisfied.iterator(); iterator.hasNext(); ) {
+                final Throttle throttle = iterator.next();
+                if (throttle.demandMBPerSec < availableMBPerSec * throttle.weight / totalWeight) {
+                    throttle.setMBPerSec(throttle.demandMBPerSec);
+                    remainingMBPerSec -= throttle.demandMBPerSec;
+                    iterator.remove();
+                    allocated = true;
+                }
+            }
+            if (allocated == false) {
+                for (Throttle throttle : unsatisfied) {
+                    throttle.setMBPerSec(availableMBPerSec * throttle.weight / totalWeight);
+                }
+                break;
+            }
+        }
+    }
+
+    /**
+     * Throttles the traffic of a single recovery to the share of the node's bandwidth that was allocated to it.
+     */
+    public final class Throttle implements Releasable {
+
+        private final boolean primary;
+        private final LongSupplier expectedBytes;
+        private final AtomicLong transferredBytes = new AtomicLong();
+        private final AtomicLong bytesSinceRebalance = new AtomicLong();
+        private final AtomicLong bytesSinceLastPause = new AtomicLong();
+        // the following are only modified under the scheduler's lock
+        private double weight;
+        private double demandMBPerSec = Double.POSITIVE_INFINITY;
+        private volatile double allocatedMBPerSec;
+        private volatile SimpleRateLimiter rateLimiter;
+
+        private Throttle(boolean primary, LongSupplier expectedBytes) {
+            this.primary = primary;
+            this.expectedBytes = expectedBytes;
+        }
+
+        private double computeWeight() {
+            double weight = primary ? 2.0 : 1.0;
+            if (expectedBytes.getAsLong() - transferredBytes.get() <= SMALL_RECOVERY_BYTES) {
+                weight *= 2.0;
+            }
+            return weight;
+        }
+
+        private void setMBPerSec(double mbPerSec) {
+            allocatedMBPerSec = mbPerSec;
+            if (mbPerSec <= 0) {
+                rateLimiter = null;
+            } else if (rateLimiter == null) {
+                rateLimiter = new SimpleRateLimiter(mbPerSec);
+            } else {
+                rateLimiter.setMBPerSec(mbPerSec);
+            }
+        }
+
+        /**
+         * The bandwidth currently allocated to this recovery in MB per second, or {@code 0} if it is not throttled.
+         */
+        public double getMBPerSec() {
+            return allocatedMBPerSec;
+        }
+
+        /**
+         * Records that the given number of bytes are about to be transferred and pauses if this recovery exceeds its share of the
+         * bandwidth.
+         *
+         * @return the time paused in nanoseconds
+         */
+        public long maybePause(int bytes) throws IOException {
+            recordTransferredBytes(bytes);
+            final RateLimiter rl = rateLimiter;
+            if (rl != null) {
+                final long bytesToPause = bytesSinceLastPause.addAndGet(bytes);
+                if (bytesToPause > rl.getMinPauseCheckBytes()) {
+                    bytesSinceLastPause.addAndGet(-bytesToPause);
+                    return rl.pause(bytesToPause);
+                }
+            }
+            return 0L;
+        }
+
+        void recordTransferredBytes(int bytes) {
+            transferredBytes.addAndGet(bytes);
+            bytesSinceRebalance.addAndGet(bytes);
+            maybeRebalance();
+        }
+
+        @Override
+        public void close() {
+            unregister(this);
+        }
+    }
+}
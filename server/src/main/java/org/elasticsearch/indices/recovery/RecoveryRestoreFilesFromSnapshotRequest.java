@@ -0,0 +1,115 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.indices.recovery;
+
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.index.store.StoreFileMetaData;
+import org.elasticsearch.repositories.IndexId;
+import org.elasticsearch.transport.TransportRequest;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Asks the recovery target to fetch some of the files to recover from a snapshot of the shard in a repository, rather than receiving them
+ * from the recovery source.
+ */
+public class RecoveryRestoreFilesFromSnapshotRequest extends TransportRequest {
+
+    private final long recoveryId;
+    private final ShardId shardId;
+    private final String repository;
+    private final IndexId indexId;
+    private final String shardGeneration;
+    private final String snapshot;
+    private final List<StoreFileMetaData> files;
+    private final int totalTranslogOps;
+
+    RecoveryRestoreFilesFromSnapshotRequest(long recoveryId, ShardId shardId, String repository, IndexId indexId, String shardGeneration,
+                                            String snapshot, List<StoreFileMetaData> files, int totalTranslogOps) {
+        this.recoveryId = recoveryId;
+        this.shardId = shardId;
+        this.repository = repository;
+        this.indexId = indexId;
+        this.shardGeneration = shardGeneration;
+        this.snapshot = snapshot;
+        this.files = files;
+        this.totalTranslogOps = totalTranslogOps;
+    }
+
+    public RecoveryRestoreFilesFromSnapshotRequest(StreamInput in) throws IOException {
+        super(in);
+        recoveryId = in.readLong();
+        shardId = new ShardId(in);
+        repository = in.readString();
+        indexId = new IndexId(in);
+        shardGeneration = in.readString();
+        snapshot = in.readString();
+        files = in.readList(StoreFileMetaData::new);
+        totalTranslogOps = in.readVInt();
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        super.writeTo(out);
+        out.writeLong(recoveryId);
+        shardId.writeTo(out);
+        out.writeString(repository);
+        indexId.writeTo(out);
+        out.writeString(shardGeneration);
+        out.writeString(snapshot);
+        out.writeList(files);
+        out.writeVInt(totalTranslogOps);
+    }
+
+    public long recoveryId() {
+        return recoveryId;
+    }
+
+    public ShardId shardId() {
+        return shardId;
+    }
+
+    public String repository() {
+        return repository;
+    }
+
+    public IndexId indexId() {
+        return indexId;
+    }
+
+    public String shardGeneration() {
+        return shardGeneration;
+    }
+
+    public String snapshot() {
+        return snapshot;
+    }
+
+    public List<StoreFileMetaData> files() {
+        return files;
+    }
+
+    public int totalTranslogOps() {
+        return totalTranslogOps;
+    }
+}
@@ -0,0 +1,46 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.indices.recovery;
+
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.transport.TransportResponse;
+
+import java.io.IOException;
+import java.util.List;
+
+final class RecoveryRestoreFilesFromSnapshotResponse extends TransportResponse {
+    // the files that could not be fetched from the repository and have to be sent by the recovery source instead
+    final List<String> failedFiles;
+
+    RecoveryRestoreFilesFromSnapshotResponse(final List<String> failedFiles) {
+        this.failedFiles = failedFiles;
+    }
+
+    RecoveryRestoreFilesFromSnapshotResponse(final StreamInput in) throws IOException {
+        super(in);
+        failedFiles = in.readStringList();
+    }
+
+    @Override
+    public void writeTo(final StreamOutput out) throws IOException {
+        out.writeStringCollection(failedFiles);
+    }
+}
@@ -21,8 +21,6 @@ package org.elasticsearch.indices.recovery;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import org.apache.lucene.store.RateLimiter;
-import org.apache.lucene.store.RateLimiter.SimpleRateLimiter;
 import org.elasticsearch.common.settings.ClusterSettings;
 import org.elasticsearch.common.settings.Setting;
 import org.elasticsearch.common.settings.Setting.Property;
@@ -45,6 +43,32 @@ public class RecoverySettings {
     public static final Setting<Integer> INDICES_RECOVERY_MAX_CONCURRENT_FILE_CHUNKS_SETTING =
         Setting.intSetting("indices.recovery.max_concurrent_file_chunks", 2, 1, 5, Property.Dynamic, Property.NodeScope);
 
+    /**
+     * Controls the maximum number of translog operation batches that can be sent concurrently from the source node to the target node
+     * during the second phase of a recovery.
+     */
+    public static final Setting<Integer> INDICES_RECOVERY_MAX_CONCURRENT_OPERATIONS_SETTING =
+        Setting.intSetting("indices.recovery.max_concurrent_operations", 2, 1, 4, Property.Dynamic, Property.NodeScope);
+
+    /**
+     * Controls whether a recovery source looks for a snapshot in the registered repositories that contains some of the files to recover,
+     * so that the recovery target can fetch these files from the repository instead of from the source node.
+     */
+    public static final Setting<Boolean> INDICES_RECOVERY_USE_SNAPSHOTS_SETTING =
+        Setting.boolSetting("indices.recovery.use_snapshots", false, Property.Dynamic, Property.NodeScope);
+
+    /**
+     * Controls the maximum number of files that a recovery target fetches concurrently from a snapshot repository.
+     */
+    public static final Setting<Integer> INDICES_RECOVERY_MAX_CONCURRENT_SNAPSHOT_FILE_DOWNLOADS_SETTING =
+        Setting.intSetting("indices.recovery.max_concurrent_snapshot_file_downloads", 5, 1, 20, Property.Dynamic, Property.NodeScope);
+
+    /**
+     * Controls the maximum number of files or file parts that all snapshot restores on this node download concurrently.
+     */
+    public static final Setting<Integer> INDICES_RECOVERY_MAX_CONCURRENT_RESTORE_DOWNLOADS_SETTING =
+        Setting.intSetting("indices.recovery.max_concurrent_restore_downloads", 5, 1, 20, Property.Dynamic, Property.NodeScope);
+
     /**
      * how long to wait before retrying after issues cause by cluster state syncing between nodes
      * i.e., local node is not yet known on remote node, remote shard not yet started etc.
@@ -86,7 +110,11 @@ public class RecoverySettings {
 
     private volatile ByteSizeValue maxBytesPerSec;
     private volatile int maxConcurrentFileChunks;
-    private volatile SimpleRateLimiter rateLimiter;
+    private volatile int maxConcurrentOperations;
+    private volatile boolean useSnapshots;
+    private volatile int maxConcurrentSnapshotFileDownloads;
+    private final RecoveryBandwidthScheduler bandwidthScheduler;
+    private final RestoreDownloadScheduler restoreDownloadScheduler;
     private volatile TimeValue retryDelayStateSync;
     private volatile TimeValue retryDelayNetwork;
     private volatile TimeValue activityTimeout;
@@ -98,6 +126,9 @@ public class RecoverySettings {
     public RecoverySettings(Settings settings, ClusterSettings clusterSettings) {
         this.retryDelayStateSync = INDICES_RECOVERY_RETRY_DELAY_STATE_SYNC_SETTING.get(settings);
         this.maxConcurrentFileChunks = INDICES_RECOVERY_MAX_CONCURRENT_FILE_CHUNKS_SETTING.get(settings);
+        this.maxConcurrentOperations = INDICES_RECOVERY_MAX_CONCURRENT_OPERATIONS_SETTING.get(settings);
+        this.useSnapshots = INDICES_RECOVERY_USE_SNAPSHOTS_SETTING.get(settings);
+        this.maxConcurrentSnapshotFileDownloads = INDICES_RECOVERY_MAX_CONCURRENT_SNAPSHOT_FILE_DOWNLOADS_SETTING.get(settings);
         // doesn't have to be fast as nodes are reconnected every 10s by default (see InternalClusterService.ReconnectToNodes)
         // and we want to give the master time to remove a faulty node
         this.retryDelayNetwork = INDICES_RECOVERY_RETRY_DELAY_NETWORK_SETTING.get(settings);
@@ -107,17 +138,21 @@ public class RecoverySettings {
 
         this.activityTimeout = INDICES_RECOVERY_ACTIVITY_TIMEOUT_SETTING.get(settings);
         this.maxBytesPerSec = INDICES_RECOVERY_MAX_BYTES_PER_SEC_SETTING.get(settings);
-        if (maxBytesPerSec.getBytes() <= 0) {
-            rateLimiter = null;
-        } else {
-            rateLimiter = new SimpleRateLimiter(maxBytesPerSec.getMbFrac());
-        }
-
+        this.bandwidthScheduler = new RecoveryBandwidthScheduler(maxBytesPerSec.getBytes() <= 0 ? 0 : maxBytesPerSec.getMbFrac(),
+            System::nanoTime);
+        this.restoreDownloadScheduler =
+            new RestoreDownloadScheduler(INDICES_RECOVERY_MAX_CONCURRENT_RESTORE_DOWNLOADS_SETTING.get(settings));
 
         logger.debug("using max_bytes_per_sec[{}]", maxBytesPerSec);
 
         clusterSettings.addSettingsUpdateConsumer(INDICES_RECOVERY_MAX_BYTES_PER_SEC_SETTING, this::setMaxBytesPerSec);
         clusterSettings.addSettingsUpdateConsumer(INDICES_RECOVERY_MAX_CONCURRENT_FILE_CHUNKS_SETTING, this::setMaxConcurrentFileChunks);
+        clusterSettings.addSettingsUpdateConsumer(INDICES_RECOVERY_MAX_CONCURRENT_OPERATIONS_SETTING, this::setMaxConcurrentOperations);
+        clusterSettings.addSettingsUpdateConsumer(INDICES_RECOVERY_USE_SNAPSHOTS_SETTING, this::setUseSnapshots);
+        clusterSettings.addSettingsUpdateConsumer(INDICES_RECOVERY_MAX_CONCURRENT_SNAPSHOT_FILE_DOWNLOADS_SETTING,
+            this::setMaxConcurrentSnapshotFileDownloads);
+        clusterSettings.addSettingsUpdateConsumer(INDICES_RECOVERY_MAX_CONCURRENT_RESTORE_DOWNLOADS_SETTING,
+            restoreDownloadScheduler::setMaxConcurrentDownloads);
         clusterSettings.addSettingsUpdateConsumer(INDICES_RECOVERY_RETRY_DELAY_STATE_SYNC_SETTING, this::setRetryDelayStateSync);
         clusterSettings.addSettingsUpdateConsumer(INDICES_RECOVERY_RETRY_DELAY_NETWORK_SETTING, this::setRetryDelayNetwork);
         clusterSettings.addSettingsUpdateConsumer(INDICES_RECOVERY_INTERNAL_ACTION_TIMEOUT_SETTING, this::setInternalActionTimeout);
@@ -126,8 +161,19 @@ public class RecoverySettings {
         clusterSettings.addSettingsUpdateConsumer(INDICES_RECOVERY_ACTIVITY_TIMEOUT_SETTING, this::setActivityTimeout);
     }
 
-    public RateLimiter rateLimiter() {
-        return rateLimiter;
+    /**
+     * Shares the bandwidth configured by {@link #INDICES_RECOVERY_MAX_BYTES_PER_SEC_SETTING} between the recoveries of this node.
+     */
+    public RecoveryBandwidthScheduler bandwidthScheduler() {
+        return bandwidthScheduler;
+    }
+
+    /**
+     * Limits the downloads of the snapshot restores of this node as configured by
+     * {@link #INDICES_RECOVERY_MAX_CONCURRENT_RESTORE_DOWNLOADS_SETTING}.
+     */
+    public RestoreDownloadScheduler restoreDownloadScheduler() {
+        return restoreDownloadScheduler;
     }
 
     public TimeValue retryDelayNetwork() {
@@ -182,13 +228,7 @@ public class RecoverySettings {
 
     private void setMaxBytesPerSec(ByteSizeValue maxBytesPerSec) {
         this.maxBytesPerSec = maxBytesPerSec;
-        if (maxBytesPerSec.getBytes() <= 0) {
-            rateLimiter = null;
-        } else if (rateLimiter != null) {
-            rateLimiter.setMBPerSec(maxBytesPerSec.getMbFrac());
-        } else {
-            rateLimiter = new SimpleRateLimiter(maxBytesPerSec.getMbFrac());
-        }
+        bandwidthScheduler.setMaxMBPerSec(maxBytesPerSec.getBytes() <= 0 ? 0 : maxBytesPerSec.getMbFrac());
     }
 
     public int getMaxConcurrentFileChunks() {
@@ -198,4 +238,28 @@ public class RecoverySettings {
     private void setMaxConcurrentFileChunks(int maxConcurrentFileChunks) {
         this.maxConcurrentFileChunks = maxConcurrentFileChunks;
     }
+
+    public int getMaxConcurrentOperations() {
+        return maxConcurrentOperations;
+    }
+
+    private void setMaxConcurrentOperations(int maxConcurrentOperations) {
+        this.maxConcurrentOperations = maxConcurrentOperations;
+    }
+
+    public boolean useSnapshots() {
+        return useSnapshots;
+    }
+
+    private void setUseSnapshots(boolean useSnapshots) {
+        this.useSnapshots = useSnapshots;
+    }
+
+    public int getMaxConcurrentSnapshotFileDownloads() {
+        return maxConcurrentSnapshotFileDownloads;
+    }
+
+    private void setMaxConcurrentSnapshotFileDownloads(int maxConcurrentSnapshotFileDownloads) {
+        this.maxConcurrentSnapshotFileDownloads = maxConcurrentSnapshotFileDownloads;
+    }
 }
@@ -343,6 +343,8 @@ public class RecoveryState implements ToXContentFragment, Writeable {
         static final String SOURCE_THROTTLE_TIME_IN_MILLIS = "source_throttle_time_in_millis";
         static final String TARGET_THROTTLE_TIME = "target_throttle_time";
         static final String TARGET_THROTTLE_TIME_IN_MILLIS = "target_throttle_time_in_millis";
+        static final String THROUGHPUT = "throughput";
+        static final String THROUGHPUT_IN_BYTES_PER_SEC = "throughput_in_bytes_per_sec";
     }
 
     public static class Timer implements Writeable {
@@ -886,6 +888,17 @@ public class RecoveryState implements ToXContentFragment, Writeable {
             }
         }
 
+        /**
+         * average number of bytes recovered per second since the start of this stage
+         */
+        public synchronized long recoveredBytesPerSecond() {
+            final long timeInMillis = time();
+            if (timeInMillis <= 0) {
+                return 0L;
+            }
+            return recoveredBytes() * 1000L / timeInMillis;
+        }
+
         public synchronized int reusedFileCount() {
             int reused = 0;
             for (File file : fileDetails.values()) {
@@ -932,6 +945,11 @@ public class RecoveryState implements ToXContentFragment, Writeable {
             builder.humanReadableField(Fields.TOTAL_TIME_IN_MILLIS, Fields.TOTAL_TIME, new TimeValue(time()));
             builder.humanReadableField(Fields.SOURCE_THROTTLE_TIME_IN_MILLIS, Fields.SOURCE_THROTTLE_TIME, sourceThrottling());
             builder.humanReadableField(Fields.TARGET_THROTTLE_TIME_IN_MILLIS, Fields.TARGET_THROTTLE_TIME, targetThrottling());
+            final long bytesPerSecond = recoveredBytesPerSecond();
+            if (builder.humanReadable()) {
+                builder.field(Fields.THROUGHPUT, new ByteSizeValue(bytesPerSecond) + "/s");
+            }
+            builder.field(Fields.THROUGHPUT_IN_BYTES_PER_SEC, bytesPerSecond);
             return builder;
         }
 
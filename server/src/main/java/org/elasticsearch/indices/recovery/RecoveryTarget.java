@@ -20,6 +20,7 @@
 package org.elasticsearch.indices.recovery;
 
 import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.message.ParameterizedMessage;
 import org.apache.lucene.index.CorruptIndexException;
 import org.apache.lucene.index.IndexFormatTooNewException;
 import org.apache.lucene.index.IndexFormatTooOldException;
@@ -27,11 +28,14 @@ import org.elasticsearch.Assertions;
 import org.elasticsearch.ElasticsearchException;
 import org.elasticsearch.ExceptionsHelper;
 import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.ActionRunnable;
 import org.elasticsearch.action.admin.indices.flush.FlushRequest;
+import org.elasticsearch.action.support.GroupedActionListener;
 import org.elasticsearch.cluster.node.DiscoveryNode;
 import org.elasticsearch.common.UUIDs;
 import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.logging.Loggers;
+import org.elasticsearch.common.lease.Releasables;
 import org.elasticsearch.common.lucene.Lucene;
 import org.elasticsearch.common.util.CancellableThreads;
 import org.elasticsearch.common.util.concurrent.AbstractRefCounted;
@@ -44,14 +48,26 @@ import org.elasticsearch.index.shard.IndexShard;
 import org.elasticsearch.index.shard.IndexShardNotRecoveringException;
 import org.elasticsearch.index.shard.IndexShardState;
 import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.index.snapshots.blobstore.BlobStoreIndexShardSnapshot;
+import org.elasticsearch.index.snapshots.blobstore.SnapshotFiles;
 import org.elasticsearch.index.store.Store;
 import org.elasticsearch.index.store.StoreFileMetaData;
 import org.elasticsearch.index.translog.Translog;
+import org.elasticsearch.repositories.IndexId;
+import org.elasticsearch.repositories.blobstore.BlobStoreRepository;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -85,6 +101,9 @@ public class RecoveryTarget extends AbstractRefCounted implements RecoveryTarget
     // latch that can be used to blockingly wait for RecoveryTarget to be closed
     private final CountDownLatch closedLatch = new CountDownLatch(1);
 
+    // registered when the first file chunk is received, released when this target is closed
+    private RecoveryBandwidthScheduler.Throttle bandwidthThrottle;
+
     /**
      * Creates a new recovery target object that represents a recovery to the provided shard.
      *
@@ -144,6 +163,20 @@ public class RecoveryTarget extends AbstractRefCounted implements RecoveryTarget
         return cancellableThreads;
     }
 
+    /**
+     * Returns the throttle that limits the file chunks received by this recovery to its share of the node's recovery bandwidth,
+     * registering it with the given scheduler the first time it is called.
+     */
+    synchronized RecoveryBandwidthScheduler.Throttle bandwidthThrottle(RecoveryBandwidthScheduler scheduler) {
+        ensureRefCount();
+        if (bandwidthThrottle == null) {
+            final RecoveryState.Index index = state().getIndex();
+            bandwidthThrottle = scheduler.register(indexShard.routingEntry().primary(),
+                () -> index.totalBytes() - index.reusedBytes());
+        }
+        return bandwidthThrottle;
+    }
+
     /** return the last time this RecoveryStatus was used (based on System.nanoTime() */
     public long lastAccessTime() {
         return lastAccessTime;
@@ -256,6 +289,10 @@ public class RecoveryTarget extends AbstractRefCounted implements RecoveryTarget
     @Override
     protected void closeInternal() {
         try {
+            synchronized (this) {
+                Releasables.close(bandwidthThrottle);
+                bandwidthThrottle = null;
+            }
             multiFileWriter.close();
         } finally {
             // free store. increment happens in constructor
@@ -335,7 +372,8 @@ public class RecoveryTarget extends AbstractRefCounted implements RecoveryTarget
             final RetentionLeases retentionLeases,
             final long mappingVersionOnPrimary,
             final ActionListener<Long> listener) {
-        ActionListener.completeWith(listener, () -> {
+        final Translog.Location lastLocation;
+        try {
             final RecoveryState.Translog translog = state().getTranslog();
             translog.totalOperations(totalTranslogOps);
             assert indexShard().recoveryState() == state();
@@ -359,6 +397,7 @@ public class RecoveryTarget extends AbstractRefCounted implements RecoveryTarget
              * the policy.
              */
             indexShard().updateRetentionLeasesOnReplica(retentionLeases);
+            Translog.Location location = null;
             for (Translog.Operation operation : operations) {
                 Engine.Result result = indexShard().applyTranslogOperation(operation, Engine.Operation.Origin.PEER_RECOVERY);
                 if (result.getResultType() == Engine.Result.Type.MAPPING_UPDATE_REQUIRED) {
@@ -370,14 +409,40 @@ public class RecoveryTarget extends AbstractRefCounted implements RecoveryTarget
                     }
                     ExceptionsHelper.reThrowIfNotNull(result.getFailure());
                 }
+                final Translog.Location resultLocation = result.getTranslogLocation();
+                if (resultLocation != null && (location == null || resultLocation.compareTo(location) > 0)) {
+                    location = resultLocation;
+                }
             }
             // update stats only after all operations completed (to ensure that mapping updates don't mess with stats)
             translog.incrementRecoveredOperations(operations.size());
-            indexShard().sync();
-            // roll over / flush / trim if needed
-            indexShard().afterWriteOperation();
-            return indexShard().getLocalCheckpoint();
-        });
+            lastLocation = location;
+        } catch (Exception e) {
+            listener.onFailure(e);
+            return;
+        }
+        if (lastLocation == null) {
+            ActionListener.completeWith(listener, () -> {
+                indexShard().sync();
+                // roll over / flush / trim if needed
+                indexShard().afterWriteOperation();
+                return indexShard().getLocalCheckpoint();
+            });
+        } else {
+            // The source sends several batches concurrently, so fsync through the shard's sync processor, which groups the fsyncs of
+            // concurrent batches just like it does for concurrent bulk requests, and keeps this thread free while the fsync is running.
+            indexShard().sync(lastLocation, e -> {
+                if (e != null) {
+                    listener.onFailure(e);
+                } else {
+                    ActionListener.completeWith(listener, () -> {
+                        // roll over / flush / trim if needed
+                        indexShard().afterWriteOperation();
+                        return indexShard().getLocalCheckpoint();
+                    });
+                }
+            });
+        }
     }
 
     @Override
@@ -471,6 +536,66 @@ public class RecoveryTarget extends AbstractRefCounted implements RecoveryTarget
         }
     }
 
+    /**
+     * Fetches the given files from the given snapshot of this shard in the given repository, using up to {@code maxConcurrentDownloads}
+     * threads of the given executor and the share of the node's recovery bandwidth of the given throttle. Like files received through
+     * {@link #writeFileChunk} they are written to temporary files that are renamed by {@link #cleanFiles}. Files that can not be fetched
+     * are reported to the listener rather than failing the recovery, so that the recovery source can send them instead.
+     */
+    public void restoreFilesFromSnapshot(BlobStoreRepository repository, IndexId indexId, String shardGeneration, String snapshot,
+                                         List<StoreFileMetaData> files, int totalTranslogOps, Executor executor,
+                                         int maxConcurrentDownloads, RecoveryBandwidthScheduler.Throttle throttle,
+                                         ActionListener<List<String>> listener) {
+        state().getTranslog().totalOperations(totalTranslogOps);
+        final List<String> failedFiles = Collections.synchronizedList(new ArrayList<>());
+        final Map<String, BlobStoreIndexShardSnapshot.FileInfo> snapshotFiles = new HashMap<>();
+        try {
+            for (SnapshotFiles snapshotFile : repository.loadShardSnapshots(indexId, shardId.id(), shardGeneration)) {
+                if (snapshotFile.snapshot().equals(snapshot)) {
+                    snapshotFile.indexFiles().forEach(fileInfo -> snapshotFiles.put(fileInfo.physicalName(), fileInfo));
+                }
+            }
+        } catch (Exception e) {
+            logger.debug(() -> new ParameterizedMessage("failed to load snapshot [{}] from repository [{}]",
+                snapshot, repository.getMetadata().name()), e);
+        }
+        final BlockingQueue<StoreFileMetaData> queue = new LinkedBlockingQueue<>();
+        for (StoreFileMetaData file : files) {
+            final BlobStoreIndexShardSnapshot.FileInfo fileInfo = snapshotFiles.get(file.name());
+            if (fileInfo != null && fileInfo.isSame(file)) {
+                queue.add(file);
+            } else {
+                failedFiles.add(file.name());
+            }
+        }
+        final int workers = Math.min(maxConcurrentDownloads, queue.size());
+        if (workers == 0) {
+            listener.onResponse(failedFiles);
+            return;
+        }
+        incRef();
+        final GroupedActionListener<Void> workersListener = new GroupedActionListener<>(
+            ActionListener.runAfter(ActionListener.map(listener, v -> new ArrayList<>(failedFiles)), this::decRef), workers);
+        for (int i = 0; i < workers; i++) {
+            executor.execute(ActionRunnable.run(workersListener, () -> {
+                StoreFileMetaData file;
+                while ((file = queue.poll()) != null) {
+                    cancellableThreads.checkForCancel();
+                    final BlobStoreIndexShardSnapshot.FileInfo fileInfo = snapshotFiles.get(file.name());
+                    try (InputStream stream = repository.readShardSnapshotFile(indexId, shardId.id(), fileInfo, throttle)) {
+                        multiFileWriter.writeFile(file, stream);
+                    } catch (Exception e) {
+                        logger.debug(() -> new ParameterizedMessage("failed to fetch file [{}] from snapshot [{}] in repository [{}]",
+                            fileInfo.physicalName(), snapshot, repository.getMetadata().name()), e);
+                        failedFiles.add(file.name());
+                    }
+                    // the source may send nothing while the files are fetched, which must not let the recovery time out
+                    setLastAccessTime();
+                }
+            }));
+        }
+    }
+
     /** Get a temporary name for the provided file name. */
     public String getTempNameForFile(String origFile) {
         return multiFileWriter.getTempNameForFile(origFile);
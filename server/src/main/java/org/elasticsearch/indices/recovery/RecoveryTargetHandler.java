@@ -25,8 +25,10 @@ import org.elasticsearch.index.seqno.RetentionLeases;
 import org.elasticsearch.index.store.Store;
 import org.elasticsearch.index.store.StoreFileMetaData;
 import org.elasticsearch.index.translog.Translog;
+import org.elasticsearch.repositories.IndexId;
 
 import java.util.List;
+import java.util.stream.Collectors;
 
 public interface RecoveryTargetHandler {
 
@@ -106,4 +108,22 @@ public interface RecoveryTargetHandler {
     void writeFileChunk(StoreFileMetaData fileMetaData, long position, BytesReference content,
                         boolean lastChunk, int totalTranslogOps, ActionListener<Void> listener);
 
+    /**
+     * Fetches the given files from a snapshot of the shard in the given repository instead of receiving them from the recovery source.
+     * Targets that can not access repositories report all files as failed, which is the default.
+     *
+     * @param repository       name of the repository that holds the snapshot
+     * @param indexId          id of the index in the repository
+     * @param shardGeneration  generation of the shard level metadata in the repository that lists the snapshot
+     * @param snapshot         name of the snapshot to fetch the files from
+     * @param files            meta data of the files to fetch, as found on the recovery source
+     * @param totalTranslogOps an update number of translog operations that will be replayed later on
+     * @param listener         notified with the names of the files that could not be fetched from the repository and have to be sent
+     *                         by the recovery source instead
+     */
+    default void restoreFilesFromSnapshot(String repository, IndexId indexId, String shardGeneration, String snapshot,
+                                          List<StoreFileMetaData> files, int totalTranslogOps, ActionListener<List<String>> listener) {
+        listener.onResponse(files.stream().map(StoreFileMetaData::name).collect(Collectors.toList()));
+    }
+
 }
@@ -19,7 +19,6 @@
 
 package org.elasticsearch.indices.recovery;
 
-import org.apache.lucene.store.RateLimiter;
 import org.elasticsearch.ElasticsearchException;
 import org.elasticsearch.action.ActionListener;
 import org.elasticsearch.action.ActionListenerResponseHandler;
@@ -31,6 +30,7 @@ import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.index.store.Store;
 import org.elasticsearch.index.store.StoreFileMetaData;
 import org.elasticsearch.index.translog.Translog;
+import org.elasticsearch.repositories.IndexId;
 import org.elasticsearch.threadpool.ThreadPool;
 import org.elasticsearch.transport.EmptyTransportResponseHandler;
 import org.elasticsearch.transport.TransportFuture;
@@ -40,7 +40,6 @@ import org.elasticsearch.transport.TransportService;
 
 import java.io.IOException;
 import java.util.List;
-import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
 
 public class RemoteRecoveryTargetHandler implements RecoveryTargetHandler {
@@ -54,17 +53,19 @@ public class RemoteRecoveryTargetHandler implements RecoveryTargetHandler {
     private final TransportRequestOptions translogOpsRequestOptions;
     private final TransportRequestOptions fileChunkRequestOptions;
 
-    private final AtomicLong bytesSinceLastPause = new AtomicLong();
+    private final RecoveryBandwidthScheduler.Throttle throttle;
 
     private final Consumer<Long> onSourceThrottle;
 
     public RemoteRecoveryTargetHandler(long recoveryId, ShardId shardId, TransportService transportService,
-                                       DiscoveryNode targetNode, RecoverySettings recoverySettings, Consumer<Long> onSourceThrottle) {
+                                       DiscoveryNode targetNode, RecoverySettings recoverySettings,
+                                       RecoveryBandwidthScheduler.Throttle throttle, Consumer<Long> onSourceThrottle) {
         this.transportService = transportService;
         this.recoveryId = recoveryId;
         this.shardId = shardId;
         this.targetNode = targetNode;
         this.recoverySettings = recoverySettings;
+        this.throttle = throttle;
         this.onSourceThrottle = onSourceThrottle;
         this.translogOpsRequestOptions = TransportRequestOptions.builder()
                 .withType(TransportRequestOptions.Type.RECOVERY)
@@ -149,29 +150,30 @@ public class RemoteRecoveryTargetHandler implements RecoveryTargetHandler {
                     in -> TransportResponse.Empty.INSTANCE, ThreadPool.Names.GENERIC));
     }
 
+    @Override
+    public void restoreFilesFromSnapshot(String repository, IndexId indexId, String shardGeneration, String snapshot,
+                                         List<StoreFileMetaData> files, int totalTranslogOps, ActionListener<List<String>> listener) {
+        transportService.sendRequest(targetNode, PeerRecoveryTargetService.Actions.RESTORE_FILES_FROM_SNAPSHOT,
+            new RecoveryRestoreFilesFromSnapshotRequest(recoveryId, shardId, repository, indexId, shardGeneration, snapshot, files,
+                totalTranslogOps),
+            // fetching the files takes as long as it takes, the target fails the request if the recovery is cancelled
+            TransportRequestOptions.builder().withType(TransportRequestOptions.Type.RECOVERY).build(),
+            new ActionListenerResponseHandler<>(ActionListener.map(listener, r -> r.failedFiles),
+                RecoveryRestoreFilesFromSnapshotResponse::new, ThreadPool.Names.GENERIC));
+    }
+
     @Override
     public void writeFileChunk(StoreFileMetaData fileMetaData, long position, BytesReference content,
                                boolean lastChunk, int totalTranslogOps, ActionListener<Void> listener) {
-        // Pause using the rate limiter, if desired, to throttle the recovery
+        // Pause if this recovery exceeds its share of the node's recovery bandwidth
         final long throttleTimeInNanos;
-        // always fetch the ratelimiter - it might be updated in real-time on the recovery settings
-        final RateLimiter rl = recoverySettings.rateLimiter();
-        if (rl != null) {
-            long bytes = bytesSinceLastPause.addAndGet(content.length());
-            if (bytes > rl.getMinPauseCheckBytes()) {
-                // Time to pause
-                bytesSinceLastPause.addAndGet(-bytes);
-                try {
-                    throttleTimeInNanos = rl.pause(bytes);
-                    onSourceThrottle.accept(throttleTimeInNanos);
-                } catch (IOException e) {
-                    throw new ElasticsearchException("failed to pause recovery", e);
-                }
-            } else {
-                throttleTimeInNanos = 0;
-            }
-        } else {
-            throttleTimeInNanos = 0;
+        try {
+            throttleTimeInNanos = throttle.maybePause(content.length());
+        } catch (IOException e) {
+            throw new ElasticsearchException("failed to pause recovery", e);
+        }
+        if (throttleTimeInNanos > 0) {
+            onSourceThrottle.accept(throttleTimeInNanos);
         }
 
         transportService.sendRequest(targetNode, PeerRecoveryTargetService.Actions.FILE_CHUNK,
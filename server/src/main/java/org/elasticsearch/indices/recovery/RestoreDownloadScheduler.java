@@ -0,0 +1,98 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.indices.recovery;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.elasticsearch.common.util.concurrent.AbstractRunnable;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
+
+import java.util.Queue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Limits the number of files and file parts that snapshot restores download concurrently on this node, across all restores from all
+ * repositories, as configured by {@link RecoverySettings#INDICES_RECOVERY_MAX_CONCURRENT_RESTORE_DOWNLOADS_SETTING}. Downloads beyond
+ * the limit are queued and run in the order they were scheduled.
+ */
+public final class RestoreDownloadScheduler {
+
+    private static final Logger logger = LogManager.getLogger(RestoreDownloadScheduler.class);
+
+    private final Queue<AbstractRunnable> pendingDownloads = ConcurrentCollections.newQueue();
+    private final AtomicInteger runningWorkers = new AtomicInteger();
+    private volatile int maxConcurrentDownloads;
+
+    RestoreDownloadScheduler(int maxConcurrentDownloads) {
+        this.maxConcurrentDownloads = maxConcurrentDownloads;
+    }
+
+    void setMaxConcurrentDownloads(int maxConcurrentDownloads) {
+        this.maxConcurrentDownloads = maxConcurrentDownloads;
+    }
+
+    /**
+     * Queues the given download. If fewer than the maximum number of downloads are running, a worker is started on the given executor,
+     * which runs queued downloads one after the other until there are none left.
+     */
+    public void schedule(AbstractRunnable download, Executor executor) {
+        pendingDownloads.add(download);
+        maybeStartWorker(executor);
+    }
+
+    private void maybeStartWorker(Executor executor) {
+        while (pendingDownloads.isEmpty() == false) {
+            final int running = runningWorkers.get();
+            if (running >= maxConcurrentDownloads) {
+                return;
+            }
+            if (runningWorkers.compareAndSet(running, running + 1)) {
+                executor.execute(new AbstractRunnable() {
+                    @Override
+                    protected void doRun() {
+                        AbstractRunnable download;
+                        while ((download = pendingDownloads.poll()) != null) {
+                            download.run();
+                        }
+                    }
+
+                    @Override
+                    public void onFailure(Exception e) {
+                        assert false : e;
+                        logger.warn("unexpected failure while running restore downloads", e);
+                    }
+
+                    @Override
+                    public void onAfter() {
+                        runningWorkers.decrementAndGet();
+                        maybeStartWorker(executor);
+                    }
+                });
+                return;
+            }
+        }
+    }
+
+    // exposed for testing
+    int runningWorkers() {
+        return runningWorkers.get();
+    }
+}
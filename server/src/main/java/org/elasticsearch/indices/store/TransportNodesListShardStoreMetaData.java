@@ -42,6 +42,7 @@ import org.elasticsearch.common.io.stream.Writeable;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.env.NodeEnvironment;
+import org.elasticsearch.gateway.BatchedShardFetcher;
 import org.elasticsearch.index.IndexService;
 import org.elasticsearch.index.IndexSettings;
 import org.elasticsearch.index.seqno.ReplicationTracker;
@@ -70,6 +71,7 @@ public class TransportNodesListShardStoreMetaData extends TransportNodesAction<T
 
     public static final String ACTION_NAME = "internal:cluster/nodes/indices/shard/store";
     public static final ActionType<NodesStoreFilesMetaData> TYPE = new ActionType<>(ACTION_NAME, NodesStoreFilesMetaData::new);
+    public static final String BATCH_ACTION_NAME = BatchedShardFetcher.batchActionName(ACTION_NAME);
 
     private final Settings settings;
     private final IndicesService indicesService;
@@ -85,6 +87,8 @@ public class TransportNodesListShardStoreMetaData extends TransportNodesAction<T
         this.settings = settings;
         this.indicesService = indicesService;
         this.nodeEnv = nodeEnv;
+        BatchedShardFetcher.registerNodeHandler(transportService, BATCH_ACTION_NAME, ThreadPool.Names.FETCH_SHARD_STORE,
+            (shardId, customDataPath, task) -> nodeOperation(new NodeRequest(shardId, customDataPath), task));
     }
 
     @Override
@@ -348,6 +352,11 @@ public class TransportNodesListShardStoreMetaData extends TransportNodesAction<T
             this.customDataPath = Objects.requireNonNull(request.getCustomDataPath());
         }
 
+        NodeRequest(ShardId shardId, @Nullable String customDataPath) {
+            this.shardId = Objects.requireNonNull(shardId);
+            this.customDataPath = customDataPath;
+        }
+
         @Override
         public void writeTo(StreamOutput out) throws IOException {
             super.writeTo(out);
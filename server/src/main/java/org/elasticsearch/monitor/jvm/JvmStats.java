@@ -58,6 +58,23 @@ public class JvmStats implements Writeable, ToXContentFragment {
         classLoadingMXBean = ManagementFactory.getClassLoadingMXBean();
     }
 
+    /**
+     * Returns the current heap usage in percent, or -1 if unknown. This is much cheaper than collecting the full {@link #jvmStats()}.
+     */
+    public static short heapUsedPercent() {
+        final MemoryUsage memUsage;
+        try {
+            memUsage = memoryMXBean.getHeapMemoryUsage();
+        } catch (IllegalArgumentException e) {
+            // can happen (rarely) due to a race condition in the JVM when determining the usage of memory pools, see JDK-8207200
+            return -1;
+        }
+        if (memUsage.getUsed() < 0 || memUsage.getMax() <= 0) {
+            return -1;
+        }
+        return (short) (memUsage.getUsed() * 100 / memUsage.getMax());
+    }
+
     public static JvmStats jvmStats() {
         MemoryUsage memUsage = memoryMXBean.getHeapMemoryUsage();
         long heapUsed = memUsage.getUsed() < 0 ? 0 : memUsage.getUsed();
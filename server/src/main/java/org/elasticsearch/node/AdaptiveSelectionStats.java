@@ -37,8 +37,9 @@ import java.util.stream.Collectors;
 
 /**
  * Class representing statistics about adaptive replica selection. This includes
- * EWMA of queue size, service time, and response time, as well as outgoing
- * searches to each node and the "rank" based on the ARS formula.
+ * EWMA of queue size, service time, response time and CPU usage, heap usage
+ * and failure penalty, as well as outgoing searches to each node and the
+ * "rank" based on the ARS formula.
  */
 public class AdaptiveSelectionStats implements Writeable, ToXContentFragment {
 
@@ -81,6 +82,14 @@ public class AdaptiveSelectionStats implements Writeable, ToXContentFragment {
                     builder.field("avg_response_time", new TimeValue((long) stats.responseTime, TimeUnit.NANOSECONDS).toString());
                 }
                 builder.field("avg_response_time_ns", (long) stats.responseTime);
+                if (stats.cpuPercent >= 0) {
+                    builder.field("avg_cpu_percent", String.format(Locale.ROOT, "%.1f", stats.cpuPercent));
+                }
+                if (stats.heapUsedPercent >= 0) {
+                    builder.field("heap_used_percent", stats.heapUsedPercent);
+                }
+                builder.field("failure_penalty", String.format(Locale.ROOT, "%.2f", stats.failurePenalty));
+                builder.field("load_aware", stats.loadAware);
                 builder.field("rank", String.format(Locale.ROOT, "%.1f", stats.rank(outgoingSearches)));
             }
             builder.endObject();
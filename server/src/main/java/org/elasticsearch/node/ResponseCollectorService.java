@@ -19,15 +19,22 @@
 
 package org.elasticsearch.node;
 
+import org.elasticsearch.Version;
 import org.elasticsearch.cluster.ClusterChangedEvent;
 import org.elasticsearch.cluster.ClusterStateListener;
 import org.elasticsearch.cluster.node.DiscoveryNode;
 import org.elasticsearch.cluster.service.ClusterService;
 import org.elasticsearch.common.ExponentiallyWeightedMovingAverage;
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.io.stream.Writeable;
+import org.elasticsearch.common.settings.Setting;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.util.SingleObjectCache;
 import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
+import org.elasticsearch.monitor.jvm.JvmStats;
+import org.elasticsearch.monitor.process.ProcessProbe;
 
 import java.io.IOException;
 import java.util.HashMap;
@@ -35,20 +42,62 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.ConcurrentMap;
+import java.util.function.LongSupplier;
 
 /**
  * Collects statistics about queue size, response time, and service time of
  * tasks executed on each node, making the EWMA of the values available to the
- * coordinating node.
+ * coordinating node. It also tracks the CPU and heap usage reported by each
+ * node and a penalty for recent failures, which the ranking takes into account
+ * if {@link #LOAD_AWARE_SELECTION_SETTING} is enabled.
  */
 public final class ResponseCollectorService implements ClusterStateListener {
 
+    /**
+     * Whether the adaptive replica selection rank of a node also accounts for its CPU and heap usage and for recent failures.
+     */
+    public static final Setting<Boolean> LOAD_AWARE_SELECTION_SETTING =
+        Setting.boolSetting("cluster.routing.adaptive_replica_selection.load_aware", false,
+            Setting.Property.Dynamic, Setting.Property.NodeScope);
+
+    /**
+     * The time after which the penalty for a failure has decayed to half of its value.
+     */
+    public static final Setting<TimeValue> FAILURE_PENALTY_HALF_LIFE_SETTING =
+        Setting.positiveTimeSetting("cluster.routing.adaptive_replica_selection.failure_penalty_half_life", TimeValue.timeValueSeconds(10),
+            Setting.Property.Dynamic, Setting.Property.NodeScope);
+
     private static final double ALPHA = 0.3;
 
+    // The CPU usage of the process is too expensive to sample for each query, which can take less time than the system call that it needs
+    private static final TimeValue LOCAL_NODE_LOAD_REFRESH_INTERVAL = TimeValue.timeValueSeconds(1);
+
     private final ConcurrentMap<String, NodeStatistics> nodeIdToStats = ConcurrentCollections.newConcurrentMap();
+    private final LongSupplier relativeNanoTimeSupplier;
+
+    private final SingleObjectCache<LocalNodeLoad> localNodeLoadCache =
+        new SingleObjectCache<LocalNodeLoad>(LOCAL_NODE_LOAD_REFRESH_INTERVAL, new LocalNodeLoad(-1, -1)) {
+            @Override
+            protected LocalNodeLoad refresh() {
+                return new LocalNodeLoad(ProcessProbe.getInstance().getProcessCpuPercent(), JvmStats.heapUsedPercent());
+            }
+        };
+
+    private volatile boolean loadAware;
+    private volatile long failurePenaltyHalfLifeNanos;
 
     public ResponseCollectorService(ClusterService clusterService) {
+        this(clusterService, System::nanoTime);
+    }
+
+    ResponseCollectorService(ClusterService clusterService, LongSupplier relativeNanoTimeSupplier) {
+        this.relativeNanoTimeSupplier = relativeNanoTimeSupplier;
         clusterService.addListener(this);
+        this.loadAware = LOAD_AWARE_SELECTION_SETTING.get(clusterService.getSettings());
+        this.failurePenaltyHalfLifeNanos = FAILURE_PENALTY_HALF_LIFE_SETTING.get(clusterService.getSettings()).nanos();
+        clusterService.getClusterSettings().addSettingsUpdateConsumer(LOAD_AWARE_SELECTION_SETTING, value -> this.loadAware = value);
+        clusterService.getClusterSettings().addSettingsUpdateConsumer(FAILURE_PENALTY_HALF_LIFE_SETTING,
+            value -> this.failurePenaltyHalfLifeNanos = value.nanos());
     }
 
     @Override
@@ -79,12 +128,66 @@ public final class ResponseCollectorService implements ClusterStateListener {
         });
     }
 
+    /**
+     * Records the CPU and heap usage, in percent, that a node reported with a response. Either may be {@code -1} if the node could not
+     * determine it. Only nodes for which {@link #addNodeStatistics} was called before are tracked.
+     */
+    public void addNodeLoad(String nodeId, int cpuPercent, int heapUsedPercent) {
+        nodeIdToStats.computeIfPresent(nodeId, (id, ns) -> {
+            if (cpuPercent >= 0) {
+                if (ns.cpuPercent == null) {
+                    ns.cpuPercent = new ExponentiallyWeightedMovingAverage(ALPHA, cpuPercent);
+                } else {
+                    ns.cpuPercent.addValue(cpuPercent);
+                }
+            }
+            ns.heapUsedPercent = heapUsedPercent;
+            return ns;
+        });
+    }
+
+    /**
+     * Records a failure of a request to the given node, such as a rejection or a disconnect. Each failure adds one to the penalty of
+     * the node, which then decays exponentially with a half life of {@link #FAILURE_PENALTY_HALF_LIFE_SETTING}.
+     */
+    public void addNodeFailure(String nodeId) {
+        final long now = relativeNanoTimeSupplier.getAsLong();
+        nodeIdToStats.computeIfPresent(nodeId, (id, ns) -> {
+            ns.failurePenalty = ns.decayedFailurePenalty(now, failurePenaltyHalfLifeNanos) + 1;
+            ns.lastFailureNanos = now;
+            return ns;
+        });
+    }
+
+    /**
+     * Returns the CPU and heap usage of this node, which it reports with the results of the queries that it executes, or {@code null} if
+     * {@link #LOAD_AWARE_SELECTION_SETTING} is disabled. The usage is sampled at most once per second.
+     */
+    @Nullable
+    public LocalNodeLoad getLocalNodeLoad() {
+        return loadAware ? localNodeLoadCache.getOrRefresh() : null;
+    }
+
+    /**
+     * The CPU and heap usage of this node in percent, either is {@code -1} if it could not be determined.
+     */
+    public static final class LocalNodeLoad {
+        public final int cpuPercent;
+        public final int heapUsedPercent;
+
+        LocalNodeLoad(int cpuPercent, int heapUsedPercent) {
+            this.cpuPercent = cpuPercent;
+            this.heapUsedPercent = heapUsedPercent;
+        }
+    }
+
     public Map<String, ComputedNodeStats> getAllNodeStatistics() {
         final int clientNum = nodeIdToStats.size();
+        final long now = relativeNanoTimeSupplier.getAsLong();
         // Transform the mutable object internally used for accounting into the computed version
         Map<String, ComputedNodeStats> nodeStats = new HashMap<>(nodeIdToStats.size());
         nodeIdToStats.forEach((k, v) -> {
-            nodeStats.put(k, new ComputedNodeStats(clientNum, v));
+            nodeStats.put(k, computeNodeStats(clientNum, v, now));
         });
         return nodeStats;
     }
@@ -100,19 +203,30 @@ public final class ResponseCollectorService implements ClusterStateListener {
      */
     public Optional<ComputedNodeStats> getNodeStatistics(final String nodeId) {
         final int clientNum = nodeIdToStats.size();
-        return Optional.ofNullable(nodeIdToStats.get(nodeId)).map(ns -> new ComputedNodeStats(clientNum, ns));
+        final long now = relativeNanoTimeSupplier.getAsLong();
+        return Optional.ofNullable(nodeIdToStats.get(nodeId)).map(ns -> computeNodeStats(clientNum, ns, now));
+    }
+
+    private ComputedNodeStats computeNodeStats(int clientNum, NodeStatistics ns, long now) {
+        final ExponentiallyWeightedMovingAverage cpuPercent = ns.cpuPercent;
+        return new ComputedNodeStats(ns.nodeId, clientNum, (int) ns.queueSize.getAverage(), ns.responseTime.getAverage(), ns.serviceTime,
+            cpuPercent == null ? -1 : cpuPercent.getAverage(), ns.heapUsedPercent,
+            ns.decayedFailurePenalty(now, failurePenaltyHalfLifeNanos), loadAware);
     }
 
     /**
      * Struct-like class encapsulating a point-in-time snapshot of a particular
      * node's statistics. This includes the EWMA of queue size, response time,
-     * and service time.
+     * service time and CPU usage, the last reported heap usage, and the
+     * decayed failure penalty.
      */
     public static class ComputedNodeStats implements Writeable {
         // We store timestamps with nanosecond precision, however, the
         // formula specifies milliseconds, therefore we need to convert
         // the values so the times don't unduely weight the formula
         private final double FACTOR = 1000000.0;
+        // Heap usage below this is considered normal garbage collection behaviour rather than pressure
+        private static final int HEAP_PRESSURE_THRESHOLD_PERCENT = 85;
         private final int clientNum;
 
         private double cachedRank = 0;
@@ -121,18 +235,26 @@ public final class ResponseCollectorService implements ClusterStateListener {
         public final int queueSize;
         public final double responseTime;
         public final double serviceTime;
+        public final double cpuPercent;
+        public final int heapUsedPercent;
+        public final double failurePenalty;
+        public final boolean loadAware;
 
         public ComputedNodeStats(String nodeId, int clientNum, int queueSize, double responseTime, double serviceTime) {
+            this(nodeId, clientNum, queueSize, responseTime, serviceTime, -1, -1, 0, false);
+        }
+
+        public ComputedNodeStats(String nodeId, int clientNum, int queueSize, double responseTime, double serviceTime,
+                                 double cpuPercent, int heapUsedPercent, double failurePenalty, boolean loadAware) {
             this.nodeId = nodeId;
             this.clientNum = clientNum;
             this.queueSize = queueSize;
             this.responseTime = responseTime;
             this.serviceTime = serviceTime;
-        }
-
-        ComputedNodeStats(int clientNum, NodeStatistics nodeStats) {
-            this(nodeStats.nodeId, clientNum,
-                    (int) nodeStats.queueSize.getAverage(), nodeStats.responseTime.getAverage(), nodeStats.serviceTime);
+            this.cpuPercent = cpuPercent;
+            this.heapUsedPercent = heapUsedPercent;
+            this.failurePenalty = failurePenalty;
+            this.loadAware = loadAware;
         }
 
         ComputedNodeStats(StreamInput in) throws IOException {
@@ -141,6 +263,17 @@ public final class ResponseCollectorService implements ClusterStateListener {
             this.queueSize = in.readInt();
             this.responseTime = in.readDouble();
             this.serviceTime = in.readDouble();
+            if (in.getVersion().onOrAfter(Version.V_8_0_0)) {
+                this.cpuPercent = in.readDouble();
+                this.heapUsedPercent = in.readInt();
+                this.failurePenalty = in.readDouble();
+                this.loadAware = in.readBoolean();
+            } else {
+                this.cpuPercent = -1;
+                this.heapUsedPercent = -1;
+                this.failurePenalty = 0;
+                this.loadAware = false;
+            }
         }
 
         @Override
@@ -150,6 +283,12 @@ public final class ResponseCollectorService implements ClusterStateListener {
             out.writeInt(this.queueSize);
             out.writeDouble(this.responseTime);
             out.writeDouble(this.serviceTime);
+            if (out.getVersion().onOrAfter(Version.V_8_0_0)) {
+                out.writeDouble(this.cpuPercent);
+                out.writeInt(this.heapUsedPercent);
+                out.writeDouble(this.failurePenalty);
+                out.writeBoolean(this.loadAware);
+            }
         }
 
         /**
@@ -177,9 +316,29 @@ public final class ResponseCollectorService implements ClusterStateListener {
 
             // The final formula
             double rank = rS - (1.0 / muBarS) + (Math.pow(qHatS, queueAdjustmentFactor) / muBarS);
+            if (loadAware) {
+                // The formula only sees load through the search thread pool, so a node that is busy with other work or just
+                // recovered from a long GC pause still looks fast. Scale the rank by its CPU and heap pressure and recent failures.
+                rank = rank * (1 + loadPressure()) * (1 + failurePenalty);
+            }
             return rank;
         }
 
+        /**
+         * Returns the load of the node as a fraction between 0 and 1, based on the higher of its CPU usage and its heap usage above
+         * {@link #HEAP_PRESSURE_THRESHOLD_PERCENT}.
+         */
+        double loadPressure() {
+            double pressure = 0;
+            if (cpuPercent > 0) {
+                pressure = Math.min(cpuPercent, 100) / 100.0;
+            }
+            if (heapUsedPercent >= HEAP_PRESSURE_THRESHOLD_PERCENT) {
+                pressure = Math.max(pressure, Math.min(heapUsedPercent, 100) / 100.0);
+            }
+            return pressure;
+        }
+
         public double rank(long outstandingRequests) {
             if (cachedRank == 0) {
                 cachedRank = innerRank(outstandingRequests);
@@ -195,6 +354,9 @@ public final class ResponseCollectorService implements ClusterStateListener {
             sb.append(", queue: ").append(queueSize);
             sb.append(", response time: ").append(String.format(Locale.ROOT, "%.1f", responseTime));
             sb.append(", service time: ").append(String.format(Locale.ROOT, "%.1f", serviceTime));
+            sb.append(", cpu: ").append(String.format(Locale.ROOT, "%.1f", cpuPercent));
+            sb.append(", heap: ").append(heapUsedPercent);
+            sb.append(", failure penalty: ").append(String.format(Locale.ROOT, "%.2f", failurePenalty));
             sb.append(", rank: ").append(String.format(Locale.ROOT, "%.1f", rank(1)));
             sb.append(")");
             return sb.toString();
@@ -211,6 +373,10 @@ public final class ResponseCollectorService implements ClusterStateListener {
         final ExponentiallyWeightedMovingAverage queueSize;
         final ExponentiallyWeightedMovingAverage responseTime;
         double serviceTime;
+        ExponentiallyWeightedMovingAverage cpuPercent;
+        int heapUsedPercent = -1;
+        double failurePenalty;
+        long lastFailureNanos;
 
         NodeStatistics(String nodeId,
                        ExponentiallyWeightedMovingAverage queueSizeEWMA,
@@ -221,5 +387,13 @@ public final class ResponseCollectorService implements ClusterStateListener {
             this.responseTime = responseTimeEWMA;
             this.serviceTime = serviceTimeEWMA;
         }
+
+        double decayedFailurePenalty(long nowNanos, long halfLifeNanos) {
+            if (failurePenalty == 0) {
+                return 0;
+            }
+            final long elapsedNanos = Math.max(0, nowNanos - lastFailureNanos);
+            return failurePenalty * Math.pow(0.5, (double) elapsedNanos / halfLifeNanos);
+        }
     }
 }
@@ -25,6 +25,7 @@ import java.util.Map;
 import org.elasticsearch.cluster.service.ClusterService;
 import org.elasticsearch.common.xcontent.NamedXContentRegistry;
 import org.elasticsearch.env.Environment;
+import org.elasticsearch.indices.recovery.RecoverySettings;
 import org.elasticsearch.repositories.Repository;
 
 /**
@@ -36,12 +37,13 @@ public interface RepositoryPlugin {
      * Returns repository types added by this plugin.
      *
      * @param env The environment for the local node, which may be used for the local settings and path.repo
+     * @param recoverySettings The recovery settings of the local node, which throttle and limit the downloads of restores
      *
      * The key of the returned {@link Map} is the type name of the repository and
      * the value is a factory to construct the {@link Repository} interface.
      */
     default Map<String, Repository.Factory> getRepositories(Environment env, NamedXContentRegistry namedXContentRegistry,
-                                                            ClusterService clusterService) {
+                                                            ClusterService clusterService, RecoverySettings recoverySettings) {
         return Collections.emptyMap();
     }
 
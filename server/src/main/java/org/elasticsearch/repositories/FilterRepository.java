@@ -37,6 +37,7 @@ import org.elasticsearch.snapshots.SnapshotInfo;
 import org.elasticsearch.snapshots.SnapshotShardFailure;
 
 import java.io.IOException;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 
@@ -83,8 +84,9 @@ public class FilterRepository implements Repository {
     }
 
     @Override
-    public void deleteSnapshot(SnapshotId snapshotId, long repositoryStateId, boolean writeShardGens, ActionListener<Void> listener) {
-        in.deleteSnapshot(snapshotId, repositoryStateId, writeShardGens, listener);
+    public void deleteSnapshots(Collection<SnapshotId> snapshotIds, long repositoryStateId, boolean writeShardGens,
+                                ActionListener<Void> listener) {
+        in.deleteSnapshots(snapshotIds, repositoryStateId, writeShardGens, listener);
     }
 
     @Override
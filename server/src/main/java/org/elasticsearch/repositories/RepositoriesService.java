@@ -378,6 +378,13 @@ public class RepositoriesService extends AbstractLifecycleComponent implements C
         throw new RepositoryMissingException(repositoryName);
     }
 
+    /**
+     * Returns all repositories that are registered in the cluster state, keyed by name
+     */
+    public Map<String, Repository> getRepositories() {
+        return repositories;
+    }
+
     public void registerInternalRepository(String name, String type) {
         RepositoryMetaData metaData = new RepositoryMetaData(name, type, Settings.EMPTY);
         Repository repository = internalRepositories.computeIfAbsent(name, (n) -> {
@@ -34,6 +34,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
@@ -148,14 +149,18 @@ public final class RepositoryData {
 
     /**
      * Returns the list of {@link IndexId} that have their snapshots updated but not removed (because they are still referenced by other
-     * snapshots) after removing the given snapshot from the repository.
+     * snapshots) after removing the given snapshots from the repository.
      *
-     * @param snapshotId SnapshotId to remove
+     * @param snapshotIds SnapshotIds to remove
      * @return List of indices that are changed but not removed
      */
-    public List<IndexId> indicesToUpdateAfterRemovingSnapshot(SnapshotId snapshotId) {
+    public List<IndexId> indicesToUpdateAfterRemovingSnapshots(Collection<SnapshotId> snapshotIds) {
         return indexSnapshots.entrySet().stream()
-            .filter(entry -> entry.getValue().size() > 1 && entry.getValue().contains(snapshotId))
+            .filter(entry -> {
+                final Collection<SnapshotId> existingIds = entry.getValue();
+                return existingIds.stream().anyMatch(snapshotIds::contains)
+                    && existingIds.stream().anyMatch(snapshotId -> snapshotIds.contains(snapshotId) == false);
+            })
             .map(Map.Entry::getKey)
             .collect(Collectors.toList());
     }
@@ -204,35 +209,39 @@ public final class RepositoryData {
     }
 
     /**
-     * Remove a snapshot and remove any indices that no longer exist in the repository due to the deletion of the snapshot.
+     * Remove snapshots and remove any indices that no longer exist in the repository due to the deletion of the snapshots.
      *
-     * @param snapshotId              Snapshot Id
-     * @param updatedShardGenerations Shard generations that changed as a result of removing the snapshot.
+     * @param snapshots               Snapshot ids to remove
+     * @param updatedShardGenerations Shard generations that changed as a result of removing the snapshots.
      *                                The {@code String[]} passed for each {@link IndexId} contains the new shard generation id for each
      *                                changed shard indexed by its shardId
      */
-    public RepositoryData removeSnapshot(final SnapshotId snapshotId, final ShardGenerations updatedShardGenerations) {
+    public RepositoryData removeSnapshots(final Collection<SnapshotId> snapshots, final ShardGenerations updatedShardGenerations) {
         Map<String, SnapshotId> newSnapshotIds = snapshotIds.values().stream()
-            .filter(id -> !snapshotId.equals(id))
+            .filter(id -> snapshots.contains(id) == false)
             .collect(Collectors.toMap(SnapshotId::getUUID, Function.identity()));
-        if (newSnapshotIds.size() == snapshotIds.size()) {
-            throw new ResourceNotFoundException("Attempting to remove non-existent snapshot [{}] from repository data", snapshotId);
+        if (newSnapshotIds.size() != snapshotIds.size() - snapshots.size()) {
+            final Collection<SnapshotId> notFound = new HashSet<>(snapshots);
+            notFound.removeAll(snapshotIds.values());
+            throw new ResourceNotFoundException("Attempting to remove non-existent snapshots {} from repository data", notFound);
         }
         Map<String, SnapshotState> newSnapshotStates = new HashMap<>(snapshotStates);
-        newSnapshotStates.remove(snapshotId.getUUID());
+        for (SnapshotId snapshotId : snapshots) {
+            newSnapshotStates.remove(snapshotId.getUUID());
+        }
         Map<IndexId, Set<SnapshotId>> indexSnapshots = new HashMap<>();
         for (final IndexId indexId : indices.values()) {
             Set<SnapshotId> set;
             Set<SnapshotId> snapshotIds = this.indexSnapshots.get(indexId);
             assert snapshotIds != null;
-            if (snapshotIds.contains(snapshotId)) {
-                if (snapshotIds.size() == 1) {
-                    // removing the snapshot will mean no more snapshots
+            if (snapshotIds.stream().anyMatch(snapshots::contains)) {
+                set = new LinkedHashSet<>(snapshotIds);
+                set.removeAll(snapshots);
+                if (set.isEmpty()) {
+                    // removing the snapshots will mean no more snapshots
                     // have this index, so just skip over it
                     continue;
                 }
-                set = new LinkedHashSet<>(snapshotIds);
-                set.remove(snapshotId);
             } else {
                 set = snapshotIds;
             }
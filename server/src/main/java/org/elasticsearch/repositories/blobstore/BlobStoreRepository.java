@@ -22,6 +22,7 @@ package org.elasticsearch.repositories.blobstore;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.apache.logging.log4j.message.ParameterizedMessage;
+import org.apache.lucene.codecs.CodecUtil;
 import org.apache.lucene.index.CorruptIndexException;
 import org.apache.lucene.index.IndexCommit;
 import org.apache.lucene.index.IndexFormatTooNewException;
@@ -30,6 +31,7 @@ import org.apache.lucene.store.IOContext;
 import org.apache.lucene.store.IndexInput;
 import org.apache.lucene.store.IndexOutput;
 import org.apache.lucene.store.RateLimiter;
+import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.SetOnce;
 import org.elasticsearch.ExceptionsHelper;
 import org.elasticsearch.action.ActionListener;
@@ -47,6 +49,7 @@ import org.elasticsearch.cluster.metadata.RepositoriesMetaData;
 import org.elasticsearch.cluster.metadata.RepositoryMetaData;
 import org.elasticsearch.cluster.node.DiscoveryNode;
 import org.elasticsearch.cluster.service.ClusterService;
+import org.elasticsearch.common.CheckedRunnable;
 import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.Numbers;
 import org.elasticsearch.common.Strings;
@@ -56,14 +59,18 @@ import org.elasticsearch.common.blobstore.BlobMetaData;
 import org.elasticsearch.common.blobstore.BlobPath;
 import org.elasticsearch.common.blobstore.BlobStore;
 import org.elasticsearch.common.blobstore.DeleteResult;
+import org.elasticsearch.common.blobstore.MultipartBlobWrite;
 import org.elasticsearch.common.blobstore.fs.FsBlobContainer;
 import org.elasticsearch.common.bytes.BytesArray;
 import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.collect.Tuple;
 import org.elasticsearch.common.component.AbstractLifecycleComponent;
+import org.elasticsearch.common.compress.CompressorFactory;
 import org.elasticsearch.common.compress.NotXContentException;
+import org.elasticsearch.common.hash.MessageDigests;
 import org.elasticsearch.common.io.Streams;
 import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.io.stream.InputStreamStreamInput;
 import org.elasticsearch.common.lucene.Lucene;
 import org.elasticsearch.common.lucene.store.InputStreamIndexInput;
 import org.elasticsearch.common.metrics.CounterMetric;
@@ -72,11 +79,14 @@ import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.unit.ByteSizeUnit;
 import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.common.util.concurrent.AbstractRunnable;
+import org.elasticsearch.common.util.concurrent.ParallelTaskRunner;
 import org.elasticsearch.common.xcontent.LoggingDeprecationHandler;
 import org.elasticsearch.common.xcontent.NamedXContentRegistry;
+import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.common.xcontent.XContentFactory;
 import org.elasticsearch.common.xcontent.XContentParser;
 import org.elasticsearch.common.xcontent.XContentType;
+import org.elasticsearch.core.internal.io.IOUtils;
 import org.elasticsearch.index.Index;
 import org.elasticsearch.index.mapper.MapperService;
 import org.elasticsearch.index.shard.ShardId;
@@ -91,7 +101,9 @@ import org.elasticsearch.index.snapshots.blobstore.SlicedInputStream;
 import org.elasticsearch.index.snapshots.blobstore.SnapshotFiles;
 import org.elasticsearch.index.store.Store;
 import org.elasticsearch.index.store.StoreFileMetaData;
+import org.elasticsearch.indices.recovery.RecoveryBandwidthScheduler;
 import org.elasticsearch.indices.recovery.RecoveryState;
+import org.elasticsearch.indices.recovery.RecoverySettings;
 import org.elasticsearch.repositories.IndexId;
 import org.elasticsearch.repositories.Repository;
 import org.elasticsearch.repositories.RepositoryCleanupResult;
@@ -110,13 +122,20 @@ import org.elasticsearch.snapshots.SnapshotShardFailure;
 import org.elasticsearch.snapshots.SnapshotsService;
 import org.elasticsearch.threadpool.ThreadPool;
 
+import java.io.ByteArrayInputStream;
+import java.io.BufferedInputStream;
+import java.io.EOFException;
 import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.file.NoSuchFileException;
+import java.security.MessageDigest;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -124,8 +143,11 @@ import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Executor;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.LongStream;
 import java.util.stream.Stream;
@@ -178,6 +200,16 @@ public abstract class BlobStoreRepository extends AbstractLifecycleComponent imp
 
     private static final String DATA_BLOB_PREFIX = "__";
 
+    private static final String CONTENT_BLOB_PREFIX = "cas-";
+
+    private static final String CONTENT_REFERENCE_SEPARATOR = ".ref.";
+
+    /**
+     * Maximum number of blobs deleted by a single call to {@link BlobContainer#deleteBlobsIgnoringIfNotExists} when cleaning up after
+     * snapshot deletes.
+     */
+    private static final int DELETE_BATCH_SIZE = 1000;
+
     /**
      * When set to true metadata files are stored in compressed format. This setting doesn’t affect index
      * files that are already compressed by default. Changing the setting does not invalidate existing files since reads
@@ -193,8 +225,56 @@ public abstract class BlobStoreRepository extends AbstractLifecycleComponent imp
     public static final Setting<Boolean> ALLOW_CONCURRENT_MODIFICATION =
         Setting.boolSetting("allow_concurrent_modifications", false, Setting.Property.Deprecated);
 
+    /**
+     * When set to {@code true}, the latest {@link RepositoryData} is kept in memory and reused as long as the repository generation does
+     * not change, instead of reading and parsing the {@code index-N} blob for every operation.
+     */
+    public static final Setting<Boolean> CACHE_REPOSITORY_DATA =
+        Setting.boolSetting("cache_repository_data", true, Setting.Property.NodeScope);
+
+    /**
+     * When set to {@code true}, new {@code index-N} blobs are written as compressed SMILE instead of plain JSON, which is much smaller and
+     * faster to parse for repositories with many snapshots. Reads detect the format, but nodes and tools that only understand the JSON
+     * format can not read the repository anymore once this was enabled.
+     */
+    public static final Setting<Boolean> COMPACT_REPOSITORY_DATA =
+        Setting.boolSetting("compact_repository_data", false, Setting.Property.NodeScope);
+
+    /**
+     * When set to {@code true}, new files are uploaded to a repository-wide content addressed store under a name derived from their
+     * physical name, length, checksum and Lucene file id instead of to their shard's directory, so that identical files of different
+     * shards and indices, for example of restored or cloned indices or of follower indices, are only uploaded and stored once. Each shard
+     * that uses such a file writes a reference blob next to it and the file is only deleted once the last reference to it was removed.
+     * Nodes and tools that do not know about the content addressed store can not restore such files.
+     */
+    public static final Setting<Boolean> CONTENT_ADDRESSED_STORE =
+        Setting.boolSetting("content_addressed_store", false, Setting.Property.NodeScope);
+
+    /**
+     * The number of parts of a large file that are uploaded concurrently if the blob store supports multipart writes, see
+     * {@link BlobContainer#startMultipartWrite}. A value of {@code 1} uploads all files sequentially.
+     */
+    public static final Setting<Integer> CONCURRENT_PART_WRITES =
+        Setting.intSetting("concurrent_part_writes", 4, 1, Setting.Property.NodeScope);
+
+    /**
+     * Files, or chunks of files if the repository has a {@code chunk_size}, of at least this size are uploaded in concurrent parts.
+     */
+    public static final Setting<ByteSizeValue> MULTIPART_WRITE_THRESHOLD =
+        Setting.byteSizeSetting("multipart_write_threshold", new ByteSizeValue(128, ByteSizeUnit.MB), Setting.Property.NodeScope);
+
     private final boolean compress;
 
+    private final int concurrentPartWrites;
+
+    private final ByteSizeValue multipartWriteThreshold;
+
+    private final boolean cacheRepositoryData;
+
+    private final boolean compactRepositoryData;
+
+    private final boolean contentAddressedStore;
+
     private final RateLimiter snapshotRateLimiter;
 
     private final RateLimiter restoreRateLimiter;
@@ -225,6 +305,8 @@ public abstract class BlobStoreRepository extends AbstractLifecycleComponent imp
 
     private final ClusterService clusterService;
 
+    private final RecoverySettings recoverySettings;
+
     /**
      * Flag that is set to {@code true} if this instance is started with {@link #metadata} that has a higher value for
      * {@link RepositoryMetaData#pendingGeneration()} than for {@link RepositoryMetaData#generation()} indicating a full cluster restart
@@ -257,16 +339,24 @@ public abstract class BlobStoreRepository extends AbstractLifecycleComponent imp
      * Constructs new BlobStoreRepository
      * @param metadata   The metadata for this repository including name and settings
      * @param clusterService ClusterService
+     * @param recoverySettings the recovery settings of the node, which throttle and limit the downloads of restores
      */
     protected BlobStoreRepository(
         final RepositoryMetaData metadata,
         final NamedXContentRegistry namedXContentRegistry,
         final ClusterService clusterService,
+        final RecoverySettings recoverySettings,
         final BlobPath basePath) {
         this.metadata = metadata;
         this.threadPool = clusterService.getClusterApplierService().threadPool();
         this.clusterService = clusterService;
+        this.recoverySettings = recoverySettings;
         this.compress = COMPRESS_SETTING.get(metadata.settings());
+        this.cacheRepositoryData = CACHE_REPOSITORY_DATA.get(metadata.settings());
+        this.compactRepositoryData = COMPACT_REPOSITORY_DATA.get(metadata.settings());
+        this.contentAddressedStore = CONTENT_ADDRESSED_STORE.get(metadata.settings());
+        this.concurrentPartWrites = CONCURRENT_PART_WRITES.get(metadata.settings());
+        this.multipartWriteThreshold = MULTIPART_WRITE_THRESHOLD.get(metadata.settings());
         snapshotRateLimiter = getRateLimiter(metadata.settings(), "max_snapshot_bytes_per_sec", new ByteSizeValue(40, ByteSizeUnit.MB));
         restoreRateLimiter = getRateLimiter(metadata.settings(), "max_restore_bytes_per_sec", new ByteSizeValue(40, ByteSizeUnit.MB));
         readOnly = metadata.settings().getAsBoolean("readonly", false);
@@ -465,14 +555,16 @@ public abstract class BlobStoreRepository extends AbstractLifecycleComponent imp
     }
 
     @Override
-    public void deleteSnapshot(SnapshotId snapshotId, long repositoryStateId, boolean writeShardGens, ActionListener<Void> listener) {
+    public void deleteSnapshots(Collection<SnapshotId> snapshotIds, long repositoryStateId, boolean writeShardGens,
+                                ActionListener<Void> listener) {
         if (isReadOnly()) {
             listener.onFailure(new RepositoryException(metadata.name(), "cannot delete snapshot from a readonly repository"));
         } else {
             final long latestKnownGen = latestKnownRepoGen.get();
             if (latestKnownGen > repositoryStateId) {
-                listener.onFailure(new ConcurrentSnapshotExecutionException(
-                    new Snapshot(metadata.name(), snapshotId), "Another concurrent operation moved repo generation to [ " + latestKnownGen
+                listener.onFailure(new ConcurrentSnapshotExecutionException(metadata.name(),
+                    snapshotIds.stream().map(SnapshotId::getName).collect(Collectors.joining(",")),
+                    "Another concurrent operation moved repo generation to [ " + latestKnownGen
                     + "] but this delete assumed generation [" + repositoryStateId + "]"));
                 return;
             }
@@ -482,9 +574,9 @@ public abstract class BlobStoreRepository extends AbstractLifecycleComponent imp
                 // Cache the indices that were found before writing out the new index-N blob so that a stuck master will never
                 // delete an index that was created by another master node after writing this index-N blob.
                 final Map<String, BlobContainer> foundIndices = blobStore().blobContainer(indicesPath()).children();
-                doDeleteShardSnapshots(snapshotId, repositoryStateId, foundIndices, rootBlobs, repositoryData, writeShardGens, listener);
+                doDeleteShardSnapshots(snapshotIds, repositoryStateId, foundIndices, rootBlobs, repositoryData, writeShardGens, listener);
             } catch (Exception ex) {
-                listener.onFailure(new RepositoryException(metadata.name(), "failed to delete snapshot [" + snapshotId + "]", ex));
+                listener.onFailure(new RepositoryException(metadata.name(), "failed to delete snapshots " + snapshotIds, ex));
             }
         }
     }
@@ -520,9 +612,10 @@ public abstract class BlobStoreRepository extends AbstractLifecycleComponent imp
 
     /**
      * After updating the {@link RepositoryData} each of the shards directories is individually first moved to the next shard generation
-     * and then has all now unreferenced blobs in it deleted.
+     * and then has all now unreferenced blobs in it deleted. Deleting several snapshots at once rewrites the {@link RepositoryData} and
+     * each affected shard's metadata only once and deletes the union of all blobs that became unreferenced.
      *
-     * @param snapshotId        SnapshotId to delete
+     * @param snapshotIds       SnapshotIds to delete
      * @param repositoryStateId Expected repository state id
      * @param foundIndices      All indices folders found in the repository before executing any writes to the repository during this
      *                          delete operation
@@ -531,16 +624,16 @@ public abstract class BlobStoreRepository extends AbstractLifecycleComponent imp
      * @param repositoryData    RepositoryData found the in the repository before executing this delete
      * @param listener          Listener to invoke once finished
      */
-    private void doDeleteShardSnapshots(SnapshotId snapshotId, long repositoryStateId, Map<String, BlobContainer> foundIndices,
+    private void doDeleteShardSnapshots(Collection<SnapshotId> snapshotIds, long repositoryStateId, Map<String, BlobContainer> foundIndices,
                                         Map<String, BlobMetaData> rootBlobs, RepositoryData repositoryData, boolean writeShardGens,
                                         ActionListener<Void> listener) {
 
         if (writeShardGens) {
             // First write the new shard state metadata (with the removed snapshot) and compute deletion targets
             final StepListener<Collection<ShardSnapshotMetaDeleteResult>> writeShardMetaDataAndComputeDeletesStep = new StepListener<>();
-            writeUpdatedShardMetaDataAndComputeDeletes(snapshotId, repositoryData, true, writeShardMetaDataAndComputeDeletesStep);
+            writeUpdatedShardMetaDataAndComputeDeletes(snapshotIds, repositoryData, true, writeShardMetaDataAndComputeDeletesStep);
             // Once we have put the new shard-level metadata into place, we can update the repository metadata as follows:
-            // 1. Remove the snapshot from the list of existing snapshots
+            // 1. Remove the snapshots from the list of existing snapshots
             // 2. Update the index shard generations of all updated shard folders
             //
             // Note: If we fail updating any of the individual shard paths, none of them are changed since the newly created
@@ -552,7 +645,7 @@ public abstract class BlobStoreRepository extends AbstractLifecycleComponent imp
                 for (ShardSnapshotMetaDeleteResult newGen : deleteResults) {
                     builder.put(newGen.indexId, newGen.shardId, newGen.newGeneration);
                 }
-                final RepositoryData updatedRepoData = repositoryData.removeSnapshot(snapshotId, builder.build());
+                final RepositoryData updatedRepoData = repositoryData.removeSnapshots(snapshotIds, builder.build());
                 writeIndexGen(updatedRepoData, repositoryStateId, true,
                     ActionListener.wrap(v -> writeUpdatedRepoDataStep.onResponse(updatedRepoData), listener::onFailure));
             }, listener::onFailure);
@@ -562,20 +655,21 @@ public abstract class BlobStoreRepository extends AbstractLifecycleComponent imp
                 final ActionListener<Void> afterCleanupsListener =
                     new GroupedActionListener<>(ActionListener.wrap(() -> listener.onResponse(null)), 2);
                 asyncCleanupUnlinkedRootAndIndicesBlobs(foundIndices, rootBlobs, updatedRepoData, afterCleanupsListener);
-                asyncCleanupUnlinkedShardLevelBlobs(snapshotId, writeShardMetaDataAndComputeDeletesStep.result(), afterCleanupsListener);
+                asyncCleanupUnlinkedShardLevelBlobs(snapshotIds, writeShardMetaDataAndComputeDeletesStep.result(), updatedRepoData,
+                    afterCleanupsListener);
             }, listener::onFailure);
         } else {
-            // Write the new repository data first (with the removed snapshot), using no shard generations
-            final RepositoryData updatedRepoData = repositoryData.removeSnapshot(snapshotId, ShardGenerations.EMPTY);
+            // Write the new repository data first (with the removed snapshots), using no shard generations
+            final RepositoryData updatedRepoData = repositoryData.removeSnapshots(snapshotIds, ShardGenerations.EMPTY);
             writeIndexGen(updatedRepoData, repositoryStateId, false, ActionListener.wrap(v -> {
                 // Run unreferenced blobs cleanup in parallel to shard-level snapshot deletion
                 final ActionListener<Void> afterCleanupsListener =
                     new GroupedActionListener<>(ActionListener.wrap(() -> listener.onResponse(null)), 2);
                 asyncCleanupUnlinkedRootAndIndicesBlobs(foundIndices, rootBlobs, updatedRepoData, afterCleanupsListener);
                 final StepListener<Collection<ShardSnapshotMetaDeleteResult>> writeMetaAndComputeDeletesStep = new StepListener<>();
-                writeUpdatedShardMetaDataAndComputeDeletes(snapshotId, repositoryData, false, writeMetaAndComputeDeletesStep);
+                writeUpdatedShardMetaDataAndComputeDeletes(snapshotIds, repositoryData, false, writeMetaAndComputeDeletesStep);
                 writeMetaAndComputeDeletesStep.whenComplete(deleteResults ->
-                        asyncCleanupUnlinkedShardLevelBlobs(snapshotId, deleteResults, afterCleanupsListener),
+                        asyncCleanupUnlinkedShardLevelBlobs(snapshotIds, deleteResults, updatedRepoData, afterCleanupsListener),
                     afterCleanupsListener::onFailure);
             }, listener::onFailure));
         }
@@ -588,29 +682,50 @@ public abstract class BlobStoreRepository extends AbstractLifecycleComponent imp
             l -> cleanupStaleBlobs(foundIndices, rootBlobs, updatedRepoData, ActionListener.map(l, ignored -> null))));
     }
 
-    private void asyncCleanupUnlinkedShardLevelBlobs(SnapshotId snapshotId, Collection<ShardSnapshotMetaDeleteResult> deleteResults,
-                                                     ActionListener<Void> listener) {
+    private void asyncCleanupUnlinkedShardLevelBlobs(Collection<SnapshotId> snapshotIds,
+                                                     Collection<ShardSnapshotMetaDeleteResult> deleteResults,
+                                                     RepositoryData updatedRepoData, ActionListener<Void> listener) {
         threadPool.executor(ThreadPool.Names.SNAPSHOT).execute(ActionRunnable.wrap(
             listener,
-            l -> {
-                try {
-                    blobContainer().deleteBlobsIgnoringIfNotExists(resolveFilesToDelete(snapshotId, deleteResults));
+            l -> deleteBlobsInBatches(resolveFilesToDelete(snapshotIds, deleteResults), ActionListener.wrap(
+                v -> {
+                    // Only now that the shards dropped their references the content they no longer use can be removed
+                    cleanupUnreferencedContent(updatedRepoData);
                     l.onResponse(null);
-                } catch (Exception e) {
+                },
+                e -> {
                     logger.warn(
-                        () -> new ParameterizedMessage("[{}] Failed to delete some blobs during snapshot delete", snapshotId),
+                        () -> new ParameterizedMessage("{} Failed to delete some blobs during snapshot delete", snapshotIds),
                         e);
-                    throw e;
-                }
-            }));
+                    l.onFailure(e);
+                }))));
     }
 
-    // updates the shard state metadata for shards of a snapshot that is to be deleted. Also computes the files to be cleaned up.
-    private void writeUpdatedShardMetaDataAndComputeDeletes(SnapshotId snapshotId, RepositoryData oldRepositoryData,
+    /**
+     * Deletes the given blobs, given as paths relative to the repository root, in batches of at most {@link #DELETE_BATCH_SIZE} blobs
+     * that run in parallel on the snapshot pool.
+     */
+    private void deleteBlobsInBatches(List<String> blobsToDelete, ActionListener<Void> listener) {
+        if (blobsToDelete.isEmpty()) {
+            listener.onResponse(null);
+            return;
+        }
+        final int batches = (blobsToDelete.size() + DELETE_BATCH_SIZE - 1) / DELETE_BATCH_SIZE;
+        final ActionListener<Void> batchesListener = new GroupedActionListener<>(ActionListener.map(listener, v -> null), batches);
+        final Executor executor = threadPool.executor(ThreadPool.Names.SNAPSHOT);
+        for (int i = 0; i < batches; i++) {
+            final List<String> batch =
+                blobsToDelete.subList(i * DELETE_BATCH_SIZE, Math.min(blobsToDelete.size(), (i + 1) * DELETE_BATCH_SIZE));
+            executor.execute(ActionRunnable.run(batchesListener, () -> blobContainer().deleteBlobsIgnoringIfNotExists(batch)));
+        }
+    }
+
+    // updates the shard state metadata for shards of the snapshots that are to be deleted. Also computes the files to be cleaned up.
+    private void writeUpdatedShardMetaDataAndComputeDeletes(Collection<SnapshotId> snapshotIds, RepositoryData oldRepositoryData,
             boolean useUUIDs, ActionListener<Collection<ShardSnapshotMetaDeleteResult>> onAllShardsCompleted) {
 
         final Executor executor = threadPool.executor(ThreadPool.Names.SNAPSHOT);
-        final List<IndexId> indices = oldRepositoryData.indicesToUpdateAfterRemovingSnapshot(snapshotId);
+        final List<IndexId> indices = oldRepositoryData.indicesToUpdateAfterRemovingSnapshots(snapshotIds);
 
         if (indices.isEmpty()) {
             onAllShardsCompleted.onResponse(Collections.emptyList());
@@ -624,14 +739,26 @@ public abstract class BlobStoreRepository extends AbstractLifecycleComponent imp
 
         for (IndexId indexId : indices) {
             final Set<SnapshotId> survivingSnapshots = oldRepositoryData.getSnapshots(indexId).stream()
-                .filter(id -> id.equals(snapshotId) == false).collect(Collectors.toSet());
+                .filter(id -> snapshotIds.contains(id) == false).collect(Collectors.toSet());
             executor.execute(ActionRunnable.wrap(deleteIndexMetaDataListener, deleteIdxMetaListener -> {
-                final IndexMetaData indexMetaData;
-                try {
-                    indexMetaData = getSnapshotIndexMetaData(snapshotId, indexId);
-                } catch (Exception ex) {
-                    logger.warn(() ->
-                        new ParameterizedMessage("[{}] [{}] failed to read metadata for index", snapshotId, indexId.getName()), ex);
+                // The index may have had a different number of shards in each of the deleted snapshots, so update all shards of the
+                // largest version of it
+                IndexMetaData indexMetaData = null;
+                for (SnapshotId snapshotId : oldRepositoryData.getSnapshots(indexId)) {
+                    if (snapshotIds.contains(snapshotId) == false) {
+                        continue;
+                    }
+                    try {
+                        final IndexMetaData snapshotIndexMetaData = getSnapshotIndexMetaData(snapshotId, indexId);
+                        if (indexMetaData == null || snapshotIndexMetaData.getNumberOfShards() > indexMetaData.getNumberOfShards()) {
+                            indexMetaData = snapshotIndexMetaData;
+                        }
+                    } catch (Exception ex) {
+                        logger.warn(() ->
+                            new ParameterizedMessage("[{}] [{}] failed to read metadata for index", snapshotId, indexId.getName()), ex);
+                    }
+                }
+                if (indexMetaData == null) {
                     // Just invoke the listener without any shard generations to count it down, this index will be cleaned up
                     // by the stale data cleanup in the end.
                     // TODO: Getting here means repository corruption. We should find a way of dealing with this instead of just ignoring
@@ -664,15 +791,15 @@ public abstract class BlobStoreRepository extends AbstractLifecycleComponent imp
                                 newGen = Long.toString(tuple.v2() + 1);
                                 blobStoreIndexShardSnapshots = tuple.v1();
                             }
-                            allShardsListener.onResponse(deleteFromShardSnapshotMeta(survivingSnapshots, indexId, shard, snapshotId,
+                            allShardsListener.onResponse(deleteFromShardSnapshotMeta(survivingSnapshots, indexId, shard, snapshotIds,
                                 shardContainer, blobs, blobStoreIndexShardSnapshots, newGen));
                         }
 
                         @Override
                         public void onFailure(Exception ex) {
                             logger.warn(
-                                () -> new ParameterizedMessage("[{}] failed to delete shard data for shard [{}][{}]",
-                                    snapshotId, indexId.getName(), shard.id()), ex);
+                                () -> new ParameterizedMessage("{} failed to delete shard data for shard [{}][{}]",
+                                    snapshotIds, indexId.getName(), shard.id()), ex);
                             // Just passing null here to count down the listener instead of failing it, the stale data left behind
                             // here will be retried in the next delete or repository cleanup
                             allShardsListener.onResponse(null);
@@ -683,18 +810,23 @@ public abstract class BlobStoreRepository extends AbstractLifecycleComponent imp
         }
     }
 
-    private List<String> resolveFilesToDelete(SnapshotId snapshotId, Collection<ShardSnapshotMetaDeleteResult> deleteResults) {
+    private List<String> resolveFilesToDelete(Collection<SnapshotId> snapshotIds,
+                                              Collection<ShardSnapshotMetaDeleteResult> deleteResults) {
         final String basePath = basePath().buildAsString();
         final int basePathLen = basePath.length();
-        return Stream.concat(
+        final String contentPath = basePath().add("content").buildAsString();
+        return Stream.of(
             deleteResults.stream().flatMap(shardResult -> {
                 final String shardPath =
                     shardContainer(shardResult.indexId, shardResult.shardId).path().buildAsString();
                 return shardResult.blobsToDelete.stream().map(blob -> shardPath + blob);
             }),
-            deleteResults.stream().map(shardResult -> shardResult.indexId).distinct().map(indexId ->
-                indexContainer(indexId).path().buildAsString() + globalMetaDataFormat.blobName(snapshotId.getUUID()))
-        ).map(absolutePath -> {
+            deleteResults.stream().flatMap(shardResult -> shardResult.contentReferencesToDelete.stream()).map(ref -> contentPath + ref),
+            deleteResults.stream().map(shardResult -> shardResult.indexId).distinct().flatMap(indexId -> {
+                final String indexPath = indexContainer(indexId).path().buildAsString();
+                return snapshotIds.stream().map(snapshotId -> indexPath + globalMetaDataFormat.blobName(snapshotId.getUUID()));
+            })
+        ).flatMap(Function.identity()).map(absolutePath -> {
             assert absolutePath.startsWith(basePath);
             return absolutePath.substring(basePathLen);
         }).collect(Collectors.toList());
@@ -753,14 +885,16 @@ public abstract class BlobStoreRepository extends AbstractLifecycleComponent imp
             final Set<String> survivingIndexIds =
                 repositoryData.getIndices().values().stream().map(IndexId::getId).collect(Collectors.toSet());
             final List<String> staleRootBlobs = staleRootBlobs(repositoryData, rootBlobs.keySet());
-            if (survivingIndexIds.equals(foundIndices.keySet()) && staleRootBlobs.isEmpty()) {
+            if (survivingIndexIds.equals(foundIndices.keySet()) && staleRootBlobs.isEmpty() && contentAddressedStore == false) {
                 // Nothing to clean up we return
                 listener.onResponse(new RepositoryCleanupResult(DeleteResult.ZERO));
             } else {
                 // write new index-N blob to ensure concurrent operations will fail
                 writeIndexGen(repositoryData, repositoryStateId, writeShardGens,
                     ActionListener.wrap(v -> cleanupStaleBlobs(foundIndices, rootBlobs, repositoryData,
-                        ActionListener.map(listener, RepositoryCleanupResult::new)), listener::onFailure));
+                        ActionListener.map(listener, deleteResult ->
+                            new RepositoryCleanupResult(deleteResult.add(cleanupUnreferencedContent(repositoryData))))),
+                        listener::onFailure));
             }
         } catch (Exception e) {
             listener.onFailure(e);
@@ -846,6 +980,80 @@ public abstract class BlobStoreRepository extends AbstractLifecycleComponent imp
         return deleteResult;
     }
 
+    /**
+     * Deletes all files from the content addressed store that are not referenced by any shard any more, as well as all references of
+     * indices that are no longer part of the given repository data and references that no snapshot of their shard uses, which failed or
+     * aborted snapshots leave behind. Must not run concurrently with snapshots, which is the case for snapshot deletes and repository
+     * cleanups.
+     */
+    private DeleteResult cleanupUnreferencedContent(RepositoryData repositoryData) {
+        if (contentAddressedStore == false) {
+            return DeleteResult.ZERO;
+        }
+        try {
+            final Map<String, IndexId> survivingIndices =
+                repositoryData.getIndices().values().stream().collect(Collectors.toMap(IndexId::getId, Function.identity()));
+            final BlobContainer contentContainer = contentContainer();
+            final Map<String, BlobMetaData> blobs = contentContainer.listBlobs();
+            // references of the shards of surviving indices, grouped by shard
+            final Map<String, List<String>> referencesByShard = new HashMap<>();
+            final List<String> blobsToDelete = new ArrayList<>();
+            for (String blob : blobs.keySet()) {
+                final int separator = blob.lastIndexOf(CONTENT_REFERENCE_SEPARATOR);
+                if (separator >= 0) {
+                    final String shard = blob.substring(separator + CONTENT_REFERENCE_SEPARATOR.length());
+                    if (survivingIndices.containsKey(shard.substring(0, shard.lastIndexOf('.')))) {
+                        referencesByShard.computeIfAbsent(shard, k -> new ArrayList<>()).add(blob);
+                    } else {
+                        blobsToDelete.add(blob);
+                    }
+                }
+            }
+            final Set<String> referencedContent = new HashSet<>();
+            for (Map.Entry<String, List<String>> shardReferences : referencesByShard.entrySet()) {
+                final String shard = shardReferences.getKey();
+                final IndexId indexId = survivingIndices.get(shard.substring(0, shard.lastIndexOf('.')));
+                final int shardId = Integer.parseInt(shard.substring(shard.lastIndexOf('.') + 1));
+                final Set<String> usedReferences = contentReferences(indexId, shardId,
+                    currentShardSnapshots(repositoryData, indexId, shardId));
+                for (String reference : shardReferences.getValue()) {
+                    if (usedReferences.contains(reference)) {
+                        referencedContent.add(reference.substring(0, reference.lastIndexOf(CONTENT_REFERENCE_SEPARATOR)));
+                    } else {
+                        blobsToDelete.add(reference);
+                    }
+                }
+            }
+            for (String blob : blobs.keySet()) {
+                if (blob.contains(CONTENT_REFERENCE_SEPARATOR) == false && referencedContent.contains(canonicalName(blob)) == false) {
+                    blobsToDelete.add(blob);
+                }
+            }
+            if (blobsToDelete.isEmpty()) {
+                return DeleteResult.ZERO;
+            }
+            logger.debug("[{}] Found unreferenced content blobs {}. Cleaning them up", metadata.name(), blobsToDelete);
+            contentContainer.deleteBlobsIgnoringIfNotExists(blobsToDelete);
+            return new DeleteResult(blobsToDelete.size(), blobsToDelete.stream().mapToLong(name -> blobs.get(name).length()).sum());
+        } catch (IOException e) {
+            logger.warn(() -> new ParameterizedMessage(
+                "[{}] Failed to clean up unreferenced blobs of the content addressed store", metadata.name()), e);
+            return DeleteResult.ZERO;
+        }
+    }
+
+    /**
+     * Loads the snapshots of the given shard that the given repository data references.
+     */
+    private BlobStoreIndexShardSnapshots currentShardSnapshots(RepositoryData repositoryData, IndexId indexId,
+                                                               int shardId) throws IOException {
+        final BlobContainer shardContainer = shardContainer(indexId, shardId);
+        final String generation = repositoryData.shardGenerations().getShardGen(indexId, shardId);
+        final Set<String> blobs = generation == null ? shardContainer.listBlobsByPrefix(INDEX_FILE_PREFIX).keySet()
+            : Collections.singleton(INDEX_FILE_PREFIX + generation);
+        return buildBlobStoreIndexShardSnapshots(blobs, shardContainer, generation).v1();
+    }
+
     @Override
     public void finalizeSnapshot(final SnapshotId snapshotId,
                                  final ShardGenerations shardGenerations,
@@ -971,6 +1179,63 @@ public abstract class BlobStoreRepository extends AbstractLifecycleComponent imp
         return blobStore().blobContainer(indicesPath().add(indexId.getId()).add(Integer.toString(shardId)));
     }
 
+    private BlobContainer contentContainer() {
+        return blobStore().blobContainer(basePath().add("content"));
+    }
+
+    /**
+     * Returns the container that holds the data of the given file, which is either the content addressed store or the directory of the
+     * shard the file was snapshotted from.
+     */
+    private BlobContainer fileContainer(BlobContainer shardContainer, BlobStoreIndexShardSnapshot.FileInfo fileInfo) {
+        return fileInfo.name().startsWith(CONTENT_BLOB_PREFIX) ? contentContainer() : shardContainer;
+    }
+
+    /**
+     * Returns the name of the given file in the content addressed store. Files that only share their name, length and checksum, like
+     * files of different segments, are told apart by the Lucene index header of the file, which holds the unique id of the segment or
+     * commit that it belongs to and which byte-for-byte copies of the file share. Files without an index header are told apart by a
+     * digest of their whole content.
+     */
+    private static String contentBlobName(Store store, StoreFileMetaData md) throws IOException {
+        final MessageDigest digest = MessageDigests.sha256();
+        final BytesRef hash = md.hash();
+        digest.update(hash.bytes, hash.offset, hash.length);
+        try (IndexInput indexInput = store.directory().openInput(md.name(), IOContext.READONCE)) {
+            try {
+                digest.update(CodecUtil.readIndexHeader(indexInput));
+            } catch (CorruptIndexException | EOFException e) {
+                indexInput.seek(0L);
+                final byte[] buffer = new byte[BUFFER_SIZE];
+                for (long remaining = indexInput.length(); remaining > 0; ) {
+                    final int length = (int) Math.min(buffer.length, remaining);
+                    indexInput.readBytes(buffer, 0, length);
+                    digest.update(buffer, 0, length);
+                    remaining -= length;
+                }
+            }
+        }
+        return CONTENT_BLOB_PREFIX + md.name() + "-" + md.length() + "-" + md.checksum() + "-"
+            + MessageDigests.toHexString(digest.digest());
+    }
+
+    private static String contentReferenceName(String contentBlobName, IndexId indexId, int shardId) {
+        return contentBlobName + CONTENT_REFERENCE_SEPARATOR + indexId.getId() + "." + shardId;
+    }
+
+    // Names of the references of the given shard to the content addressed files that are used by the given snapshots
+    private static Set<String> contentReferences(IndexId indexId, int shardId, Iterable<SnapshotFiles> snapshots) {
+        final Set<String> references = new HashSet<>();
+        for (SnapshotFiles snapshotFiles : snapshots) {
+            for (BlobStoreIndexShardSnapshot.FileInfo fileInfo : snapshotFiles.indexFiles()) {
+                if (fileInfo.name().startsWith(CONTENT_BLOB_PREFIX)) {
+                    references.add(contentReferenceName(fileInfo.name(), indexId, shardId));
+                }
+            }
+        }
+        return references;
+    }
+
     /**
      * Configures RateLimiter based on repository and global settings
      *
@@ -1042,6 +1307,9 @@ public abstract class BlobStoreRepository extends AbstractLifecycleComponent imp
     // and concurrent modifications.
     private final AtomicLong latestKnownRepoGen = new AtomicLong(RepositoryData.UNKNOWN_REPO_GEN);
 
+    // The most recently loaded or written RepositoryData, if caching is enabled. Only used if its generation is the one to load.
+    private final AtomicReference<RepositoryData> latestKnownRepositoryData = new AtomicReference<>();
+
     @Override
     public void getRepositoryData(ActionListener<RepositoryData> listener) {
         if (latestKnownRepoGen.get() == RepositoryData.CORRUPTED_REPO_GEN) {
@@ -1146,15 +1414,21 @@ public abstract class BlobStoreRepository extends AbstractLifecycleComponent imp
         if (indexGen == RepositoryData.EMPTY_REPO_GEN) {
             return RepositoryData.EMPTY;
         }
+        // With best effort consistency the generation may be reused by concurrent external modifications, so we always read it.
+        if (cacheRepositoryData && bestEffortConsistency == false) {
+            final RepositoryData cached = latestKnownRepositoryData.get();
+            if (cached != null && cached.getGenId() == indexGen) {
+                return cached;
+            }
+        }
         try {
             final String snapshotsIndexBlobName = INDEX_FILE_PREFIX + Long.toString(indexGen);
-
-            // EMPTY is safe here because RepositoryData#fromXContent calls namedObject
-            try (InputStream blob = blobContainer().readBlob(snapshotsIndexBlobName);
-                 XContentParser parser = XContentType.JSON.xContent().createParser(NamedXContentRegistry.EMPTY,
-                     LoggingDeprecationHandler.INSTANCE, blob)) {
-                return RepositoryData.snapshotsFromXContent(parser, indexGen);
+            final RepositoryData loaded;
+            try (InputStream blob = blobContainer().readBlob(snapshotsIndexBlobName)) {
+                loaded = readRepositoryData(blob, indexGen);
             }
+            cacheRepositoryData(loaded);
+            return loaded;
         } catch (IOException ioe) {
             if (bestEffortConsistency) {
                 // If we fail to load the generation we tracked in latestKnownRepoGen we reset it.
@@ -1168,6 +1442,50 @@ public abstract class BlobStoreRepository extends AbstractLifecycleComponent imp
         }
     }
 
+    // Enough leading bytes of an index-N blob to detect both the compression header and the x-content type
+    private static final int REPOSITORY_DATA_HEADER_BYTES = 32;
+
+    private void cacheRepositoryData(RepositoryData repositoryData) {
+        if (cacheRepositoryData) {
+            latestKnownRepositoryData.updateAndGet(
+                known -> known != null && known.getGenId() > repositoryData.getGenId() ? known : repositoryData);
+        }
+    }
+
+    /**
+     * Parses the {@link RepositoryData} of the given generation from the contents of its {@code index-N} blob, which is either JSON or,
+     * if written with {@link #COMPACT_REPOSITORY_DATA} enabled, compressed SMILE.
+     */
+    public static RepositoryData readRepositoryData(InputStream blob, long generation) throws IOException {
+        InputStream content = blob.markSupported() ? blob : new BufferedInputStream(blob);
+        final byte[] header = new byte[REPOSITORY_DATA_HEADER_BYTES];
+        content.mark(header.length);
+        final int headerLength = Streams.readFully(content, header);
+        content.reset();
+        if (CompressorFactory.COMPRESSOR.isCompressed(new BytesArray(header, 0, headerLength))) {
+            content = new BufferedInputStream(CompressorFactory.COMPRESSOR.streamInput(new InputStreamStreamInput(content)));
+        }
+        final XContentType xContentType = XContentFactory.xContentType(content);
+        // EMPTY is safe here because RepositoryData#fromXContent calls namedObject
+        try (XContentParser parser = (xContentType == null ? XContentType.JSON : xContentType).xContent()
+            .createParser(NamedXContentRegistry.EMPTY, LoggingDeprecationHandler.INSTANCE, content)) {
+            return RepositoryData.snapshotsFromXContent(parser, generation);
+        }
+    }
+
+    private BytesReference serializeRepositoryData(RepositoryData repositoryData, boolean writeShardGens) throws IOException {
+        if (compactRepositoryData == false) {
+            return BytesReference.bytes(repositoryData.snapshotsToXContent(XContentFactory.jsonBuilder(), writeShardGens));
+        }
+        try (BytesStreamOutput out = new BytesStreamOutput()) {
+            try (XContentBuilder builder = XContentFactory.contentBuilder(XContentType.SMILE,
+                CompressorFactory.COMPRESSOR.streamOutput(out))) {
+                repositoryData.snapshotsToXContent(builder, writeShardGens);
+            }
+            return out.bytes();
+        }
+    }
+
     private static String testBlobPrefix(String seed) {
         return TESTS_FILE + seed;
     }
@@ -1262,8 +1580,7 @@ public abstract class BlobStoreRepository extends AbstractLifecycleComponent imp
             // write the index file
             final String indexBlob = INDEX_FILE_PREFIX + Long.toString(newGen);
             logger.debug("Repository [{}] writing new index generational blob [{}]", metadata.name(), indexBlob);
-            writeAtomic(indexBlob,
-                BytesReference.bytes(repositoryData.snapshotsToXContent(XContentFactory.jsonBuilder(), writeShardGens)), true);
+            writeAtomic(indexBlob, serializeRepositoryData(repositoryData, writeShardGens), true);
             // write the current generation to the index-latest file
             final BytesReference genBytes;
             try (BytesStreamOutput bStream = new BytesStreamOutput()) {
@@ -1303,6 +1620,10 @@ public abstract class BlobStoreRepository extends AbstractLifecycleComponent imp
 
                     @Override
                     public void clusterStateProcessed(String source, ClusterState oldState, ClusterState newState) {
+                        if (writeShardGens) {
+                            // without shard generations the blob does not hold all of repositoryData, so it has to be read back
+                            cacheRepositoryData(repositoryData.withGenId(newGen));
+                        }
                         threadPool.executor(ThreadPool.Names.SNAPSHOT).execute(ActionRunnable.run(l, () -> {
                             // Delete all now outdated index files up to 1000 blobs back from the new generation.
                             // If there are more than 1000 dangling index-N cleanup functionality on repo delete will take care of them.
@@ -1476,8 +1797,21 @@ public abstract class BlobStoreRepository extends AbstractLifecycleComponent imp
                     indexIncrementalFileCount++;
                     indexIncrementalSize += md.length();
                     // create a new FileInfo
+                    final String blobName;
+                    if (contentAddressedStore) {
+                        store.incRef();
+                        try {
+                            blobName = contentBlobName(store, md);
+                        } catch (IOException e) {
+                            throw new IndexShardSnapshotFailedException(shardId, "Failed to read file [" + fileName + "]", e);
+                        } finally {
+                            store.decRef();
+                        }
+                    } else {
+                        blobName = DATA_BLOB_PREFIX + UUIDs.randomBase64UUID();
+                    }
                     BlobStoreIndexShardSnapshot.FileInfo snapshotFileInfo =
-                        new BlobStoreIndexShardSnapshot.FileInfo(DATA_BLOB_PREFIX + UUIDs.randomBase64UUID(), md, chunkSize());
+                        new BlobStoreIndexShardSnapshot.FileInfo(blobName, md, chunkSize());
                     indexCommitPointFiles.add(snapshotFileInfo);
                     filesToSnapshot.add(snapshotFileInfo);
                 } else {
@@ -1595,63 +1929,140 @@ public abstract class BlobStoreRepository extends AbstractLifecycleComponent imp
                                             ActionListener<Void> listener) {
                     if (filesToRecover.isEmpty()) {
                         listener.onResponse(null);
-                    } else {
-                        // Start as many workers as fit into the snapshot pool at once at the most
-                        final int workers =
-                            Math.min(threadPool.info(ThreadPool.Names.SNAPSHOT).getMax(), snapshotFiles.indexFiles().size());
-                        final BlockingQueue<BlobStoreIndexShardSnapshot.FileInfo> files = new LinkedBlockingQueue<>(filesToRecover);
-                        final ActionListener<Void> allFilesListener =
-                            fileQueueListener(files, workers, ActionListener.map(listener, v -> null));
-                        // restore the files from the snapshot to the Lucene store
-                        for (int i = 0; i < workers; ++i) {
-                            executor.execute(ActionRunnable.run(allFilesListener, () -> {
-                                store.incRef();
-                                try {
-                                    BlobStoreIndexShardSnapshot.FileInfo fileToRecover;
-                                    while ((fileToRecover = files.poll(0L, TimeUnit.MILLISECONDS)) != null) {
-                                        restoreFile(fileToRecover, store);
-                                    }
-                                } finally {
-                                    store.decRef();
+                        return;
+                    }
+                    store.incRef();
+                    final RecoveryState.Index index = recoveryState.getIndex();
+                    // a restore always recovers a primary
+                    final RecoveryBandwidthScheduler.Throttle throttle =
+                        recoverySettings.bandwidthScheduler().register(true, () -> index.totalBytes() - index.reusedBytes());
+                    final AtomicBoolean failed = new AtomicBoolean();
+                    final ActionListener<Void> filesListener = ActionListener.delegateResponse(
+                        new GroupedActionListener<>(ActionListener.runAfter(ActionListener.map(listener, v -> null), () -> {
+                            throttle.close();
+                            store.decRef();
+                        }), filesToRecover.size()),
+                        (l, e) -> {
+                            failed.set(true); // Stop downloading the remaining files and parts if we run into any exception
+                            l.onFailure(e);
+                        });
+                    // Files made up of a single part are written through a single stream while the parts of larger files are downloaded
+                    // concurrently and written at their position in the target file, if the store's directory allows for that
+                    for (BlobStoreIndexShardSnapshot.FileInfo fileInfo : filesToRecover) {
+                        final int parts = Math.toIntExact(fileInfo.numberOfParts());
+                        final Store.PositionalOutput output;
+                        try {
+                            output = parts > 1 ? store.createPositionalOutput(fileInfo.physicalName()) : null;
+                        } catch (IOException e) {
+                            filesListener.onFailure(e);
+                            continue;
+                        }
+                        if (output == null) {
+                            scheduleRestoreDownload(ActionRunnable.run(filesListener, () -> {
+                                if (failed.get() == false) {
+                                    restoreFile(fileInfo, store, throttle);
                                 }
                             }));
+                        } else {
+                            final IndexInput[] partInputs = new IndexInput[parts];
+                            final GroupedActionListener<Void> allPartsListener = new GroupedActionListener<>(ActionListener.wrap(
+                                v -> ActionListener.completeWith(filesListener, () -> {
+                                    if (failed.get()) {
+                                        discardParts(fileInfo, store, output);
+                                    } else {
+                                        restoreFromParts(fileInfo, store, output, partInputs);
+                                    }
+                                    return null;
+                                }),
+                                e -> {
+                                    discardParts(fileInfo, store, output);
+                                    filesListener.onFailure(e);
+                                }), parts);
+                            for (int i = 0; i < parts; i++) {
+                                final int part = i;
+                                scheduleRestoreDownload(ActionRunnable.run(allPartsListener, () -> {
+                                    if (failed.get() == false) {
+                                        partInputs[part] = restorePart(fileInfo, part, output, throttle);
+                                    }
+                                }));
+                            }
                         }
                     }
                 }
 
-                private void restoreFile(BlobStoreIndexShardSnapshot.FileInfo fileInfo, Store store) throws IOException {
-                    boolean success = false;
-
-                    try (InputStream stream = maybeRateLimit(new SlicedInputStream(fileInfo.numberOfParts()) {
-                                                                 @Override
-                                                                 protected InputStream openSlice(long slice) throws IOException {
-                                                                     return container.readBlob(fileInfo.partName(slice));
-                                                                 }
-                                                             },
-                        restoreRateLimiter, restoreRateLimitingTimeInNanos)) {
-                        try (IndexOutput indexOutput =
-                                 store.createVerifyingOutput(fileInfo.physicalName(), fileInfo.metadata(), IOContext.DEFAULT)) {
-                            final byte[] buffer = new byte[BUFFER_SIZE];
-                            int length;
-                            while ((length = stream.read(buffer)) > 0) {
-                                indexOutput.writeBytes(buffer, 0, length);
-                                recoveryState.getIndex().addRecoveredBytesToFile(fileInfo.physicalName(), length);
-                            }
-                            Store.verify(indexOutput);
-                            indexOutput.close();
-                            store.directory().sync(Collections.singleton(fileInfo.physicalName()));
-                            success = true;
-                        } catch (CorruptIndexException | IndexFormatTooOldException | IndexFormatTooNewException ex) {
-                            try {
-                                store.markStoreCorrupted(ex);
-                            } catch (IOException e) {
-                                logger.warn("store cannot be marked as corrupted", e);
-                            }
-                            throw ex;
-                        } finally {
-                            if (success == false) {
-                                store.deleteQuiet(fileInfo.physicalName());
+                private void restoreFile(BlobStoreIndexShardSnapshot.FileInfo fileInfo, Store store,
+                                         RecoveryBandwidthScheduler.Throttle throttle) throws IOException {
+                    try (InputStream stream = readFile(container, fileInfo, throttle)) {
+                        writeVerifiedFile(fileInfo, store, () -> {
+                            try (IndexOutput indexOutput =
+                                     store.createVerifyingOutput(fileInfo.physicalName(), fileInfo.metadata(), IOContext.DEFAULT)) {
+                                final byte[] buffer = new byte[BUFFER_SIZE];
+                                int length;
+                                while ((length = stream.read(buffer)) > 0) {
+                                    indexOutput.writeBytes(buffer, 0, length);
+                                    recoveryState.getIndex().addRecoveredBytesToFile(fileInfo.physicalName(), length);
+                                }
+                                Store.verify(indexOutput);
                             }
+                        });
+                    }
+                }
+
+                /**
+                 * Downloads a part of a file and writes it at its position in the file. Returns the input that the part was read
+                 * through, which holds the checksum of the part.
+                 */
+                private IndexInput restorePart(BlobStoreIndexShardSnapshot.FileInfo fileInfo, int part, Store.PositionalOutput output,
+                                               RecoveryBandwidthScheduler.Throttle throttle) throws IOException {
+                    final long offset = part * fileInfo.partSize().getBytes();
+                    final long length = fileInfo.partBytes(part);
+                    final InputStream stream =
+                        maybeRateLimitRestore(fileContainer(container, fileInfo).readBlob(fileInfo.partName(part)), throttle);
+                    try (IndexInput partInput = Store.verifyingPartInput(
+                        new StreamIndexInput(fileInfo.partName(part), stream, length), offset, fileInfo.length())) {
+                        final byte[] buffer = new byte[BUFFER_SIZE];
+                        long position = offset;
+                        while (partInput.getFilePointer() < length) {
+                            final int read = Math.toIntExact(Math.min(buffer.length, length - partInput.getFilePointer()));
+                            partInput.readBytes(buffer, 0, read);
+                            output.writeBytes(buffer, 0, read, position);
+                            position += read;
+                            recoveryState.getIndex().addRecoveredBytesToFile(fileInfo.physicalName(), read);
+                        }
+                        return partInput;
+                    }
+                }
+
+                private void restoreFromParts(BlobStoreIndexShardSnapshot.FileInfo fileInfo, Store store, Store.PositionalOutput output,
+                                              IndexInput[] partInputs) throws IOException {
+                    writeVerifiedFile(fileInfo, store, () -> {
+                        output.close();
+                        Store.verifyParts(fileInfo.metadata(), Arrays.asList(partInputs));
+                    });
+                }
+
+                private void discardParts(BlobStoreIndexShardSnapshot.FileInfo fileInfo, Store store, Store.PositionalOutput output) {
+                    IOUtils.closeWhileHandlingException(output);
+                    store.deleteQuiet(fileInfo.physicalName());
+                }
+
+                private void writeVerifiedFile(BlobStoreIndexShardSnapshot.FileInfo fileInfo, Store store,
+                                               CheckedRunnable<IOException> writer) throws IOException {
+                    boolean success = false;
+                    try {
+                        writer.run();
+                        store.directory().sync(Collections.singleton(fileInfo.physicalName()));
+                        success = true;
+                    } catch (CorruptIndexException | IndexFormatTooOldException | IndexFormatTooNewException ex) {
+                        try {
+                            store.markStoreCorrupted(ex);
+                        } catch (IOException e) {
+                            logger.warn("store cannot be marked as corrupted", e);
+                        }
+                        throw ex;
+                    } finally {
+                        if (success == false) {
+                            store.deleteQuiet(fileInfo.physicalName());
                         }
                     }
                 }
@@ -1659,6 +2070,77 @@ public abstract class BlobStoreRepository extends AbstractLifecycleComponent imp
         }));
     }
 
+    /**
+     * Loads the files of all snapshots of the given shard that are tracked by the given shard generation.
+     */
+    public BlobStoreIndexShardSnapshots loadShardSnapshots(IndexId indexId, int shardId, String shardGeneration) throws IOException {
+        if (ShardGenerations.NEW_SHARD_GEN.equals(shardGeneration)) {
+            return BlobStoreIndexShardSnapshots.EMPTY;
+        }
+        return indexShardSnapshotsFormat.read(shardContainer(indexId, shardId), shardGeneration);
+    }
+
+    /**
+     * Opens a stream over the contents of the given file of a snapshot of the given shard. Reads are throttled by the same rate limiter
+     * as restores from this repository and by the given share of the node's recovery bandwidth.
+     */
+    public InputStream readShardSnapshotFile(IndexId indexId, int shardId, BlobStoreIndexShardSnapshot.FileInfo fileInfo,
+                                             RecoveryBandwidthScheduler.Throttle throttle) {
+        return readFile(shardContainer(indexId, shardId), fileInfo, throttle);
+    }
+
+    private InputStream readFile(BlobContainer shardContainer, BlobStoreIndexShardSnapshot.FileInfo fileInfo,
+                                 RecoveryBandwidthScheduler.Throttle throttle) {
+        final BlobContainer container = fileContainer(shardContainer, fileInfo);
+        return maybeRateLimitRestore(new SlicedInputStream(fileInfo.numberOfParts()) {
+            @Override
+            protected InputStream openSlice(long slice) throws IOException {
+                return container.readBlob(fileInfo.partName(slice));
+            }
+        }, throttle);
+    }
+
+    /**
+     * Throttles reads from this repository by both the repository's {@code max_restore_bytes_per_sec} and the given share of the
+     * bandwidth that {@link RecoverySettings#INDICES_RECOVERY_MAX_BYTES_PER_SEC_SETTING} allows for all recoveries of this node.
+     */
+    private InputStream maybeRateLimitRestore(InputStream stream, RecoveryBandwidthScheduler.Throttle throttle) {
+        return new FilterInputStream(maybeRateLimit(stream, restoreRateLimiter, restoreRateLimitingTimeInNanos)) {
+            @Override
+            public int read() throws IOException {
+                final int b = super.read();
+                if (b >= 0) {
+                    maybePause(1);
+                }
+                return b;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                final int read = super.read(b, off, len);
+                if (read > 0) {
+                    maybePause(read);
+                }
+                return read;
+            }
+
+            private void maybePause(int bytes) throws IOException {
+                final long pauseNanos = throttle.maybePause(bytes);
+                if (pauseNanos > 0) {
+                    restoreRateLimitingTimeInNanos.inc(pauseNanos);
+                }
+            }
+        };
+    }
+
+    /**
+     * Queues a download for a shard restore on the generic pool, subject to the node-wide limit of
+     * {@link RecoverySettings#INDICES_RECOVERY_MAX_CONCURRENT_RESTORE_DOWNLOADS_SETTING} concurrent restore downloads.
+     */
+    private void scheduleRestoreDownload(AbstractRunnable download) {
+        recoverySettings.restoreDownloadScheduler().schedule(download, threadPool.generic());
+    }
+
     private static ActionListener<Void> fileQueueListener(BlockingQueue<BlobStoreIndexShardSnapshot.FileInfo> files, int workers,
                                                           ActionListener<Collection<Void>> listener) {
         return ActionListener.delegateResponse(new GroupedActionListener<>(listener, workers), (l, e) -> {
@@ -1671,6 +2153,73 @@ public abstract class BlobStoreRepository extends AbstractLifecycleComponent imp
         return rateLimiter == null ? stream : new RateLimitingInputStream(stream, rateLimiter, metric::inc);
     }
 
+    /**
+     * An input over the given number of bytes of a stream, which can only be read sequentially.
+     */
+    private static final class StreamIndexInput extends IndexInput {
+
+        private final InputStream stream;
+        private final long length;
+        private long position;
+
+        StreamIndexInput(String resourceDescription, InputStream stream, long length) {
+            super(resourceDescription);
+            this.stream = stream;
+            this.length = length;
+        }
+
+        @Override
+        public byte readByte() throws IOException {
+            if (position >= length) {
+                throw new EOFException("read past EOF: " + this);
+            }
+            final int b = stream.read();
+            if (b < 0) {
+                throw new EOFException("unexpected end of stream: " + this);
+            }
+            position++;
+            return (byte) b;
+        }
+
+        @Override
+        public void readBytes(byte[] b, int offset, int len) throws IOException {
+            if (position + len > length) {
+                throw new EOFException("read past EOF: " + this);
+            }
+            if (Streams.readFully(stream, b, offset, len) != len) {
+                throw new EOFException("unexpected end of stream: " + this);
+            }
+            position += len;
+        }
+
+        @Override
+        public long getFilePointer() {
+            return position;
+        }
+
+        @Override
+        public void seek(long pos) {
+            if (pos != position) {
+                throw new UnsupportedOperationException("cannot seek in a stream");
+            }
+        }
+
+        @Override
+        public long length() {
+            return length;
+        }
+
+        @Override
+        public IndexInput slice(String sliceDescription, long offset, long length) {
+            throw new UnsupportedOperationException("cannot slice a stream");
+        }
+
+        @Override
+        public void close() throws IOException {
+            stream.close();
+        }
+    }
+
     @Override
     public IndexShardSnapshotStatus getShardSnapshotStatus(SnapshotId snapshotId, IndexId indexId, ShardId shardId) {
         BlobStoreIndexShardSnapshot snapshot = loadShardSnapshot(shardContainer(indexId, shardId), snapshotId);
@@ -1729,7 +2278,7 @@ public abstract class BlobStoreRepository extends AbstractLifecycleComponent imp
      * Delete snapshot from shard level metadata.
      */
     private ShardSnapshotMetaDeleteResult deleteFromShardSnapshotMeta(Set<SnapshotId> survivingSnapshots, IndexId indexId,
-                                                                      ShardId snapshotShardId, SnapshotId snapshotId,
+                                                                      ShardId snapshotShardId, Collection<SnapshotId> snapshotIds,
                                                                       BlobContainer shardContainer, Set<String> blobs,
                                                                       BlobStoreIndexShardSnapshots snapshots, String indexGeneration) {
         // Build a list of snapshots that should be preserved
@@ -1740,19 +2289,23 @@ public abstract class BlobStoreRepository extends AbstractLifecycleComponent imp
                 newSnapshotsList.add(point);
             }
         }
+        // References of this shard to content addressed files that none of the surviving snapshots use any more
+        final Set<String> unusedContentReferences = contentReferences(indexId, snapshotShardId.id(), snapshots);
+        unusedContentReferences.removeAll(contentReferences(indexId, snapshotShardId.id(), newSnapshotsList));
         try {
             if (newSnapshotsList.isEmpty()) {
-                return new ShardSnapshotMetaDeleteResult(indexId, snapshotShardId.id(), ShardGenerations.DELETED_SHARD_GEN, blobs);
+                return new ShardSnapshotMetaDeleteResult(indexId, snapshotShardId.id(), ShardGenerations.DELETED_SHARD_GEN, blobs,
+                    unusedContentReferences);
             } else {
                 final BlobStoreIndexShardSnapshots updatedSnapshots = new BlobStoreIndexShardSnapshots(newSnapshotsList);
                 writeShardIndexBlob(shardContainer, indexGeneration, updatedSnapshots);
                 final Set<String> survivingSnapshotUUIDs = survivingSnapshots.stream().map(SnapshotId::getUUID).collect(Collectors.toSet());
                 return new ShardSnapshotMetaDeleteResult(indexId, snapshotShardId.id(), indexGeneration,
-                    unusedBlobs(blobs, survivingSnapshotUUIDs, updatedSnapshots));
+                    unusedBlobs(blobs, survivingSnapshotUUIDs, updatedSnapshots), unusedContentReferences);
             }
         } catch (IOException e) {
             throw new IndexShardSnapshotFailedException(snapshotShardId,
-                "Failed to finalize snapshot deletion [" + snapshotId + "] with shard index ["
+                "Failed to finalize snapshot deletion " + snapshotIds + " with shard index ["
                     + indexShardSnapshotsFormat.blobName(indexGeneration) + "]", e);
         }
     }
@@ -1850,46 +2403,152 @@ public abstract class BlobStoreRepository extends AbstractLifecycleComponent imp
      */
     private void snapshotFile(BlobStoreIndexShardSnapshot.FileInfo fileInfo, IndexId indexId, ShardId shardId, SnapshotId snapshotId,
                               IndexShardSnapshotStatus snapshotStatus, Store store) throws IOException {
-        final BlobContainer shardContainer = shardContainer(indexId, shardId);
+        final boolean contentAddressed = fileInfo.name().startsWith(CONTENT_BLOB_PREFIX);
+        final BlobContainer container = contentAddressed ? contentContainer() : shardContainer(indexId, shardId);
+        if (contentAddressed) {
+            // Reference the file before uploading it so that the content of a snapshot that fails half way is never left without a
+            // reference, the references that no snapshot uses are removed by the next delete or cleanup. Cleanups never run concurrently
+            // with snapshots, so they can not remove the content that this shard reuses or uploads.
+            container.writeBlob(contentReferenceName(fileInfo.name(), indexId, shardId.id()),
+                new ByteArrayInputStream(BytesRef.EMPTY_BYTES), 0, false);
+            if (isFullyUploaded(fileInfo, container.listBlobsByPrefix(fileInfo.name()))) {
+                // Parts are written atomically so the file was fully uploaded already, by this or another shard
+                logger.trace("[{}] [{}] Reusing [{}] from the content addressed store", shardId, snapshotId, fileInfo.name());
+                snapshotStatus.addProcessedFile(fileInfo.length());
+                return;
+            }
+        }
         final String file = fileInfo.physicalName();
+        // bytes of this file that were already reported as processed, a part that is read again after a retry is counted twice until
+        // the file completes
+        final AtomicLong processedBytes = new AtomicLong();
+        if (concurrentPartWrites > 1 && fileInfo.partBytes(0) >= multipartWriteThreshold.getBytes()
+            && container.supportsMultipartWrites()) {
+            try {
+                snapshotFileInParts(fileInfo, container, contentAddressed, shardId, snapshotId, snapshotStatus, store, processedBytes);
+                snapshotStatus.addProcessedFile(fileInfo.length() - processedBytes.get());
+            } catch (Exception t) {
+                failStoreIfCorrupted(store, t);
+                snapshotStatus.addProcessedFile(-processedBytes.get());
+                throw t;
+            }
+            return;
+        }
         try (IndexInput indexInput = store.openVerifyingInput(file, IOContext.READONCE, fileInfo.metadata())) {
             for (int i = 0; i < fileInfo.numberOfParts(); i++) {
                 final long partBytes = fileInfo.partBytes(i);
-
-                // Make reads abortable by mutating the snapshotStatus object
-                final InputStream inputStream = new FilterInputStream(maybeRateLimit(
-                    new InputStreamIndexInput(indexInput, partBytes), snapshotRateLimiter, snapshotRateLimitingTimeInNanos)) {
-                    @Override
-                    public int read() throws IOException {
-                        checkAborted();
-                        return super.read();
-                    }
-
-                    @Override
-                    public int read(byte[] b, int off, int len) throws IOException {
-                        checkAborted();
-                        return super.read(b, off, len);
-                    }
-
-                    private void checkAborted() {
-                        if (snapshotStatus.isAborted()) {
-                            logger.debug("[{}] [{}] Aborted on the file [{}], exiting", shardId,
-                                snapshotId, fileInfo.physicalName());
-                            throw new IndexShardSnapshotFailedException(shardId, "Aborted");
-                        }
-                    }
-                };
-                shardContainer.writeBlob(fileInfo.partName(i), inputStream, partBytes, true);
+                final InputStream inputStream = snapshotInputStream(new InputStreamIndexInput(indexInput, partBytes), fileInfo,
+                    shardId, snapshotId, snapshotStatus, processedBytes);
+                if (contentAddressed) {
+                    // Other shards might upload the same content concurrently or read an existing part of it
+                    container.writeBlobAtomic(fileInfo.partName(i), inputStream, partBytes, false);
+                } else {
+                    container.writeBlob(fileInfo.partName(i), inputStream, partBytes, true);
+                }
             }
             Store.verify(indexInput);
-            snapshotStatus.addProcessedFile(fileInfo.length());
+            snapshotStatus.addProcessedFile(fileInfo.length() - processedBytes.get());
         } catch (Exception t) {
             failStoreIfCorrupted(store, t);
-            snapshotStatus.addProcessedFile(0);
+            snapshotStatus.addProcessedFile(-processedBytes.get());
             throw t;
         }
     }
 
+    // Whether all parts of the given file exist with their expected length
+    private static boolean isFullyUploaded(BlobStoreIndexShardSnapshot.FileInfo fileInfo, Map<String, BlobMetaData> blobs) {
+        for (int i = 0; i < fileInfo.numberOfParts(); i++) {
+            final BlobMetaData part = blobs.get(fileInfo.partName(i));
+            if (part == null || part.length() != fileInfo.partBytes(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Uploads each part of the file as a multipart blob whose parts are written concurrently by this thread and by up to
+     * {@link #CONCURRENT_PART_WRITES} - 1 helpers on the snapshot thread pool, see {@link ParallelTaskRunner}. Each part computes the
+     * checksum of the bytes it reads, which are combined to verify the file once all parts were uploaded.
+     */
+    private void snapshotFileInParts(BlobStoreIndexShardSnapshot.FileInfo fileInfo, BlobContainer container, boolean contentAddressed,
+                                     ShardId shardId, SnapshotId snapshotId, IndexShardSnapshotStatus snapshotStatus, Store store,
+                                     AtomicLong processedBytes) throws IOException {
+        final Executor executor = threadPool.executor(ThreadPool.Names.SNAPSHOT);
+        final List<IndexInput> verifyingParts = new ArrayList<>();
+        try (IndexInput indexInput = store.directory().openInput(fileInfo.physicalName(), IOContext.READONCE)) {
+            long offset = 0L;
+            for (int i = 0; i < fileInfo.numberOfParts(); i++) {
+                final long partBytes = fileInfo.partBytes(i);
+                // Other shards might upload the same content concurrently, multipart blobs only become visible once completed
+                try (MultipartBlobWrite write = container.startMultipartWrite(fileInfo.partName(i), partBytes, concurrentPartWrites,
+                    contentAddressed == false)) {
+                    final long chunkOffset = offset;
+                    final IndexInput[] writtenParts = new IndexInput[write.numberOfParts()];
+                    try {
+                        ParallelTaskRunner.run(write.numberOfParts(), concurrentPartWrites, executor, part -> {
+                            final long length = write.partBytes(part);
+                            final IndexInput verifyingPart =
+                                Store.openVerifyingPartInput(indexInput, chunkOffset + write.partOffset(part), length);
+                            writtenParts[part] = verifyingPart;
+                            write.writePart(part, snapshotInputStream(new InputStreamIndexInput(verifyingPart, length), fileInfo,
+                                shardId, snapshotId, snapshotStatus, processedBytes));
+                        });
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new IndexShardSnapshotFailedException(shardId, "Interrupted while uploading [" + fileInfo.name() + "]");
+                    }
+                    write.complete();
+                    verifyingParts.addAll(Arrays.asList(writtenParts));
+                }
+                offset += partBytes;
+            }
+            Store.verifyParts(fileInfo.metadata(), verifyingParts);
+        }
+    }
+
+    /**
+     * Wraps the given stream of a file's content so that reads are rate limited, abortable by mutating the snapshotStatus object and
+     * counted as processed.
+     */
+    private InputStream snapshotInputStream(InputStream stream, BlobStoreIndexShardSnapshot.FileInfo fileInfo, ShardId shardId,
+                                            SnapshotId snapshotId, IndexShardSnapshotStatus snapshotStatus, AtomicLong processedBytes) {
+        return new FilterInputStream(maybeRateLimit(stream, snapshotRateLimiter, snapshotRateLimitingTimeInNanos)) {
+            @Override
+            public int read() throws IOException {
+                checkAborted();
+                final int value = super.read();
+                if (value >= 0) {
+                    onProcessed(1);
+                }
+                return value;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                checkAborted();
+                final int read = super.read(b, off, len);
+                if (read > 0) {
+                    onProcessed(read);
+                }
+                return read;
+            }
+
+            private void onProcessed(int bytes) {
+                processedBytes.addAndGet(bytes);
+                snapshotStatus.addProcessedBytes(bytes);
+            }
+
+            private void checkAborted() {
+                if (snapshotStatus.isAborted()) {
+                    logger.debug("[{}] [{}] Aborted on the file [{}], exiting", shardId,
+                        snapshotId, fileInfo.physicalName());
+                    throw new IndexShardSnapshotFailedException(shardId, "Aborted");
+                }
+            }
+        };
+    }
+
     private static void failStoreIfCorrupted(Store store, Exception e) {
         if (Lucene.isCorruptionException(e)) {
             try {
@@ -1918,11 +2577,16 @@ public abstract class BlobStoreRepository extends AbstractLifecycleComponent imp
         // Blob names in the shard directory that have become unreferenced in the new shard generation
         private final Collection<String> blobsToDelete;
 
-        ShardSnapshotMetaDeleteResult(IndexId indexId, int shardId, String newGeneration, Collection<String> blobsToDelete) {
+        // Names of the shard's references in the content addressed store that have become unused in the new shard generation
+        private final Collection<String> contentReferencesToDelete;
+
+        ShardSnapshotMetaDeleteResult(IndexId indexId, int shardId, String newGeneration, Collection<String> blobsToDelete,
+                                      Collection<String> contentReferencesToDelete) {
             this.indexId = indexId;
             this.shardId = shardId;
             this.newGeneration = newGeneration;
             this.blobsToDelete = blobsToDelete;
+            this.contentReferencesToDelete = contentReferencesToDelete;
         }
     }
 }
@@ -0,0 +1,84 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.rest;
+
+import org.elasticsearch.common.CheckedRunnable;
+import org.elasticsearch.common.bytes.ReleasableBytesReference;
+import org.elasticsearch.common.io.stream.ReleasableBytesStreamOutput;
+import org.elasticsearch.common.util.BigArrays;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * An output stream which writes each chunk of a {@link ChunkedRestResponseBody} into a fresh set of recycled pages, so that a builder or
+ * writer can be kept open across chunks while the bytes of every chunk can be released independently once sent.
+ */
+final class ChunkedBytesOutputStream extends OutputStream {
+
+    private ReleasableBytesStreamOutput target;
+
+    /**
+     * Runs the given action with this stream writing to new pages and returns the bytes it wrote.
+     */
+    ReleasableBytesReference encode(BigArrays bigArrays, CheckedRunnable<IOException> action) throws IOException {
+        assert target == null : "already encoding a chunk";
+        target = new ReleasableBytesStreamOutput(bigArrays);
+        boolean success = false;
+        try {
+            action.run();
+            final ReleasableBytesReference bytes = target.bytes();
+            success = true;
+            return bytes;
+        } finally {
+            if (success == false) {
+                target.close();
+            }
+            target = null;
+        }
+    }
+
+    /**
+     * @return the number of bytes written to the current chunk so far
+     */
+    int size() {
+        return target.size();
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        target.writeByte((byte) b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+        target.writeBytes(b, off, len);
+    }
+
+    @Override
+    public void flush() {
+        // nothing to do, the bytes are only handed out once the chunk is complete
+    }
+
+    @Override
+    public void close() {
+        // the pages belong to the chunks that were handed out, they are released by whoever sends them
+    }
+}
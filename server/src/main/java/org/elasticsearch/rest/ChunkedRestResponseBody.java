@@ -0,0 +1,157 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.rest;
+
+import org.elasticsearch.common.CheckedConsumer;
+import org.elasticsearch.common.bytes.ReleasableBytesReference;
+import org.elasticsearch.common.io.UTF8StreamWriter;
+import org.elasticsearch.common.io.stream.ReleasableBytesStreamOutput;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.common.util.PageCacheRecycler;
+import org.elasticsearch.common.xcontent.ToXContent;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+
+import java.io.IOException;
+import java.util.Iterator;
+
+/**
+ * The body of a {@link RestResponse} which is serialized incrementally, a chunk at a time, as the channel it is sent on becomes writable
+ * rather than being materialized on heap in full before it is sent.
+ */
+public interface ChunkedRestResponseBody {
+
+    /**
+     * @return {@code true} once all the chunks of this body have been serialized by {@link #encodeChunk}
+     */
+    boolean isDone();
+
+    /**
+     * Serializes the next chunk of this body into pages obtained from the given {@link BigArrays}. The chunk is approximately
+     * {@code sizeHint} bytes long, it may be longer if a single element of the body does not fit. The caller must release the returned
+     * bytes once they have been written out.
+     */
+    ReleasableBytesReference encodeChunk(int sizeHint, BigArrays bigArrays) throws IOException;
+
+    /**
+     * @return the content type of the serialized body
+     */
+    String getResponseContentTypeString();
+
+    /**
+     * Serializes all the remaining chunks of the given body into a single reference of pages obtained from the given {@link BigArrays},
+     * for channels that can't send it in chunks. The caller must release the returned bytes once they have been written out.
+     */
+    static ReleasableBytesReference serializeFully(ChunkedRestResponseBody body, BigArrays bigArrays) throws IOException {
+        final ReleasableBytesStreamOutput out = new ReleasableBytesStreamOutput(bigArrays);
+        boolean success = false;
+        try {
+            while (body.isDone() == false) {
+                try (ReleasableBytesReference chunk = body.encodeChunk(PageCacheRecycler.BYTE_PAGE_SIZE, bigArrays)) {
+                    chunk.writeTo(out);
+                }
+            }
+            success = true;
+            return out.bytes();
+        } finally {
+            if (success == false) {
+                out.close();
+            }
+        }
+    }
+
+    /**
+     * Creates a body which serializes the given {@link ToXContent} chunks in order using an {@link XContentBuilder} obtained from the
+     * given channel, so that the body respects the requested format and the {@code pretty}, {@code human} and {@code filter_path}
+     * parameters. Each chunk writes the part of the response it represents to the builder, so the first and last chunks are typically
+     * responsible for opening and closing the outermost object or array.
+     */
+    static ChunkedRestResponseBody fromXContent(Iterator<? extends ToXContent> chunkIterator, ToXContent.Params params,
+                                                RestChannel channel) throws IOException {
+        final ChunkedBytesOutputStream out = new ChunkedBytesOutputStream();
+        final XContentBuilder builder = channel.newBuilder(channel.request().getXContentType(), null, true, out);
+        return new ChunkedRestResponseBody() {
+
+            private boolean done;
+
+            @Override
+            public boolean isDone() {
+                return done;
+            }
+
+            @Override
+            public ReleasableBytesReference encodeChunk(int sizeHint, BigArrays bigArrays) throws IOException {
+                assert done == false : "body is already fully serialized";
+                return out.encode(bigArrays, () -> {
+                    while (chunkIterator.hasNext() && out.size() < sizeHint) {
+                        chunkIterator.next().toXContent(builder, params);
+                        builder.flush();
+                    }
+                    if (chunkIterator.hasNext() == false) {
+                        builder.close();
+                        done = true;
+                    }
+                });
+            }
+
+            @Override
+            public String getResponseContentTypeString() {
+                return builder.contentType().mediaType();
+            }
+        };
+    }
+
+    /**
+     * Creates a plain text body which serializes the given chunks in order.
+     */
+    static ChunkedRestResponseBody fromTextChunks(String contentType,
+                                                  Iterator<CheckedConsumer<UTF8StreamWriter, IOException>> chunkIterator) {
+        final ChunkedBytesOutputStream out = new ChunkedBytesOutputStream();
+        final UTF8StreamWriter writer = new UTF8StreamWriter().setOutput(out);
+        return new ChunkedRestResponseBody() {
+
+            private boolean done;
+
+            @Override
+            public boolean isDone() {
+                return done;
+            }
+
+            @Override
+            public ReleasableBytesReference encodeChunk(int sizeHint, BigArrays bigArrays) throws IOException {
+                assert done == false : "body is already fully serialized";
+                return out.encode(bigArrays, () -> {
+                    while (chunkIterator.hasNext() && out.size() < sizeHint) {
+                        chunkIterator.next().accept(writer);
+                        writer.flush();
+                    }
+                    if (chunkIterator.hasNext() == false) {
+                        writer.close();
+                        done = true;
+                    }
+                });
+            }
+
+            @Override
+            public String getResponseContentTypeString() {
+                return contentType;
+            }
+        };
+    }
+}
@@ -22,9 +22,11 @@ package org.elasticsearch.rest;
 import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.io.stream.BytesStreamOutput;
 import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentFactory;
 import org.elasticsearch.common.xcontent.XContentType;
 
 import java.io.IOException;
+import java.io.OutputStream;
 
 /**
  * A channel used to construct bytes / builder based outputs, and send responses.
@@ -40,6 +42,20 @@ public interface RestChannel {
     XContentBuilder newBuilder(@Nullable XContentType xContentType, @Nullable XContentType responseContentType,
             boolean useFiltering) throws IOException;
 
+    /**
+     * Creates a new {@link XContentBuilder} in the same way as {@link #newBuilder(XContentType, XContentType, boolean)} but which writes
+     * to the given output stream instead of {@link #bytesOutput()}. Used to serialize chunked responses. The default implementation
+     * writes the response content type, or else the request content type or JSON, and ignores the {@code pretty}, {@code human} and
+     * {@code filter_path} parameters of the request, {@link AbstractRestChannel} applies them.
+     */
+    default XContentBuilder newBuilder(@Nullable XContentType xContentType, @Nullable XContentType responseContentType,
+            boolean useFiltering, OutputStream outputStream) throws IOException {
+        if (responseContentType == null) {
+            responseContentType = xContentType == null ? XContentType.JSON : xContentType;
+        }
+        return new XContentBuilder(XContentFactory.xContent(responseContentType), outputStream);
+    }
+
     BytesStreamOutput bytesOutput();
 
     RestRequest request();
@@ -42,6 +42,7 @@ import org.elasticsearch.usage.UsageService;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
@@ -195,9 +196,28 @@ public class RestController implements HttpServerTransport.Dispatcher {
         }
     }
 
+    @Override
+    public boolean supportsIncrementalContent(RestRequest.Method method, String uri) {
+        final int queryStringStart = uri.indexOf('?');
+        final String rawPath = queryStringStart < 0 ? uri : uri.substring(0, queryStringStart);
+        // the request is dispatched to the first handler of the method, see tryAllHandlers
+        final Iterator<MethodHandlers> allHandlers = getAllHandlers(null, rawPath);
+        while (allHandlers.hasNext()) {
+            final MethodHandlers handlers = allHandlers.next();
+            final RestHandler handler = handlers == null ? null : handlers.getHandler(method);
+            if (handler != null) {
+                return handler.supportsIncrementalContent();
+            }
+        }
+        return false;
+    }
+
     private void dispatchRequest(RestRequest request, RestChannel channel, RestHandler handler) throws Exception {
         final int contentLength = request.contentLength();
-        if (contentLength > 0) {
+        final boolean incrementalContent = request.getHttpRequest().contentStream() != null;
+        assert incrementalContent == false || handler.supportsIncrementalContent()
+            : "content of request [" + request.uri() + "] is streamed to a handler that does not support it";
+        if (contentLength > 0 || incrementalContent) {
             final XContentType xContentType = request.getXContentType();
             if (xContentType == null) {
                 sendContentTypeErrorMessage(request.getAllHeaderValues("Content-Type"), channel);
@@ -473,6 +493,12 @@ public class RestController implements HttpServerTransport.Dispatcher {
             return delegate.newBuilder(xContentType, responseContentType, useFiltering);
         }
 
+        @Override
+        public XContentBuilder newBuilder(XContentType xContentType, XContentType responseContentType, boolean useFiltering,
+                                          OutputStream outputStream) throws IOException {
+            return delegate.newBuilder(xContentType, responseContentType, useFiltering, outputStream);
+        }
+
         @Override
         public BytesStreamOutput bytesOutput() {
             return delegate.bytesOutput();
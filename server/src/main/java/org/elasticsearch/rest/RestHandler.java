@@ -48,6 +48,15 @@ public interface RestHandler {
         return false;
     }
 
+    /**
+     * Indicates if the RestHandler can consume the content of a request in parts as it is received, see
+     * {@link RestRequest#contentStream()}. Http transports may then dispatch requests to this handler as soon as their headers are
+     * received, rather than aggregating their whole content in memory first.
+     */
+    default boolean supportsIncrementalContent() {
+        return false;
+    }
+
     /**
      * Indicates if the RestHandler supports working with pooled buffers. If the request handler will not escape the return
      * {@link RestRequest#content()} or any buffers extracted from it then there is no need to make a copies of any pooled buffers in the
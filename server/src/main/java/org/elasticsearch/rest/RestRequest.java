@@ -36,6 +36,7 @@ import org.elasticsearch.common.xcontent.ToXContent;
 import org.elasticsearch.common.xcontent.XContentParser;
 import org.elasticsearch.common.xcontent.XContentType;
 import org.elasticsearch.http.HttpChannel;
+import org.elasticsearch.http.HttpContentStream;
 import org.elasticsearch.http.HttpRequest;
 
 import java.io.IOException;
@@ -208,6 +209,16 @@ public class RestRequest implements ToXContent.Params {
         return httpRequest.content();
     }
 
+    /**
+     * @return the stream of the content of this request if it is received in parts after the request is dispatched, see
+     *         {@link RestHandler#supportsIncrementalContent()}, or {@code null} if the content is available in full from {@link #content()}
+     */
+    @Nullable
+    public HttpContentStream contentStream() {
+        this.contentConsumed = true;
+        return httpRequest.contentStream();
+    }
+
     /**
      * @return content of the request body or throw an exception if the body or content type is missing
      */
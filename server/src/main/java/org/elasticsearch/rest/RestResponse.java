@@ -39,10 +39,21 @@ public abstract class RestResponse {
     public abstract String contentType();
 
     /**
-     * The response content. Note, if the content is {@link org.elasticsearch.common.lease.Releasable} it
+     * The response content, or {@code null} if the content is serialized incrementally while it is being sent and only available from
+     * {@link #chunkedContent()}. Note, if the content is {@link org.elasticsearch.common.lease.Releasable} it
      * should automatically be released when done by the channel sending it.
      */
-    public abstract BytesReference content();
+    public BytesReference content() {
+        return null;
+    }
+
+    /**
+     * The response content if it is serialized incrementally while it is being sent, or {@code null} if the whole content is available
+     * from {@link #content()}.
+     */
+    public ChunkedRestResponseBody chunkedContent() {
+        return null;
+    }
 
     /**
      * The rest status code.
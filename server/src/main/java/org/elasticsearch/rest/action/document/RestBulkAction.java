@@ -19,12 +19,26 @@
 
 package org.elasticsearch.rest.action.document;
 
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.DocWriteResponse;
+import org.elasticsearch.action.bulk.BulkItemResponse;
 import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkRequestParser;
+import org.elasticsearch.action.bulk.BulkResponse;
 import org.elasticsearch.action.bulk.BulkShardRequest;
 import org.elasticsearch.action.support.ActiveShardCount;
 import org.elasticsearch.client.Requests;
 import org.elasticsearch.client.node.NodeClient;
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.bytes.CompositeBytesReference;
+import org.elasticsearch.common.bytes.ReleasableBytesReference;
+import org.elasticsearch.common.lease.Releasable;
+import org.elasticsearch.common.lease.Releasables;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.ByteSizeUnit;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.http.HttpContentStream;
 import org.elasticsearch.rest.BaseRestHandler;
 import org.elasticsearch.rest.RestController;
 import org.elasticsearch.rest.RestRequest;
@@ -32,6 +46,11 @@ import org.elasticsearch.rest.action.RestStatusToXContentListener;
 import org.elasticsearch.search.fetch.subphase.FetchSourceContext;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 import static org.elasticsearch.rest.RestRequest.Method.POST;
 import static org.elasticsearch.rest.RestRequest.Method.PUT;
@@ -47,15 +66,26 @@ import static org.elasticsearch.rest.RestRequest.Method.PUT;
  */
 public class RestBulkAction extends BaseRestHandler {
 
+    /**
+     * The size of the batches in which the items of a bulk request whose content is received incrementally are executed.
+     */
+    static final long INCREMENTAL_BATCH_SIZE_IN_BYTES = ByteSizeUnit.MB.toBytes(5);
+
     private final boolean allowExplicitIndex;
+    private final long incrementalBatchSizeInBytes;
 
     public RestBulkAction(Settings settings, RestController controller) {
+        this(settings, controller, INCREMENTAL_BATCH_SIZE_IN_BYTES);
+    }
+
+    RestBulkAction(Settings settings, RestController controller, long incrementalBatchSizeInBytes) {
         controller.registerHandler(POST, "/_bulk", this);
         controller.registerHandler(PUT, "/_bulk", this);
         controller.registerHandler(POST, "/{index}/_bulk", this);
         controller.registerHandler(PUT, "/{index}/_bulk", this);
 
         this.allowExplicitIndex = MULTI_ALLOW_EXPLICIT_INDEX.get(settings);
+        this.incrementalBatchSizeInBytes = incrementalBatchSizeInBytes;
     }
 
     @Override
@@ -65,17 +95,35 @@ public class RestBulkAction extends BaseRestHandler {
 
     @Override
     public RestChannelConsumer prepareRequest(final RestRequest request, final NodeClient client) throws IOException {
-        BulkRequest bulkRequest = Requests.bulkRequest();
         String defaultIndex = request.param("index");
         String defaultRouting = request.param("routing");
         FetchSourceContext defaultFetchSourceContext = FetchSourceContext.parseFromRestRequest(request);
         String defaultPipeline = request.param("pipeline");
-        String waitForActiveShards = request.param("wait_for_active_shards");
-        if (waitForActiveShards != null) {
-            bulkRequest.waitForActiveShards(ActiveShardCount.parseString(waitForActiveShards));
+        String waitForActiveShardsParam = request.param("wait_for_active_shards");
+        ActiveShardCount waitForActiveShards =
+            waitForActiveShardsParam == null ? null : ActiveShardCount.parseString(waitForActiveShardsParam);
+        TimeValue timeout = request.paramAsTime("timeout", BulkShardRequest.DEFAULT_TIMEOUT);
+        String refresh = request.param("refresh");
+        Supplier<BulkRequest> bulkRequestSupplier = () -> {
+            BulkRequest bulkRequest = Requests.bulkRequest();
+            if (waitForActiveShards != null) {
+                bulkRequest.waitForActiveShards(waitForActiveShards);
+            }
+            bulkRequest.timeout(timeout);
+            bulkRequest.setRefreshPolicy(refresh);
+            return bulkRequest;
+        };
+
+        final HttpContentStream contentStream = request.contentStream();
+        if (contentStream != null) {
+            final IncrementalBulk incrementalBulk = new IncrementalBulk(client, bulkRequestSupplier, incrementalBatchSizeInBytes,
+                batch -> new BulkRequestParser(true).incrementalParser(defaultIndex, defaultRouting, defaultFetchSourceContext,
+                    defaultPipeline, allowExplicitIndex, request.getXContentType(), (indexRequest, type) -> batch.get().add(indexRequest),
+                    updateRequest -> batch.get().add(updateRequest), deleteRequest -> batch.get().add(deleteRequest)));
+            return channel -> incrementalBulk.start(contentStream, new RestStatusToXContentListener<>(channel));
         }
-        bulkRequest.timeout(request.paramAsTime("timeout", BulkShardRequest.DEFAULT_TIMEOUT));
-        bulkRequest.setRefreshPolicy(request.param("refresh"));
+
+        BulkRequest bulkRequest = bulkRequestSupplier.get();
         bulkRequest.add(request.requiredContent(), defaultIndex, defaultRouting,
             defaultFetchSourceContext, defaultPipeline, allowExplicitIndex, request.getXContentType());
 
@@ -87,8 +135,206 @@ public class RestBulkAction extends BaseRestHandler {
         return true;
     }
 
+    @Override
+    public boolean supportsIncrementalContent() {
+        return true;
+    }
+
     @Override
     public boolean allowsUnsafeBuffers() {
         return true;
     }
+
+    /**
+     * Executes a bulk request whose content is received incrementally. The items parsed so far are sent as a bulk request of their own
+     * whenever they add up to a batch, so the coordinating node works through the bulk request while the client is still sending it. Only
+     * one batch is executed at a time, and no more content is requested while a full batch waits for the one ahead of it, which keeps the
+     * content held in memory to about two batches however large the whole request is. The items of all batches are reported in a single
+     * response, in the order of the request.
+     */
+    static final class IncrementalBulk implements HttpContentStream.Handler {
+
+        private final NodeClient client;
+        private final Supplier<BulkRequest> bulkRequestSupplier;
+        private final long batchSizeInBytes;
+        private final BulkRequestParser.IncrementalParser parser;
+        private final long startTimeInNanos = System.nanoTime();
+
+        private HttpContentStream contentStream;
+        private ActionListener<BulkResponse> listener;
+
+        /**
+         * The content which has been received but not parsed yet because it does not contain a complete item, and the parts it refers to.
+         */
+        private final List<BytesReference> unparsedContent = new ArrayList<>();
+        private final List<Releasable> unparsedParts = new ArrayList<>();
+
+        /**
+         * The items which have been parsed but not sent yet, and the parts they refer to.
+         */
+        private BulkRequest batch;
+        private List<Releasable> batchParts = new ArrayList<>();
+
+        private final List<BulkItemResponse> itemResponses = new ArrayList<>();
+        private long ingestTookInMillis = BulkResponse.NO_INGEST_TOOK;
+        private int batchesSent;
+        private boolean executingBatch;
+        private boolean awaitingPart;
+        private boolean lastPartReceived;
+        private boolean completed;
+
+        IncrementalBulk(NodeClient client, Supplier<BulkRequest> bulkRequestSupplier, long batchSizeInBytes,
+                        Function<Supplier<BulkRequest>, BulkRequestParser.IncrementalParser> parserFactory) {
+            this.client = client;
+            this.bulkRequestSupplier = bulkRequestSupplier;
+            this.batchSizeInBytes = batchSizeInBytes;
+            this.batch = bulkRequestSupplier.get();
+            this.parser = parserFactory.apply(() -> batch);
+        }
+
+        void start(HttpContentStream contentStream, ActionListener<BulkResponse> listener) {
+            synchronized (this) {
+                this.contentStream = contentStream;
+                this.listener = listener;
+            }
+            contentStream.setHandler(this);
+            advance();
+        }
+
+        @Override
+        public void onPart(ReleasableBytesReference part, boolean isLast) {
+            Exception parseFailure = null;
+            synchronized (this) {
+                assert awaitingPart : "received a part of the content without requesting it";
+                awaitingPart = false;
+                if (completed) {
+                    part.close();
+                    return;
+                }
+                lastPartReceived = isLast;
+                unparsedContent.add(part);
+                unparsedParts.add(part);
+                final BytesReference content = unparsedContent.size() == 1 ? unparsedContent.get(0)
+                    : new CompositeBytesReference(unparsedContent.toArray(new BytesReference[0]));
+                int consumed = 0;
+                try {
+                    consumed = parser.parse(content, isLast);
+                } catch (Exception e) {
+                    parseFailure = e;
+                }
+                if (consumed > 0) {
+                    // the parsed items refer to slices of the content, so keep it until their batch completes and only copy the start
+                    // of the next item, which is at most one item long
+                    batchParts.addAll(unparsedParts);
+                    unparsedParts.clear();
+                    unparsedContent.clear();
+                    if (consumed < content.length()) {
+                        unparsedContent.add(new BytesArray(BytesReference.toBytes(content.slice(consumed, content.length() - consumed))));
+                    }
+                }
+            }
+            if (parseFailure == null) {
+                advance();
+            } else {
+                fail(parseFailure);
+            }
+        }
+
+        @Override
+        public void onFailure(Exception e) {
+            synchronized (this) {
+                awaitingPart = false;
+            }
+            fail(e);
+        }
+
+        private void fail(Exception e) {
+            synchronized (this) {
+                if (completed) {
+                    return;
+                }
+                completed = true;
+                releaseContent();
+            }
+            listener.onFailure(e);
+        }
+
+        /**
+         * Sends the next batch if it is full or the content is complete and no other batch is executing, requests more content unless
+         * the parsed items already make up a full batch, and responds once all batches have completed.
+         */
+        private void advance() {
+            BulkRequest batchToSend = null;
+            List<Releasable> partsToRelease = null;
+            boolean requestPart = false;
+            BulkResponse response = null;
+            synchronized (this) {
+                if (completed) {
+                    return;
+                }
+                final boolean batchFull = batch.estimatedSizeInBytes() >= batchSizeInBytes;
+                final boolean finalBatch = lastPartReceived && (batch.numberOfActions() > 0 || batchesSent == 0);
+                if (executingBatch == false && (batchFull || finalBatch)) {
+                    batchToSend = batch;
+                    partsToRelease = batchParts;
+                    batch = bulkRequestSupplier.get();
+                    batchParts = new ArrayList<>();
+                    executingBatch = true;
+                    batchesSent++;
+                } else if (lastPartReceived && executingBatch == false) {
+                    completed = true;
+                    response = new BulkResponse(itemResponses.toArray(new BulkItemResponse[0]),
+                        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTimeInNanos), ingestTookInMillis);
+                }
+                if (lastPartReceived == false && awaitingPart == false && batch.estimatedSizeInBytes() < batchSizeInBytes) {
+                    awaitingPart = true;
+                    requestPart = true;
+                }
+            }
+            if (batchToSend != null) {
+                sendBatch(batchToSend, partsToRelease);
+            }
+            if (requestPart) {
+                contentStream.next();
+            }
+            if (response != null) {
+                listener.onResponse(response);
+            }
+        }
+
+        private void sendBatch(BulkRequest batchToSend, List<Releasable> partsToRelease) {
+            client.bulk(batchToSend, ActionListener.runAfter(ActionListener.wrap(this::onBatchResponse, this::fail),
+                () -> Releasables.close(partsToRelease)));
+        }
+
+        private void onBatchResponse(BulkResponse batchResponse) {
+            synchronized (this) {
+                // the item ids of a batch start at zero, shift them to the position of the batch in the whole request
+                final int firstItemId = itemResponses.size();
+                for (BulkItemResponse itemResponse : batchResponse.getItems()) {
+                    final int itemId = firstItemId + itemResponse.getItemId();
+                    if (itemResponse.isFailed()) {
+                        itemResponses.add(new BulkItemResponse(itemId, itemResponse.getOpType(), itemResponse.getFailure()));
+                    } else {
+                        final DocWriteResponse response = itemResponse.getResponse();
+                        itemResponses.add(new BulkItemResponse(itemId, itemResponse.getOpType(), response));
+                    }
+                }
+                if (batchResponse.getIngestTookInMillis() != BulkResponse.NO_INGEST_TOOK) {
+                    ingestTookInMillis = Math.max(ingestTookInMillis, 0L) + batchResponse.getIngestTookInMillis();
+                }
+                executingBatch = false;
+            }
+            advance();
+        }
+
+        private void releaseContent() {
+            assert Thread.holdsLock(this);
+            Releasables.close(unparsedParts);
+            unparsedParts.clear();
+            unparsedContent.clear();
+            Releasables.close(batchParts);
+            batchParts.clear();
+        }
+    }
 }
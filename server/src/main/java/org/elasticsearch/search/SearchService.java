@@ -337,6 +337,20 @@ public class SearchService extends AbstractLifecycleComponent implements IndexEv
         } else {
             queryPhase.execute(context);
         }
+        addLocalNodeLoad(context.queryResult());
+    }
+
+    /**
+     * Reports the load of this node with the given query result, which the coordinating node takes into account for adaptive replica
+     * selection. The result might come from the request cache, so the load is added after the query phase.
+     */
+    private void addLocalNodeLoad(QuerySearchResult queryResult) {
+        final ResponseCollectorService.LocalNodeLoad load = responseCollectorService == null ? null
+            : responseCollectorService.getLocalNodeLoad();
+        if (load != null) {
+            queryResult.nodeCpuPercent(load.cpuPercent);
+            queryResult.nodeHeapUsedPercent(load.heapUsedPercent);
+        }
     }
 
     public void executeQueryPhase(ShardSearchRequest request, SearchShardTask task, ActionListener<SearchPhaseResult> listener) {
@@ -406,6 +420,7 @@ public class SearchService extends AbstractLifecycleComponent implements IndexEv
                 contextProcessing(context);
                 processScroll(request, context);
                 queryPhase.execute(context);
+                addLocalNodeLoad(context.queryResult());
                 contextProcessedSuccessfully(context);
                 executor.success();
                 return new ScrollQuerySearchResult(context.queryResult(), context.shardTarget());
@@ -428,6 +443,7 @@ public class SearchService extends AbstractLifecycleComponent implements IndexEv
                 contextProcessing(context);
                 context.searcher().setAggregatedDfs(request.dfs());
                 queryPhase.execute(context);
+                addLocalNodeLoad(context.queryResult());
                 if (context.queryResult().hasSearchContext() == false && context.scrollContext() == null) {
                     // no hits, we can release the context since there will be no fetch phase
                     freeContext(context.id());
@@ -479,6 +495,7 @@ public class SearchService extends AbstractLifecycleComponent implements IndexEv
                 contextProcessing(context);
                 processScroll(request, context);
                 queryPhase.execute(context);
+                addLocalNodeLoad(context.queryResult());
                 final long afterQueryTime = executor.success();
                 QueryFetchSearchResult fetchSearchResult = executeFetchPhase(context, afterQueryTime);
                 return new ScrollQueryFetchSearchResult(fetchSearchResult, context.shardTarget());
@@ -145,12 +145,24 @@ public class ShardSearchRequest extends TransportRequest implements IndicesReque
     }
 
     public ShardSearchRequest(StreamInput in) throws IOException {
+        this(in, true, null);
+    }
+
+    /**
+     * Reads a request that was written with {@link #writeToWithoutSource(StreamOutput)}, using the given source which is shared
+     * with the other requests it was sent with.
+     */
+    public static ShardSearchRequest readWithSharedSource(StreamInput in, @Nullable SearchSourceBuilder source) throws IOException {
+        return new ShardSearchRequest(in, false, source);
+    }
+
+    private ShardSearchRequest(StreamInput in, boolean readSource, SearchSourceBuilder source) throws IOException {
         super(in);
         shardId = new ShardId(in);
         searchType = SearchType.fromId(in.readByte());
         numberOfShards = in.readVInt();
         scroll = in.readOptionalWriteable(Scroll::new);
-        source = in.readOptionalWriteable(SearchSourceBuilder::new);
+        this.source = readSource ? in.readOptionalWriteable(SearchSourceBuilder::new) : source;
         if (in.getVersion().before(Version.V_8_0_0)) {
             // types no longer relevant so ignore
             String[] types = in.readStringArray();
@@ -173,18 +185,34 @@ public class ShardSearchRequest extends TransportRequest implements IndicesReque
     @Override
     public void writeTo(StreamOutput out) throws IOException {
         super.writeTo(out);
-        innerWriteTo(out, false);
+        innerWriteTo(out, false, true);
+        OriginalIndices.writeOriginalIndices(originalIndices, out);
+    }
+
+    /**
+     * Writes this request without its source, for sending it together with other requests for the same source. The source must be
+     * sent separately and passed to {@link #readWithSharedSource(StreamInput, SearchSourceBuilder)}.
+     */
+    public void writeToWithoutSource(StreamOutput out) throws IOException {
+        super.writeTo(out);
+        innerWriteTo(out, false, false);
         OriginalIndices.writeOriginalIndices(originalIndices, out);
     }
 
     protected final void innerWriteTo(StreamOutput out, boolean asKey) throws IOException {
+        innerWriteTo(out, asKey, true);
+    }
+
+    private void innerWriteTo(StreamOutput out, boolean asKey, boolean withSource) throws IOException {
         shardId.writeTo(out);
         out.writeByte(searchType.id());
         if (!asKey) {
             out.writeVInt(numberOfShards);
         }
         out.writeOptionalWriteable(scroll);
-        out.writeOptionalWriteable(source);
+        if (withSource) {
+            out.writeOptionalWriteable(source);
+        }
         if (out.getVersion().before(Version.V_8_0_0)) {
             // types not supported so send an empty array to previous versions
             out.writeStringArray(Strings.EMPTY_ARRAY);
@@ -62,6 +62,8 @@ public final class QuerySearchResult extends SearchPhaseResult {
     private boolean hasProfileResults;
     private long serviceTimeEWMA = -1;
     private int nodeQueueSize = -1;
+    private int nodeCpuPercent = -1;
+    private int nodeHeapUsedPercent = -1;
 
     public QuerySearchResult() {
     }
@@ -247,6 +249,30 @@ public final class QuerySearchResult extends SearchPhaseResult {
         return this;
     }
 
+    /**
+     * Returns the CPU usage of the process of the node that executed the query in percent, or {@code -1} if not known.
+     */
+    public int nodeCpuPercent() {
+        return this.nodeCpuPercent;
+    }
+
+    public QuerySearchResult nodeCpuPercent(int nodeCpuPercent) {
+        this.nodeCpuPercent = nodeCpuPercent;
+        return this;
+    }
+
+    /**
+     * Returns the heap usage of the node that executed the query in percent, or {@code -1} if not known.
+     */
+    public int nodeHeapUsedPercent() {
+        return this.nodeHeapUsedPercent;
+    }
+
+    public QuerySearchResult nodeHeapUsedPercent(int nodeHeapUsedPercent) {
+        this.nodeHeapUsedPercent = nodeHeapUsedPercent;
+        return this;
+    }
+
     /**
      * Returns <code>true</code> if this result has any suggest score docs
      */
@@ -296,6 +322,10 @@ public final class QuerySearchResult extends SearchPhaseResult {
         hasProfileResults = profileShardResults != null;
         serviceTimeEWMA = in.readZLong();
         nodeQueueSize = in.readInt();
+        if (in.getVersion().onOrAfter(Version.V_8_0_0)) {
+            nodeCpuPercent = in.readInt();
+            nodeHeapUsedPercent = in.readInt();
+        }
     }
 
     @Override
@@ -343,6 +373,10 @@ public final class QuerySearchResult extends SearchPhaseResult {
         out.writeOptionalWriteable(profileShardResults);
         out.writeZLong(serviceTimeEWMA);
         out.writeInt(nodeQueueSize);
+        if (out.getVersion().onOrAfter(Version.V_8_0_0)) {
+            out.writeInt(nodeCpuPercent);
+            out.writeInt(nodeHeapUsedPercent);
+        }
     }
 
     public TotalHits getTotalHits() {
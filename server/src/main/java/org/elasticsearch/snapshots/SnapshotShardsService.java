@@ -24,6 +24,7 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.apache.logging.log4j.message.ParameterizedMessage;
 import org.elasticsearch.ExceptionsHelper;
+import org.elasticsearch.Version;
 import org.elasticsearch.action.ActionListener;
 import org.elasticsearch.action.ActionRequestValidationException;
 import org.elasticsearch.action.ActionResponse;
@@ -36,6 +37,7 @@ import org.elasticsearch.cluster.ClusterStateListener;
 import org.elasticsearch.cluster.ClusterStateTaskConfig;
 import org.elasticsearch.cluster.ClusterStateTaskExecutor;
 import org.elasticsearch.cluster.ClusterStateTaskListener;
+import org.elasticsearch.cluster.NotMasterException;
 import org.elasticsearch.cluster.SnapshotsInProgress;
 import org.elasticsearch.cluster.SnapshotsInProgress.ShardSnapshotStatus;
 import org.elasticsearch.cluster.SnapshotsInProgress.ShardState;
@@ -50,6 +52,7 @@ import org.elasticsearch.common.collect.ImmutableOpenMap;
 import org.elasticsearch.common.component.AbstractLifecycleComponent;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.settings.Setting;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.core.internal.io.IOUtils;
@@ -67,8 +70,11 @@ import org.elasticsearch.repositories.RepositoriesService;
 import org.elasticsearch.repositories.Repository;
 import org.elasticsearch.tasks.Task;
 import org.elasticsearch.threadpool.ThreadPool;
+import org.elasticsearch.transport.EmptyTransportResponseHandler;
 import org.elasticsearch.transport.TransportException;
+import org.elasticsearch.transport.TransportRequest;
 import org.elasticsearch.transport.TransportRequestDeduplicator;
+import org.elasticsearch.transport.TransportResponse;
 import org.elasticsearch.transport.TransportResponseHandler;
 import org.elasticsearch.transport.TransportService;
 
@@ -94,6 +100,16 @@ public class SnapshotShardsService extends AbstractLifecycleComponent implements
 
     private static final String UPDATE_SNAPSHOT_STATUS_ACTION_NAME = "internal:cluster/snapshot/update_snapshot_status";
 
+    private static final String UPDATE_SNAPSHOT_PROGRESS_ACTION_NAME = "internal:cluster/snapshot/update_snapshot_progress";
+
+    /**
+     * How often data nodes report the progress of their running shard snapshots to the master node, which uses these reports to answer
+     * snapshot status requests without calling every data node. Setting it to {@code 0} disables the reports.
+     */
+    public static final Setting<TimeValue> SHARD_PROGRESS_REPORT_INTERVAL_SETTING =
+        Setting.timeSetting("snapshot.shard_progress_report_interval", TimeValue.timeValueSeconds(5), TimeValue.ZERO,
+            Setting.Property.NodeScope);
+
     private final ClusterService clusterService;
 
     private final IndicesService indicesService;
@@ -104,8 +120,19 @@ public class SnapshotShardsService extends AbstractLifecycleComponent implements
 
     private final ThreadPool threadPool;
 
+    private final TimeValue progressReportInterval;
+
     private final Map<Snapshot, Map<ShardId, IndexShardSnapshotStatus>> shardSnapshots = new HashMap<>();
 
+    // The progress of the local shard snapshots that the master node already knows about, guarded by shardSnapshots
+    private final Map<Snapshot, Map<ShardId, IndexShardSnapshotStatus.Copy>> reportedProgress = new HashMap<>();
+
+    // Whether a progress report is scheduled, guarded by shardSnapshots
+    private boolean progressReportScheduled;
+
+    // The progress of the running shard snapshots as reported by the data nodes, only populated on the elected master node
+    private final Map<Snapshot, Map<ShardId, IndexShardSnapshotStatus.Copy>> shardProgressOnMaster = new HashMap<>();
+
     // A map of snapshots to the shardIds that we already reported to the master as failed
     private final TransportRequestDeduplicator<UpdateIndexShardSnapshotStatusRequest> remoteFailedRequestDeduplicator =
         new TransportRequestDeduplicator<>();
@@ -121,14 +148,20 @@ public class SnapshotShardsService extends AbstractLifecycleComponent implements
         this.transportService = transportService;
         this.clusterService = clusterService;
         this.threadPool = threadPool;
-        if (DiscoveryNode.isDataNode(settings)) {
-            // this is only useful on the nodes that can hold data
+        this.progressReportInterval = SHARD_PROGRESS_REPORT_INTERVAL_SETTING.get(settings);
+        if (DiscoveryNode.isDataNode(settings) || DiscoveryNode.isMasterNode(settings)) {
+            // this is only useful on the nodes that can hold data or keep track of the progress that they report
             clusterService.addListener(this);
         }
 
         // The constructor of UpdateSnapshotStatusAction will register itself to the TransportService.
         this.updateSnapshotStatusHandler =
             new UpdateSnapshotStatusAction(transportService, clusterService, threadPool, actionFilters, indexNameExpressionResolver);
+        transportService.registerRequestHandler(UPDATE_SNAPSHOT_PROGRESS_ACTION_NAME, ThreadPool.Names.SAME,
+            UpdateSnapshotProgressRequest::new, (request, channel, task) -> {
+                innerUpdateSnapshotProgress(request);
+                channel.sendResponse(TransportResponse.Empty.INSTANCE);
+            });
     }
 
     @Override
@@ -149,6 +182,8 @@ public class SnapshotShardsService extends AbstractLifecycleComponent implements
     @Override
     public void clusterChanged(ClusterChangedEvent event) {
         try {
+            pruneShardProgressOnMaster(event);
+
             SnapshotsInProgress previousSnapshots = event.previousState().custom(SnapshotsInProgress.TYPE);
             SnapshotsInProgress currentSnapshots = event.state().custom(SnapshotsInProgress.TYPE);
             if ((previousSnapshots == null && currentSnapshots != null)
@@ -164,6 +199,10 @@ public class SnapshotShardsService extends AbstractLifecycleComponent implements
             String previousMasterNodeId = event.previousState().nodes().getMasterNodeId();
             String currentMasterNodeId = event.state().nodes().getMasterNodeId();
             if (currentMasterNodeId != null && currentMasterNodeId.equals(previousMasterNodeId) == false) {
+                synchronized (shardSnapshots) {
+                    // the new master does not know about the progress of our shards yet
+                    reportedProgress.clear();
+                }
                 syncShardStatsOnNewMaster(event);
             }
 
@@ -172,6 +211,22 @@ public class SnapshotShardsService extends AbstractLifecycleComponent implements
         }
     }
 
+    // Drops the reported progress of the snapshots that are no longer in progress, or all of it if this node is no longer the master
+    private void pruneShardProgressOnMaster(ClusterChangedEvent event) {
+        synchronized (shardProgressOnMaster) {
+            if (shardProgressOnMaster.isEmpty()) {
+                return;
+            }
+            if (event.localNodeMaster() == false) {
+                shardProgressOnMaster.clear();
+            } else {
+                final SnapshotsInProgress snapshotsInProgress = event.state().custom(SnapshotsInProgress.TYPE);
+                shardProgressOnMaster.keySet().removeIf(
+                    snapshot -> snapshotsInProgress == null || snapshotsInProgress.snapshot(snapshot) == null);
+            }
+        }
+    }
+
     @Override
     public void beforeIndexShardClosed(ShardId shardId, @Nullable IndexShard indexShard, Settings indexSettings) {
         // abort any snapshots occurring on the soon-to-be closed shard
@@ -203,6 +258,22 @@ public class SnapshotShardsService extends AbstractLifecycleComponent implements
         }
     }
 
+    /**
+     * Returns the progress of the shards of the given snapshot as last reported by the data nodes
+     * <p>
+     * This method is executed on master node
+     * </p>
+     *
+     * @param snapshot  snapshot
+     * @return map of shard id to the last reported snapshot status, empty if no data node reported any progress yet
+     */
+    public Map<ShardId, IndexShardSnapshotStatus.Copy> reportedSnapshotShards(Snapshot snapshot) {
+        synchronized (shardProgressOnMaster) {
+            final Map<ShardId, IndexShardSnapshotStatus.Copy> reported = shardProgressOnMaster.get(snapshot);
+            return reported == null ? emptyMap() : new HashMap<>(reported);
+        }
+    }
+
     private void cancelRemoved(@Nullable SnapshotsInProgress snapshotsInProgress) {
         // First, remove snapshots that are no longer there
         Iterator<Map.Entry<Snapshot, Map<ShardId, IndexShardSnapshotStatus>>> it = shardSnapshots.entrySet().iterator();
@@ -220,6 +291,7 @@ public class SnapshotShardsService extends AbstractLifecycleComponent implements
                 }
             }
         }
+        reportedProgress.keySet().retainAll(shardSnapshots.keySet());
     }
 
     private void startNewSnapshots(SnapshotsInProgress snapshotsInProgress) {
@@ -250,6 +322,7 @@ public class SnapshotShardsService extends AbstractLifecycleComponent implements
                 if (startedShards != null && startedShards.isEmpty() == false) {
                     shardSnapshots.computeIfAbsent(snapshot, s -> new HashMap<>()).putAll(startedShards);
                     startNewShards(entry, startedShards);
+                    scheduleProgressReport();
                 }
             } else if (entryState == State.ABORTED) {
                 // Abort all running shards for this snapshot
@@ -293,6 +366,7 @@ public class SnapshotShardsService extends AbstractLifecycleComponent implements
                             logger.debug("snapshot [{}] completed to [{}] with [{}] at generation [{}]",
                                 snapshot, snapshot.getRepository(), lastSnapshotStatus, snapshotStatus.generation());
                         }
+                        reportProgress();
                         notifySuccessfulSnapshotShard(snapshot, shardId, newGeneration);
                     }
 
@@ -301,6 +375,7 @@ public class SnapshotShardsService extends AbstractLifecycleComponent implements
                         final String failure = ExceptionsHelper.stackTrace(e);
                         snapshotStatus.moveToFailed(threadPool.absoluteTimeInMillis(), failure);
                         logger.warn(() -> new ParameterizedMessage("[{}][{}] failed to snapshot shard", shardId, snapshot), e);
+                        reportProgress();
                         notifyFailedSnapshotShard(snapshot, shardId, failure);
                     }
                 });
@@ -348,6 +423,67 @@ public class SnapshotShardsService extends AbstractLifecycleComponent implements
         }
     }
 
+    private void scheduleProgressReport() {
+        assert Thread.holdsLock(shardSnapshots);
+        if (progressReportInterval.millis() > 0 && progressReportScheduled == false && shardSnapshots.isEmpty() == false) {
+            progressReportScheduled = true;
+            threadPool.scheduleUnlessShuttingDown(progressReportInterval, ThreadPool.Names.GENERIC, () -> {
+                synchronized (shardSnapshots) {
+                    progressReportScheduled = false;
+                }
+                try {
+                    reportProgress();
+                } finally {
+                    synchronized (shardSnapshots) {
+                        scheduleProgressReport();
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Sends the progress of the local shard snapshots that changed since the last report to the master node in a single request
+     */
+    private void reportProgress() {
+        if (progressReportInterval.millis() <= 0) {
+            return;
+        }
+        final DiscoveryNode masterNode = clusterService.state().nodes().getMasterNode();
+        if (masterNode == null || masterNode.getVersion().before(Version.V_8_0_0)) {
+            return;
+        }
+        final Map<Snapshot, Map<ShardId, IndexShardSnapshotStatus.Copy>> changedProgress = new HashMap<>();
+        synchronized (shardSnapshots) {
+            reportedProgress.keySet().retainAll(shardSnapshots.keySet());
+            for (Map.Entry<Snapshot, Map<ShardId, IndexShardSnapshotStatus>> snapshotShards : shardSnapshots.entrySet()) {
+                final Snapshot snapshot = snapshotShards.getKey();
+                final Map<ShardId, IndexShardSnapshotStatus.Copy> reported =
+                    reportedProgress.computeIfAbsent(snapshot, s -> new HashMap<>());
+                for (Map.Entry<ShardId, IndexShardSnapshotStatus> shard : snapshotShards.getValue().entrySet()) {
+                    final IndexShardSnapshotStatus.Copy progress = shard.getValue().asCopy();
+                    if (progress.equals(reported.put(shard.getKey(), progress)) == false) {
+                        changedProgress.computeIfAbsent(snapshot, s -> new HashMap<>()).put(shard.getKey(), progress);
+                    }
+                }
+            }
+        }
+        if (changedProgress.isEmpty()) {
+            return;
+        }
+        transportService.sendRequest(masterNode, UPDATE_SNAPSHOT_PROGRESS_ACTION_NAME, new UpdateSnapshotProgressRequest(changedProgress),
+            new EmptyTransportResponseHandler(ThreadPool.Names.SAME) {
+                @Override
+                public void handleException(TransportException exp) {
+                    logger.debug(() -> new ParameterizedMessage("failed to report snapshot progress to [{}]", masterNode), exp);
+                    synchronized (shardSnapshots) {
+                        // send the full progress with the next report
+                        reportedProgress.clear();
+                    }
+                }
+            });
+    }
+
     /**
      * Checks if any shards were processed that the new master doesn't know about
      */
@@ -442,6 +578,38 @@ public class SnapshotShardsService extends AbstractLifecycleComponent implements
         }
     }
 
+    /**
+     * Internal request that is used to send the progress of running shard snapshots to master
+     */
+    static class UpdateSnapshotProgressRequest extends TransportRequest {
+        private final Map<Snapshot, Map<ShardId, IndexShardSnapshotStatus.Copy>> progress;
+
+        UpdateSnapshotProgressRequest(StreamInput in) throws IOException {
+            super(in);
+            progress = in.readMap(Snapshot::new, i -> i.readMap(ShardId::new, IndexShardSnapshotStatus.Copy::new));
+        }
+
+        UpdateSnapshotProgressRequest(Map<Snapshot, Map<ShardId, IndexShardSnapshotStatus.Copy>> progress) {
+            this.progress = progress;
+        }
+
+        @Override
+        public void writeTo(StreamOutput out) throws IOException {
+            super.writeTo(out);
+            out.writeMap(progress, (o, snapshot) -> snapshot.writeTo(o),
+                (o, shards) -> o.writeMap(shards, (o2, shardId) -> shardId.writeTo(o2), (o2, status) -> status.writeTo(o2)));
+        }
+
+        Map<Snapshot, Map<ShardId, IndexShardSnapshotStatus.Copy>> progress() {
+            return progress;
+        }
+
+        @Override
+        public String toString() {
+            return "snapshot progress of [" + progress.values().stream().mapToInt(Map::size).sum() + "] shards";
+        }
+    }
+
     /** Notify the master node that the given shard has been successfully snapshotted **/
     private void notifySuccessfulSnapshotShard(final Snapshot snapshot, final ShardId shardId, String generation) {
         assert generation != null;
@@ -522,6 +690,28 @@ public class SnapshotShardsService extends AbstractLifecycleComponent implements
             });
     }
 
+    /**
+     * Records the progress of shard snapshots on master node
+     *
+     * @param request update snapshot progress request
+     */
+    private void innerUpdateSnapshotProgress(final UpdateSnapshotProgressRequest request) {
+        final ClusterState state = clusterService.state();
+        if (state.nodes().isLocalNodeElectedMaster() == false) {
+            throw new NotMasterException("not master, cannot record snapshot progress");
+        }
+        logger.trace("received {}", request);
+        final SnapshotsInProgress snapshotsInProgress = state.custom(SnapshotsInProgress.TYPE);
+        synchronized (shardProgressOnMaster) {
+            // the progress of snapshots that complete is pruned once their completion is applied
+            for (Map.Entry<Snapshot, Map<ShardId, IndexShardSnapshotStatus.Copy>> entry : request.progress().entrySet()) {
+                if (snapshotsInProgress != null && snapshotsInProgress.snapshot(entry.getKey()) != null) {
+                    shardProgressOnMaster.computeIfAbsent(entry.getKey(), s -> new HashMap<>()).putAll(entry.getValue());
+                }
+            }
+        }
+    }
+
     private static class SnapshotStateExecutor implements ClusterStateTaskExecutor<UpdateIndexShardSnapshotStatusRequest> {
 
         @Override
@@ -80,6 +80,7 @@ import org.elasticsearch.threadpool.ThreadPool;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -90,6 +91,7 @@ import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.StreamSupport;
 
@@ -123,6 +125,8 @@ public class SnapshotsService extends AbstractLifecycleComponent implements Clus
 
     public static final Version SHARD_GEN_IN_REPO_DATA_VERSION = Version.V_7_6_0;
 
+    public static final Version MULTI_DELETE_VERSION = Version.V_8_0_0;
+
     private static final Logger logger = LogManager.getLogger(SnapshotsService.class);
 
     private final ClusterService clusterService;
@@ -795,7 +799,7 @@ public class SnapshotsService extends AbstractLifecycleComponent implements Clus
         if (deletionsInProgress != null && deletionsInProgress.hasDeletionsInProgress()) {
             assert deletionsInProgress.getEntries().size() == 1 : "only one in-progress deletion allowed per cluster";
             SnapshotDeletionsInProgress.Entry entry = deletionsInProgress.getEntries().get(0);
-            deleteSnapshotFromRepository(entry.getSnapshot(), null, entry.repositoryStateId(),
+            deleteSnapshotsFromRepository(entry.getSnapshot().getRepository(), entry.getSnapshots(), null, entry.repositoryStateId(),
                 state.nodes().getMinNodeVersion());
         }
     }
@@ -855,17 +859,18 @@ public class SnapshotsService extends AbstractLifecycleComponent implements Clus
                         entries.add(updatedSnapshot);
 
                         // Clean up the snapshot that failed to start from the old master
-                        deleteSnapshot(snapshot.snapshot(), new ActionListener<>() {
-                            @Override
-                            public void onResponse(Void aVoid) {
-                                logger.debug("cleaned up abandoned snapshot {} in INIT state", snapshot.snapshot());
-                            }
+                        deleteSnapshots(snapshot.snapshot().getRepository(), Collections.singletonList(snapshot.snapshot().getSnapshotId()),
+                            new ActionListener<>() {
+                                @Override
+                                public void onResponse(Void aVoid) {
+                                    logger.debug("cleaned up abandoned snapshot {} in INIT state", snapshot.snapshot());
+                                }
 
-                            @Override
-                            public void onFailure(Exception e) {
-                                logger.warn("failed to clean up abandoned snapshot {} in INIT state", snapshot.snapshot());
-                            }
-                        }, updatedSnapshot.repositoryStateId(), false);
+                                @Override
+                                public void onFailure(Exception e) {
+                                    logger.warn("failed to clean up abandoned snapshot {} in INIT state", snapshot.snapshot());
+                                }
+                            }, updatedSnapshot.repositoryStateId(), false);
                     }
                     assert updatedSnapshot.shards().size() == snapshot.shards().size()
                         : "Shard count changed during snapshot status update from [" + snapshot + "] to [" + updatedSnapshot + "]";
@@ -1170,43 +1175,68 @@ public class SnapshotsService extends AbstractLifecycleComponent implements Clus
      */
     public void deleteSnapshot(final String repositoryName, final String snapshotName, final ActionListener<Void> listener,
                                final boolean immediatePriority) {
-        // First, look for the snapshot in the repository
+        deleteSnapshots(repositoryName, Collections.singletonList(snapshotName), listener, immediatePriority);
+    }
+
+    /**
+     * Deletes snapshots from the repository, looking up the {@link SnapshotId}s before deleting. All snapshots are removed from the
+     * repository in a single update of its metadata.
+     * If only a single snapshot is to be deleted and it is still running, cancels the snapshot first and then deletes it from the
+     * repository.
+     *
+     * @param repositoryName  repositoryName
+     * @param snapshotNames   names of the snapshots to delete
+     * @param listener        listener
+     */
+    public void deleteSnapshots(final String repositoryName, final Collection<String> snapshotNames, final ActionListener<Void> listener,
+                                final boolean immediatePriority) {
+        // First, look for the snapshots in the repository
         final Repository repository = repositoriesService.repository(repositoryName);
         repository.getRepositoryData(ActionListener.wrap(repositoryData -> {
-            Optional<SnapshotId> matchedEntry = repositoryData.getSnapshotIds()
-                .stream()
-                .filter(s -> s.getName().equals(snapshotName))
-                .findFirst();
-            // if nothing found by the same name, then look in the cluster state for current in progress snapshots
+            final Map<String, SnapshotId> existingSnapshots = repositoryData.getSnapshotIds().stream()
+                .collect(Collectors.toMap(SnapshotId::getName, Function.identity()));
+            final List<SnapshotId> snapshotIds = new ArrayList<>(snapshotNames.size());
             long repoGenId = repositoryData.getGenId();
-            if (matchedEntry.isPresent() == false) {
-                Optional<SnapshotsInProgress.Entry> matchedInProgress = currentSnapshots(repositoryName, Collections.emptyList()).stream()
-                    .filter(s -> s.snapshot().getSnapshotId().getName().equals(snapshotName)).findFirst();
-                if (matchedInProgress.isPresent()) {
-                    matchedEntry = matchedInProgress.map(s -> s.snapshot().getSnapshotId());
-                    // Derive repository generation if a snapshot is in progress because it will increment the generation when it finishes
-                    repoGenId = matchedInProgress.get().repositoryStateId() + 1L;
+            for (String snapshotName : snapshotNames) {
+                SnapshotId snapshotId = existingSnapshots.get(snapshotName);
+                // if nothing found by the same name, then look in the cluster state for current in progress snapshots
+                if (snapshotId == null && snapshotNames.size() == 1) {
+                    Optional<SnapshotsInProgress.Entry> matchedInProgress = currentSnapshots(repositoryName, Collections.emptyList())
+                        .stream().filter(s -> s.snapshot().getSnapshotId().getName().equals(snapshotName)).findFirst();
+                    if (matchedInProgress.isPresent()) {
+                        snapshotId = matchedInProgress.get().snapshot().getSnapshotId();
+                        // Derive repository generation if a snapshot is in progress because it will increment the generation when it
+                        // finishes
+                        repoGenId = matchedInProgress.get().repositoryStateId() + 1L;
+                    }
+                }
+                if (snapshotId == null) {
+                    throw new SnapshotMissingException(repositoryName, snapshotName);
+                }
+                if (snapshotIds.contains(snapshotId) == false) {
+                    snapshotIds.add(snapshotId);
                 }
             }
-            if (matchedEntry.isPresent() == false) {
-                throw new SnapshotMissingException(repositoryName, snapshotName);
-            }
-            deleteSnapshot(new Snapshot(repositoryName, matchedEntry.get()), listener, repoGenId, immediatePriority);
+            deleteSnapshots(repositoryName, snapshotIds, listener, repoGenId, immediatePriority);
         }, listener::onFailure));
     }
 
     /**
-     * Deletes snapshot from repository.
+     * Deletes snapshots from repository.
      * <p>
-     * If the snapshot is still running cancels the snapshot first and then deletes it from the repository.
+     * If a single snapshot is deleted and it is still running cancels the snapshot first and then deletes it from the repository.
+     * Running snapshots cannot be deleted together with other snapshots.
      *
-     * @param snapshot snapshot
+     * @param repositoryName repository name
+     * @param snapshotIds snapshots to delete
      * @param listener listener
      * @param repositoryStateId the unique id for the state of the repository
      */
-    private void deleteSnapshot(final Snapshot snapshot, final ActionListener<Void> listener, final long repositoryStateId,
-                                final boolean immediatePriority) {
-        logger.info("deleting snapshot [{}]", snapshot);
+    private void deleteSnapshots(final String repositoryName, final List<SnapshotId> snapshotIds, final ActionListener<Void> listener,
+                                 final long repositoryStateId, final boolean immediatePriority) {
+        final Snapshot snapshot = new Snapshot(repositoryName, snapshotIds.get(0));
+        final String snapshotNames = snapshotIds.stream().map(SnapshotId::getName).collect(Collectors.joining(","));
+        logger.info("deleting snapshots {} from repository [{}]", snapshotIds, repositoryName);
         Priority priority = immediatePriority ? Priority.IMMEDIATE : Priority.NORMAL;
         clusterService.submitStateUpdateTask("delete snapshot", new ClusterStateUpdateTask(priority) {
 
@@ -1214,14 +1244,19 @@ public class SnapshotsService extends AbstractLifecycleComponent implements Clus
 
             @Override
             public ClusterState execute(ClusterState currentState) {
+                final Version minNodeVersion = currentState.nodes().getMinNodeVersion();
+                if (snapshotIds.size() > 1 && minNodeVersion.before(MULTI_DELETE_VERSION)) {
+                    throw new IllegalArgumentException("Deleting multiple snapshots in a single request is only supported in version ["
+                        + MULTI_DELETE_VERSION + "] but cluster contained node of version [" + minNodeVersion + "]");
+                }
                 SnapshotDeletionsInProgress deletionsInProgress = currentState.custom(SnapshotDeletionsInProgress.TYPE);
                 if (deletionsInProgress != null && deletionsInProgress.hasDeletionsInProgress()) {
-                    throw new ConcurrentSnapshotExecutionException(snapshot,
+                    throw new ConcurrentSnapshotExecutionException(repositoryName, snapshotNames,
                         "cannot delete - another snapshot is currently being deleted in [" + deletionsInProgress + "]");
                 }
                 final RepositoryCleanupInProgress repositoryCleanupInProgress = currentState.custom(RepositoryCleanupInProgress.TYPE);
                 if (repositoryCleanupInProgress != null && repositoryCleanupInProgress.hasCleanupInProgress()) {
-                    throw new ConcurrentSnapshotExecutionException(snapshot.getRepository(), snapshot.getSnapshotId().getName(),
+                    throw new ConcurrentSnapshotExecutionException(repositoryName, snapshotNames,
                         "cannot delete snapshot while a repository cleanup is in-progress in [" + repositoryCleanupInProgress + "]");
                 }
                 RestoreInProgress restoreInProgress = currentState.custom(RestoreInProgress.TYPE);
@@ -1230,22 +1265,28 @@ public class SnapshotsService extends AbstractLifecycleComponent implements Clus
                     // otherwise we could end up deleting a snapshot that is being restored
                     // and the files the restore depends on would all be gone
                     if (restoreInProgress.isEmpty() == false) {
-                        throw new ConcurrentSnapshotExecutionException(snapshot,
+                        throw new ConcurrentSnapshotExecutionException(repositoryName, snapshotNames,
                             "cannot delete snapshot during a restore in progress in [" + restoreInProgress + "]");
                     }
                 }
                 ClusterState.Builder clusterStateBuilder = ClusterState.builder(currentState);
                 SnapshotsInProgress snapshots = currentState.custom(SnapshotsInProgress.TYPE);
                 SnapshotsInProgress.Entry snapshotEntry = snapshots != null ? snapshots.snapshot(snapshot) : null;
+                if (snapshotEntry != null && snapshotIds.size() > 1) {
+                    throw new ConcurrentSnapshotExecutionException(snapshot,
+                        "cannot delete a running snapshot together with other snapshots");
+                }
                 if (snapshotEntry == null) {
                     // This snapshot is not running - delete
                     if (snapshots != null && !snapshots.entries().isEmpty()) {
                         // However other snapshots are running - cannot continue
-                        throw new ConcurrentSnapshotExecutionException(snapshot, "another snapshot is currently running cannot delete");
+                        throw new ConcurrentSnapshotExecutionException(repositoryName, snapshotNames,
+                            "another snapshot is currently running cannot delete");
                     }
                     // add the snapshot deletion to the cluster state
                     SnapshotDeletionsInProgress.Entry entry = new SnapshotDeletionsInProgress.Entry(
-                        snapshot,
+                        repositoryName,
+                        snapshotIds,
                         threadPool.absoluteTimeInMillis(),
                         repositoryStateId
                     );
@@ -1349,7 +1390,8 @@ public class SnapshotsService extends AbstractLifecycleComponent implements Clus
                     ));
                 } else {
                     logger.debug("deleted snapshot is not running - deleting files");
-                    deleteSnapshotFromRepository(snapshot, listener, repositoryStateId, newState.nodes().getMinNodeVersion());
+                    deleteSnapshotsFromRepository(repositoryName, snapshotIds, listener, repositoryStateId,
+                        newState.nodes().getMinNodeVersion());
                 }
             }
         });
@@ -1391,22 +1433,23 @@ public class SnapshotsService extends AbstractLifecycleComponent implements Clus
     }
 
     /**
-     * Deletes snapshot from repository
+     * Deletes snapshots from repository
      *
-     * @param snapshot   snapshot
-     * @param listener   listener
+     * @param repositoryName repository name
+     * @param snapshotIds    snapshots to delete
+     * @param listener       listener
      * @param repositoryStateId the unique id representing the state of the repository at the time the deletion began
      * @param version minimum ES version the repository should be readable by
      */
-    private void deleteSnapshotFromRepository(Snapshot snapshot, @Nullable ActionListener<Void> listener, long repositoryStateId,
-                                              Version version) {
+    private void deleteSnapshotsFromRepository(String repositoryName, Collection<SnapshotId> snapshotIds,
+                                               @Nullable ActionListener<Void> listener, long repositoryStateId, Version version) {
         threadPool.executor(ThreadPool.Names.SNAPSHOT).execute(ActionRunnable.wrap(listener, l -> {
-            Repository repository = repositoriesService.repository(snapshot.getRepository());
-            repository.deleteSnapshot(snapshot.getSnapshotId(), repositoryStateId, version.onOrAfter(SHARD_GEN_IN_REPO_DATA_VERSION),
+            Repository repository = repositoriesService.repository(repositoryName);
+            repository.deleteSnapshots(snapshotIds, repositoryStateId, version.onOrAfter(SHARD_GEN_IN_REPO_DATA_VERSION),
                 ActionListener.wrap(v -> {
-                        logger.info("snapshot [{}] deleted", snapshot);
-                        removeSnapshotDeletionFromClusterState(snapshot, null, l);
-                    }, ex -> removeSnapshotDeletionFromClusterState(snapshot, ex, l)
+                        logger.info("snapshots {} deleted from repository [{}]", snapshotIds, repositoryName);
+                        removeSnapshotDeletionFromClusterState(repositoryName, snapshotIds, null, l);
+                    }, ex -> removeSnapshotDeletionFromClusterState(repositoryName, snapshotIds, ex, l)
                 ));
         }));
     }
@@ -1414,8 +1457,8 @@ public class SnapshotsService extends AbstractLifecycleComponent implements Clus
     /**
      * Removes the snapshot deletion from {@link SnapshotDeletionsInProgress} in the cluster state.
      */
-    private void removeSnapshotDeletionFromClusterState(final Snapshot snapshot, @Nullable final Exception failure,
-                                                        @Nullable final ActionListener<Void> listener) {
+    private void removeSnapshotDeletionFromClusterState(final String repositoryName, final Collection<SnapshotId> snapshotIds,
+                                                        @Nullable final Exception failure, @Nullable final ActionListener<Void> listener) {
         clusterService.submitStateUpdateTask("remove snapshot deletion metadata", new ClusterStateUpdateTask() {
             @Override
             public ClusterState execute(ClusterState currentState) {
@@ -1437,7 +1480,8 @@ public class SnapshotsService extends AbstractLifecycleComponent implements Clus
 
             @Override
             public void onFailure(String source, Exception e) {
-                logger.warn(() -> new ParameterizedMessage("[{}] failed to remove snapshot deletion metadata", snapshot), e);
+                logger.warn(() -> new ParameterizedMessage("[{}] {} failed to remove snapshot deletion metadata",
+                    repositoryName, snapshotIds), e);
                 if (listener != null) {
                     listener.onFailure(e);
                 }
@@ -0,0 +1,261 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.transport;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.message.ParameterizedMessage;
+import org.elasticsearch.Version;
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.io.stream.Writeable;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
+import org.elasticsearch.common.util.concurrent.ThreadContext;
+import org.elasticsearch.tasks.Task;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A {@link TransportRequestHandler} that executes identical requests which arrive while an equal request is still being handled only
+ * once, and sends the response of that single execution back on every channel. Two requests are identical if they serialize to the same
+ * bytes, ignoring their parent task, and carry the same thread context headers, and if their responses go to nodes of the same version.
+ * Requests that nest other requests, whose parent tasks differ between callers too, must be given a key writer which leaves those out.
+ * <p>
+ * This is only suitable for read-only actions whose response depends on nothing but the request, such as statistics, and is therefore
+ * opt-in. The response object is shared between all channels, so it must not be modified while it is sent.
+ */
+public final class CoalescingTransportRequestHandler<Request extends TransportRequest> implements TransportRequestHandler<Request> {
+
+    private static final Logger logger = LogManager.getLogger(CoalescingTransportRequestHandler.class);
+
+    private final TransportRequestHandler<Request> delegate;
+    private final ThreadContext threadContext;
+    private final Writeable.Writer<Request> keyWriter;
+    private final ConcurrentMap<RequestKey, SharedExecution> inFlight = ConcurrentCollections.newConcurrentMap();
+
+    public CoalescingTransportRequestHandler(TransportRequestHandler<Request> delegate, ThreadContext threadContext) {
+        this(delegate, threadContext, CoalescingTransportRequestHandler::writeWithoutParentTask);
+    }
+
+    /**
+     * @param keyWriter writes the parts of a request that make it identical to another one, which must not include any parent task
+     */
+    public CoalescingTransportRequestHandler(TransportRequestHandler<Request> delegate, ThreadContext threadContext,
+                                             Writeable.Writer<Request> keyWriter) {
+        this.delegate = delegate;
+        this.threadContext = threadContext;
+        this.keyWriter = keyWriter;
+    }
+
+    /**
+     * Writes the given request like {@link TransportRequest#writeTo} does, but without its parent task.
+     */
+    public static void writeWithoutParentTask(StreamOutput out, TransportRequest request) throws IOException {
+        // the parent task differs between otherwise identical requests, and it is always serialized first
+        final int parentTaskLength;
+        try (BytesStreamOutput parentTaskOut = new BytesStreamOutput()) {
+            parentTaskOut.setVersion(out.getVersion());
+            request.getParentTask().writeTo(parentTaskOut);
+            parentTaskLength = Math.toIntExact(parentTaskOut.position());
+        }
+        try (BytesStreamOutput requestOut = new BytesStreamOutput()) {
+            requestOut.setVersion(out.getVersion());
+            request.writeTo(requestOut);
+            final BytesReference bytes = requestOut.bytes();
+            bytes.slice(parentTaskLength, bytes.length() - parentTaskLength).writeTo(out);
+        }
+    }
+
+    @Override
+    public void messageReceived(Request request, TransportChannel channel, Task task) throws Exception {
+        final RequestKey key = new RequestKey(keyWriter, request, channel.getVersion(), threadContext.getHeaders());
+        while (true) {
+            final SharedExecution execution = inFlight.computeIfAbsent(key, SharedExecution::new);
+            final Boolean first = execution.addChannel(channel);
+            if (first == null) {
+                // completed concurrently and already removed from the map, retry with a new execution
+                continue;
+            }
+            if (first) {
+                try {
+                    delegate.messageReceived(request, execution, task);
+                } catch (Exception e) {
+                    // the requests that joined this execution wait for it too, so it must complete even if the delegate throws
+                    execution.onHandlerFailure(e);
+                }
+            }
+            return;
+        }
+    }
+
+    /**
+     * Returns the number of distinct requests that are currently being handled.
+     */
+    int inFlightCount() {
+        return inFlight.size();
+    }
+
+    private static final class RequestKey {
+
+        private final BytesReference requestBytes;
+        private final Version version;
+        private final Map<String, String> headers;
+
+        <Request extends TransportRequest> RequestKey(Writeable.Writer<Request> keyWriter, Request request, Version version,
+                                                      Map<String, String> headers) throws IOException {
+            this.version = version;
+            this.headers = headers;
+            try (BytesStreamOutput out = new BytesStreamOutput()) {
+                out.setVersion(version);
+                keyWriter.write(out, request);
+                this.requestBytes = new BytesArray(BytesReference.toBytes(out.bytes()));
+            }
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            RequestKey that = (RequestKey) o;
+            return requestBytes.equals(that.requestBytes) && version.equals(that.version) && headers.equals(that.headers);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(requestBytes, version, headers);
+        }
+    }
+
+    /**
+     * The channel handed to the delegate for the first of a group of identical requests, which sends its response on the channels of
+     * all requests in the group.
+     */
+    private final class SharedExecution implements TransportChannel {
+
+        private final RequestKey key;
+        private final List<TransportChannel> channels = new ArrayList<>();
+        private boolean completed;
+
+        SharedExecution(RequestKey key) {
+            this.key = key;
+        }
+
+        /**
+         * Adds the channel of another request to this execution. Returns {@code true} if it is the first channel, in which case the
+         * caller must start the execution, and {@code null} if this execution has already completed.
+         */
+        synchronized Boolean addChannel(TransportChannel channel) {
+            if (completed) {
+                return null;
+            }
+            channels.add(channel);
+            return channels.size() == 1;
+        }
+
+        private TransportChannel firstChannel() {
+            synchronized (this) {
+                return channels.get(0);
+            }
+        }
+
+        private List<TransportChannel> complete() {
+            // remove first so that identical requests arriving from now on start a new execution
+            inFlight.remove(key, this);
+            synchronized (this) {
+                completed = true;
+                return channels;
+            }
+        }
+
+        /**
+         * Sends the given failure of the delegate on all channels, unless the delegate already responded before it failed.
+         */
+        void onHandlerFailure(Exception e) throws IOException {
+            final boolean alreadyCompleted;
+            synchronized (this) {
+                alreadyCompleted = completed;
+            }
+            if (alreadyCompleted) {
+                logger.warn("request handler failed after it sent its response", e);
+            } else {
+                sendResponse(e);
+            }
+        }
+
+        @Override
+        public String getProfileName() {
+            return firstChannel().getProfileName();
+        }
+
+        @Override
+        public String getChannelType() {
+            return firstChannel().getChannelType();
+        }
+
+        @Override
+        public Version getVersion() {
+            return key.version;
+        }
+
+        @Override
+        public void sendResponse(TransportResponse response) throws IOException {
+            final List<TransportChannel> channels = complete();
+            IOException firstFailure = null;
+            for (TransportChannel channel : channels) {
+                try {
+                    channel.sendResponse(response);
+                } catch (IOException e) {
+                    if (channel == channels.get(0)) {
+                        firstFailure = e;
+                    } else {
+                        logger.warn(new ParameterizedMessage("failed to send coalesced response on channel [{}]", channel), e);
+                    }
+                }
+            }
+            if (firstFailure != null) {
+                throw firstFailure;
+            }
+        }
+
+        @Override
+        public void sendResponse(Exception exception) throws IOException {
+            final List<TransportChannel> channels = complete();
+            for (TransportChannel channel : channels) {
+                try {
+                    channel.sendResponse(exception);
+                } catch (IOException e) {
+                    e.addSuppressed(exception);
+                    logger.warn(new ParameterizedMessage("failed to send coalesced error response on channel [{}]", channel), e);
+                }
+            }
+        }
+    }
+}
@@ -31,6 +31,7 @@ import java.util.List;
 import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.ToLongFunction;
 
 /**
  * A connection profile describes how many connection are established to specific node for each of the available request types.
@@ -316,11 +317,33 @@ public final class ConnectionProfile {
          * fashion.
          */
         <T> T getChannel(List<T> channels) {
+            return getChannel(channels, channel -> 0L);
+        }
+
+        /**
+         * Returns the channel configured for this handle that has the fewest bytes waiting to be written, as reported by the given
+         * function, so that a request is not queued behind a large message while another channel of the same type is idle. Ties are
+         * broken in a round-robin fashion.
+         */
+        <T> T getChannel(List<T> channels, ToLongFunction<T> pendingBytes) {
             if (length == 0) {
                 throw new IllegalStateException("can't select channel size is 0 for types: " + types);
             }
             assert channels.size() >= offset + length : "illegal size: " + channels.size() + " expected >= " + (offset + length);
-            return channels.get(offset + Math.floorMod(counter.incrementAndGet(), length));
+            final int start = counter.incrementAndGet();
+            T selected = channels.get(offset + Math.floorMod(start, length));
+            if (length > 1) {
+                long selectedPendingBytes = pendingBytes.applyAsLong(selected);
+                for (int i = 1; i < length && selectedPendingBytes > 0; i++) {
+                    final T candidate = channels.get(offset + Math.floorMod(start + i, length));
+                    final long candidatePendingBytes = pendingBytes.applyAsLong(candidate);
+                    if (candidatePendingBytes < selectedPendingBytes) {
+                        selected = candidate;
+                        selectedPendingBytes = candidatePendingBytes;
+                    }
+                }
+            }
+            return selected;
         }
 
         /**
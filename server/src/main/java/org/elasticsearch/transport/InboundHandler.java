@@ -77,6 +77,10 @@ public class InboundHandler {
         return (RequestHandlerRegistry<T>) requestHandlers.get(action);
     }
 
+    final Map<String, RequestHandlerRegistry<? extends TransportRequest>> getRequestHandlers() {
+        return requestHandlers;
+    }
+
     final Transport.ResponseHandlers getResponseHandlers() {
         return responseHandlers;
     }
@@ -155,15 +159,17 @@ public class InboundHandler {
         final StreamInput stream = message.getStreamInput();
         final Version version = message.getVersion();
         TransportChannel transportChannel = null;
+        RequestHandlerRegistry<T> reg = null;
         try {
             messageListener.onRequestReceived(requestId, action);
             if (message.isHandshake()) {
                 handshaker.handleHandshake(version, channel, requestId, stream);
             } else {
-                final RequestHandlerRegistry<T> reg = getRequestHandler(action);
+                reg = getRequestHandler(action);
                 if (reg == null) {
                     throw new ActionNotFoundTransportException(action);
                 }
+                reg.getStatsTracker().addRequestStats(messageLengthBytes + TcpHeader.BYTES_REQUIRED_FOR_MESSAGE_SIZE);
                 CircuitBreaker breaker = circuitBreakerService.getBreaker(CircuitBreaker.IN_FLIGHT_REQUESTS);
                 if (reg.canTripCircuitBreaker()) {
                     breaker.addEstimateBytesAndMaybeBreak(messageLengthBytes, "<transport_request>");
@@ -171,7 +177,7 @@ public class InboundHandler {
                     breaker.addWithoutBreaking(messageLengthBytes);
                 }
                 transportChannel = new TcpTransportChannel(outboundHandler, channel, action, requestId, version,
-                    circuitBreakerService, messageLengthBytes, message.isCompress());
+                    circuitBreakerService, messageLengthBytes, message.isCompress(), reg.getStatsTracker());
                 final T request = reg.newRequest(stream);
                 request.remoteAddress(new TransportAddress(channel.getRemoteAddress()));
                 // in case we throw an exception, i.e. when the limit is hit, we don't want to verify
@@ -187,7 +193,7 @@ public class InboundHandler {
             // the circuit breaker tripped
             if (transportChannel == null) {
                 transportChannel = new TcpTransportChannel(outboundHandler, channel, action, requestId, version,
-                    circuitBreakerService, 0, message.isCompress());
+                    circuitBreakerService, 0, message.isCompress(), reg == null ? null : reg.getStatsTracker());
             }
             try {
                 transportChannel.sendResponse(e);
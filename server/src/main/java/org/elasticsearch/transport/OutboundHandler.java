@@ -82,41 +82,43 @@ final class OutboundHandler {
             new OutboundMessage.Request(threadPool.getThreadContext(), request, version, action, requestId, isHandshake, compressRequest);
         ActionListener<Void> listener = ActionListener.wrap(() ->
             messageListener.onRequestSent(node, requestId, action, request, options));
-        sendMessage(channel, message, listener);
+        sendMessage(channel, message, listener, ResponseStatsConsumer.NONE);
     }
 
     /**
      * Sends the response to the given channel. This method should be used to send {@link TransportResponse}
      * objects back to the caller.
      *
-     * @see #sendErrorResponse(Version, TcpChannel, long, String, Exception) for sending error responses
+     * @see #sendErrorResponse(Version, TcpChannel, long, String, Exception, ResponseStatsConsumer) for sending error responses
      */
     void sendResponse(final Version nodeVersion, final TcpChannel channel, final long requestId, final String action,
-                      final TransportResponse response, final boolean compress, final boolean isHandshake) throws IOException {
+                      final TransportResponse response, final boolean compress, final boolean isHandshake,
+                      final ResponseStatsConsumer responseStatsConsumer) throws IOException {
         Version version = Version.min(this.version, nodeVersion);
         OutboundMessage.Response message = new OutboundMessage.Response(threadPool.getThreadContext(), response, version,
             requestId, isHandshake, compress);
         ActionListener<Void> listener = ActionListener.wrap(() -> messageListener.onResponseSent(requestId, action, response));
-        sendMessage(channel, message, listener);
+        sendMessage(channel, message, listener, responseStatsConsumer);
     }
 
     /**
      * Sends back an error response to the caller via the given channel
      */
     void sendErrorResponse(final Version nodeVersion, final TcpChannel channel, final long requestId, final String action,
-                           final Exception error) throws IOException {
+                           final Exception error, final ResponseStatsConsumer responseStatsConsumer) throws IOException {
         Version version = Version.min(this.version, nodeVersion);
         TransportAddress address = new TransportAddress(channel.getLocalAddress());
         RemoteTransportException tx = new RemoteTransportException(nodeName, address, action, error);
         OutboundMessage.Response message = new OutboundMessage.Response(threadPool.getThreadContext(), tx, version, requestId,
             false, false);
         ActionListener<Void> listener = ActionListener.wrap(() -> messageListener.onResponseSent(requestId, action, error));
-        sendMessage(channel, message, listener);
+        sendMessage(channel, message, listener, responseStatsConsumer);
     }
 
-    private void sendMessage(TcpChannel channel, OutboundMessage networkMessage, ActionListener<Void> listener) throws IOException {
+    private void sendMessage(TcpChannel channel, OutboundMessage networkMessage, ActionListener<Void> listener,
+                             ResponseStatsConsumer responseStatsConsumer) throws IOException {
         MessageSerializer serializer = new MessageSerializer(networkMessage, bigArrays);
-        SendContext sendContext = new SendContext(channel, serializer, listener, serializer);
+        SendContext sendContext = new SendContext(channel, serializer, listener, serializer, responseStatsConsumer);
         internalSend(channel, sendContext);
     }
 
@@ -174,19 +176,21 @@ final class OutboundHandler {
         private final CheckedSupplier<BytesReference, IOException> messageSupplier;
         private final ActionListener<Void> listener;
         private final Releasable optionalReleasable;
+        private final ResponseStatsConsumer responseStatsConsumer;
         private long messageSize = -1;
 
         private SendContext(TcpChannel channel, CheckedSupplier<BytesReference, IOException> messageSupplier,
                             ActionListener<Void> listener) {
-            this(channel, messageSupplier, listener, null);
+            this(channel, messageSupplier, listener, null, ResponseStatsConsumer.NONE);
         }
 
         private SendContext(TcpChannel channel, CheckedSupplier<BytesReference, IOException> messageSupplier,
-                            ActionListener<Void> listener, Releasable optionalReleasable) {
+                            ActionListener<Void> listener, Releasable optionalReleasable, ResponseStatsConsumer responseStatsConsumer) {
             this.channel = channel;
             this.messageSupplier = messageSupplier;
             this.listener = listener;
             this.optionalReleasable = optionalReleasable;
+            this.responseStatsConsumer = responseStatsConsumer;
         }
 
         public BytesReference get() throws IOException {
@@ -194,6 +198,7 @@ final class OutboundHandler {
             try {
                 message = messageSupplier.get();
                 messageSize = message.length();
+                channel.getChannelStats().markSendStarted(messageSize);
                 TransportLogger.logOutboundMessage(channel, message);
                 return message;
             } catch (Exception e) {
@@ -206,6 +211,7 @@ final class OutboundHandler {
         protected void innerOnResponse(Void v) {
             assert messageSize != -1 : "If onResponse is being called, the message should have been serialized";
             transmittedBytesMetric.inc(messageSize);
+            responseStatsConsumer.addResponseStats(Math.toIntExact(messageSize));
             closeAndCallback(() -> listener.onResponse(v));
         }
 
@@ -220,6 +226,9 @@ final class OutboundHandler {
         }
 
         private void closeAndCallback(Runnable runnable) {
+            if (messageSize != -1) {
+                channel.getChannelStats().markSendCompleted(messageSize);
+            }
             Releasables.close(optionalReleasable, runnable::run);
         }
     }
@@ -35,6 +35,7 @@ public class RequestHandlerRegistry<Request extends TransportRequest> {
     private final String executor;
     private final TaskManager taskManager;
     private final Writeable.Reader<Request> requestReader;
+    private final TransportActionStatsTracker statsTracker = new TransportActionStatsTracker();
 
     public RequestHandlerRegistry(String action, Writeable.Reader<Request> requestReader, TaskManager taskManager,
                                   TransportRequestHandler<Request> handler, String executor, boolean forceExecution,
@@ -81,6 +82,10 @@ public class RequestHandlerRegistry<Request extends TransportRequest> {
         return executor;
     }
 
+    public TransportActionStatsTracker getStatsTracker() {
+        return statsTracker;
+    }
+
     @Override
     public String toString() {
         return handler.toString();
@@ -25,6 +25,7 @@ import org.elasticsearch.common.network.CloseableChannel;
 import org.elasticsearch.common.unit.TimeValue;
 
 import java.net.InetSocketAddress;
+import java.util.concurrent.atomic.AtomicLong;
 
 
 /**
@@ -85,6 +86,7 @@ public interface TcpChannel extends CloseableChannel {
     class ChannelStats {
 
         private volatile long lastAccessedTime;
+        private final AtomicLong pendingOutboundBytes = new AtomicLong();
 
         public ChannelStats() {
             lastAccessedTime = TimeValue.nsecToMSec(System.nanoTime());
@@ -97,5 +99,20 @@ public interface TcpChannel extends CloseableChannel {
         long lastAccessedTime() {
             return lastAccessedTime;
         }
+
+        void markSendStarted(long messageBytes) {
+            pendingOutboundBytes.addAndGet(messageBytes);
+        }
+
+        void markSendCompleted(long messageBytes) {
+            pendingOutboundBytes.addAndGet(-messageBytes);
+        }
+
+        /**
+         * Returns the number of bytes of messages that have been handed to this channel but whose write has not completed yet.
+         */
+        long pendingOutboundBytes() {
+            return pendingOutboundBytes.get();
+        }
     }
 }
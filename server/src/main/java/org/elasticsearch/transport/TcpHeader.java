@@ -32,6 +32,8 @@ public class TcpHeader {
 
     public static final int MESSAGE_LENGTH_SIZE = 4;
 
+    public static final int BYTES_REQUIRED_FOR_MESSAGE_SIZE = MARKER_BYTES_SIZE + MESSAGE_LENGTH_SIZE;
+
     public static final int REQUEST_ID_SIZE = 8;
 
     public static final int STATUS_SIZE = 1;
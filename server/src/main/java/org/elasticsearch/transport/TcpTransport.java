@@ -76,6 +76,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
@@ -98,7 +99,7 @@ public abstract class TcpTransport extends AbstractLifecycleComponent implements
     public static final String TRANSPORT_WORKER_THREAD_NAME_PREFIX = "transport_worker";
 
     // This is the number of bytes necessary to read the message size
-    private static final int BYTES_NEEDED_FOR_MESSAGE_SIZE = TcpHeader.MARKER_BYTES_SIZE + TcpHeader.MESSAGE_LENGTH_SIZE;
+    private static final int BYTES_NEEDED_FOR_MESSAGE_SIZE = TcpHeader.BYTES_REQUIRED_FOR_MESSAGE_SIZE;
     private static final long THIRTY_PER_HEAP_SIZE = (long) (JvmInfo.jvmInfo().getMem().getHeapMax().getBytes() * 0.3);
     private static final BytesReference EMPTY_BYTES_REFERENCE = new BytesArray(new byte[0]);
 
@@ -142,7 +143,7 @@ public abstract class TcpTransport extends AbstractLifecycleComponent implements
                 TransportHandshaker.HANDSHAKE_ACTION_NAME, new TransportHandshaker.HandshakeRequest(version),
                 TransportRequestOptions.EMPTY, v, false, true),
             (v, channel, response, requestId) -> outboundHandler.sendResponse(v, channel, requestId,
-                TransportHandshaker.HANDSHAKE_ACTION_NAME, response, false, true));
+                TransportHandshaker.HANDSHAKE_ACTION_NAME, response, false, true, ResponseStatsConsumer.NONE));
         InboundMessage.Reader reader = new InboundMessage.Reader(version, namedWriteableRegistry, threadPool.getThreadContext());
         this.keepAlive = new TransportKeepAlive(threadPool, this.outboundHandler::sendBytes);
         this.inboundHandler = new InboundHandler(threadPool, outboundHandler, reader, circuitBreakerService, handshaker,
@@ -205,7 +206,7 @@ public abstract class TcpTransport extends AbstractLifecycleComponent implements
             if (connectionTypeHandle == null) {
                 throw new IllegalArgumentException("no type channel for [" + type + "]");
             }
-            return connectionTypeHandle.getChannel(channels);
+            return connectionTypeHandle.getChannel(channels, channel -> channel.getChannelStats().pendingOutboundBytes());
         }
 
         @Override
@@ -711,6 +712,23 @@ public abstract class TcpTransport extends AbstractLifecycleComponent implements
         }
     }
 
+    /**
+     * Validates the first 6 bytes of the message header and returns the number of bytes the whole frame, including the size
+     * header, occupies on the wire. If 6 bytes are not available, it returns -1. Channels that buffer network reads can use this
+     * to wait for a large frame to arrive completely without materializing all of the buffered bytes on every read.
+     *
+     * @param networkBytes the will be read
+     * @return the length of the frame
+     * @throws StreamCorruptedException              if the message header format is not recognized
+     * @throws HttpRequestOnTransportException       if the message header appears to be an HTTP message
+     * @throws IllegalArgumentException              if the message length is greater that the maximum allowed frame size.
+     *                                               This is dependent on the available memory.
+     */
+    public static int readFrameLength(BytesReference networkBytes) throws IOException {
+        int messageLength = readMessageLength(networkBytes);
+        return messageLength == -1 ? -1 : messageLength + BYTES_NEEDED_FOR_MESSAGE_SIZE;
+    }
+
     /**
      * Validates the first 6 bytes of the message header and returns the length of the message. If 6 bytes
      * are not available, it returns -1.
@@ -858,8 +876,15 @@ public abstract class TcpTransport extends AbstractLifecycleComponent implements
     public final TransportStats getStats() {
         MeanMetric transmittedBytes = outboundHandler.getTransmittedBytes();
         MeanMetric readBytes = inboundHandler.getReadBytes();
+        final Map<String, TransportActionStats> transportActionStats = new TreeMap<>();
+        for (Map.Entry<String, RequestHandlerRegistry<? extends TransportRequest>> entry : inboundHandler.getRequestHandlers().entrySet()) {
+            final TransportActionStats actionStats = entry.getValue().getStatsTracker().getStats();
+            if (actionStats.getRequestCount() > 0) {
+                transportActionStats.put(entry.getKey(), actionStats);
+            }
+        }
         return new TransportStats(acceptedChannels.size(), readBytes.count(), readBytes.sum(), transmittedBytes.count(),
-            transmittedBytes.sum());
+            transmittedBytes.sum(), transportActionStats);
     }
 
     /**
@@ -20,7 +20,9 @@
 package org.elasticsearch.transport;
 
 import org.elasticsearch.Version;
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.breaker.CircuitBreaker;
+import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.indices.breaker.CircuitBreakerService;
 
 import java.io.IOException;
@@ -37,9 +39,13 @@ public final class TcpTransportChannel implements TransportChannel {
     private final CircuitBreakerService breakerService;
     private final long reservedBytes;
     private final boolean compressResponse;
+    @Nullable
+    private final TransportActionStatsTracker statsTracker;
+    private final long startTimeNanos = System.nanoTime();
 
     TcpTransportChannel(OutboundHandler outboundHandler, TcpChannel channel, String action, long requestId, Version version,
-                        CircuitBreakerService breakerService, long reservedBytes, boolean compressResponse) {
+                        CircuitBreakerService breakerService, long reservedBytes, boolean compressResponse,
+                        @Nullable TransportActionStatsTracker statsTracker) {
         this.version = version;
         this.channel = channel;
         this.outboundHandler = outboundHandler;
@@ -48,6 +54,7 @@ public final class TcpTransportChannel implements TransportChannel {
         this.breakerService = breakerService;
         this.reservedBytes = reservedBytes;
         this.compressResponse = compressResponse;
+        this.statsTracker = statsTracker;
     }
 
     @Override
@@ -58,7 +65,8 @@ public final class TcpTransportChannel implements TransportChannel {
     @Override
     public void sendResponse(TransportResponse response) throws IOException {
         try {
-            outboundHandler.sendResponse(version, channel, requestId, action, response, compressResponse, false);
+            outboundHandler.sendResponse(version, channel, requestId, action, response, compressResponse, false,
+                responseStatsConsumer());
         } finally {
             release(false);
         }
@@ -67,18 +75,25 @@ public final class TcpTransportChannel implements TransportChannel {
     @Override
     public void sendResponse(Exception exception) throws IOException {
         try {
-            outboundHandler.sendErrorResponse(version, channel, requestId, action, exception);
+            outboundHandler.sendErrorResponse(version, channel, requestId, action, exception, responseStatsConsumer());
         } finally {
             release(true);
         }
     }
 
+    private ResponseStatsConsumer responseStatsConsumer() {
+        return statsTracker == null ? ResponseStatsConsumer.NONE : statsTracker;
+    }
+
     private Exception releaseBy;
 
     private void release(boolean isExceptionResponse) {
         if (released.compareAndSet(false, true)) {
             assert (releaseBy = new Exception()) != null; // easier to debug if it's already closed
             breakerService.getBreaker(CircuitBreaker.IN_FLIGHT_REQUESTS).addWithoutBreaking(-reservedBytes);
+            if (statsTracker != null) {
+                statsTracker.addHandlingTime(TimeValue.nsecToMSec(System.nanoTime() - startTimeNanos));
+            }
         } else if (isExceptionResponse == false) {
             // only fail if we are not sending an error - we might send the error triggered by the previous
             // sendResponse call
@@ -0,0 +1,158 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.transport;
+
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.io.stream.Writeable;
+import org.elasticsearch.common.metrics.ExponentialBucketHistogram;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.xcontent.ToXContentObject;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Statistics about the requests received for a single transport action and the responses sent back for them.
+ */
+public class TransportActionStats implements Writeable, ToXContentObject {
+
+    private final long requestCount;
+    private final long totalRequestSize;
+    private final long responseCount;
+    private final long totalResponseSize;
+    private final long[] handlingTimeHistogram;
+
+    public TransportActionStats(long requestCount, long totalRequestSize, long responseCount, long totalResponseSize,
+                                long[] handlingTimeHistogram) {
+        assert handlingTimeHistogram.length == ExponentialBucketHistogram.BUCKET_COUNT : Arrays.toString(handlingTimeHistogram);
+        this.requestCount = requestCount;
+        this.totalRequestSize = totalRequestSize;
+        this.responseCount = responseCount;
+        this.totalResponseSize = totalResponseSize;
+        this.handlingTimeHistogram = handlingTimeHistogram;
+    }
+
+    public TransportActionStats(StreamInput in) throws IOException {
+        requestCount = in.readVLong();
+        totalRequestSize = in.readVLong();
+        responseCount = in.readVLong();
+        totalResponseSize = in.readVLong();
+        handlingTimeHistogram = in.readVLongArray();
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        out.writeVLong(requestCount);
+        out.writeVLong(totalRequestSize);
+        out.writeVLong(responseCount);
+        out.writeVLong(totalResponseSize);
+        out.writeVLongArray(handlingTimeHistogram);
+    }
+
+    public long getRequestCount() {
+        return requestCount;
+    }
+
+    public ByteSizeValue getTotalRequestSize() {
+        return new ByteSizeValue(totalRequestSize);
+    }
+
+    public long getResponseCount() {
+        return responseCount;
+    }
+
+    public ByteSizeValue getTotalResponseSize() {
+        return new ByteSizeValue(totalResponseSize);
+    }
+
+    /**
+     * @return the number of requests whose handling took a time in each bucket of an {@link ExponentialBucketHistogram}, measured
+     *         from the moment the request was received until its response was sent.
+     */
+    public long[] getHandlingTimeHistogram() {
+        return handlingTimeHistogram;
+    }
+
+    @Override
+    public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+        builder.startObject();
+        builder.startObject(Fields.REQUESTS);
+        builder.field(Fields.COUNT, requestCount);
+        builder.humanReadableField(Fields.TOTAL_SIZE_IN_BYTES, Fields.TOTAL_SIZE, new ByteSizeValue(totalRequestSize));
+        builder.endObject();
+        builder.startObject(Fields.RESPONSES);
+        builder.field(Fields.COUNT, responseCount);
+        builder.humanReadableField(Fields.TOTAL_SIZE_IN_BYTES, Fields.TOTAL_SIZE, new ByteSizeValue(totalResponseSize));
+        builder.endObject();
+        builder.startArray(Fields.HANDLING_TIME_HISTOGRAM);
+        final long[] upperBounds = ExponentialBucketHistogram.getBucketUpperBounds();
+        for (int i = 0; i < handlingTimeHistogram.length; i++) {
+            if (handlingTimeHistogram[i] == 0) {
+                continue;
+            }
+            builder.startObject();
+            if (i > 0) {
+                builder.field(Fields.GE_MILLIS, upperBounds[i - 1]);
+            }
+            if (i < upperBounds.length) {
+                builder.field(Fields.LT_MILLIS, upperBounds[i]);
+            }
+            builder.field(Fields.COUNT, handlingTimeHistogram[i]);
+            builder.endObject();
+        }
+        builder.endArray();
+        return builder.endObject();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        TransportActionStats that = (TransportActionStats) o;
+        return requestCount == that.requestCount
+            && totalRequestSize == that.totalRequestSize
+            && responseCount == that.responseCount
+            && totalResponseSize == that.totalResponseSize
+            && Arrays.equals(handlingTimeHistogram, that.handlingTimeHistogram);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(requestCount, totalRequestSize, responseCount, totalResponseSize, Arrays.hashCode(handlingTimeHistogram));
+    }
+
+    static final class Fields {
+        static final String REQUESTS = "requests";
+        static final String RESPONSES = "responses";
+        static final String COUNT = "count";
+        static final String TOTAL_SIZE = "total_size";
+        static final String TOTAL_SIZE_IN_BYTES = "total_size_in_bytes";
+        static final String HANDLING_TIME_HISTOGRAM = "handling_time_histogram";
+        static final String GE_MILLIS = "ge_millis";
+        static final String LT_MILLIS = "lt_millis";
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.transport;
+
+import org.elasticsearch.common.metrics.ExponentialBucketHistogram;
+import org.elasticsearch.common.metrics.MeanMetric;
+
+/**
+ * Accumulates the {@link TransportActionStats} of a single registered transport action.
+ */
+public class TransportActionStatsTracker implements ResponseStatsConsumer {
+
+    private final MeanMetric requestStats = new MeanMetric();
+    private final MeanMetric responseStats = new MeanMetric();
+    private final ExponentialBucketHistogram handlingTimeHistogram = new ExponentialBucketHistogram();
+
+    public void addRequestStats(int requestSize) {
+        requestStats.inc(requestSize);
+    }
+
+    @Override
+    public void addResponseStats(int responseSize) {
+        responseStats.inc(responseSize);
+    }
+
+    public void addHandlingTime(long handlingTimeMillis) {
+        handlingTimeHistogram.add(handlingTimeMillis);
+    }
+
+    public TransportActionStats getStats() {
+        return new TransportActionStats(requestStats.count(), requestStats.sum(), responseStats.count(), responseStats.sum(),
+            handlingTimeHistogram.getHistogram());
+    }
+}
@@ -20,8 +20,10 @@
 package org.elasticsearch.action.admin.cluster.node.stats;
 
 import org.elasticsearch.cluster.node.DiscoveryNode;
+import org.elasticsearch.cluster.service.ClusterApplierRecordingService;
 import org.elasticsearch.common.io.stream.BytesStreamOutput;
 import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.metrics.ExponentialBucketHistogram;
 import org.elasticsearch.discovery.DiscoveryStats;
 import org.elasticsearch.cluster.coordination.PendingClusterStateStats;
 import org.elasticsearch.cluster.coordination.PublishClusterStateStats;
@@ -39,6 +41,7 @@ import org.elasticsearch.script.ScriptStats;
 import org.elasticsearch.test.ESTestCase;
 import org.elasticsearch.test.VersionUtils;
 import org.elasticsearch.threadpool.ThreadPoolStats;
+import org.elasticsearch.transport.TransportActionStats;
 import org.elasticsearch.transport.TransportStats;
 
 import java.io.IOException;
@@ -48,6 +51,7 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
 
 import static java.util.Collections.emptyMap;
 import static java.util.Collections.emptySet;
@@ -218,6 +222,8 @@ public class NodeStatsTests extends ESTestCase {
                     assertEquals(nodeStats.getTransport().getServerOpen(), deserializedNodeStats.getTransport().getServerOpen());
                     assertEquals(nodeStats.getTransport().getTxCount(), deserializedNodeStats.getTransport().getTxCount());
                     assertEquals(nodeStats.getTransport().getTxSize(), deserializedNodeStats.getTransport().getTxSize());
+                    assertEquals(nodeStats.getTransport().getTransportActionStats(),
+                        deserializedNodeStats.getTransport().getTransportActionStats());
                 }
                 if (nodeStats.getHttp() == null) {
                     assertNull(deserializedNodeStats.getHttp());
@@ -259,6 +265,7 @@ public class NodeStatsTests extends ESTestCase {
                         assertEquals(queueStats.getTotal(), deserializedDiscoveryStats.getQueueStats().getTotal());
                         assertEquals(queueStats.getPending(), deserializedDiscoveryStats.getQueueStats().getPending());
                     }
+                    assertEquals(discoveryStats.getApplierRecordingStats(), deserializedDiscoveryStats.getApplierRecordingStats());
                 }
                 IngestStats ingestStats = nodeStats.getIngestStats();
                 IngestStats deserializedIngestStats = deserializedNodeStats.getIngestStats();
@@ -413,7 +420,7 @@ public class NodeStatsTests extends ESTestCase {
             fsInfo = new FsInfo(randomNonNegativeLong(), ioStats, paths);
         }
         TransportStats transportStats = frequently() ? new TransportStats(randomNonNegativeLong(), randomNonNegativeLong(),
-                randomNonNegativeLong(), randomNonNegativeLong(), randomNonNegativeLong()) : null;
+                randomNonNegativeLong(), randomNonNegativeLong(), randomNonNegativeLong(), randomTransportActionStats()) : null;
         HttpStats httpStats = frequently() ? new HttpStats(randomNonNegativeLong(), randomNonNegativeLong()) : null;
         AllCircuitBreakerStats allCircuitBreakerStats = null;
         if (frequently()) {
@@ -437,6 +444,10 @@ public class NodeStatsTests extends ESTestCase {
                     randomNonNegativeLong(),
                     randomNonNegativeLong(),
                     randomNonNegativeLong())
+                : null,
+                randomBoolean()
+                ? new ClusterApplierRecordingService.Stats(randomList(5, () -> new ClusterApplierRecordingService.Recording(
+                    randomAlphaOfLength(10), randomNonNegativeLong(), randomNonNegativeLong())))
                 : null)
             : null;
         IngestStats ingestStats = null;
@@ -491,6 +502,20 @@ public class NodeStatsTests extends ESTestCase {
                 ingestStats, adaptiveSelectionStats);
     }
 
+    private static Map<String, TransportActionStats> randomTransportActionStats() {
+        Map<String, TransportActionStats> transportActionStats = new TreeMap<>();
+        int numActions = randomIntBetween(0, 5);
+        for (int i = 0; i < numActions; i++) {
+            long[] handlingTimeHistogram = new long[ExponentialBucketHistogram.BUCKET_COUNT];
+            for (int j = 0; j < handlingTimeHistogram.length; j++) {
+                handlingTimeHistogram[j] = randomNonNegativeLong();
+            }
+            transportActionStats.put(randomAlphaOfLengthBetween(3, 10), new TransportActionStats(randomNonNegativeLong(),
+                randomNonNegativeLong(), randomNonNegativeLong(), randomNonNegativeLong(), handlingTimeHistogram));
+        }
+        return transportActionStats;
+    }
+
     private IngestStats.Stats getPipelineStats(List<IngestStats.PipelineStat> pipelineStats, String id) {
         return pipelineStats.stream().filter(p1 -> p1.getPipelineId().equals(id)).findFirst().map(p2 -> p2.getStats()).orElse(null);
     }
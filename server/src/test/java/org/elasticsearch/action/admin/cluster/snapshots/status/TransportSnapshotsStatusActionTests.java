@@ -0,0 +1,115 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.action.admin.cluster.snapshots.status;
+
+import org.elasticsearch.Version;
+import org.elasticsearch.cluster.SnapshotsInProgress;
+import org.elasticsearch.cluster.node.DiscoveryNode;
+import org.elasticsearch.common.collect.ImmutableOpenMap;
+import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.index.snapshots.IndexShardSnapshotStatus;
+import org.elasticsearch.repositories.IndexId;
+import org.elasticsearch.snapshots.Snapshot;
+import org.elasticsearch.snapshots.SnapshotId;
+import org.elasticsearch.test.ESTestCase;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+
+public class TransportSnapshotsStatusActionTests extends ESTestCase {
+
+    private final Snapshot snapshot = new Snapshot("repo", new SnapshotId("snap", "uuid"));
+    private final ShardId shardId = new ShardId("index", "index-uuid", 0);
+
+    public void testUsesReportedProgressOfRunningShard() {
+        final IndexShardSnapshotStatus.Copy reported = copy(IndexShardSnapshotStatus.Stage.STARTED, 10L);
+        final SnapshotIndexShardStatus status = buildShardStatus(SnapshotsInProgress.ShardState.INIT, Collections.emptyMap(),
+            Collections.singletonMap(shardId, reported));
+        assertThat(status.getStage(), equalTo(SnapshotIndexShardStage.STARTED));
+        assertThat(status.getStats().getProcessedSize(), equalTo(10L));
+        assertThat(status.getNodeId(), equalTo("node"));
+    }
+
+    public void testPrefersStatusReturnedByNode() {
+        final SnapshotIndexShardStatus nodeStatus =
+            new SnapshotIndexShardStatus(shardId, copy(IndexShardSnapshotStatus.Stage.STARTED, 20L), "node");
+        final TransportNodesSnapshotsStatus.NodeSnapshotStatus nodeSnapshotStatus = new TransportNodesSnapshotsStatus.NodeSnapshotStatus(
+            new DiscoveryNode("node", buildNewFakeTransportAddress(), Version.CURRENT),
+            Collections.singletonMap(snapshot, Collections.singletonMap(shardId, nodeStatus)));
+        final SnapshotIndexShardStatus status = buildShardStatus(SnapshotsInProgress.ShardState.INIT,
+            Collections.singletonMap("node", nodeSnapshotStatus),
+            Collections.singletonMap(shardId, copy(IndexShardSnapshotStatus.Stage.STARTED, 10L)));
+        assertThat(status.getStats().getProcessedSize(), equalTo(20L));
+    }
+
+    public void testSkipsProgressReportedBeforeShardCompleted() {
+        // the shard completed in the cluster state but its final progress report has not arrived yet
+        final SnapshotIndexShardStatus status = buildShardStatus(SnapshotsInProgress.ShardState.SUCCESS, Collections.emptyMap(),
+            Collections.singletonMap(shardId, copy(randomFrom(IndexShardSnapshotStatus.Stage.INIT, IndexShardSnapshotStatus.Stage.STARTED,
+                IndexShardSnapshotStatus.Stage.FINALIZE), 10L)));
+        assertThat(status.getStage(), equalTo(SnapshotIndexShardStage.DONE));
+        assertThat(status.getStats().getProcessedSize(), equalTo(0L));
+    }
+
+    public void testUsesReportedCompletion() {
+        // the final progress report arrived before the completion of the shard is applied to the cluster state
+        final SnapshotIndexShardStatus status = buildShardStatus(SnapshotsInProgress.ShardState.INIT, Collections.emptyMap(),
+            Collections.singletonMap(shardId, copy(IndexShardSnapshotStatus.Stage.DONE, 10L)));
+        assertThat(status.getStage(), equalTo(SnapshotIndexShardStage.DONE));
+        assertThat(status.getStats().getProcessedSize(), equalTo(10L));
+        assertThat(status.getNodeId(), nullValue());
+    }
+
+    public void testIgnoresReportedAbort() {
+        final SnapshotIndexShardStatus status = buildShardStatus(SnapshotsInProgress.ShardState.ABORTED, Collections.emptyMap(),
+            Collections.singletonMap(shardId, copy(IndexShardSnapshotStatus.Stage.ABORTED, 10L)));
+        assertThat(status.getStage(), equalTo(SnapshotIndexShardStage.FAILURE));
+        assertThat(status.getStats().getProcessedSize(), equalTo(0L));
+    }
+
+    public void testFallsBackToClusterStateWithoutReportedProgress() {
+        final SnapshotIndexShardStatus status =
+            buildShardStatus(SnapshotsInProgress.ShardState.INIT, Collections.emptyMap(), Collections.emptyMap());
+        assertThat(status.getStage(), equalTo(SnapshotIndexShardStage.STARTED));
+        assertThat(status.getStats().getProcessedSize(), equalTo(0L));
+    }
+
+    private SnapshotIndexShardStatus buildShardStatus(SnapshotsInProgress.ShardState state,
+                                                      Map<String, TransportNodesSnapshotsStatus.NodeSnapshotStatus> nodeStatuses,
+                                                      Map<ShardId, IndexShardSnapshotStatus.Copy> reportedShards) {
+        final ImmutableOpenMap.Builder<ShardId, SnapshotsInProgress.ShardSnapshotStatus> shards = ImmutableOpenMap.builder();
+        shards.put(shardId, new SnapshotsInProgress.ShardSnapshotStatus("node", state, state.failed() ? "failed" : null, null));
+        final SnapshotsInProgress.Entry entry = new SnapshotsInProgress.Entry(snapshot, randomBoolean(), randomBoolean(),
+            SnapshotsInProgress.State.STARTED, List.of(new IndexId("index", "index-uuid")), randomNonNegativeLong(), randomLong(),
+            shards.build(), Collections.emptyMap(), true);
+        final List<SnapshotIndexShardStatus> statuses = TransportSnapshotsStatusAction.buildShardStatuses(entry, nodeStatuses,
+            reportedShards);
+        assertThat(statuses.size(), equalTo(1));
+        return statuses.get(0);
+    }
+
+    private static IndexShardSnapshotStatus.Copy copy(IndexShardSnapshotStatus.Stage stage, long processedSize) {
+        return new IndexShardSnapshotStatus.Copy(stage, 1L, 2L, 1, 2, 1, 100L, 200L, processedSize, 1L, null);
+    }
+}
@@ -20,12 +20,18 @@
 package org.elasticsearch.action.bulk;
 
 import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.bytes.CompositeBytesReference;
 import org.elasticsearch.common.xcontent.XContentType;
 import org.elasticsearch.test.ESTestCase;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicBoolean;
 
+import static org.hamcrest.Matchers.containsString;
+
 public class BulkRequestParserTests extends ESTestCase {
 
     public void testIndexRequest() throws IOException {
@@ -109,4 +115,61 @@ public class BulkRequestParserTests extends ESTestCase {
         assertTrue(parsed.get());
     }
 
+    public void testIncrementalParsing() throws IOException {
+        StringBuilder body = new StringBuilder();
+        List<String> expected = new ArrayList<>();
+        int numItems = randomIntBetween(1, 50);
+        for (int i = 0; i < numItems; i++) {
+            String id = "id-" + i;
+            switch (randomIntBetween(0, 2)) {
+                case 0:
+                    body.append("{ \"index\":{ \"_id\": \"").append(id).append("\" } }\n{ \"field\": \"")
+                        .append(randomAlphaOfLengthBetween(0, 100)).append("\" }\n");
+                    expected.add("index:" + id);
+                    break;
+                case 1:
+                    body.append("{ \"delete\":{ \"_id\": \"").append(id).append("\" } }\n");
+                    expected.add("delete:" + id);
+                    break;
+                default:
+                    body.append("{ \"update\":{ \"_id\": \"").append(id).append("\" } }\n{ \"doc\": {} }\n");
+                    expected.add("update:" + id);
+                    break;
+            }
+        }
+
+        List<String> parsed = new ArrayList<>();
+        BulkRequestParser.IncrementalParser parser = new BulkRequestParser(randomBoolean()).incrementalParser("foo", null, null, null,
+            false, XContentType.JSON,
+            (indexRequest, type) -> parsed.add("index:" + indexRequest.id()),
+            updateRequest -> parsed.add("update:" + updateRequest.id()),
+            deleteRequest -> parsed.add("delete:" + deleteRequest.id()));
+
+        // feed the body in randomly sized parts, keeping whatever the parser did not consume for the next call
+        BytesReference bytes = new BytesArray(body.toString());
+        BytesReference unconsumed = BytesArray.EMPTY;
+        int offset = 0;
+        while (offset < bytes.length()) {
+            int length = randomIntBetween(1, bytes.length() - offset);
+            BytesReference received = bytes.slice(offset, length);
+            BytesReference data = unconsumed.length() == 0 ? received : new CompositeBytesReference(unconsumed, received);
+            offset += length;
+            int consumed = parser.parse(data, offset == bytes.length());
+            unconsumed = data.slice(consumed, data.length() - consumed);
+        }
+        assertEquals(0, unconsumed.length());
+        assertEquals(expected, parsed);
+    }
+
+    public void testIncrementalParsingReportsLineNumbersOfWholeBody() throws IOException {
+        BulkRequestParser.IncrementalParser parser = new BulkRequestParser(randomBoolean()).incrementalParser("foo", null, null, null,
+            false, XContentType.JSON, (req, type) -> {}, req -> fail(), req -> fail());
+        assertEquals(0, parser.parse(new BytesArray("{ \"index\":{ \"_id\": \"bar\" } }\n"), false));
+        BytesArray data = new BytesArray("{ \"index\":{ \"_id\": \"bar\" } }\n{}\n");
+        assertEquals(data.length(), parser.parse(data, false));
+        IllegalArgumentException e = expectThrows(IllegalArgumentException.class,
+            () -> parser.parse(new BytesArray("[]\n"), true));
+        assertThat(e.getMessage(), containsString("line [3]"));
+    }
+
 }
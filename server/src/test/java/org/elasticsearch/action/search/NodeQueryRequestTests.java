@@ -0,0 +1,186 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.action.search;
+
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.OriginalIndices;
+import org.elasticsearch.common.Strings;
+import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.search.AbstractSearchTestCase;
+import org.elasticsearch.search.SearchPhaseResult;
+import org.elasticsearch.search.SearchService;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.elasticsearch.search.internal.AliasFilter;
+import org.elasticsearch.search.internal.ShardSearchRequest;
+import org.elasticsearch.search.query.QuerySearchResult;
+import org.elasticsearch.tasks.TaskId;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+public class NodeQueryRequestTests extends AbstractSearchTestCase {
+
+    public void testSerializationSendsSourceOnce() throws IOException {
+        final SearchRequest searchRequest = createSearchRequest();
+        final List<ShardSearchRequest> shardRequests = createShardRequests(searchRequest, randomIntBetween(1, 10));
+        final NodeQueryRequest request = new NodeQueryRequest(shardRequests, randomIntBetween(1, 5));
+
+        final NodeQueryRequest deserialized = copyWriteable(request, namedWriteableRegistry, NodeQueryRequest::new);
+        assertThat(deserialized.getMaxConcurrentShardRequests(), equalTo(request.getMaxConcurrentShardRequests()));
+        assertThat(deserialized.getShardRequests().size(), equalTo(shardRequests.size()));
+        final SearchSourceBuilder source = deserialized.getShardRequests().get(0).source();
+        assertEquals(searchRequest.source(), source);
+        for (int i = 0; i < shardRequests.size(); i++) {
+            final ShardSearchRequest original = shardRequests.get(i);
+            final ShardSearchRequest copy = deserialized.getShardRequests().get(i);
+            assertThat(copy.source(), sameInstance(source));
+            assertEquals(original.shardId(), copy.shardId());
+            assertEquals(original.numberOfShards(), copy.numberOfShards());
+            assertEquals(original.getAliasFilter(), copy.getAliasFilter());
+            assertEquals(original.cacheKey(), copy.cacheKey());
+            assertArrayEquals(original.indices(), copy.indices());
+        }
+    }
+
+    public void testRequiresSharedSource() throws IOException {
+        final List<ShardSearchRequest> shardRequests = new ArrayList<>(createShardRequests(createSearchRequest(), 1));
+        shardRequests.addAll(createShardRequests(createSearchRequest().source(new SearchSourceBuilder()), 1));
+        expectThrows(IllegalArgumentException.class, () -> new NodeQueryRequest(shardRequests, 1));
+        expectThrows(IllegalArgumentException.class, () -> new NodeQueryRequest(Collections.emptyList(), 1));
+    }
+
+    public void testExecuteLimitsConcurrency() throws IOException {
+        final int numShards = randomIntBetween(1, 20);
+        final int maxConcurrent = randomIntBetween(1, 5);
+        final NodeQueryRequest request = new NodeQueryRequest(createShardRequests(createSearchRequest(), numShards), maxConcurrent);
+
+        final List<ActionListener<SearchPhaseResult>> running = new ArrayList<>();
+        final SearchService searchService = mock(SearchService.class);
+        doAnswer(invocation -> {
+            @SuppressWarnings("unchecked")
+            final ActionListener<SearchPhaseResult> listener = (ActionListener<SearchPhaseResult>) invocation.getArguments()[2];
+            running.add(listener);
+            return null;
+        }).when(searchService).executeQueryPhase(any(ShardSearchRequest.class), any(SearchShardTask.class), any());
+
+        final AtomicReference<NodeQueryResponse> response = new AtomicReference<>();
+        SearchTransportService.executeNodeQuery(searchService, request,
+            new SearchShardTask(1, "test", SearchTransportService.NODE_QUERY_ACTION_NAME, "", TaskId.EMPTY_TASK_ID,
+                Collections.emptyMap()),
+            ActionListener.wrap(response::set, e -> fail(e.getMessage())));
+
+        final List<Object> expected = new ArrayList<>();
+        for (int shard = 0; shard < numShards; shard++) {
+            assertThat(running.size(), equalTo(Math.min(maxConcurrent, numShards - shard) + shard));
+            assertNull(response.get());
+            if (randomBoolean()) {
+                final QuerySearchResult result = new QuerySearchResult();
+                expected.add(result);
+                running.get(shard).onResponse(result);
+            } else {
+                final Exception failure = new IllegalStateException("shard " + shard);
+                expected.add(failure);
+                running.get(shard).onFailure(failure);
+            }
+        }
+        assertThat(running.size(), equalTo(numShards));
+        assertNotNull(response.get());
+        assertThat(response.get().size(), equalTo(numShards));
+        for (int shard = 0; shard < numShards; shard++) {
+            if (expected.get(shard) instanceof QuerySearchResult) {
+                assertThat(response.get().getResult(shard), sameInstance(expected.get(shard)));
+                assertNull(response.get().getFailure(shard));
+            } else {
+                assertThat(response.get().getFailure(shard), sameInstance(expected.get(shard)));
+                assertNull(response.get().getResult(shard));
+            }
+        }
+    }
+
+    public void testExecuteHandlesSynchronousCompletionAndFailures() throws IOException {
+        final int numShards = randomIntBetween(1, 200);
+        final int maxConcurrent = randomIntBetween(1, 5);
+        final NodeQueryRequest request = new NodeQueryRequest(createShardRequests(createSearchRequest(), numShards), maxConcurrent);
+
+        final List<Integer> stackDepths = new ArrayList<>();
+        final List<Object> expected = new ArrayList<>();
+        final SearchService searchService = mock(SearchService.class);
+        doAnswer(invocation -> {
+            stackDepths.add(Thread.currentThread().getStackTrace().length);
+            @SuppressWarnings("unchecked")
+            final ActionListener<SearchPhaseResult> listener = (ActionListener<SearchPhaseResult>) invocation.getArguments()[2];
+            switch (randomIntBetween(0, 2)) {
+                case 0:
+                    final QuerySearchResult result = new QuerySearchResult();
+                    expected.add(result);
+                    listener.onResponse(result);
+                    return null;
+                case 1:
+                    final Exception failure = new IllegalStateException("shard " + expected.size());
+                    expected.add(failure);
+                    listener.onFailure(failure);
+                    return null;
+                default:
+                    final Exception thrown = new IllegalStateException("thrown by shard " + expected.size());
+                    expected.add(thrown);
+                    throw thrown;
+            }
+        }).when(searchService).executeQueryPhase(any(ShardSearchRequest.class), any(SearchShardTask.class), any());
+
+        final AtomicReference<NodeQueryResponse> response = new AtomicReference<>();
+        SearchTransportService.executeNodeQuery(searchService, request,
+            new SearchShardTask(1, "test", SearchTransportService.NODE_QUERY_ACTION_NAME, "", TaskId.EMPTY_TASK_ID,
+                Collections.emptyMap()),
+            ActionListener.wrap(r -> assertTrue(response.compareAndSet(null, r)), e -> fail(e.getMessage())));
+
+        assertNotNull(response.get());
+        assertThat(response.get().size(), equalTo(numShards));
+        for (int shard = 0; shard < numShards; shard++) {
+            if (expected.get(shard) instanceof QuerySearchResult) {
+                assertThat(response.get().getResult(shard), sameInstance(expected.get(shard)));
+                assertNull(response.get().getFailure(shard));
+            } else {
+                assertThat(response.get().getFailure(shard), sameInstance(expected.get(shard)));
+                assertNull(response.get().getResult(shard));
+            }
+        }
+        // shards that complete synchronously don't start the next shard recursively
+        assertThat(stackDepths.stream().distinct().count(), equalTo(1L));
+    }
+
+    private static List<ShardSearchRequest> createShardRequests(SearchRequest searchRequest, int count) {
+        final List<ShardSearchRequest> shardRequests = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            final ShardId shardId = new ShardId(randomAlphaOfLengthBetween(2, 10), randomAlphaOfLengthBetween(2, 10), i);
+            shardRequests.add(new ShardSearchRequest(new OriginalIndices(searchRequest), searchRequest, shardId, count + 1,
+                new AliasFilter(null, Strings.EMPTY_ARRAY), 1.0f, randomNonNegativeLong(), null, Strings.EMPTY_ARRAY));
+        }
+        return shardRequests;
+    }
+}
@@ -0,0 +1,274 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.action.search;
+
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TotalHits;
+import org.elasticsearch.Version;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.OriginalIndices;
+import org.elasticsearch.cluster.node.DiscoveryNode;
+import org.elasticsearch.cluster.routing.GroupShardsIterator;
+import org.elasticsearch.cluster.routing.RecoverySource;
+import org.elasticsearch.cluster.routing.ShardRouting;
+import org.elasticsearch.cluster.routing.UnassignedInfo;
+import org.elasticsearch.common.Strings;
+import org.elasticsearch.common.lucene.search.TopDocsAndMaxScore;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.index.Index;
+import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.search.DocValueFormat;
+import org.elasticsearch.search.SearchPhaseResult;
+import org.elasticsearch.search.aggregations.InternalAggregation;
+import org.elasticsearch.search.internal.AliasFilter;
+import org.elasticsearch.search.internal.ShardSearchRequest;
+import org.elasticsearch.search.query.QuerySearchResult;
+import org.elasticsearch.tasks.TaskId;
+import org.elasticsearch.test.ESTestCase;
+import org.elasticsearch.transport.Transport;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+
+public class SearchQueryThenFetchAsyncActionTests extends ESTestCase {
+
+    private final DiscoveryNode firstNode = new DiscoveryNode("node_1", buildNewFakeTransportAddress(), Version.CURRENT);
+    private final DiscoveryNode secondNode = new DiscoveryNode("node_2", buildNewFakeTransportAddress(), Version.CURRENT);
+
+    private final List<NodeQuery> nodeQueries = new ArrayList<>();
+    private final List<ShardQuery> shardQueries = new ArrayList<>();
+    private final AtomicReference<SearchResponse> response = new AtomicReference<>();
+    private final AtomicReference<Exception> failure = new AtomicReference<>();
+
+    public void testBatchesQueryPhasePerNode() {
+        final int numShards = randomIntBetween(2, 10);
+        final SearchRequest request = newSearchRequest(randomIntBetween(1, 10));
+        startSearch(request, numShards);
+
+        assertThat(shardQueries.size(), equalTo(0));
+        assertThat(nodeQueries.size(), equalTo(1));
+        final NodeQuery nodeQuery = nodeQueries.get(0);
+        assertThat(nodeQuery.node, equalTo(firstNode));
+        assertThat(nodeQuery.request.getMaxConcurrentShardRequests(), equalTo(request.getMaxConcurrentShardRequests()));
+        assertThat(nodeQuery.request.getShardRequests().size(), equalTo(numShards));
+        for (int i = 0; i < numShards; i++) {
+            assertThat(nodeQuery.request.getShardRequests().get(i).shardId().id(), equalTo(i));
+        }
+
+        for (SearchActionListener<SearchPhaseResult> listener : nodeQuery.listeners) {
+            listener.onResponse(newResult());
+        }
+        assertNull(failure.get());
+        assertNotNull(response.get());
+        assertThat(response.get().getSuccessfulShards(), equalTo(numShards));
+        assertThat(response.get().getFailedShards(), equalTo(0));
+    }
+
+    public void testShardFailuresOfBatchFailOverToNextCopy() {
+        final int numShards = randomIntBetween(2, 10);
+        startSearch(newSearchRequest(numShards), numShards);
+        assertThat(nodeQueries.size(), equalTo(1));
+
+        final Set<Integer> failedShards = new HashSet<>();
+        final List<SearchActionListener<SearchPhaseResult>> listeners = nodeQueries.get(0).listeners;
+        for (int i = 0; i < numShards; i++) {
+            if (randomBoolean()) {
+                failedShards.add(i);
+                listeners.get(i).onFailure(new IllegalStateException("simulated failure of shard " + i));
+            } else {
+                listeners.get(i).onResponse(newResult());
+            }
+        }
+
+        // failed shards are retried on their next copy with a request of their own
+        final Set<Integer> retriedShards = new HashSet<>();
+        for (ShardQuery shardQuery : shardQueries) {
+            assertThat(shardQuery.node, equalTo(secondNode));
+            assertTrue(retriedShards.add(shardQuery.request.shardId().id()));
+        }
+        assertThat(retriedShards, equalTo(failedShards));
+        assertThat(nodeQueries.size(), equalTo(1));
+
+        final Set<Integer> failedAgain = new HashSet<>();
+        for (ShardQuery shardQuery : new ArrayList<>(shardQueries)) {
+            if (failedShards.size() < numShards && randomBoolean()) {
+                failedAgain.add(shardQuery.request.shardId().id());
+                shardQuery.listener.onFailure(new IllegalStateException("simulated failure on the second copy"));
+            } else {
+                shardQuery.listener.onResponse(newResult());
+            }
+        }
+        assertNull(failure.get());
+        assertNotNull(response.get());
+        assertThat(response.get().getSuccessfulShards(), equalTo(numShards - failedAgain.size()));
+        assertThat(response.get().getFailedShards(), equalTo(failedAgain.size()));
+    }
+
+    public void testNodeFailureFailsOverAllShardsOfTheBatch() {
+        final int numShards = randomIntBetween(2, 10);
+        startSearch(newSearchRequest(numShards), numShards);
+        assertThat(nodeQueries.size(), equalTo(1));
+
+        // this is how a failure of the whole node request reaches the shards
+        for (SearchActionListener<SearchPhaseResult> listener : nodeQueries.get(0).listeners) {
+            listener.onFailure(new IllegalStateException("simulated node failure"));
+        }
+        assertThat(shardQueries.size(), equalTo(numShards));
+        assertNull(response.get());
+
+        for (ShardQuery shardQuery : new ArrayList<>(shardQueries)) {
+            assertThat(shardQuery.node, equalTo(secondNode));
+            shardQuery.listener.onFailure(new IllegalStateException("simulated failure on the second copy"));
+        }
+        assertNull(response.get());
+        assertThat(failure.get(), instanceOf(SearchPhaseExecutionException.class));
+        assertThat(((SearchPhaseExecutionException) failure.get()).shardFailures().length, equalTo(numShards));
+    }
+
+    public void testRetriesOfBatchRespectMaxConcurrentShardRequests() {
+        final int numShards = randomIntBetween(3, 10);
+        final int maxConcurrentShardRequests = randomIntBetween(1, numShards - 1);
+        final SearchRequest request = newSearchRequest(maxConcurrentShardRequests);
+        startSearch(request, numShards);
+        // the batch is sent as a whole, the limit applies to the shard requests on the node
+        assertThat(nodeQueries.size(), equalTo(1));
+        assertThat(nodeQueries.get(0).request.getShardRequests().size(), equalTo(numShards));
+
+        for (SearchActionListener<SearchPhaseResult> listener : nodeQueries.get(0).listeners) {
+            listener.onFailure(new IllegalStateException("simulated node failure"));
+        }
+        // the retries on the second node are throttled
+        assertThat(shardQueries.size(), equalTo(maxConcurrentShardRequests));
+        int completed = 0;
+        while (completed < shardQueries.size()) {
+            final ShardQuery shardQuery = shardQueries.get(completed++);
+            assertThat(shardQuery.node, equalTo(secondNode));
+            assertThat(shardQueries.size() - completed, lessThanOrEqualTo(maxConcurrentShardRequests));
+            shardQuery.listener.onResponse(newResult());
+        }
+        assertThat(completed, equalTo(numShards));
+        assertNull(failure.get());
+        assertNotNull(response.get());
+        assertThat(response.get().getSuccessfulShards(), equalTo(numShards));
+    }
+
+    private void startSearch(SearchRequest request, int numShards) {
+        final Map<String, Transport.Connection> connections = new HashMap<>();
+        connections.put(firstNode.getId(), new SearchAsyncActionTests.MockConnection(firstNode));
+        connections.put(secondNode.getId(), new SearchAsyncActionTests.MockConnection(secondNode));
+        final SearchTransportService searchTransportService = new SearchTransportService(null, null) {
+            @Override
+            public void sendExecuteNodeQuery(Transport.Connection connection, NodeQueryRequest request, SearchTask task,
+                                             List<SearchActionListener<SearchPhaseResult>> listeners) {
+                nodeQueries.add(new NodeQuery(connection.getNode(), request, listeners));
+            }
+
+            @Override
+            public void sendExecuteQuery(Transport.Connection connection, ShardSearchRequest request, SearchTask task,
+                                         SearchActionListener<SearchPhaseResult> listener) {
+                shardQueries.add(new ShardQuery(connection.getNode(), request, listener));
+            }
+
+            @Override
+            public void sendFreeContext(Transport.Connection connection, long contextId, OriginalIndices originalIndices) {
+            }
+        };
+        final SearchPhaseController controller = new SearchPhaseController(
+            b -> new InternalAggregation.ReduceContext(BigArrays.NON_RECYCLING_INSTANCE, null, b));
+        final SearchTask task = new SearchTask(0, "n/a", "n/a", "test", TaskId.EMPTY_TASK_ID, Collections.emptyMap());
+        final SearchQueryThenFetchAsyncAction action = new SearchQueryThenFetchAsyncAction(logger, searchTransportService,
+            (clusterAlias, nodeId) -> connections.get(nodeId),
+            Collections.singletonMap("_na_", new AliasFilter(null, Strings.EMPTY_ARRAY)), Collections.emptyMap(), Collections.emptyMap(),
+            controller, Runnable::run, request, ActionListener.wrap(response::set, failure::set), newShardsIterator(numShards),
+            new TransportSearchAction.SearchTimeProvider(0, 0, () -> 0), 0, task, SearchResponse.Clusters.EMPTY, true);
+        action.start();
+    }
+
+    private SearchRequest newSearchRequest(int maxConcurrentShardRequests) {
+        final SearchRequest request = new SearchRequest("index");
+        request.setMaxConcurrentShardRequests(maxConcurrentShardRequests);
+        request.allowPartialSearchResults(true);
+        return request;
+    }
+
+    /**
+     * Returns shards whose first copy is on the first node and whose second copy is on the second node.
+     */
+    private GroupShardsIterator<SearchShardIterator> newShardsIterator(int numShards) {
+        final List<SearchShardIterator> iterators = new ArrayList<>();
+        for (int i = 0; i < numShards; i++) {
+            final ShardId shardId = new ShardId(new Index("index", "_na_"), i);
+            final List<ShardRouting> copies = new ArrayList<>();
+            for (DiscoveryNode node : List.of(firstNode, secondNode)) {
+                final boolean primary = node == firstNode;
+                ShardRouting routing = ShardRouting.newUnassigned(shardId, primary,
+                    primary ? RecoverySource.EmptyStoreRecoverySource.INSTANCE : RecoverySource.PeerRecoverySource.INSTANCE,
+                    new UnassignedInfo(UnassignedInfo.Reason.INDEX_CREATED, "test"));
+                routing = routing.initialize(node.getId(), null, 0).moveToStarted();
+                copies.add(routing);
+            }
+            iterators.add(new SearchShardIterator(null, shardId, copies, OriginalIndices.NONE));
+        }
+        return new GroupShardsIterator<>(iterators);
+    }
+
+    private static QuerySearchResult newResult() {
+        final QuerySearchResult result = new QuerySearchResult();
+        result.topDocs(new TopDocsAndMaxScore(new TopDocs(new TotalHits(0, TotalHits.Relation.EQUAL_TO), new ScoreDoc[0]), Float.NaN),
+            new DocValueFormat[0]);
+        result.size(10);
+        return result;
+    }
+
+    private static final class NodeQuery {
+        private final DiscoveryNode node;
+        private final NodeQueryRequest request;
+        private final List<SearchActionListener<SearchPhaseResult>> listeners;
+
+        NodeQuery(DiscoveryNode node, NodeQueryRequest request, List<SearchActionListener<SearchPhaseResult>> listeners) {
+            this.node = node;
+            this.request = request;
+            this.listeners = listeners;
+        }
+    }
+
+    private static final class ShardQuery {
+        private final DiscoveryNode node;
+        private final ShardSearchRequest request;
+        private final SearchActionListener<SearchPhaseResult> listener;
+
+        ShardQuery(DiscoveryNode node, ShardSearchRequest request, SearchActionListener<SearchPhaseResult> listener) {
+            this.node = node;
+            this.request = request;
+            this.listener = listener;
+        }
+    }
+}
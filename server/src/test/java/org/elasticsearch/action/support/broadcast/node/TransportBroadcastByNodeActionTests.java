@@ -53,11 +53,14 @@ import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.index.Index;
 import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.rest.RestStatus;
+import org.elasticsearch.tasks.TaskId;
 import org.elasticsearch.test.ESTestCase;
 import org.elasticsearch.test.transport.CapturingTransport;
 import org.elasticsearch.threadpool.TestThreadPool;
 import org.elasticsearch.threadpool.ThreadPool;
+import org.elasticsearch.transport.RequestHandlerRegistry;
 import org.elasticsearch.transport.TransportChannel;
+import org.elasticsearch.transport.TransportRequest;
 import org.elasticsearch.transport.TransportResponse;
 import org.elasticsearch.transport.TransportService;
 import org.junit.After;
@@ -73,15 +76,19 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static java.util.Collections.emptyMap;
 import static java.util.Collections.emptySet;
 import static org.elasticsearch.test.ClusterServiceUtils.createClusterService;
 import static org.elasticsearch.test.ClusterServiceUtils.setState;
 import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.instanceOf;
 import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
 import static org.hamcrest.object.HasToString.hasToString;
 
 public class TransportBroadcastByNodeActionTests extends ESTestCase {
@@ -92,6 +99,7 @@ public class TransportBroadcastByNodeActionTests extends ESTestCase {
 
     private ClusterService clusterService;
     private CapturingTransport transport;
+    private TransportService transportService;
 
     private TestTransportBroadcastByNodeAction action;
 
@@ -123,7 +131,13 @@ public class TransportBroadcastByNodeActionTests extends ESTestCase {
         TestTransportBroadcastByNodeAction(TransportService transportService, ActionFilters actionFilters,
                                            IndexNameExpressionResolver indexNameExpressionResolver, Writeable.Reader<Request> request,
                                            String executor) {
-            super("indices:admin/test", TransportBroadcastByNodeActionTests.this.clusterService, transportService,
+            this("indices:admin/test", transportService, actionFilters, indexNameExpressionResolver, request, executor);
+        }
+
+        TestTransportBroadcastByNodeAction(String actionName, TransportService transportService, ActionFilters actionFilters,
+                                           IndexNameExpressionResolver indexNameExpressionResolver, Writeable.Reader<Request> request,
+                                           String executor) {
+            super(actionName, TransportBroadcastByNodeActionTests.this.clusterService, transportService,
                 actionFilters, indexNameExpressionResolver, request, executor);
         }
 
@@ -193,7 +207,7 @@ public class TransportBroadcastByNodeActionTests extends ESTestCase {
         super.setUp();
         transport = new CapturingTransport();
         clusterService = createClusterService(THREAD_POOL);
-        TransportService transportService = transport.createTransportService(clusterService.getSettings(), THREAD_POOL,
+        transportService = transport.createTransportService(clusterService.getSettings(), THREAD_POOL,
             TransportService.NOOP_TRANSPORT_INTERCEPTOR, x -> clusterService.localNode(), null, Collections.emptySet());
         transportService.start();
         transportService.acceptIncomingRequests();
@@ -401,6 +415,66 @@ public class TransportBroadcastByNodeActionTests extends ESTestCase {
         }
     }
 
+    public void testIdenticalNodeRequestsOfDifferentCallersAreCoalesced() throws Exception {
+        final CountDownLatch operationStarted = new CountDownLatch(1);
+        final CountDownLatch releaseOperation = new CountDownLatch(1);
+        final AtomicInteger operations = new AtomicInteger();
+        final TestTransportBroadcastByNodeAction coalescingAction = new TestTransportBroadcastByNodeAction("indices:admin/test_coalescing",
+            transportService, new ActionFilters(new HashSet<>()), new MyResolver(), Request::new, ThreadPool.Names.SAME) {
+            @Override
+            protected boolean coalesceIdenticalNodeRequests() {
+                return true;
+            }
+
+            @Override
+            protected EmptyResult shardOperation(Request request, ShardRouting shardRouting) {
+                operations.incrementAndGet();
+                operationStarted.countDown();
+                try {
+                    assertTrue(releaseOperation.await(10, TimeUnit.SECONDS));
+                } catch (InterruptedException e) {
+                    throw new AssertionError(e);
+                }
+                return EmptyResult.INSTANCE;
+            }
+        };
+        @SuppressWarnings("unchecked")
+        final RequestHandlerRegistry<TransportRequest> handler =
+            (RequestHandlerRegistry<TransportRequest>) transportService.getRequestHandler("indices:admin/test_coalescing[n]");
+        final ShardRouting shard = clusterService.state().routingTable().allShards(new String[]{TEST_INDEX}).iterator().next();
+
+        // the callers of both the indices-level and the node-level requests differ
+        final Request firstRequest = new Request(TEST_INDEX);
+        firstRequest.setParentTask(new TaskId("node_1", 1));
+        final TransportBroadcastByNodeAction.NodeRequest firstNodeRequest =
+            coalescingAction.new NodeRequest(shard.currentNodeId(), firstRequest, Collections.singletonList(shard));
+        firstNodeRequest.setParentTask(new TaskId("node_1", 2));
+        final Request secondRequest = new Request(TEST_INDEX);
+        secondRequest.setParentTask(new TaskId("node_2", 1));
+        final TransportBroadcastByNodeAction.NodeRequest secondNodeRequest =
+            coalescingAction.new NodeRequest(shard.currentNodeId(), secondRequest, Collections.singletonList(shard));
+        secondNodeRequest.setParentTask(new TaskId("node_2", 2));
+
+        final TestTransportChannel firstChannel = new TestTransportChannel();
+        final TestTransportChannel secondChannel = new TestTransportChannel();
+        final Thread thread = new Thread(() -> {
+            try {
+                handler.processMessageReceived(firstNodeRequest, firstChannel);
+            } catch (Exception e) {
+                throw new AssertionError(e);
+            }
+        });
+        thread.start();
+        assertTrue(operationStarted.await(10, TimeUnit.SECONDS));
+        handler.processMessageReceived(secondNodeRequest, secondChannel);
+        releaseOperation.countDown();
+        thread.join();
+
+        assertEquals(1, operations.get());
+        assertThat(firstChannel.getCapturedResponse(), instanceOf(TransportBroadcastByNodeAction.NodeResponse.class));
+        assertThat(secondChannel.getCapturedResponse(), sameInstance(firstChannel.getCapturedResponse()));
+    }
+
     public void testResultAggregation() throws ExecutionException, InterruptedException {
         Request request = new Request(new String[]{TEST_INDEX});
         PlainActionFuture<Response> listener = new PlainActionFuture<>();
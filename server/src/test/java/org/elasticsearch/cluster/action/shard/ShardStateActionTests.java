@@ -145,6 +145,7 @@ public class ShardStateActionTests extends ESTestCase {
         transportService.close();
         super.tearDown();
         assertThat(shardStateAction.remoteShardFailedCacheSize(), equalTo(0));
+        assertThat(shardStateAction.startedShardsCacheSize(), equalTo(0));
     }
 
     @AfterClass
@@ -438,6 +439,48 @@ public class ShardStateActionTests extends ESTestCase {
         assertNull(listener.failure.get());
     }
 
+    public void testDeduplicateShardStarted() throws InterruptedException {
+        final String index = "test";
+        setState(clusterService, ClusterStateCreationUtils.stateWithActivePrimary(index, true, randomInt(5)));
+
+        final ShardRouting shardRouting = getRandomShardRouting(index);
+        final long primaryTerm = clusterService.state().metaData().index(shardRouting.index()).primaryTerm(shardRouting.id());
+        final int numListeners = between(1, 100);
+        final CountDownLatch latch = new CountDownLatch(numListeners);
+        final AtomicInteger failures = new AtomicInteger();
+        for (int i = 0; i < numListeners; i++) {
+            shardStateAction.shardStarted(shardRouting, primaryTerm, "test " + i, new ActionListener<Void>() {
+                @Override
+                public void onResponse(Void aVoid) {
+                    latch.countDown();
+                }
+
+                @Override
+                public void onFailure(Exception e) {
+                    failures.incrementAndGet();
+                    latch.countDown();
+                }
+            });
+        }
+        assertThat(shardStateAction.startedShardsCacheSize(), equalTo(1));
+
+        final CapturingTransport.CapturedRequest[] capturedRequests = transport.getCapturedRequestsAndClear();
+        assertThat(capturedRequests, arrayWithSize(1));
+        transport.handleResponse(capturedRequests[0].requestId, TransportResponse.Empty.INSTANCE);
+        latch.await();
+        assertThat(failures.get(), equalTo(0));
+        assertThat(transport.capturedRequests(), arrayWithSize(0));
+
+        // once the request completed a new one is sent
+        final TestListener listener = new TestListener();
+        shardStateAction.shardStarted(shardRouting, primaryTerm, "test", listener);
+        final CapturingTransport.CapturedRequest[] retriedRequests = transport.getCapturedRequestsAndClear();
+        assertThat(retriedRequests, arrayWithSize(1));
+        transport.handleResponse(retriedRequests[0].requestId, TransportResponse.Empty.INSTANCE);
+        listener.await();
+        assertNull(listener.failure.get());
+    }
+
     private ShardRouting getRandomShardRouting(String index) {
         IndexRoutingTable indexRoutingTable = clusterService.state().routingTable().index(index);
         ShardsIterator shardsIterator = indexRoutingTable.randomAllActiveShardsIt();
@@ -521,6 +564,7 @@ public class ShardStateActionTests extends ESTestCase {
             assertThat(deserialized.allocationId, equalTo(allocationId));
             assertThat(deserialized.primaryTerm, equalTo(primaryTerm));
             assertThat(deserialized.message, equalTo(message));
+            assertEquals(new StartedShardEntry(shardId, allocationId, primaryTerm, message), deserialized);
         }
     }
 
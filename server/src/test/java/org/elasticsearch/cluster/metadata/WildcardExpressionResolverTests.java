@@ -130,6 +130,34 @@ public class WildcardExpressionResolverTests extends ESTestCase {
         assertThat(newHashSet(resolver.resolve(context, Collections.singletonList("*Y*X"))).size(), equalTo(0));
     }
 
+    public void testInfixWildcardsWithAliases() {
+        MetaData.Builder mdBuilder = MetaData.builder()
+                .put(indexBuilder("logs-a-1").putAlias(AliasMetaData.builder("logs-alias-1")))
+                .put(indexBuilder("logs-b-1"))
+                .put(indexBuilder("logs-b-2"))
+                .put(indexBuilder("logt-a-1"))
+                .put(indexBuilder("log-a-1"))
+                .put(indexBuilder("metrics-a-1"));
+
+        ClusterState state = ClusterState.builder(new ClusterName("_name")).metaData(mdBuilder).build();
+        IndexNameExpressionResolver.WildcardExpressionResolver resolver = new IndexNameExpressionResolver.WildcardExpressionResolver();
+
+        IndexNameExpressionResolver.Context context = new IndexNameExpressionResolver.Context(state, IndicesOptions.lenientExpandOpen());
+        assertThat(newHashSet(resolver.resolve(context, Collections.singletonList("logs-*-1"))),
+            equalTo(newHashSet("logs-a-1", "logs-b-1")));
+        assertThat(newHashSet(resolver.resolve(context, Collections.singletonList("log*-a-*"))),
+            equalTo(newHashSet("logs-a-1", "logt-a-1", "log-a-1")));
+        assertThat(newHashSet(resolver.resolve(context, Collections.singletonList("logs-*-alias-*"))).size(), equalTo(0));
+        assertThat(newHashSet(resolver.resolve(context, Collections.singletonList("logs-a*-1"))), equalTo(newHashSet("logs-a-1")));
+        assertThat(newHashSet(resolver.resolve(context, Collections.singletonList("logs-al*s-1"))), equalTo(newHashSet("logs-a-1")));
+        assertThat(newHashSet(resolver.resolve(context, Arrays.asList("logs-*-*", "-logs-b*-2"))),
+            equalTo(newHashSet("logs-a-1", "logs-b-1")));
+
+        IndexNameExpressionResolver.Context noAliasesContext = new IndexNameExpressionResolver.Context(state,
+            IndicesOptions.fromOptions(true, true, true, false, true, false, true, false));
+        assertThat(newHashSet(resolver.resolve(noAliasesContext, Collections.singletonList("logs-al*s-1"))).size(), equalTo(0));
+    }
+
     public void testAll() {
         MetaData.Builder mdBuilder = MetaData.builder()
             .put(indexBuilder("testXXX"))
@@ -23,8 +23,11 @@ import org.apache.logging.log4j.Level;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.elasticsearch.Version;
+import org.elasticsearch.cluster.ClusterChangedEvent;
 import org.elasticsearch.cluster.ClusterName;
 import org.elasticsearch.cluster.ClusterState;
+import org.elasticsearch.cluster.ClusterStateApplier;
+import org.elasticsearch.cluster.ClusterStateListener;
 import org.elasticsearch.cluster.ClusterStateObserver;
 import org.elasticsearch.cluster.LocalNodeMasterListener;
 import org.elasticsearch.cluster.block.ClusterBlocks;
@@ -48,16 +51,19 @@ import org.junit.AfterClass;
 import org.junit.Before;
 import org.junit.BeforeClass;
 
+import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
 
 import static java.util.Collections.emptyMap;
 import static java.util.Collections.emptySet;
 import static org.elasticsearch.test.ClusterServiceUtils.createNoOpNodeConnectionsService;
 import static org.elasticsearch.test.ClusterServiceUtils.setState;
 import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.is;
 
 public class ClusterApplierServiceTests extends ESTestCase {
@@ -495,6 +501,61 @@ public class ClusterApplierServiceTests extends ESTestCase {
         assertTrue(applierCalled.get());
     }
 
+    public void testRecordsApplierAndListenerStats() throws InterruptedException {
+        final ClusterStateApplier applier = new ClusterStateApplier() {
+            @Override
+            public void applyClusterState(ClusterChangedEvent event) {
+            }
+
+            @Override
+            public String toString() {
+                return "test applier";
+            }
+        };
+        final ClusterStateListener listener = new ClusterStateListener() {
+            @Override
+            public void clusterChanged(ClusterChangedEvent event) {
+            }
+
+            @Override
+            public String toString() {
+                return "test listener";
+            }
+        };
+        clusterApplierService.addStateApplier(applier);
+        clusterApplierService.addListener(listener);
+
+        final int updates = randomIntBetween(1, 5);
+        for (int i = 0; i < updates; i++) {
+            CountDownLatch latch = new CountDownLatch(1);
+            clusterApplierService.onNewClusterState("test", () -> ClusterState.builder(clusterApplierService.state()).build(),
+                new ClusterApplyListener() {
+                    @Override
+                    public void onSuccess(String source) {
+                        latch.countDown();
+                    }
+
+                    @Override
+                    public void onFailure(String source, Exception e) {
+                        throw new AssertionError(e);
+                    }
+                });
+            latch.await();
+        }
+
+        Map<String, Long> counts = clusterApplierService.getStats().getRecordings().stream()
+            .collect(Collectors.toMap(ClusterApplierRecordingService.Recording::getName,
+                ClusterApplierRecordingService.Recording::getCount));
+        assertThat(counts.get("connecting to new nodes"), equalTo((long) updates));
+        assertThat(counts.get("running applier [test applier]"), equalTo((long) updates));
+        assertThat(counts.get("notifying listener [test listener]"), equalTo((long) updates));
+
+        clusterApplierService.removeApplier(applier);
+        clusterApplierService.removeListener(listener);
+        assertTrue(clusterApplierService.getStats().getRecordings().stream()
+            .noneMatch(r -> r.getName().contains("test applier") || r.getName().contains("test listener")));
+    }
+
     static class TimedClusterApplierService extends ClusterApplierService {
 
         final ClusterSettings clusterSettings;
@@ -34,6 +34,7 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -42,12 +43,14 @@ import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.CyclicBarrier;
 import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.empty;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.hasToString;
+import static org.hamcrest.Matchers.instanceOf;
 
 public class TaskBatcherTests extends TaskExecutorTests {
 
@@ -183,6 +186,165 @@ public class TaskBatcherTests extends TaskExecutorTests {
         assertThat(executionOrder, equalTo(Arrays.asList("A0", "A1", "A2", "B3", "B4", "A5", "A6")));
     }
 
+    public void testMaxBatchSizeInterleavesExecutors() throws InterruptedException {
+        final List<List<String>> batches = new CopyOnWriteArrayList<>();
+        final TestExecutor<String> executorA = batches::add;
+        final TestExecutor<String> executorB = batches::add;
+        final int numTasks = 5;
+        final CountDownLatch latch = new CountDownLatch(numTasks + 1);
+        final TestListener listener = new TestListener() {
+            @Override
+            public void processed(String source) {
+                latch.countDown();
+            }
+
+            @Override
+            public void onFailure(String source, Exception e) {
+                throw new AssertionError(e);
+            }
+        };
+        final ClusterStateTaskConfig config = ClusterStateTaskConfig.build(Priority.NORMAL);
+
+        taskBatcher.setMaxBatchSize(2);
+        try (BlockingTask blockingTask = new BlockingTask(Priority.IMMEDIATE)) {
+            submitTask("blocking", blockingTask);
+
+            final Map<String, TestListener> tasksA = new LinkedHashMap<>();
+            for (int i = 0; i < numTasks; i++) {
+                tasksA.put("A" + i, listener);
+            }
+            submitTasks("a", tasksA, config, executorA);
+            submitTask("b", "B0", config, executorB, listener);
+        }
+        latch.await();
+
+        assertThat(batches, equalTo(Arrays.asList(
+            Arrays.asList("A0", "A1"),
+            Collections.singletonList("B0"),
+            Arrays.asList("A2", "A3"),
+            Collections.singletonList("A4"))));
+        synchronized (taskBatcher.tasksPerBatchingKey) {
+            assertTrue(taskBatcher.tasksPerBatchingKey.isEmpty());
+        }
+    }
+
+    public void testMaxBatchSizeWithSeveralSubmissions() throws InterruptedException {
+        final List<List<String>> batches = new CopyOnWriteArrayList<>();
+        final TestExecutor<String> executor = batches::add;
+        final int numSubmissions = randomIntBetween(2, 10);
+        final List<String> expectedTasks = new ArrayList<>();
+        final List<List<String>> submissions = new ArrayList<>();
+        for (int i = 0; i < numSubmissions; i++) {
+            final List<String> tasks = new ArrayList<>();
+            final int numTasks = randomIntBetween(1, 5);
+            for (int j = 0; j < numTasks; j++) {
+                tasks.add("task-" + expectedTasks.size());
+                expectedTasks.add(tasks.get(j));
+            }
+            submissions.add(tasks);
+        }
+        final CountDownLatch latch = new CountDownLatch(expectedTasks.size());
+        final TestListener listener = new TestListener() {
+            @Override
+            public void processed(String source) {
+                latch.countDown();
+            }
+
+            @Override
+            public void onFailure(String source, Exception e) {
+                throw new AssertionError(e);
+            }
+        };
+        final ClusterStateTaskConfig config = ClusterStateTaskConfig.build(Priority.NORMAL);
+
+        final int maxBatchSize = randomIntBetween(1, 3);
+        taskBatcher.setMaxBatchSize(maxBatchSize);
+        try (BlockingTask blockingTask = new BlockingTask(Priority.IMMEDIATE)) {
+            submitTask("blocking", blockingTask);
+            for (int i = 0; i < submissions.size(); i++) {
+                final Map<String, TestListener> tasks = new LinkedHashMap<>();
+                submissions.get(i).forEach(task -> tasks.put(task, listener));
+                submitTasks("submission-" + i, tasks, config, executor);
+            }
+        }
+        // no timeout is set, so a task that is left without a runnable in the executor queue would never complete
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+
+        assertThat(batches.stream().flatMap(List::stream).collect(Collectors.toList()), equalTo(expectedTasks));
+        assertTrue(batches.stream().allMatch(batch -> batch.size() <= maxBatchSize));
+        synchronized (taskBatcher.tasksPerBatchingKey) {
+            assertTrue(taskBatcher.tasksPerBatchingKey.isEmpty());
+        }
+    }
+
+    public void testRemainingTasksOfCappedBatchRunAfterScheduledTaskTimesOut() throws InterruptedException {
+        final List<List<String>> batches = new CopyOnWriteArrayList<>();
+        final CountDownLatch timedOut = new CountDownLatch(1);
+        final TestExecutor<String> executor = tasks -> {
+            batches.add(tasks);
+            if (batches.size() == 1) {
+                try {
+                    // keep the executor busy with the first batch until the task that stands in for the remaining ones timed out
+                    assertTrue(timedOut.await(10, TimeUnit.SECONDS));
+                } catch (InterruptedException e) {
+                    throw new AssertionError(e);
+                }
+            }
+        };
+        final CountDownLatch processed = new CountDownLatch(3);
+        final TestListener listener = new TestListener() {
+            @Override
+            public void processed(String source) {
+                processed.countDown();
+            }
+
+            @Override
+            public void onFailure(String source, Exception e) {
+                throw new AssertionError(e);
+            }
+        };
+        final TestListener timeoutListener = new TestListener() {
+            @Override
+            public void processed(String source) {
+                throw new AssertionError("task should have timed out");
+            }
+
+            @Override
+            public void onFailure(String source, Exception e) {
+                assertThat(e, instanceOf(ProcessClusterEventTimeoutException.class));
+                timedOut.countDown();
+            }
+        };
+
+        taskBatcher.setMaxBatchSize(1);
+        try (BlockingTask blockingTask = new BlockingTask(Priority.IMMEDIATE)) {
+            submitTask("blocking", blockingTask);
+            final Map<String, TestListener> tasks = new LinkedHashMap<>();
+            tasks.put("A0", listener);
+            tasks.put("A1", listener);
+            tasks.put("A2", listener);
+            submitTasks("a", tasks, ClusterStateTaskConfig.build(Priority.NORMAL), executor);
+            // the runnable of this task is the only one left in the executor queue for the tasks that remain after the first batch
+            submitTask("b", "B0", ClusterStateTaskConfig.build(Priority.NORMAL, TimeValue.timeValueMillis(randomIntBetween(1, 100))),
+                executor, timeoutListener);
+        }
+        assertTrue(processed.await(10, TimeUnit.SECONDS));
+
+        assertThat(batches, equalTo(Arrays.asList(
+            Collections.singletonList("A0"),
+            Collections.singletonList("A1"),
+            Collections.singletonList("A2"))));
+        synchronized (taskBatcher.tasksPerBatchingKey) {
+            assertTrue(taskBatcher.tasksPerBatchingKey.isEmpty());
+        }
+    }
+
+    public void testInvalidMaxBatchSize() {
+        final IllegalArgumentException e = expectThrows(IllegalArgumentException.class,
+            () -> taskBatcher.setMaxBatchSize(randomIntBetween(Integer.MIN_VALUE, 0)));
+        assertThat(e.getMessage(), containsString("max batch size must be at least 1"));
+    }
+
     static class TaskExecutor implements TestExecutor<Integer> {
         List<Integer> tasks = new ArrayList<>();
 
@@ -85,6 +85,19 @@ public class ChannelsTests extends ESTestCase {
         assertThat("read bytes didn't match written bytes", BytesReference.toBytes(source), Matchers.equalTo(BytesReference.toBytes(read)));
     }
 
+    public void testPositionalWriteThroughArrays() throws Exception {
+        final int length = randomIntBetween(1, randomBytes.length);
+        final int offset = randomIntBetween(0, randomBytes.length - length);
+        final long position = randomIntBetween(0, 1000);
+        final long channelPosition = fileChannel.position();
+        Channels.writeToChannel(randomBytes, offset, length, fileChannel, position);
+        assertThat(fileChannel.position(), Matchers.equalTo(channelPosition));
+
+        byte[] readBytes = Channels.readFromFileChannel(fileChannel, position, length);
+        BytesReference source = new BytesArray(randomBytes, offset, length);
+        assertThat("read bytes didn't match written bytes", BytesReference.toBytes(source), Matchers.equalTo(readBytes));
+    }
+
     public void testBufferReadPastEOFWithException() throws Exception {
         int bytesToWrite = randomIntBetween(0, randomBytes.length - 1);
         Channels.writeToChannel(randomBytes, 0, bytesToWrite, fileChannel);
@@ -247,7 +260,15 @@ public class ChannelsTests extends ESTestCase {
 
         @Override
         public int write(ByteBuffer src, long position) throws IOException {
-            return delegate.write(src, position);
+            // delay buffer write..
+            int willActuallyWrite = randomInt(src.remaining());
+            ByteBuffer mockSrc = src.duplicate();
+            mockSrc.limit(mockSrc.position() + willActuallyWrite);
+            try {
+                return delegate.write(mockSrc, position);
+            } finally {
+                src.position(mockSrc.position());
+            }
         }
 
         @Override
@@ -18,9 +18,29 @@
  */
 package org.elasticsearch.common.blobstore.fs;
 
+import org.elasticsearch.common.blobstore.BlobPath;
+import org.elasticsearch.common.blobstore.MultipartBlobWrite;
+import org.elasticsearch.common.io.Streams;
+import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.test.ESTestCase;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
 import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.everyItem;
+import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.startsWith;
 
@@ -37,4 +57,73 @@ public class FsBlobContainerTests extends ESTestCase {
         final String tempBlobName = FsBlobContainer.tempBlobName(randomAlphaOfLengthBetween(1, 20));
         assertThat(FsBlobContainer.isTempBlobName(tempBlobName), is(true));
     }
+
+    public void testMultipartWrite() throws Exception {
+        final Path path = createTempDir();
+        try (FsBlobStore store = new FsBlobStore(Settings.EMPTY, path, false)) {
+            final FsBlobContainer container = (FsBlobContainer) store.blobContainer(BlobPath.cleanPath());
+            final byte[] data = randomByteArrayOfLength(randomIntBetween(0, 1 << 16));
+            try (MultipartBlobWrite write = container.startMultipartWrite("blob", data.length, randomIntBetween(1, 16), true)) {
+                final List<Integer> parts = IntStream.range(0, write.numberOfParts()).boxed().collect(Collectors.toList());
+                Collections.shuffle(parts, random());
+                final List<Thread> threads = new ArrayList<>();
+                for (int part : parts) {
+                    threads.add(new Thread(() -> {
+                        try {
+                            write.writePart(part, partStream(data, write, part));
+                        } catch (IOException e) {
+                            throw new AssertionError(e);
+                        }
+                    }));
+                }
+                threads.forEach(Thread::start);
+                for (Thread thread : threads) {
+                    thread.join();
+                }
+                assertThat(container.listBlobs().keySet(), everyItem(startsWith("pending-")));
+                write.complete();
+            }
+            assertThat(container.listBlobs().keySet(), equalTo(Collections.singleton("blob")));
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            try (InputStream in = container.readBlob("blob")) {
+                Streams.copy(in, out);
+            }
+            assertArrayEquals(data, out.toByteArray());
+
+            final MultipartBlobWrite overwrite = container.startMultipartWrite("blob", data.length, 1, true);
+            overwrite.writePart(0, new ByteArrayInputStream(data));
+            expectThrows(FileAlreadyExistsException.class, overwrite::complete);
+            overwrite.close();
+            assertThat(container.listBlobs().keySet(), equalTo(Collections.singleton("blob")));
+        }
+    }
+
+    public void testMultipartWriteAbort() throws Exception {
+        final Path path = createTempDir();
+        try (FsBlobStore store = new FsBlobStore(Settings.EMPTY, path, false)) {
+            final FsBlobContainer container = (FsBlobContainer) store.blobContainer(BlobPath.cleanPath());
+            final byte[] data = randomByteArrayOfLength(randomIntBetween(2, 1 << 16));
+            try (MultipartBlobWrite write = container.startMultipartWrite("blob", data.length, randomIntBetween(2, 16), false)) {
+                assertThat(write.numberOfParts(), greaterThan(1));
+                write.writePart(0, partStream(data, write, 0));
+                expectThrows(IllegalStateException.class, write::complete);
+            }
+            assertThat(container.listBlobs().keySet(), empty());
+        }
+    }
+
+    public void testMultipartWriteTruncatedPart() throws Exception {
+        final Path path = createTempDir();
+        try (FsBlobStore store = new FsBlobStore(Settings.EMPTY, path, false)) {
+            final FsBlobContainer container = (FsBlobContainer) store.blobContainer(BlobPath.cleanPath());
+            try (MultipartBlobWrite write = container.startMultipartWrite("blob", 10, 1, false)) {
+                expectThrows(IOException.class, () -> write.writePart(0, new ByteArrayInputStream(new byte[5])));
+            }
+            assertThat(container.listBlobs().keySet(), empty());
+        }
+    }
+
+    private static InputStream partStream(byte[] data, MultipartBlobWrite write, int part) {
+        return new ByteArrayInputStream(data, Math.toIntExact(write.partOffset(part)), Math.toIntExact(write.partBytes(part)));
+    }
 }
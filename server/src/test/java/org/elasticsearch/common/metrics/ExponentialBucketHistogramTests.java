@@ -0,0 +1,53 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.common.metrics;
+
+import org.elasticsearch.test.ESTestCase;
+
+import java.util.Arrays;
+
+public class ExponentialBucketHistogramTests extends ESTestCase {
+
+    public void testBucketBoundaries() {
+        ExponentialBucketHistogram histogram = new ExponentialBucketHistogram();
+        long[] upperBounds = ExponentialBucketHistogram.getBucketUpperBounds();
+        assertEquals(ExponentialBucketHistogram.BUCKET_COUNT - 1, upperBounds.length);
+
+        histogram.add(0);
+        for (long upperBound : upperBounds) {
+            // the lower bound of each bucket is inclusive, its upper bound exclusive
+            histogram.add(upperBound);
+            histogram.add(upperBound * 2 - 1);
+        }
+        histogram.add(Long.MAX_VALUE);
+
+        long[] expected = new long[ExponentialBucketHistogram.BUCKET_COUNT];
+        Arrays.fill(expected, 2);
+        expected[0] = 1;
+        expected[expected.length - 1] = 3;
+        assertArrayEquals(expected, histogram.getHistogram());
+    }
+
+    public void testNegativeDurationsCountAsShortest() {
+        ExponentialBucketHistogram histogram = new ExponentialBucketHistogram();
+        histogram.add(-randomNonNegativeLong());
+        assertEquals(1, histogram.getHistogram()[0]);
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.common.util.concurrent;
+
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.test.ESTestCase;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+
+public class ParallelTaskRunnerTests extends ESTestCase {
+
+    public void testRunsEachTaskOnce() throws Exception {
+        final int numberOfTasks = randomIntBetween(0, 100);
+        final int maxConcurrency = randomIntBetween(1, 8);
+        final ExecutorService executor = EsExecutors.newFixed(getTestName(), randomIntBetween(1, 4), 100,
+            EsExecutors.daemonThreadFactory(getTestName()), new ThreadContext(Settings.EMPTY));
+        try {
+            final AtomicIntegerArray runs = new AtomicIntegerArray(numberOfTasks);
+            final AtomicInteger running = new AtomicInteger();
+            final AtomicInteger maxRunning = new AtomicInteger();
+            final Set<Thread> threads = ConcurrentCollections.newConcurrentSet();
+            ParallelTaskRunner.run(numberOfTasks, maxConcurrency, executor, index -> {
+                final int nowRunning = running.incrementAndGet();
+                maxRunning.accumulateAndGet(nowRunning, Math::max);
+                threads.add(Thread.currentThread());
+                runs.incrementAndGet(index);
+                running.decrementAndGet();
+            });
+            for (int i = 0; i < numberOfTasks; i++) {
+                assertThat(runs.get(i), equalTo(1));
+            }
+            assertThat(maxRunning.get(), lessThanOrEqualTo(maxConcurrency));
+            assertThat(threads.size(), lessThanOrEqualTo(maxConcurrency));
+        } finally {
+            terminate(executor);
+        }
+    }
+
+    public void testRunsAllTasksWhenHelpersAreRejected() throws Exception {
+        final int numberOfTasks = randomIntBetween(1, 100);
+        final Thread caller = Thread.currentThread();
+        final AtomicInteger runs = new AtomicInteger();
+        ParallelTaskRunner.run(numberOfTasks, randomIntBetween(2, 8), command -> {
+            throw new EsRejectedExecutionException("rejected");
+        }, index -> {
+            assertSame(caller, Thread.currentThread());
+            runs.incrementAndGet();
+        });
+        assertThat(runs.get(), equalTo(numberOfTasks));
+    }
+
+    public void testDoesNotWaitForHelpersThatDidNotStart() throws Exception {
+        // the caller runs on the only thread of the executor, so the helpers can't start before the caller returns
+        final ExecutorService executor = EsExecutors.newFixed(getTestName(), 1, 100,
+            EsExecutors.daemonThreadFactory(getTestName()), new ThreadContext(Settings.EMPTY));
+        try {
+            final int numberOfTasks = randomIntBetween(1, 100);
+            final AtomicInteger runs = new AtomicInteger();
+            final Future<?> future = executor.submit(() -> {
+                ParallelTaskRunner.run(numberOfTasks, randomIntBetween(2, 8), executor, index -> runs.incrementAndGet());
+                return null;
+            });
+            future.get(10, TimeUnit.SECONDS);
+            assertThat(runs.get(), equalTo(numberOfTasks));
+        } finally {
+            terminate(executor);
+        }
+    }
+
+    public void testFailureSkipsRemainingTasks() throws Exception {
+        final int numberOfTasks = randomIntBetween(2, 100);
+        final int failingTask = randomIntBetween(0, numberOfTasks - 2);
+        final AtomicInteger runs = new AtomicInteger();
+        final boolean ioFailure = randomBoolean();
+        final Exception thrown = expectThrows(Exception.class,
+            () -> ParallelTaskRunner.run(numberOfTasks, 1, EsExecutors.newDirectExecutorService(), index -> {
+                runs.incrementAndGet();
+                if (index == failingTask) {
+                    throw ioFailure ? new IOException("simulated") : new IllegalStateException("simulated");
+                }
+            }));
+        assertThat(thrown.getMessage(), equalTo("simulated"));
+        assertThat(thrown.getClass(), equalTo(ioFailure ? IOException.class : IllegalStateException.class));
+        assertThat(runs.get(), equalTo(failingTask + 1));
+    }
+
+    public void testRejectsInvalidConcurrency() {
+        expectThrows(IllegalArgumentException.class,
+            () -> ParallelTaskRunner.run(1, randomIntBetween(-5, 0), EsExecutors.newDirectExecutorService(), index -> {}));
+    }
+}
@@ -0,0 +1,367 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.gateway;
+
+import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.Version;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.FailedNodeException;
+import org.elasticsearch.action.support.PlainActionFuture;
+import org.elasticsearch.action.support.nodes.BaseNodesResponse;
+import org.elasticsearch.cluster.ClusterName;
+import org.elasticsearch.cluster.node.DiscoveryNode;
+import org.elasticsearch.cluster.node.DiscoveryNodeRole;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.gateway.TransportNodesListGatewayStartedShards.NodeGatewayStartedShards;
+import org.elasticsearch.gateway.TransportNodesListGatewayStartedShards.NodesGatewayStartedShards;
+import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.test.ESTestCase;
+import org.elasticsearch.test.VersionUtils;
+import org.elasticsearch.test.transport.CapturingTransport;
+import org.elasticsearch.threadpool.TestThreadPool;
+import org.elasticsearch.threadpool.ThreadPool;
+import org.elasticsearch.transport.ConnectTransportException;
+import org.elasticsearch.transport.RequestHandlerRegistry;
+import org.elasticsearch.transport.TransportChannel;
+import org.elasticsearch.transport.TransportRequest;
+import org.elasticsearch.transport.TransportResponse;
+import org.elasticsearch.transport.TransportService;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.Matchers.nullValue;
+
+public class BatchedShardFetcherTests extends ESTestCase {
+
+    private static final String ACTION_NAME = BatchedShardFetcher.batchActionName("internal:test/shard_fetch");
+
+    private static ThreadPool THREAD_POOL;
+
+    private CapturingTransport transport;
+    private TransportService transportService;
+    private List<ShardId> fallbackShards;
+    private List<ActionListener<BaseNodesResponse<NodeGatewayStartedShards>>> fallbackListeners;
+    private BatchedShardFetcher<NodeGatewayStartedShards> fetcher;
+
+    @BeforeClass
+    public static void startThreadPool() {
+        THREAD_POOL = new TestThreadPool(BatchedShardFetcherTests.class.getSimpleName());
+    }
+
+    @AfterClass
+    public static void destroyThreadPool() {
+        ThreadPool.terminate(THREAD_POOL, 30, TimeUnit.SECONDS);
+        THREAD_POOL = null;
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        super.setUp();
+        transport = new CapturingTransport();
+        final DiscoveryNode localNode = newNode("local", Version.CURRENT);
+        transportService = transport.createTransportService(Settings.EMPTY, THREAD_POOL, TransportService.NOOP_TRANSPORT_INTERCEPTOR,
+            x -> localNode, null, Collections.emptySet());
+        transportService.start();
+        transportService.acceptIncomingRequests();
+        fallbackShards = new ArrayList<>();
+        fallbackListeners = new ArrayList<>();
+        fetcher = new BatchedShardFetcher<>(transportService, ACTION_NAME, NodeGatewayStartedShards::new,
+            (responses, failures) -> new NodesGatewayStartedShards(new ClusterName("test"), responses, failures),
+            (shardId, customDataPath, nodes, listener) -> {
+                fallbackShards.add(shardId);
+                fallbackListeners.add(listener);
+            });
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        super.tearDown();
+        transportService.close();
+    }
+
+    public void testSendsOneRequestPerNodeOnFlush() {
+        final DiscoveryNode[] nodes = newNodes(randomIntBetween(1, 5));
+        final int numberOfShards = randomIntBetween(1, BatchedShardFetcher.MAX_SHARDS_PER_REQUEST);
+        final List<PlainActionFuture<BaseNodesResponse<NodeGatewayStartedShards>>> futures = new ArrayList<>();
+        for (int i = 0; i < numberOfShards; i++) {
+            final PlainActionFuture<BaseNodesResponse<NodeGatewayStartedShards>> future = new PlainActionFuture<>();
+            fetcher.list(new ShardId("index", "_na_", i), "", nodes, future);
+            futures.add(future);
+        }
+        assertThat(transport.capturedRequests().length, equalTo(0));
+        assertThat(fetcher.numberOfQueuedFetches(), equalTo(numberOfShards * nodes.length));
+
+        fetcher.flush();
+        assertThat(fetcher.numberOfQueuedFetches(), equalTo(0));
+        final Map<String, List<CapturingTransport.CapturedRequest>> requests = transport.getCapturedRequestsByTargetNodeAndClear();
+        assertThat(requests.size(), equalTo(nodes.length));
+        for (DiscoveryNode node : nodes) {
+            assertThat(requests.get(node.getId()), hasSize(1));
+            final CapturingTransport.CapturedRequest request = requests.get(node.getId()).get(0);
+            assertThat(request.action, equalTo(ACTION_NAME));
+            final List<BatchedShardFetcher.ShardToFetch> shards = ((BatchedShardFetcher.NodeRequest) request.request).getShards();
+            assertThat(shards, hasSize(numberOfShards));
+            final List<Object> results = new ArrayList<>();
+            for (int i = 0; i < numberOfShards; i++) {
+                assertThat(shards.get(i).getShardId(), equalTo(new ShardId("index", "_na_", i)));
+                results.add(new NodeGatewayStartedShards(node, "allocation-" + i, true));
+            }
+            assertFalse(futures.get(0).isDone());
+            transport.handleResponse(request.requestId, new BatchedShardFetcher.NodeResponse<>(results));
+        }
+
+        for (int i = 0; i < numberOfShards; i++) {
+            final BaseNodesResponse<NodeGatewayStartedShards> response = futures.get(i).actionGet();
+            assertFalse(response.hasFailures());
+            assertThat(response.getNodes(), hasSize(nodes.length));
+            for (NodeGatewayStartedShards nodeResponse : response.getNodes()) {
+                assertThat(nodeResponse.allocationId(), equalTo("allocation-" + i));
+            }
+        }
+    }
+
+    public void testSplitsLargeBatches() {
+        final DiscoveryNode node = newNode("node", Version.CURRENT);
+        final int numberOfShards = randomIntBetween(BatchedShardFetcher.MAX_SHARDS_PER_REQUEST + 1,
+            3 * BatchedShardFetcher.MAX_SHARDS_PER_REQUEST);
+        for (int i = 0; i < numberOfShards; i++) {
+            fetcher.list(new ShardId("index", "_na_", i), "", new DiscoveryNode[]{node}, ActionListener.wrap(() -> {}));
+        }
+        fetcher.flush();
+
+        final CapturingTransport.CapturedRequest[] requests = transport.getCapturedRequestsAndClear();
+        final int expectedRequests = (numberOfShards + BatchedShardFetcher.MAX_SHARDS_PER_REQUEST - 1)
+            / BatchedShardFetcher.MAX_SHARDS_PER_REQUEST;
+        assertThat(requests.length, equalTo(expectedRequests));
+        final Set<ShardId> requestedShards = new HashSet<>();
+        for (CapturingTransport.CapturedRequest request : requests) {
+            final List<BatchedShardFetcher.ShardToFetch> shards = ((BatchedShardFetcher.NodeRequest) request.request).getShards();
+            assertThat(shards.size(), lessThanOrEqualTo(BatchedShardFetcher.MAX_SHARDS_PER_REQUEST));
+            shards.forEach(shard -> assertTrue(requestedShards.add(shard.getShardId())));
+        }
+        assertThat(requestedShards, hasSize(numberOfShards));
+    }
+
+    public void testFallsBackForNodesThatDoNotSupportBatching() {
+        final DiscoveryNode newNode = newNode("new", Version.CURRENT);
+        final DiscoveryNode oldNode = newNode("old", VersionUtils.getPreviousVersion(BatchedShardFetcher.BATCHING_VERSION));
+        final ShardId shardId = new ShardId("index", "_na_", 0);
+        final PlainActionFuture<BaseNodesResponse<NodeGatewayStartedShards>> future = new PlainActionFuture<>();
+        fetcher.list(shardId, "", new DiscoveryNode[]{newNode, oldNode}, future);
+        assertThat(fallbackShards, equalTo(Collections.singletonList(shardId)));
+        assertThat(fetcher.numberOfQueuedFetches(), equalTo(1));
+
+        fallbackListeners.get(0).onResponse(new NodesGatewayStartedShards(new ClusterName("test"),
+            Collections.singletonList(new NodeGatewayStartedShards(oldNode, "old-allocation", true)), Collections.emptyList()));
+        assertFalse(future.isDone());
+
+        fetcher.flush();
+        final CapturingTransport.CapturedRequest[] requests = transport.getCapturedRequestsAndClear();
+        assertThat(requests.length, equalTo(1));
+        assertThat(requests[0].node, equalTo(newNode));
+        transport.handleResponse(requests[0].requestId, new BatchedShardFetcher.NodeResponse<>(
+            Collections.singletonList(new NodeGatewayStartedShards(newNode, "new-allocation", true))));
+
+        final BaseNodesResponse<NodeGatewayStartedShards> response = future.actionGet();
+        assertThat(response.getNodes(), hasSize(2));
+        assertThat(response.getNodesMap().get("old").allocationId(), equalTo("old-allocation"));
+        assertThat(response.getNodesMap().get("new").allocationId(), equalTo("new-allocation"));
+    }
+
+    public void testFallbackFailureFailsTheOldNodes() {
+        final DiscoveryNode oldNode = newNode("old", VersionUtils.getPreviousVersion(BatchedShardFetcher.BATCHING_VERSION));
+        final PlainActionFuture<BaseNodesResponse<NodeGatewayStartedShards>> future = new PlainActionFuture<>();
+        fetcher.list(new ShardId("index", "_na_", 0), "", new DiscoveryNode[]{oldNode}, future);
+        assertThat(fetcher.numberOfQueuedFetches(), equalTo(0));
+        fallbackListeners.get(0).onFailure(new ElasticsearchException("simulated"));
+
+        final BaseNodesResponse<NodeGatewayStartedShards> response = future.actionGet();
+        assertThat(response.getNodes(), hasSize(0));
+        assertThat(response.failures(), hasSize(1));
+        assertThat(response.failures().get(0).nodeId(), equalTo("old"));
+        assertThat(response.failures().get(0).getCause().getMessage(), equalTo("simulated"));
+    }
+
+    public void testShardFailuresAreReportedPerShard() {
+        final DiscoveryNode node = newNode("node", Version.CURRENT);
+        final PlainActionFuture<BaseNodesResponse<NodeGatewayStartedShards>> failingFuture = new PlainActionFuture<>();
+        final PlainActionFuture<BaseNodesResponse<NodeGatewayStartedShards>> successfulFuture = new PlainActionFuture<>();
+        fetcher.list(new ShardId("index", "_na_", 0), "", new DiscoveryNode[]{node}, failingFuture);
+        fetcher.list(new ShardId("index", "_na_", 1), "", new DiscoveryNode[]{node}, successfulFuture);
+        fetcher.flush();
+
+        final CapturingTransport.CapturedRequest[] requests = transport.getCapturedRequestsAndClear();
+        assertThat(requests.length, equalTo(1));
+        transport.handleResponse(requests[0].requestId, new BatchedShardFetcher.NodeResponse<>(
+            List.of(new ElasticsearchException("simulated shard failure"), new NodeGatewayStartedShards(node, "allocation", false))));
+
+        final BaseNodesResponse<NodeGatewayStartedShards> failed = failingFuture.actionGet();
+        assertThat(failed.getNodes(), hasSize(0));
+        assertThat(failed.failures(), hasSize(1));
+        assertThat(failed.failures().get(0).nodeId(), equalTo("node"));
+        assertThat(failed.failures().get(0).getCause().getMessage(), containsString("simulated shard failure"));
+
+        final BaseNodesResponse<NodeGatewayStartedShards> succeeded = successfulFuture.actionGet();
+        assertFalse(succeeded.hasFailures());
+        assertThat(succeeded.getNodes().get(0).allocationId(), equalTo("allocation"));
+    }
+
+    public void testTransportFailureFailsAllShardsOfTheRequest() {
+        final DiscoveryNode failingNode = newNode("failing", Version.CURRENT);
+        final DiscoveryNode node = newNode("node", Version.CURRENT);
+        final int numberOfShards = randomIntBetween(1, 10);
+        final List<PlainActionFuture<BaseNodesResponse<NodeGatewayStartedShards>>> futures = new ArrayList<>();
+        for (int i = 0; i < numberOfShards; i++) {
+            final PlainActionFuture<BaseNodesResponse<NodeGatewayStartedShards>> future = new PlainActionFuture<>();
+            fetcher.list(new ShardId("index", "_na_", i), "", new DiscoveryNode[]{failingNode, node}, future);
+            futures.add(future);
+        }
+        fetcher.flush();
+
+        final Map<String, List<CapturingTransport.CapturedRequest>> requests = transport.getCapturedRequestsByTargetNodeAndClear();
+        transport.handleError(requests.get("failing").get(0).requestId,
+            new ConnectTransportException(failingNode, "simulated disconnect"));
+        final List<Object> results = new ArrayList<>();
+        for (int i = 0; i < numberOfShards; i++) {
+            results.add(new NodeGatewayStartedShards(node, null, false));
+        }
+        transport.handleResponse(requests.get("node").get(0).requestId, new BatchedShardFetcher.NodeResponse<>(results));
+
+        for (PlainActionFuture<BaseNodesResponse<NodeGatewayStartedShards>> future : futures) {
+            final BaseNodesResponse<NodeGatewayStartedShards> response = future.actionGet();
+            assertThat(response.getNodes(), hasSize(1));
+            assertThat(response.failures(), hasSize(1));
+            final FailedNodeException failure = response.failures().get(0);
+            assertThat(failure.nodeId(), equalTo("failing"));
+            // AsyncShardFetch retries the fetch when the cause is a connection failure
+            assertThat(failure.getCause(), instanceOf(ConnectTransportException.class));
+        }
+    }
+
+    public void testFlushWithoutQueuedFetchesSendsNothing() {
+        fetcher.flush();
+        assertThat(transport.capturedRequests().length, equalTo(0));
+    }
+
+    public void testNodeHandlerFetchesEachShard() throws Exception {
+        final DiscoveryNode localNode = transportService.getLocalNode();
+        BatchedShardFetcher.registerNodeHandler(transportService, ACTION_NAME, ThreadPool.Names.SAME, (shardId, customDataPath, task) -> {
+            assertThat(customDataPath, equalTo("custom"));
+            if (shardId.id() % 2 == 0) {
+                throw new ElasticsearchException("simulated failure for " + shardId);
+            }
+            return new NodeGatewayStartedShards(localNode, "allocation-" + shardId.id(), true);
+        });
+        final int numberOfShards = randomIntBetween(1, 10);
+        final List<BatchedShardFetcher.ShardToFetch> shards = new ArrayList<>();
+        for (int i = 0; i < numberOfShards; i++) {
+            shards.add(new BatchedShardFetcher.ShardToFetch(new ShardId("index", "_na_", i), "custom"));
+        }
+        final BatchedShardFetcher.NodeRequest request = copyRequest(new BatchedShardFetcher.NodeRequest(shards));
+
+        final AtomicReference<TransportResponse> capturedResponse = new AtomicReference<>();
+        @SuppressWarnings("unchecked")
+        final RequestHandlerRegistry<TransportRequest> handler =
+            (RequestHandlerRegistry<TransportRequest>) transportService.getRequestHandler(ACTION_NAME);
+        handler.processMessageReceived(request, new TransportChannel() {
+            @Override
+            public String getProfileName() {
+                return "";
+            }
+
+            @Override
+            public String getChannelType() {
+                return "test";
+            }
+
+            @Override
+            public void sendResponse(TransportResponse response) {
+                assertTrue(capturedResponse.compareAndSet(null, response));
+            }
+
+            @Override
+            public void sendResponse(Exception exception) {
+                throw new AssertionError("unexpected failure", exception);
+            }
+        });
+
+        final BatchedShardFetcher.NodeResponse<NodeGatewayStartedShards> response = copyResponse(
+            (BatchedShardFetcher.NodeResponse<?>) capturedResponse.get());
+        assertThat(response.size(), equalTo(numberOfShards));
+        for (int i = 0; i < numberOfShards; i++) {
+            if (i % 2 == 0) {
+                assertThat(response.getResult(i), nullValue());
+                assertThat(response.getFailure(i).getMessage(), containsString("simulated failure for"));
+            } else {
+                assertThat(response.getFailure(i), nullValue());
+                assertThat(response.getResult(i).allocationId(), equalTo("allocation-" + i));
+            }
+        }
+    }
+
+    private static BatchedShardFetcher.NodeRequest copyRequest(TransportRequest request) throws Exception {
+        try (BytesStreamOutput out = new BytesStreamOutput()) {
+            request.writeTo(out);
+            try (StreamInput in = out.bytes().streamInput()) {
+                return new BatchedShardFetcher.NodeRequest(in);
+            }
+        }
+    }
+
+    private static BatchedShardFetcher.NodeResponse<NodeGatewayStartedShards> copyResponse(TransportResponse response) throws Exception {
+        try (BytesStreamOutput out = new BytesStreamOutput()) {
+            response.writeTo(out);
+            try (StreamInput in = out.bytes().streamInput()) {
+                return new BatchedShardFetcher.NodeResponse<>(in, NodeGatewayStartedShards::new);
+            }
+        }
+    }
+
+    private static DiscoveryNode[] newNodes(int count) {
+        final DiscoveryNode[] nodes = new DiscoveryNode[count];
+        for (int i = 0; i < count; i++) {
+            nodes[i] = newNode("node_" + i, Version.CURRENT);
+        }
+        return nodes;
+    }
+
+    private static DiscoveryNode newNode(String nodeId, Version version) {
+        return new DiscoveryNode(nodeId, buildNewFakeTransportAddress(), Collections.emptyMap(),
+            Collections.singleton(DiscoveryNodeRole.DATA_ROLE), version);
+    }
+}
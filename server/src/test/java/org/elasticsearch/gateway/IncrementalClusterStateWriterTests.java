@@ -37,10 +37,12 @@ import org.elasticsearch.cluster.node.DiscoveryNodes;
 import org.elasticsearch.cluster.routing.RoutingTable;
 import org.elasticsearch.cluster.routing.allocation.AllocationService;
 import org.elasticsearch.cluster.routing.allocation.decider.ClusterRebalanceAllocationDecider;
+import org.elasticsearch.common.CheckedBiFunction;
 import org.elasticsearch.common.collect.Tuple;
 import org.elasticsearch.common.logging.Loggers;
 import org.elasticsearch.common.settings.ClusterSettings;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.concurrent.EsExecutors;
 import org.elasticsearch.common.xcontent.NamedXContentRegistry;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.common.xcontent.XContentParser;
@@ -48,16 +50,20 @@ import org.elasticsearch.env.NodeEnvironment;
 import org.elasticsearch.index.Index;
 import org.elasticsearch.test.MockLogAppender;
 import org.elasticsearch.test.junit.annotations.TestLogging;
+import org.elasticsearch.threadpool.TestThreadPool;
+import org.elasticsearch.threadpool.ThreadPool;
 import org.mockito.ArgumentCaptor;
 
 import java.io.IOException;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 
 import static org.hamcrest.Matchers.containsString;
@@ -382,6 +388,33 @@ public class IncrementalClusterStateWriterTests extends ESAllocationTestCase {
     }
 
     public void testAtomicityWithFailures() throws IOException {
+        assertAtomicityWithFailures((writer, metaData) -> {
+            Map<Index, Long> indexGenerations = new HashMap<>();
+            for (IndexMetaData indexMetaData : metaData) {
+                long generation = writer.writeIndex("index", indexMetaData);
+                indexGenerations.put(indexMetaData.getIndex(), generation);
+            }
+            return indexGenerations;
+        });
+    }
+
+    public void testAtomicityWithFailuresAndConcurrentIndexWrites() throws IOException {
+        final ThreadPool threadPool = new TestThreadPool(getTestName());
+        try {
+            assertAtomicityWithFailures((writer, metaData) -> {
+                List<IncrementalClusterStateWriter.IndexMetaDataAction> actions = new ArrayList<>();
+                for (IndexMetaData indexMetaData : metaData) {
+                    actions.add(new IncrementalClusterStateWriter.WriteNewIndexMetaData(indexMetaData));
+                }
+                return writer.executeConcurrently(actions, threadPool.generic(), between(1, 8));
+            });
+        } finally {
+            ThreadPool.terminate(threadPool, 10, TimeUnit.SECONDS);
+        }
+    }
+
+    private void assertAtomicityWithFailures(CheckedBiFunction<IncrementalClusterStateWriter.AtomicClusterStateWriter, MetaData,
+        Map<Index, Long>, WriteStateException> indicesWriter) throws IOException {
         try (NodeEnvironment env = newNodeEnvironment()) {
             MetaStateServiceWithFailures metaStateService =
                 new MetaStateServiceWithFailures(randomIntBetween(100, 1000), env, xContentRegistry());
@@ -401,15 +434,10 @@ public class IncrementalClusterStateWriterTests extends ESAllocationTestCase {
                 IncrementalClusterStateWriter.AtomicClusterStateWriter writer =
                     new IncrementalClusterStateWriter.AtomicClusterStateWriter(metaStateService, manifest);
                 metaData = randomMetaDataForTx();
-                Map<Index, Long> indexGenerations = new HashMap<>();
 
                 try {
                     long globalGeneration = writer.writeGlobalState("global", metaData);
-
-                    for (IndexMetaData indexMetaData : metaData) {
-                        long generation = writer.writeIndex("index", indexMetaData);
-                        indexGenerations.put(indexMetaData.getIndex(), generation);
-                    }
+                    Map<Index, Long> indexGenerations = indicesWriter.apply(writer, metaData);
 
                     Manifest newManifest = new Manifest(currentTerm, clusterStateVersion, globalGeneration, indexGenerations);
                     writer.writeManifestAndCleanup("manifest", newManifest);
@@ -464,7 +492,7 @@ public class IncrementalClusterStateWriterTests extends ESAllocationTestCase {
         final IncrementalClusterStateWriter incrementalClusterStateWriter
             = new IncrementalClusterStateWriter(settings, clusterSettings, mock(MetaStateService.class),
             new Manifest(randomNonNegativeLong(), randomNonNegativeLong(), randomNonNegativeLong(), Collections.emptyMap()),
-            clusterState, () -> currentTime.getAndAdd(writeDurationMillis.get()));
+            clusterState, () -> currentTime.getAndAdd(writeDurationMillis.get()), EsExecutors.newDirectExecutorService());
 
         assertExpectedLogs(clusterState, incrementalClusterStateWriter, new MockLogAppender.SeenEventExpectation(
             "should see warning at threshold",
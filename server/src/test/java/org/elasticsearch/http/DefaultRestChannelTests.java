@@ -20,10 +20,12 @@
 package org.elasticsearch.http;
 
 import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.common.CheckedConsumer;
 import org.elasticsearch.common.bytes.BytesArray;
 import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.bytes.PagedBytesReference;
 import org.elasticsearch.common.bytes.ReleasableBytesReference;
+import org.elasticsearch.common.io.UTF8StreamWriter;
 import org.elasticsearch.common.io.stream.BytesStreamOutput;
 import org.elasticsearch.common.io.stream.ReleasableBytesStreamOutput;
 import org.elasticsearch.common.lease.Releasable;
@@ -36,6 +38,8 @@ import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.common.xcontent.json.JsonXContent;
 import org.elasticsearch.indices.breaker.NoneCircuitBreakerService;
 import org.elasticsearch.rest.BytesRestResponse;
+import org.elasticsearch.rest.ChunkedRestResponse;
+import org.elasticsearch.rest.ChunkedRestResponseBody;
 import org.elasticsearch.rest.RestChannel;
 import org.elasticsearch.rest.RestRequest;
 import org.elasticsearch.rest.RestResponse;
@@ -49,6 +53,7 @@ import org.junit.Before;
 import org.mockito.ArgumentCaptor;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.channels.ClosedChannelException;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
@@ -59,6 +64,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
 
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.hasItem;
@@ -75,12 +82,14 @@ public class DefaultRestChannelTests extends ESTestCase {
     private ThreadPool threadPool;
     private MockBigArrays bigArrays;
     private HttpChannel httpChannel;
+    private HttpResponseCompressor compressor;
 
     @Before
     public void setup() {
         httpChannel = mock(HttpChannel.class);
         threadPool = new TestThreadPool("test");
         bigArrays = new MockBigArrays(new MockPageCacheRecycler(Settings.EMPTY), new NoneCircuitBreakerService());
+        compressor = new HttpResponseCompressor(HttpTransportSettings.SETTING_HTTP_COMPRESSION_LEVEL.get(Settings.EMPTY), 1);
     }
 
     @After
@@ -88,6 +97,7 @@ public class DefaultRestChannelTests extends ESTestCase {
         if (threadPool != null) {
             threadPool.shutdownNow();
         }
+        compressor.close();
     }
 
     public void testResponse() {
@@ -193,7 +203,7 @@ public class DefaultRestChannelTests extends ESTestCase {
 
         // send a response
         DefaultRestChannel channel = new DefaultRestChannel(httpChannel, httpRequest, request, bigArrays, handlingSettings,
-            threadPool.getThreadContext());
+            threadPool.getThreadContext(), compressor);
         TestRestResponse resp = new TestRestResponse();
         final String customHeader = "custom-header";
         final String customHeaderValue = "xyz";
@@ -221,7 +231,7 @@ public class DefaultRestChannelTests extends ESTestCase {
 
         // send a response
         DefaultRestChannel channel = new DefaultRestChannel(httpChannel, httpRequest, request, bigArrays, handlingSettings,
-            threadPool.getThreadContext());
+            threadPool.getThreadContext(), compressor);
         channel.sendResponse(new TestRestResponse());
 
         // inspect what was written
@@ -241,7 +251,7 @@ public class DefaultRestChannelTests extends ESTestCase {
         HttpHandlingSettings handlingSettings = HttpHandlingSettings.fromSettings(settings);
 
         DefaultRestChannel channel = new DefaultRestChannel(httpChannel, httpRequest, request, bigArrays, handlingSettings,
-            threadPool.getThreadContext());
+            threadPool.getThreadContext(), compressor);
         final BytesRestResponse response = new BytesRestResponse(RestStatus.INTERNAL_SERVER_ERROR,
             JsonXContent.contentBuilder().startObject().endObject());
         assertThat(response.content(), not(instanceOf(Releasable.class)));
@@ -270,6 +280,83 @@ public class DefaultRestChannelTests extends ESTestCase {
         // ESTestCase#after will invoke ensureAllArraysAreReleased which will fail if the response content was not released
     }
 
+    @SuppressWarnings("unchecked")
+    public void testChunkedResponseSerializedFullyWithoutChunkingSupport() {
+        final TestRequest httpRequest = new TestRequest(HttpRequest.HttpVersion.HTTP_1_1, RestRequest.Method.GET, "/");
+        final RestRequest request = RestRequest.request(xContentRegistry(), httpRequest, httpChannel);
+        HttpHandlingSettings handlingSettings = HttpHandlingSettings.fromSettings(Settings.EMPTY);
+
+        DefaultRestChannel channel = new DefaultRestChannel(httpChannel, httpRequest, request, bigArrays, handlingSettings,
+            threadPool.getThreadContext(), compressor);
+        final List<String> lines = randomList(1, 1000, () -> randomAlphaOfLengthBetween(1, 100));
+        channel.sendResponse(new ChunkedRestResponse(RestStatus.OK, ChunkedRestResponseBody.fromTextChunks(
+            BytesRestResponse.TEXT_CONTENT_TYPE,
+            lines.stream().<CheckedConsumer<UTF8StreamWriter, IOException>>map(line -> out -> out.append(line).append('\n')).iterator())));
+
+        ArgumentCaptor<TestResponse> responseCaptor = ArgumentCaptor.forClass(TestResponse.class);
+        Class<ActionListener<Void>> listenerClass = (Class<ActionListener<Void>>) (Class) ActionListener.class;
+        ArgumentCaptor<ActionListener<Void>> listenerCaptor = ArgumentCaptor.forClass(listenerClass);
+        verify(httpChannel).sendResponse(responseCaptor.capture(), listenerCaptor.capture());
+        TestResponse httpResponse = responseCaptor.getValue();
+        final String expectedContent = lines.stream().map(line -> line + "\n").collect(Collectors.joining());
+        assertEquals(expectedContent, httpResponse.content().utf8ToString());
+        assertEquals(Integer.toString(httpResponse.content().length()), httpResponse.headers.get(DefaultRestChannel.CONTENT_LENGTH).get(0));
+        assertEquals(BytesRestResponse.TEXT_CONTENT_TYPE, httpResponse.headers.get(DefaultRestChannel.CONTENT_TYPE).get(0));
+        listenerCaptor.getValue().onResponse(null);
+        // ESTestCase#after will invoke ensureAllArraysAreReleased which will fail if the serialized chunks were not released
+    }
+
+    public void testChunkedResponseCreatedWithFullContentWithoutChunkingSupport() {
+        final TestRequest httpRequest = new TestRequest(HttpRequest.HttpVersion.HTTP_1_1, RestRequest.Method.GET, "/");
+        assertFalse(httpRequest.supportsChunkedResponses());
+        final List<String> lines = randomList(1, 1000, () -> randomAlphaOfLengthBetween(1, 100));
+        final ChunkedRestResponse response = new ChunkedRestResponse(RestStatus.OK, ChunkedRestResponseBody.fromTextChunks(
+            BytesRestResponse.TEXT_CONTENT_TYPE,
+            lines.stream().<CheckedConsumer<UTF8StreamWriter, IOException>>map(line -> out -> out.append(line).append('\n')).iterator()));
+        assertNull(response.content());
+
+        final TestResponse httpResponse = (TestResponse) httpRequest.createResponse(RestStatus.OK, response.chunkedContent(), bigArrays);
+        assertEquals(lines.stream().map(line -> line + "\n").collect(Collectors.joining()), httpResponse.content().utf8ToString());
+    }
+
+    @SuppressWarnings("unchecked")
+    public void testResponseCompressedWhenClientAcceptsGzip() throws IOException {
+        final boolean compressionEnabled = randomBoolean();
+        final boolean acceptsGzip = randomBoolean();
+        final TestRequest httpRequest = new TestRequest(HttpRequest.HttpVersion.HTTP_1_1, RestRequest.Method.GET, "/");
+        if (acceptsGzip) {
+            httpRequest.getHeaders().put(HttpResponseCompressor.ACCEPT_ENCODING, Collections.singletonList("deflate, gzip;q=0.5"));
+        }
+        final RestRequest request = RestRequest.request(xContentRegistry(), httpRequest, httpChannel);
+        final Settings settings = Settings.builder()
+            .put(HttpTransportSettings.SETTING_HTTP_COMPRESSION.getKey(), compressionEnabled)
+            .build();
+
+        DefaultRestChannel channel = new DefaultRestChannel(httpChannel, httpRequest, request, bigArrays,
+            HttpHandlingSettings.fromSettings(settings), threadPool.getThreadContext(), compressor);
+        final String content = randomAlphaOfLengthBetween(1, 10000);
+        channel.sendResponse(new BytesRestResponse(RestStatus.OK, BytesRestResponse.TEXT_CONTENT_TYPE, content));
+
+        ArgumentCaptor<TestResponse> responseCaptor = ArgumentCaptor.forClass(TestResponse.class);
+        Class<ActionListener<Void>> listenerClass = (Class<ActionListener<Void>>) (Class) ActionListener.class;
+        ArgumentCaptor<ActionListener<Void>> listenerCaptor = ArgumentCaptor.forClass(listenerClass);
+        verify(httpChannel).sendResponse(responseCaptor.capture(), listenerCaptor.capture());
+        TestResponse httpResponse = responseCaptor.getValue();
+        assertEquals(Integer.toString(httpResponse.content().length()), httpResponse.headers.get(DefaultRestChannel.CONTENT_LENGTH).get(0));
+        if (compressionEnabled && acceptsGzip) {
+            assertEquals(Collections.singletonList(HttpResponseCompressor.GZIP),
+                httpResponse.headers.get(HttpResponseCompressor.CONTENT_ENCODING));
+            try (InputStream in = new GZIPInputStream(httpResponse.content().streamInput())) {
+                assertEquals(content, new String(in.readAllBytes(), StandardCharsets.UTF_8));
+            }
+        } else {
+            assertNull(httpResponse.headers.get(HttpResponseCompressor.CONTENT_ENCODING));
+            assertEquals(content, httpResponse.content().utf8ToString());
+        }
+        listenerCaptor.getValue().onResponse(null);
+        // ESTestCase#after will invoke ensureAllArraysAreReleased which will fail if the compressed content was not released
+    }
+
     @SuppressWarnings("unchecked")
     public void testConnectionClose() throws Exception {
         final Settings settings = Settings.builder().build();
@@ -296,7 +383,7 @@ public class DefaultRestChannelTests extends ESTestCase {
         HttpHandlingSettings handlingSettings = HttpHandlingSettings.fromSettings(settings);
 
         DefaultRestChannel channel = new DefaultRestChannel(httpChannel, httpRequest, request, bigArrays, handlingSettings,
-            threadPool.getThreadContext());
+            threadPool.getThreadContext(), compressor);
         channel.sendResponse(new TestRestResponse());
         Class<ActionListener<Void>> listenerClass = (Class<ActionListener<Void>>) (Class) ActionListener.class;
         ArgumentCaptor<ActionListener<Void>> listenerCaptor = ArgumentCaptor.forClass(listenerClass);
@@ -327,7 +414,7 @@ public class DefaultRestChannelTests extends ESTestCase {
         request.getHttpRequest().getHeaders().put(DefaultRestChannel.CONNECTION, Collections.singletonList(httpConnectionHeaderValue));
 
         DefaultRestChannel channel = new DefaultRestChannel(httpChannel, request.getHttpRequest(), request, bigArrays,
-            HttpHandlingSettings.fromSettings(Settings.EMPTY), threadPool.getThreadContext());
+            HttpHandlingSettings.fromSettings(Settings.EMPTY), threadPool.getThreadContext(), compressor);
 
         // ESTestCase#after will invoke ensureAllArraysAreReleased which will fail if the response content was not released
         final BigArrays bigArrays = new MockBigArrays(new MockPageCacheRecycler(Settings.EMPTY), new NoneCircuitBreakerService());
@@ -364,7 +451,7 @@ public class DefaultRestChannelTests extends ESTestCase {
         request.getHttpRequest().getHeaders().put(DefaultRestChannel.CONNECTION, Collections.singletonList(httpConnectionHeaderValue));
 
         DefaultRestChannel channel = new DefaultRestChannel(httpChannel, request.getHttpRequest(), request, bigArrays,
-            HttpHandlingSettings.fromSettings(Settings.EMPTY), threadPool.getThreadContext());
+            HttpHandlingSettings.fromSettings(Settings.EMPTY), threadPool.getThreadContext(), compressor);
 
         // ESTestCase#after will invoke ensureAllArraysAreReleased which will fail if the response content was not released
         final BigArrays bigArrays = new MockBigArrays(new MockPageCacheRecycler(Settings.EMPTY), new NoneCircuitBreakerService());
@@ -395,7 +482,7 @@ public class DefaultRestChannelTests extends ESTestCase {
 
         HttpHandlingSettings httpHandlingSettings = HttpHandlingSettings.fromSettings(settings);
         RestChannel channel = new DefaultRestChannel(httpChannel, httpRequest, request, bigArrays, httpHandlingSettings,
-            threadPool.getThreadContext());
+            threadPool.getThreadContext(), compressor);
         channel.sendResponse(new TestRestResponse());
 
         // get the response
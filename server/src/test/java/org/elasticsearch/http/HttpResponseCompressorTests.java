@@ -0,0 +1,66 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.http;
+
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.bytes.CompositeBytesReference;
+import org.elasticsearch.common.bytes.ReleasableBytesReference;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.MockBigArrays;
+import org.elasticsearch.common.util.MockPageCacheRecycler;
+import org.elasticsearch.indices.breaker.NoneCircuitBreakerService;
+import org.elasticsearch.test.ESTestCase;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+
+public class HttpResponseCompressorTests extends ESTestCase {
+
+    public void testAcceptsGzip() {
+        assertFalse(HttpResponseCompressor.acceptsGzip(null));
+        assertFalse(HttpResponseCompressor.acceptsGzip(""));
+        assertFalse(HttpResponseCompressor.acceptsGzip("deflate"));
+        assertFalse(HttpResponseCompressor.acceptsGzip("gzip;q=0"));
+        assertFalse(HttpResponseCompressor.acceptsGzip("gzip;q=invalid"));
+        assertTrue(HttpResponseCompressor.acceptsGzip("gzip"));
+        assertTrue(HttpResponseCompressor.acceptsGzip("GZIP"));
+        assertTrue(HttpResponseCompressor.acceptsGzip("deflate, gzip"));
+        assertTrue(HttpResponseCompressor.acceptsGzip("br;q=1.0, gzip;q=0.8, *;q=0.1"));
+        assertTrue(HttpResponseCompressor.acceptsGzip("*"));
+    }
+
+    public void testCompressedContentCanBeDecompressed() throws IOException {
+        final MockBigArrays bigArrays = new MockBigArrays(new MockPageCacheRecycler(Settings.EMPTY), new NoneCircuitBreakerService());
+        try (HttpResponseCompressor compressor = new HttpResponseCompressor(randomIntBetween(1, 9), randomIntBetween(1, 2))) {
+            // reusing pooled deflaters must not leak state between responses
+            for (int i = 0; i < 3; i++) {
+                final byte[] first = randomByteArrayOfLength(randomIntBetween(1, 100000));
+                final byte[] second = randomByteArrayOfLength(randomIntBetween(1, 100));
+                final BytesReference content = new CompositeBytesReference(new BytesArray(first), new BytesArray(second));
+                try (ReleasableBytesReference compressed = compressor.compress(content, bigArrays);
+                     InputStream in = new GZIPInputStream(compressed.streamInput())) {
+                    assertEquals(content, new BytesArray(in.readAllBytes()));
+                }
+            }
+        }
+    }
+}
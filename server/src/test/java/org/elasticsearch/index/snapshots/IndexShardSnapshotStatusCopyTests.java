@@ -0,0 +1,95 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.snapshots;
+
+import org.elasticsearch.common.io.stream.Writeable;
+import org.elasticsearch.test.AbstractWireSerializingTestCase;
+import org.elasticsearch.test.ESTestCase;
+
+public class IndexShardSnapshotStatusCopyTests extends AbstractWireSerializingTestCase<IndexShardSnapshotStatus.Copy> {
+
+    @Override
+    protected IndexShardSnapshotStatus.Copy createTestInstance() {
+        return randomCopy();
+    }
+
+    @Override
+    protected Writeable.Reader<IndexShardSnapshotStatus.Copy> instanceReader() {
+        return IndexShardSnapshotStatus.Copy::new;
+    }
+
+    @Override
+    protected IndexShardSnapshotStatus.Copy mutateInstance(IndexShardSnapshotStatus.Copy instance) {
+        IndexShardSnapshotStatus.Stage stage = instance.getStage();
+        long startTime = instance.getStartTime();
+        long totalTime = instance.getTotalTime();
+        int incrementalFileCount = instance.getIncrementalFileCount();
+        int totalFileCount = instance.getTotalFileCount();
+        int processedFileCount = instance.getProcessedFileCount();
+        long incrementalSize = instance.getIncrementalSize();
+        long totalSize = instance.getTotalSize();
+        long processedSize = instance.getProcessedSize();
+        long indexVersion = instance.getIndexVersion();
+        String failure = instance.getFailure();
+        switch (between(0, 10)) {
+            case 0:
+                stage = randomValueOtherThan(stage, () -> randomFrom(IndexShardSnapshotStatus.Stage.values()));
+                break;
+            case 1:
+                startTime = randomValueOtherThan(startTime, ESTestCase::randomNonNegativeLong);
+                break;
+            case 2:
+                totalTime = randomValueOtherThan(totalTime, ESTestCase::randomNonNegativeLong);
+                break;
+            case 3:
+                incrementalFileCount = randomValueOtherThan(incrementalFileCount, () -> between(0, 1000));
+                break;
+            case 4:
+                totalFileCount = randomValueOtherThan(totalFileCount, () -> between(0, 1000));
+                break;
+            case 5:
+                processedFileCount = randomValueOtherThan(processedFileCount, () -> between(0, 1000));
+                break;
+            case 6:
+                incrementalSize = randomValueOtherThan(incrementalSize, ESTestCase::randomNonNegativeLong);
+                break;
+            case 7:
+                totalSize = randomValueOtherThan(totalSize, ESTestCase::randomNonNegativeLong);
+                break;
+            case 8:
+                processedSize = randomValueOtherThan(processedSize, ESTestCase::randomNonNegativeLong);
+                break;
+            case 9:
+                indexVersion = randomValueOtherThan(indexVersion, ESTestCase::randomLong);
+                break;
+            default:
+                failure = failure == null ? randomAlphaOfLength(10) : randomBoolean() ? null : failure + randomAlphaOfLength(1);
+                break;
+        }
+        return new IndexShardSnapshotStatus.Copy(stage, startTime, totalTime, incrementalFileCount, totalFileCount, processedFileCount,
+            incrementalSize, totalSize, processedSize, indexVersion, failure);
+    }
+
+    public static IndexShardSnapshotStatus.Copy randomCopy() {
+        return new IndexShardSnapshotStatus.Copy(randomFrom(IndexShardSnapshotStatus.Stage.values()), randomNonNegativeLong(),
+            randomNonNegativeLong(), between(0, 1000), between(0, 1000), between(0, 1000), randomNonNegativeLong(), randomNonNegativeLong(),
+            randomNonNegativeLong(), randomLong(), randomBoolean() ? null : randomAlphaOfLength(10));
+    }
+}
@@ -78,10 +78,12 @@ import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -89,6 +91,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Random;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
 
 import static java.util.Collections.unmodifiableMap;
 import static org.elasticsearch.test.VersionUtils.randomVersion;
@@ -98,6 +101,7 @@ import static org.hamcrest.Matchers.empty;
 import static org.hamcrest.Matchers.endsWith;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.hasItemInArray;
 import static org.hamcrest.Matchers.hasKey;
 import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.Matchers.is;
@@ -418,6 +422,71 @@ public class StoreTests extends ESTestCase {
         IOUtils.close(dir);
     }
 
+    public void testVerifyParts() throws IOException {
+        Directory dir = newDirectory();
+        IndexOutput output = dir.createOutput("foo.bar", IOContext.DEFAULT);
+        int iters = scaledRandomIntBetween(10, 100);
+        for (int i = 0; i < iters; i++) {
+            BytesRef bytesRef = new BytesRef(TestUtil.randomRealisticUnicodeString(random(), 10, 1024));
+            output.writeBytes(bytesRef.bytes, bytesRef.offset, bytesRef.length);
+        }
+        CodecUtil.writeFooter(output);
+        output.close();
+
+        final StoreFileMetaData metaData;
+        try (IndexInput indexInput = dir.openInput("foo.bar", IOContext.DEFAULT)) {
+            metaData = new StoreFileMetaData("foo.bar", indexInput.length(), Store.digestToString(CodecUtil.retrieveChecksum(indexInput)),
+                MIN_SUPPORTED_LUCENE_VERSION);
+        }
+        readPartsAndVerify(dir, "foo.bar", metaData);
+
+        // the footer checksum is read from the file, but the metadata is checked too
+        final StoreFileMetaData otherMetaData = new StoreFileMetaData("foo.bar", metaData.length(),
+            Store.digestToString(randomValueOtherThan(Long.parseLong(metaData.checksum(), Character.MAX_RADIX), ESTestCase::randomLong)),
+            MIN_SUPPORTED_LUCENE_VERSION);
+        expectThrows(CorruptIndexException.class, () -> readPartsAndVerify(dir, "foo.bar", otherMetaData));
+
+        // Corrupt file and check again
+        corruptFile(dir, "foo.bar", "foo1.bar");
+        final StoreFileMetaData corruptedMetaData = new StoreFileMetaData("foo1.bar", metaData.length(), metaData.checksum(),
+            MIN_SUPPORTED_LUCENE_VERSION);
+        expectThrows(CorruptIndexException.class, () -> readPartsAndVerify(dir, "foo1.bar", corruptedMetaData));
+        IOUtils.close(dir);
+    }
+
+    private void readPartsAndVerify(Directory dir, String name, StoreFileMetaData metaData) throws IOException {
+        try (IndexInput indexInput = dir.openInput(name, IOContext.DEFAULT)) {
+            // some parts are smaller than the footer so that the footer checksum is sometimes spread over several parts
+            final List<Long> offsets = new ArrayList<>();
+            for (long offset = 0; offset < indexInput.length(); offset += randomBoolean() ? between(1, 9) : between(1, 4096)) {
+                offsets.add(offset);
+            }
+            final List<IndexInput> parts = new ArrayList<>();
+            for (int i = 0; i < offsets.size(); i++) {
+                final long end = i + 1 < offsets.size() ? offsets.get(i + 1) : indexInput.length();
+                parts.add(Store.openVerifyingPartInput(indexInput, offsets.get(i), end - offsets.get(i)));
+            }
+            final List<IndexInput> readOrder = new ArrayList<>(parts);
+            Collections.shuffle(readOrder, random());
+            for (IndexInput part : readOrder) {
+                readIndexInputFullyWithRandomSeeks(part);
+            }
+            Store.verifyParts(metaData, parts);
+        }
+    }
+
+    public void testCrc32Combine() {
+        final byte[] bytes = randomByteArrayOfLength(randomIntBetween(0, 1 << 16));
+        final int split = randomIntBetween(0, bytes.length);
+        final CRC32 first = new CRC32();
+        first.update(bytes, 0, split);
+        final CRC32 second = new CRC32();
+        second.update(bytes, split, bytes.length - split);
+        final CRC32 whole = new CRC32();
+        whole.update(bytes, 0, bytes.length);
+        assertThat(Store.crc32Combine(first.getValue(), second.getValue(), bytes.length - split), equalTo(whole.getValue()));
+    }
+
     private void readIndexInputFullyWithRandomSeeks(IndexInput indexInput) throws IOException {
         BytesRef ref = new BytesRef(scaledRandomIntBetween(1, 1024));
         long pos = 0;
@@ -1024,4 +1093,41 @@ public class StoreTests extends ESTestCase {
             }
         }
     }
+
+    public void testCreatePositionalOutput() throws IOException {
+        final ShardId shardId = new ShardId("index", "_na_", 1);
+        final Settings settings = Settings.builder()
+            .put(IndexMetaData.SETTING_VERSION_CREATED, org.elasticsearch.Version.CURRENT)
+            .put(Store.INDEX_STORE_STATS_REFRESH_INTERVAL_SETTING.getKey(), TimeValue.timeValueMinutes(0)).build();
+        final IndexSettings indexSettings = IndexSettingsModule.newIndexSettings("index", settings);
+        try (Store store = new Store(shardId, indexSettings, new NIOFSDirectory(createTempDir()), new DummyShardLock(shardId))) {
+            final long initialStoreSize = store.stats().getSizeInBytes();
+            final byte[] content = randomByteArrayOfLength(between(1, 8192));
+            try (Store.PositionalOutput output = store.createPositionalOutput("foo.bar")) {
+                assertNotNull(output);
+                // parts are written in any order
+                final int middle = between(0, content.length);
+                output.writeBytes(content, middle, content.length - middle, middle);
+                output.writeBytes(content, 0, middle, 0);
+            }
+            final byte[] written = new byte[content.length];
+            try (IndexInput input = store.directory().openInput("foo.bar", IOContext.DEFAULT)) {
+                assertEquals(content.length, input.length());
+                input.readBytes(written, 0, written.length);
+            }
+            assertArrayEquals(content, written);
+            // the file is accounted for in the size of the store like a file written through the directory
+            assertEquals(initialStoreSize + content.length, store.stats().getSizeInBytes());
+
+            expectThrows(FileAlreadyExistsException.class, () -> store.createPositionalOutput("foo.bar"));
+        }
+
+        // other directories might need to see the writes
+        final Directory directory = randomBoolean() ? StoreTests.newDirectory(random())
+            : new FilterDirectory(new NIOFSDirectory(createTempDir())) {};
+        try (Store store = new Store(shardId, indexSettings, directory, new DummyShardLock(shardId))) {
+            assertNull(store.createPositionalOutput("foo.bar"));
+            assertThat(store.directory().listAll(), not(hasItemInArray("foo.bar")));
+        }
+    }
 }
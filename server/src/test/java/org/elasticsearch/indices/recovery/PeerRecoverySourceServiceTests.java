@@ -26,6 +26,7 @@ import org.elasticsearch.index.shard.IndexShard;
 import org.elasticsearch.index.shard.IndexShardTestCase;
 import org.elasticsearch.index.store.Store;
 import org.elasticsearch.indices.IndicesService;
+import org.elasticsearch.repositories.RepositoriesService;
 import org.elasticsearch.transport.TransportService;
 
 import java.io.IOException;
@@ -37,21 +38,24 @@ public class PeerRecoverySourceServiceTests extends IndexShardTestCase {
 
     public void testDuplicateRecoveries() throws IOException {
         IndexShard primary = newStartedShard(true);
+        final RecoverySettings recoverySettings =
+            new RecoverySettings(Settings.EMPTY, new ClusterSettings(Settings.EMPTY, ClusterSettings.BUILT_IN_CLUSTER_SETTINGS));
         PeerRecoverySourceService peerRecoverySourceService = new PeerRecoverySourceService(
-            mock(TransportService.class), mock(IndicesService.class),
-            new RecoverySettings(Settings.EMPTY, new ClusterSettings(Settings.EMPTY, ClusterSettings.BUILT_IN_CLUSTER_SETTINGS)));
+            mock(TransportService.class), mock(IndicesService.class), recoverySettings, mock(RepositoriesService.class));
         StartRecoveryRequest startRecoveryRequest = new StartRecoveryRequest(primary.shardId(), randomAlphaOfLength(10),
             getFakeDiscoNode("source"), getFakeDiscoNode("target"), Store.MetadataSnapshot.EMPTY, randomBoolean(), randomLong(),
             SequenceNumbers.UNASSIGNED_SEQ_NO);
         peerRecoverySourceService.start();
-        RecoverySourceHandler handler = peerRecoverySourceService.ongoingRecoveries.addNewRecovery(startRecoveryRequest, primary);
+        final RecoveryBandwidthScheduler.Throttle throttle = recoverySettings.bandwidthScheduler().register(false, () -> 0L);
+        RecoverySourceHandler handler = peerRecoverySourceService.ongoingRecoveries.addNewRecovery(startRecoveryRequest, primary, throttle);
         DelayRecoveryException delayRecoveryException = expectThrows(DelayRecoveryException.class,
-            () -> peerRecoverySourceService.ongoingRecoveries.addNewRecovery(startRecoveryRequest, primary));
+            () -> peerRecoverySourceService.ongoingRecoveries.addNewRecovery(startRecoveryRequest, primary, throttle));
         assertThat(delayRecoveryException.getMessage(), containsString("recovery with same target already registered"));
         peerRecoverySourceService.ongoingRecoveries.remove(primary, handler);
         // re-adding after removing previous attempt works
-        handler = peerRecoverySourceService.ongoingRecoveries.addNewRecovery(startRecoveryRequest, primary);
+        handler = peerRecoverySourceService.ongoingRecoveries.addNewRecovery(startRecoveryRequest, primary, throttle);
         peerRecoverySourceService.ongoingRecoveries.remove(primary, handler);
+        throttle.close();
         closeShards(primary);
     }
 }
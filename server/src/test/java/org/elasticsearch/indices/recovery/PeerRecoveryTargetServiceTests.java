@@ -27,15 +27,20 @@ import org.elasticsearch.action.admin.indices.flush.FlushRequest;
 import org.elasticsearch.action.index.IndexRequest;
 import org.elasticsearch.action.support.PlainActionFuture;
 import org.elasticsearch.cluster.metadata.IndexMetaData;
+import org.elasticsearch.cluster.metadata.RepositoryMetaData;
 import org.elasticsearch.cluster.node.DiscoveryNode;
 import org.elasticsearch.cluster.routing.RecoverySource;
 import org.elasticsearch.cluster.routing.ShardRoutingHelper;
+import org.elasticsearch.cluster.service.ClusterService;
 import org.elasticsearch.common.Randomness;
 import org.elasticsearch.common.UUIDs;
 import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.settings.ClusterSettings;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.xcontent.XContentType;
 import org.elasticsearch.core.internal.io.IOUtils;
+import org.elasticsearch.env.Environment;
+import org.elasticsearch.env.TestEnvironment;
 import org.elasticsearch.index.engine.Engine;
 import org.elasticsearch.index.engine.NoOpEngine;
 import org.elasticsearch.index.mapper.SourceToParse;
@@ -43,20 +48,36 @@ import org.elasticsearch.index.seqno.SeqNoStats;
 import org.elasticsearch.index.seqno.SequenceNumbers;
 import org.elasticsearch.index.shard.IndexShard;
 import org.elasticsearch.index.shard.IndexShardTestCase;
+import org.elasticsearch.index.snapshots.blobstore.BlobStoreIndexShardSnapshot;
+import org.elasticsearch.index.snapshots.blobstore.SnapshotFiles;
 import org.elasticsearch.index.store.Store;
 import org.elasticsearch.index.store.StoreFileMetaData;
 import org.elasticsearch.index.translog.Translog;
+import org.elasticsearch.repositories.IndexId;
+import org.elasticsearch.repositories.blobstore.BlobStoreRepository;
+import org.elasticsearch.repositories.blobstore.BlobStoreTestUtil;
+import org.elasticsearch.repositories.fs.FsRepository;
+import org.elasticsearch.snapshots.Snapshot;
+import org.elasticsearch.snapshots.SnapshotId;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CyclicBarrier;
 import java.util.stream.Collectors;
 import java.util.stream.LongStream;
+import java.util.stream.Stream;
 
 import static org.elasticsearch.index.seqno.SequenceNumbers.UNASSIGNED_SEQ_NO;
 import static org.hamcrest.Matchers.empty;
@@ -158,6 +179,183 @@ public class PeerRecoveryTargetServiceTests extends IndexShardTestCase {
         return shard.seqNoStats();
     }
 
+    public void testRestoreFilesFromSnapshotReportsFilesThatFailed() throws Exception {
+        final IndexShard sourceShard = newStartedShard(true);
+        final int numDocs = between(20, 100);
+        for (int i = 0; i < numDocs; i++) {
+            indexDoc(sourceShard, "_doc", Integer.toString(i));
+        }
+        sourceShard.flush(new FlushRequest());
+        final Path repositoryPath = createTempDir();
+        final BlobStoreRepository repository = createRepository(repositoryPath);
+        final Snapshot snapshot = new Snapshot(repository.getMetadata().name(), new SnapshotId(randomAlphaOfLength(10), "_uuid"));
+        final String shardGeneration = snapshotShard(sourceShard, snapshot, repository);
+        final IndexId indexId = new IndexId(sourceShard.shardId().getIndexName(), sourceShard.shardId().getIndex().getUUID());
+
+        final Set<String> expectedFailedFiles = new HashSet<>();
+        if (randomBoolean()) {
+            // files that are not contained in the snapshot
+            for (int i = 0; i < numDocs; i++) {
+                indexDoc(sourceShard, "_doc", Integer.toString(numDocs + i));
+            }
+            sourceShard.flush(new FlushRequest());
+        }
+        final Store.MetadataSnapshot sourceSnapshot = sourceShard.store().getMetadata(null);
+        final Set<String> snapshotFileNames = new HashSet<>();
+        for (SnapshotFiles snapshotFiles : repository.loadShardSnapshots(indexId, sourceShard.shardId().id(), shardGeneration)) {
+            for (BlobStoreIndexShardSnapshot.FileInfo fileInfo : snapshotFiles.indexFiles()) {
+                snapshotFileNames.add(fileInfo.physicalName());
+                if (rarely()) {
+                    // files whose blobs are corrupted
+                    corruptBlobs(repositoryPath, fileInfo);
+                    expectedFailedFiles.add(fileInfo.physicalName());
+                }
+            }
+        }
+        final List<StoreFileMetaData> mdFiles = new ArrayList<>();
+        for (StoreFileMetaData md : sourceSnapshot) {
+            mdFiles.add(md);
+            if (snapshotFileNames.contains(md.name()) == false) {
+                expectedFailedFiles.add(md.name());
+            }
+        }
+
+        final IndexShard targetShard = newShard(false);
+        final DiscoveryNode pNode = getFakeDiscoNode(sourceShard.routingEntry().currentNodeId());
+        final DiscoveryNode rNode = getFakeDiscoNode(targetShard.routingEntry().currentNodeId());
+        targetShard.markAsRecovering("test-peer-recovery", new RecoveryState(targetShard.routingEntry(), rNode, pNode));
+        final RecoveryTarget recoveryTarget = new RecoveryTarget(targetShard, null, null);
+        final PlainActionFuture<Void> receiveFileInfoFuture = new PlainActionFuture<>();
+        recoveryTarget.receiveFileInfo(
+            mdFiles.stream().map(StoreFileMetaData::name).collect(Collectors.toList()),
+            mdFiles.stream().map(StoreFileMetaData::length).collect(Collectors.toList()),
+            Collections.emptyList(), Collections.emptyList(), 0, receiveFileInfoFuture
+        );
+        receiveFileInfoFuture.actionGet();
+
+        final RecoverySettings recoverySettings =
+            new RecoverySettings(Settings.EMPTY, new ClusterSettings(Settings.EMPTY, ClusterSettings.BUILT_IN_CLUSTER_SETTINGS));
+        final PlainActionFuture<List<String>> failedFilesFuture = new PlainActionFuture<>();
+        recoveryTarget.restoreFilesFromSnapshot(repository, indexId, shardGeneration, snapshot.getSnapshotId().getName(), mdFiles, 0,
+            threadPool.generic(), between(1, 4), recoveryTarget.bandwidthThrottle(recoverySettings.bandwidthScheduler()),
+            failedFilesFuture);
+        final List<String> failedFiles = failedFilesFuture.actionGet();
+        assertThat(new HashSet<>(failedFiles), equalTo(expectedFailedFiles));
+        for (String file : recoveryTarget.store().directory().listAll()) {
+            if (file.startsWith(recoveryTarget.getTempNameForFile(""))) {
+                final String name = file.substring(recoveryTarget.getTempNameForFile("").length());
+                assertFalse("temporary file [" + file + "] of a failed file was not removed", expectedFailedFiles.contains(name));
+            }
+        }
+
+        // the recovery source sends the files that failed instead
+        for (StoreFileMetaData md : mdFiles) {
+            if (expectedFailedFiles.contains(md.name())) {
+                final byte[] content = new byte[Math.toIntExact(md.length())];
+                try (IndexInput in = sourceShard.store().directory().openInput(md.name(), IOContext.READONCE)) {
+                    in.readBytes(content, 0, content.length);
+                }
+                final PlainActionFuture<Void> writeFileChunkFuture = new PlainActionFuture<>();
+                recoveryTarget.writeFileChunk(md, 0, new BytesArray(content), true, 0, writeFileChunkFuture);
+                writeFileChunkFuture.actionGet();
+            }
+        }
+        final PlainActionFuture<Void> cleanFilesFuture = new PlainActionFuture<>();
+        recoveryTarget.cleanFiles(0, Long.parseLong(sourceSnapshot.getCommitUserData().get(SequenceNumbers.MAX_SEQ_NO)),
+            sourceSnapshot, cleanFilesFuture);
+        cleanFilesFuture.actionGet();
+        recoveryTarget.decRef();
+        final Store.RecoveryDiff diff = sourceSnapshot.recoveryDiff(targetShard.snapshotStoreMetadata());
+        assertThat(diff.different, empty());
+        closeShards(sourceShard, targetShard);
+    }
+
+    public void testWriteFileRemovesTemporaryFileOnFailure() throws Exception {
+        final IndexShard sourceShard = newStartedShard(true);
+        final int numDocs = between(1, 20);
+        for (int i = 0; i < numDocs; i++) {
+            indexDoc(sourceShard, "_doc", Integer.toString(i));
+        }
+        sourceShard.flush(new FlushRequest());
+        final StoreFileMetaData md = randomFrom(sourceShard.store().getMetadata(null).asMap().values());
+        final byte[] content = new byte[Math.toIntExact(md.length())];
+        try (IndexInput in = sourceShard.store().directory().openInput(md.name(), IOContext.READONCE)) {
+            in.readBytes(content, 0, content.length);
+        }
+
+        final IndexShard targetShard = newShard(false);
+        final Store store = targetShard.store();
+        final RecoveryState.Index indexState = new RecoveryState.Index();
+        indexState.addFileDetail(md.name(), md.length(), false);
+        try (MultiFileWriter writer = new MultiFileWriter(store, indexState, "recovery.test.", logger, () -> {})) {
+            final String tempFileName = writer.getTempNameForFile(md.name());
+            final byte[] corrupted = content.clone();
+            final int position = randomIntBetween(0, corrupted.length - 1);
+            corrupted[position] = (byte) ~corrupted[position];
+            final InputStream stream = randomBoolean() ? new ByteArrayInputStream(corrupted) : new InputStream() {
+                private final InputStream delegate = new ByteArrayInputStream(content, 0, position);
+
+                @Override
+                public int read() throws IOException {
+                    final int b = delegate.read();
+                    if (b == -1) {
+                        throw new IOException("simulated");
+                    }
+                    return b;
+                }
+            };
+            expectThrows(IOException.class, () -> writer.writeFile(md, stream));
+            assertFalse(Arrays.asList(store.directory().listAll()).contains(tempFileName));
+            assertNull(writer.getOpenIndexOutput(md.name()));
+            assertFalse(writer.tempFileNames.containsKey(tempFileName));
+            assertThat(indexState.getFileDetails(md.name()).recovered(), equalTo(0L));
+
+            // the file can still be written afterwards
+            writer.writeFile(md, new ByteArrayInputStream(content));
+            assertTrue(Arrays.asList(store.directory().listAll()).contains(tempFileName));
+            assertThat(writer.tempFileNames.get(tempFileName), equalTo(md.name()));
+            assertThat(indexState.getFileDetails(md.name()).recovered(), equalTo(md.length()));
+        }
+        closeShards(sourceShard, targetShard);
+    }
+
+    private BlobStoreRepository createRepository(Path path) {
+        final Settings settings = Settings.builder().put("location", path).build();
+        final RepositoryMetaData repositoryMetaData = new RepositoryMetaData(randomAlphaOfLength(10), FsRepository.TYPE, settings);
+        final ClusterService clusterService = BlobStoreTestUtil.mockClusterService(repositoryMetaData);
+        final Environment environment = TestEnvironment.newEnvironment(Settings.builder()
+            .put(Environment.PATH_HOME_SETTING.getKey(), createTempDir().toAbsolutePath())
+            .put(Environment.PATH_REPO_SETTING.getKey(), path.toAbsolutePath())
+            .build());
+        final FsRepository repository = new FsRepository(repositoryMetaData, environment, xContentRegistry(), clusterService,
+            new RecoverySettings(Settings.EMPTY, new ClusterSettings(Settings.EMPTY, ClusterSettings.BUILT_IN_CLUSTER_SETTINGS))) {
+            @Override
+            protected void assertSnapshotOrGenericThread() {
+                // eliminate thread name check as we create repo manually
+            }
+        };
+        clusterService.addStateApplier(event -> repository.updateState(event.state()));
+        repository.updateState(clusterService.state());
+        repository.start();
+        return repository;
+    }
+
+    private static void corruptBlobs(Path repositoryPath, BlobStoreIndexShardSnapshot.FileInfo fileInfo) throws IOException {
+        final List<Path> blobs;
+        try (Stream<Path> files = Files.walk(repositoryPath)) {
+            blobs = files.filter(file -> {
+                final String name = file.getFileName().toString();
+                return name.equals(fileInfo.name()) || name.startsWith(fileInfo.name() + ".part");
+            }).collect(Collectors.toList());
+        }
+        assertFalse("no blobs found for " + fileInfo.name(), blobs.isEmpty());
+        final Path blob = randomFrom(blobs);
+        final byte[] content = Files.readAllBytes(blob);
+        final int position = randomIntBetween(0, content.length - 1);
+        content[position] = (byte) ~content[position];
+        Files.write(blob, content);
+    }
+
     public void testPrepareIndexForPeerRecovery() throws Exception {
         DiscoveryNode localNode = new DiscoveryNode("foo", buildNewFakeTransportAddress(),
             Collections.emptyMap(), Collections.emptySet(), Version.CURRENT);
@@ -0,0 +1,140 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.indices.recovery;
+
+import org.elasticsearch.common.unit.ByteSizeUnit;
+import org.elasticsearch.test.ESTestCase;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.equalTo;
+
+public class RecoveryBandwidthSchedulerTests extends ESTestCase {
+
+    private static final double DELTA = 0.0001;
+    private static final long LARGE_RECOVERY = ByteSizeUnit.GB.toBytes(10);
+
+    private final AtomicLong currentTimeInNanos = new AtomicLong(randomLongBetween(0L, Long.MAX_VALUE / 2));
+
+    public void testSharesBandwidthEqually() {
+        final RecoveryBandwidthScheduler scheduler = new RecoveryBandwidthScheduler(40.0, currentTimeInNanos::get);
+        final int recoveries = between(1, 8);
+        final RecoveryBandwidthScheduler.Throttle[] throttles = new RecoveryBandwidthScheduler.Throttle[recoveries];
+        for (int i = 0; i < recoveries; i++) {
+            throttles[i] = scheduler.register(false, () -> LARGE_RECOVERY);
+        }
+        for (RecoveryBandwidthScheduler.Throttle throttle : throttles) {
+            assertThat(throttle.getMBPerSec(), closeTo(40.0 / recoveries, DELTA));
+        }
+        throttles[0].close();
+        assertThat(scheduler.activeRecoveries(), equalTo(recoveries - 1));
+        for (int i = 1; i < recoveries; i++) {
+            assertThat(throttles[i].getMBPerSec(), closeTo(40.0 / (recoveries - 1), DELTA));
+        }
+        for (int i = 1; i < recoveries; i++) {
+            throttles[i].close();
+        }
+        assertThat(scheduler.activeRecoveries(), equalTo(0));
+    }
+
+    public void testPrioritisesPrimariesAndSmallRecoveries() {
+        final RecoveryBandwidthScheduler scheduler = new RecoveryBandwidthScheduler(45.0, currentTimeInNanos::get);
+        final RecoveryBandwidthScheduler.Throttle largeReplica = scheduler.register(false, () -> LARGE_RECOVERY);
+        final RecoveryBandwidthScheduler.Throttle largePrimary = scheduler.register(true, () -> LARGE_RECOVERY);
+        final RecoveryBandwidthScheduler.Throttle smallReplica =
+            scheduler.register(false, () -> RecoveryBandwidthScheduler.SMALL_RECOVERY_BYTES);
+        final RecoveryBandwidthScheduler.Throttle smallPrimary =
+            scheduler.register(true, () -> RecoveryBandwidthScheduler.SMALL_RECOVERY_BYTES);
+        assertThat(largeReplica.getMBPerSec(), closeTo(5.0, DELTA));
+        assertThat(largePrimary.getMBPerSec(), closeTo(10.0, DELTA));
+        assertThat(smallReplica.getMBPerSec(), closeTo(10.0, DELTA));
+        assertThat(smallPrimary.getMBPerSec(), closeTo(20.0, DELTA));
+    }
+
+    public void testRecoveryBecomesSmallOnceMostBytesAreTransferred() {
+        final RecoveryBandwidthScheduler scheduler = new RecoveryBandwidthScheduler(30.0, currentTimeInNanos::get);
+        final long expectedBytes = RecoveryBandwidthScheduler.SMALL_RECOVERY_BYTES + ByteSizeUnit.MB.toBytes(1);
+        final RecoveryBandwidthScheduler.Throttle first = scheduler.register(false, () -> expectedBytes);
+        final RecoveryBandwidthScheduler.Throttle second = scheduler.register(false, () -> LARGE_RECOVERY);
+        assertThat(first.getMBPerSec(), closeTo(15.0, DELTA));
+        assertThat(second.getMBPerSec(), closeTo(15.0, DELTA));
+
+        first.recordTransferredBytes(Math.toIntExact(ByteSizeUnit.MB.toBytes(15)));
+        second.recordTransferredBytes(Math.toIntExact(ByteSizeUnit.MB.toBytes(15)));
+        currentTimeInNanos.addAndGet(RecoveryBandwidthScheduler.REBALANCE_INTERVAL_NANOS);
+        scheduler.rebalance(currentTimeInNanos.get());
+        assertThat(first.getMBPerSec(), closeTo(20.0, DELTA));
+        assertThat(second.getMBPerSec(), closeTo(10.0, DELTA));
+    }
+
+    public void testRedistributesUnusedBandwidth() {
+        final RecoveryBandwidthScheduler scheduler = new RecoveryBandwidthScheduler(40.0, currentTimeInNanos::get);
+        final RecoveryBandwidthScheduler.Throttle slow = scheduler.register(false, () -> LARGE_RECOVERY);
+        final RecoveryBandwidthScheduler.Throttle fast = scheduler.register(false, () -> LARGE_RECOVERY);
+        assertThat(slow.getMBPerSec(), closeTo(20.0, DELTA));
+        assertThat(fast.getMBPerSec(), closeTo(20.0, DELTA));
+
+        // the slow recovery only used a fifth of its share, the fast one all of it
+        slow.recordTransferredBytes(Math.toIntExact(ByteSizeUnit.MB.toBytes(4)));
+        fast.recordTransferredBytes(Math.toIntExact(ByteSizeUnit.MB.toBytes(20)));
+        currentTimeInNanos.addAndGet(RecoveryBandwidthScheduler.REBALANCE_INTERVAL_NANOS);
+        scheduler.rebalance(currentTimeInNanos.get());
+        assertThat(slow.getMBPerSec(), closeTo(6.0, DELTA));
+        assertThat(fast.getMBPerSec(), closeTo(34.0, DELTA));
+
+        // once the slow recovery uses its whole allocation it gets its fair share again
+        slow.recordTransferredBytes(Math.toIntExact(ByteSizeUnit.MB.toBytes(6)));
+        fast.recordTransferredBytes(Math.toIntExact(ByteSizeUnit.MB.toBytes(34)));
+        currentTimeInNanos.addAndGet(RecoveryBandwidthScheduler.REBALANCE_INTERVAL_NANOS);
+        scheduler.rebalance(currentTimeInNanos.get());
+        assertThat(slow.getMBPerSec(), closeTo(20.0, DELTA));
+        assertThat(fast.getMBPerSec(), closeTo(20.0, DELTA));
+    }
+
+    public void testRebalancesPeriodicallyWhileTransferring() {
+        final RecoveryBandwidthScheduler scheduler = new RecoveryBandwidthScheduler(40.0, currentTimeInNanos::get);
+        final RecoveryBandwidthScheduler.Throttle idle = scheduler.register(false, () -> LARGE_RECOVERY);
+        final RecoveryBandwidthScheduler.Throttle busy = scheduler.register(false, () -> LARGE_RECOVERY);
+        busy.recordTransferredBytes(Math.toIntExact(ByteSizeUnit.MB.toBytes(20)));
+        assertThat(idle.getMBPerSec(), closeTo(20.0, DELTA));
+
+        currentTimeInNanos.addAndGet(RecoveryBandwidthScheduler.REBALANCE_INTERVAL_NANOS);
+        busy.recordTransferredBytes(0);
+        // an idle recovery keeps a minimum share so that it can speed up again
+        assertThat(idle.getMBPerSec(), closeTo(2.0, DELTA));
+        assertThat(busy.getMBPerSec(), closeTo(38.0, DELTA));
+    }
+
+    public void testZeroBandwidthDisablesThrottling() throws Exception {
+        final RecoveryBandwidthScheduler scheduler = new RecoveryBandwidthScheduler(0.0, currentTimeInNanos::get);
+        try (RecoveryBandwidthScheduler.Throttle throttle = scheduler.register(randomBoolean(), () -> LARGE_RECOVERY)) {
+            assertThat(throttle.getMBPerSec(), equalTo(0.0));
+            assertThat(throttle.maybePause(Math.toIntExact(ByteSizeUnit.MB.toBytes(100))), equalTo(0L));
+
+            scheduler.setMaxMBPerSec(10.0);
+            assertThat(throttle.getMBPerSec(), closeTo(10.0, DELTA));
+
+            scheduler.setMaxMBPerSec(0.0);
+            assertThat(throttle.getMBPerSec(), equalTo(0.0));
+        }
+        assertThat(scheduler.activeRecoveries(), equalTo(0));
+    }
+}
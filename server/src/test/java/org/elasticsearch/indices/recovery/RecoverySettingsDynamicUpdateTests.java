@@ -34,7 +34,9 @@ public class RecoverySettingsDynamicUpdateTests extends ESTestCase {
     public void testZeroBytesPerSecondIsNoRateLimit() {
         clusterSettings.applySettings(Settings.builder().put(
                 RecoverySettings.INDICES_RECOVERY_MAX_BYTES_PER_SEC_SETTING.getKey(), 0).build());
-        assertEquals(null, recoverySettings.rateLimiter());
+        try (RecoveryBandwidthScheduler.Throttle throttle = recoverySettings.bandwidthScheduler().register(randomBoolean(), () -> 0L)) {
+            assertEquals(0.0, throttle.getMBPerSec(), 0.0);
+        }
     }
 
     public void testRetryDelayStateSync() {
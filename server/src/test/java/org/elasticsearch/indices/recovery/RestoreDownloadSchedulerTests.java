@@ -0,0 +1,118 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.indices.recovery;
+
+import org.elasticsearch.common.settings.ClusterSettings;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.concurrent.AbstractRunnable;
+import org.elasticsearch.test.ESTestCase;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+
+public class RestoreDownloadSchedulerTests extends ESTestCase {
+
+    private final Deque<Runnable> workers = new ArrayDeque<>();
+    private final AtomicInteger completedDownloads = new AtomicInteger();
+
+    public void testLimitsConcurrentDownloadsOfAllCallers() {
+        final int maxConcurrentDownloads = between(1, 5);
+        final RestoreDownloadScheduler scheduler = new RestoreDownloadScheduler(maxConcurrentDownloads);
+        final int downloads = between(1, 20);
+        for (int i = 0; i < downloads; i++) {
+            scheduler.schedule(download(scheduler, maxConcurrentDownloads), workers::add);
+            assertThat(scheduler.runningWorkers(), equalTo(Math.min(i + 1, maxConcurrentDownloads)));
+        }
+        assertThat(workers.size(), equalTo(Math.min(downloads, maxConcurrentDownloads)));
+        runWorkers();
+        assertThat(completedDownloads.get(), equalTo(downloads));
+        assertThat(scheduler.runningWorkers(), equalTo(0));
+    }
+
+    public void testStartsWorkerForDownloadsScheduledWhileAllWorkersAreBusy() {
+        final RestoreDownloadScheduler scheduler = new RestoreDownloadScheduler(1);
+        final int downloads = between(1, 5);
+        scheduler.schedule(new AbstractRunnable() {
+            @Override
+            public void onFailure(Exception e) {
+                throw new AssertionError(e);
+            }
+
+            @Override
+            protected void doRun() {
+                for (int i = 0; i < downloads; i++) {
+                    scheduler.schedule(download(scheduler, 1), workers::add);
+                }
+                completedDownloads.incrementAndGet();
+            }
+        }, workers::add);
+        assertThat(workers.size(), equalTo(1));
+        runWorkers();
+        assertThat(completedDownloads.get(), equalTo(downloads + 1));
+        assertThat(scheduler.runningWorkers(), equalTo(0));
+    }
+
+    public void testUpdatesLimitWithSetting() {
+        final ClusterSettings clusterSettings = new ClusterSettings(Settings.EMPTY, ClusterSettings.BUILT_IN_CLUSTER_SETTINGS);
+        final RecoverySettings recoverySettings = new RecoverySettings(Settings.builder()
+            .put(RecoverySettings.INDICES_RECOVERY_MAX_CONCURRENT_RESTORE_DOWNLOADS_SETTING.getKey(), 1).build(), clusterSettings);
+        final RestoreDownloadScheduler scheduler = recoverySettings.restoreDownloadScheduler();
+        for (int i = 0; i < 3; i++) {
+            scheduler.schedule(download(scheduler, 3), workers::add);
+        }
+        assertThat(workers.size(), equalTo(1));
+
+        clusterSettings.applySettings(Settings.builder()
+            .put(RecoverySettings.INDICES_RECOVERY_MAX_CONCURRENT_RESTORE_DOWNLOADS_SETTING.getKey(), 3).build());
+        for (int i = 0; i < 2; i++) {
+            scheduler.schedule(download(scheduler, 3), workers::add);
+        }
+        assertThat(workers.size(), equalTo(3));
+        runWorkers();
+        assertThat(completedDownloads.get(), equalTo(5));
+        assertThat(scheduler.runningWorkers(), equalTo(0));
+    }
+
+    private AbstractRunnable download(RestoreDownloadScheduler scheduler, int maxConcurrentDownloads) {
+        return new AbstractRunnable() {
+            @Override
+            public void onFailure(Exception e) {
+                throw new AssertionError(e);
+            }
+
+            @Override
+            protected void doRun() {
+                assertThat(scheduler.runningWorkers(), lessThanOrEqualTo(maxConcurrentDownloads));
+                completedDownloads.incrementAndGet();
+            }
+        };
+    }
+
+    private void runWorkers() {
+        Runnable worker;
+        while ((worker = randomBoolean() ? workers.pollFirst() : workers.pollLast()) != null) {
+            worker.run();
+        }
+    }
+}
@@ -28,6 +28,7 @@ import org.elasticsearch.cluster.service.ClusterService;
 import org.elasticsearch.common.settings.ClusterSettings;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.transport.TransportAddress;
+import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.test.ESTestCase;
 import org.elasticsearch.threadpool.TestThreadPool;
 import org.elasticsearch.threadpool.ThreadPool;
@@ -36,9 +37,12 @@ import org.junit.Before;
 
 import java.util.Map;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
 
+import static org.hamcrest.Matchers.closeTo;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
 
 public class ResponseCollectorServiceTests extends ESTestCase {
 
@@ -137,4 +141,72 @@ public class ResponseCollectorServiceTests extends ESTestCase {
         assertTrue(nodeStats.containsKey("node1"));
         assertFalse(nodeStats.containsKey("node2"));
     }
+
+    public void testLoadAwareRanking() {
+        final AtomicLong nanoTime = new AtomicLong();
+        final ClusterSettings clusterSettings = clusterService.getClusterSettings();
+        final ResponseCollectorService service = new ResponseCollectorService(clusterService, nanoTime::get);
+        service.addNodeStatistics("node1", 1, 100, 10);
+        service.addNodeStatistics("node2", 1, 100, 10);
+        service.addNodeLoad("node1", 90, 50);
+        service.addNodeLoad("node2", 10, 50);
+        service.addNodeLoad("unknown", 10, 50);
+        assertFalse(service.getAllNodeStatistics().containsKey("unknown"));
+
+        // load is tracked, but ignored unless enabled
+        ResponseCollectorService.ComputedNodeStats node1 = service.getNodeStatistics("node1").get();
+        ResponseCollectorService.ComputedNodeStats node2 = service.getNodeStatistics("node2").get();
+        assertThat(node1.cpuPercent, equalTo(90.0));
+        assertThat(node1.heapUsedPercent, equalTo(50));
+        assertFalse(node1.loadAware);
+        assertThat(node1.rank(1), equalTo(node2.rank(1)));
+
+        clusterSettings.applySettings(Settings.builder()
+            .put(ResponseCollectorService.LOAD_AWARE_SELECTION_SETTING.getKey(), true).build());
+        node1 = service.getNodeStatistics("node1").get();
+        node2 = service.getNodeStatistics("node2").get();
+        assertTrue(node1.loadAware);
+        assertThat(node1.rank(1), greaterThan(node2.rank(1)));
+
+        // heap usage only counts once it is high
+        service.addNodeLoad("node2", 10, 99);
+        assertThat(service.getNodeStatistics("node2").get().loadPressure(), equalTo(0.99));
+    }
+
+    public void testLocalNodeLoad() {
+        final ResponseCollectorService service = new ResponseCollectorService(clusterService);
+        // the load is only reported if the coordinating nodes use it
+        assertNull(service.getLocalNodeLoad());
+
+        clusterService.getClusterSettings().applySettings(Settings.builder()
+            .put(ResponseCollectorService.LOAD_AWARE_SELECTION_SETTING.getKey(), true).build());
+        final ResponseCollectorService.LocalNodeLoad load = service.getLocalNodeLoad();
+        assertNotNull(load);
+        assertThat(load.cpuPercent, lessThanOrEqualTo(100));
+        assertThat(load.heapUsedPercent, lessThanOrEqualTo(100));
+    }
+
+    public void testFailurePenaltyDecays() {
+        final AtomicLong nanoTime = new AtomicLong();
+        final ResponseCollectorService service = new ResponseCollectorService(clusterService, nanoTime::get);
+        clusterService.getClusterSettings().applySettings(Settings.builder()
+            .put(ResponseCollectorService.LOAD_AWARE_SELECTION_SETTING.getKey(), true)
+            .put(ResponseCollectorService.FAILURE_PENALTY_HALF_LIFE_SETTING.getKey(), "10s").build());
+        service.addNodeStatistics("node1", 1, 100, 10);
+        service.addNodeStatistics("node2", 1, 100, 10);
+
+        service.addNodeFailure("node1");
+        service.addNodeFailure("node1");
+        assertThat(service.getNodeStatistics("node1").get().failurePenalty, equalTo(2.0));
+        assertThat(service.getNodeStatistics("node2").get().failurePenalty, equalTo(0.0));
+        assertThat(service.getNodeStatistics("node1").get().rank(1), greaterThan(service.getNodeStatistics("node2").get().rank(1)));
+
+        nanoTime.addAndGet(TimeValue.timeValueSeconds(10).nanos());
+        assertThat(service.getNodeStatistics("node1").get().failurePenalty, closeTo(1.0, 0.0001));
+        service.addNodeFailure("node1");
+        assertThat(service.getNodeStatistics("node1").get().failurePenalty, closeTo(2.0, 0.0001));
+
+        nanoTime.addAndGet(TimeValue.timeValueMinutes(10).nanos());
+        assertThat(service.getNodeStatistics("node1").get().failurePenalty, closeTo(0.0, 0.0001));
+    }
 }
@@ -20,6 +20,7 @@
 package org.elasticsearch.repositories;
 
 import org.elasticsearch.ElasticsearchParseException;
+import org.elasticsearch.ResourceNotFoundException;
 import org.elasticsearch.common.UUIDs;
 import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.xcontent.XContent;
@@ -58,15 +59,16 @@ public class RepositoryDataTests extends ESTestCase {
         assertEquals(repositoryData1.hashCode(), repositoryData2.hashCode());
     }
 
-    public void testIndicesToUpdateAfterRemovingSnapshot() {
+    public void testIndicesToUpdateAfterRemovingSnapshots() {
         final RepositoryData repositoryData = generateRandomRepoData();
         final List<IndexId> indicesBefore = List.copyOf(repositoryData.getIndices().values());
-        final SnapshotId randomSnapshot = randomFrom(repositoryData.getSnapshotIds());
+        final List<SnapshotId> randomSnapshots =
+            randomSubsetOf(randomIntBetween(1, repositoryData.getSnapshotIds().size()), repositoryData.getSnapshotIds());
         final IndexId[] indicesToUpdate = indicesBefore.stream().filter(index -> {
             final Set<SnapshotId> snapshotIds = repositoryData.getSnapshots(index);
-            return snapshotIds.contains(randomSnapshot) && snapshotIds.size() > 1;
+            return snapshotIds.stream().anyMatch(randomSnapshots::contains) && randomSnapshots.containsAll(snapshotIds) == false;
         }).toArray(IndexId[]::new);
-        assertThat(repositoryData.indicesToUpdateAfterRemovingSnapshot(randomSnapshot), containsInAnyOrder(indicesToUpdate));
+        assertThat(repositoryData.indicesToUpdateAfterRemovingSnapshots(randomSnapshots), containsInAnyOrder(indicesToUpdate));
     }
 
     public void testXContent() throws IOException {
@@ -143,16 +145,22 @@ public class RepositoryDataTests extends ESTestCase {
         }
     }
 
-    public void testRemoveSnapshot() {
+    public void testRemoveSnapshots() {
         RepositoryData repositoryData = generateRandomRepoData();
         List<SnapshotId> snapshotIds = new ArrayList<>(repositoryData.getSnapshotIds());
         assertThat(snapshotIds.size(), greaterThan(0));
-        SnapshotId removedSnapshotId = snapshotIds.remove(randomIntBetween(0, snapshotIds.size() - 1));
-        RepositoryData newRepositoryData = repositoryData.removeSnapshot(removedSnapshotId, ShardGenerations.EMPTY);
-        // make sure the repository data's indices no longer contain the removed snapshot
+        List<SnapshotId> removedSnapshotIds = randomSubsetOf(randomIntBetween(1, snapshotIds.size()), snapshotIds);
+        RepositoryData newRepositoryData = repositoryData.removeSnapshots(removedSnapshotIds, ShardGenerations.EMPTY);
+        // make sure the repository data's indices no longer contain the removed snapshots
         for (final IndexId indexId : newRepositoryData.getIndices().values()) {
-            assertFalse(newRepositoryData.getSnapshots(indexId).contains(removedSnapshotId));
+            for (SnapshotId removedSnapshotId : removedSnapshotIds) {
+                assertFalse(newRepositoryData.getSnapshots(indexId).contains(removedSnapshotId));
+            }
         }
+        assertThat(newRepositoryData.getSnapshotIds().size(), equalTo(snapshotIds.size() - removedSnapshotIds.size()));
+        // removing a snapshot that does not exist fails
+        expectThrows(ResourceNotFoundException.class, () -> newRepositoryData.removeSnapshots(
+            Collections.singletonList(new SnapshotId(randomAlphaOfLength(10), UUIDs.randomBase64UUID())), ShardGenerations.EMPTY));
     }
 
     public void testResolveIndexId() {
@@ -19,9 +19,13 @@
 
 package org.elasticsearch.repositories.blobstore;
 
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.NIOFSDirectory;
 import org.apache.lucene.util.TestUtil;
 import org.elasticsearch.action.support.PlainActionFuture;
+import org.elasticsearch.cluster.metadata.IndexMetaData;
 import org.elasticsearch.cluster.metadata.MetaData;
 import org.elasticsearch.cluster.metadata.RepositoryMetaData;
 import org.elasticsearch.cluster.routing.RecoverySource;
@@ -29,20 +33,32 @@ import org.elasticsearch.cluster.routing.ShardRouting;
 import org.elasticsearch.cluster.routing.ShardRoutingHelper;
 import org.elasticsearch.cluster.service.ClusterService;
 import org.elasticsearch.common.UUIDs;
+import org.elasticsearch.common.blobstore.BlobMetaData;
+import org.elasticsearch.common.settings.ClusterSettings;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.ByteSizeUnit;
+import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.core.internal.io.IOUtils;
 import org.elasticsearch.env.Environment;
 import org.elasticsearch.env.TestEnvironment;
+import org.elasticsearch.index.IndexSettings;
+import org.elasticsearch.index.engine.Engine;
 import org.elasticsearch.index.engine.InternalEngineFactory;
 import org.elasticsearch.index.seqno.RetentionLeaseSyncer;
 import org.elasticsearch.index.shard.IndexShard;
 import org.elasticsearch.index.shard.IndexShardState;
 import org.elasticsearch.index.shard.IndexShardTestCase;
 import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.index.shard.ShardPath;
 import org.elasticsearch.index.snapshots.IndexShardSnapshotFailedException;
+import org.elasticsearch.index.snapshots.IndexShardSnapshotStatus;
+import org.elasticsearch.index.snapshots.blobstore.BlobStoreIndexShardSnapshot;
 import org.elasticsearch.index.store.Store;
 import org.elasticsearch.index.store.StoreFileMetaData;
+import org.elasticsearch.indices.recovery.RecoverySettings;
+import org.elasticsearch.indices.recovery.RecoveryState;
 import org.elasticsearch.repositories.IndexId;
+import org.elasticsearch.repositories.RepositoryCleanupResult;
 import org.elasticsearch.repositories.Repository;
 import org.elasticsearch.repositories.ShardGenerations;
 import org.elasticsearch.repositories.fs.FsRepository;
@@ -55,9 +71,14 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
+import static org.hamcrest.Matchers.anEmptyMap;
 import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
 
 /**
  * This class tests the behavior of {@link BlobStoreRepository} when it
@@ -66,6 +87,15 @@ import static org.hamcrest.Matchers.containsString;
  */
 public class BlobStoreRepositoryRestoreTests extends IndexShardTestCase {
 
+    @Override
+    protected Store createStore(IndexSettings indexSettings, ShardPath shardPath) throws IOException {
+        // the parts of files are only restored concurrently into plain file system directories
+        if (randomBoolean()) {
+            return createStore(shardPath.getShardId(), indexSettings, new NIOFSDirectory(shardPath.resolveIndex()));
+        }
+        return super.createStore(indexSettings, shardPath);
+    }
+
     /**
      * Restoring a snapshot that contains multiple files must succeed even when
      * some files already exist in the shard's store.
@@ -145,6 +175,207 @@ public class BlobStoreRepositoryRestoreTests extends IndexShardTestCase {
         }
     }
 
+    /**
+     * Restoring files that are split into several parts in the repository must write each part at its position in the file and must only
+     * leave the restored files behind.
+     */
+    public void testRestoreSnapshotWithMultiPartFiles() throws IOException {
+        final IndexId indexId = new IndexId(randomAlphaOfLength(10), UUIDs.randomBase64UUID());
+        final ShardId shardId = new ShardId(indexId.getName(), indexId.getId(), 0);
+
+        IndexShard shard = newShard(shardId, true);
+        try {
+            final int numDocs = scaledRandomIntBetween(50, 500);
+            recoverShardFromStore(shard);
+            for (int i = 0; i < numDocs; i++) {
+                indexDoc(shard, "_doc", Integer.toString(i));
+            }
+            flushShard(shard, true);
+
+            // snapshot the shard into a repository that splits every file larger than the chunk size into several blobs
+            final Repository repository = createRepository(Settings.builder()
+                .put("chunk_size", new ByteSizeValue(randomIntBetween(64, 1024), ByteSizeUnit.BYTES)).build());
+            final Snapshot snapshot = new Snapshot(repository.getMetadata().name(), new SnapshotId(randomAlphaOfLength(10), "_uuid"));
+            snapshotShard(shard, snapshot, repository);
+            final Store.MetadataSnapshot storeFiles = shard.snapshotStoreMetadata();
+            closeShards(shard);
+
+            // restore the snapshot into a new, empty shard
+            shard = newShard(shardId, true);
+            recoverShardFromSnapshot(shard, snapshot, repository);
+
+            TestUtil.checkIndex(shard.store().directory());
+            final List<String> directoryFiles = Arrays.asList(shard.store().directory().listAll());
+            for (StoreFileMetaData storeFile : storeFiles) {
+                assertTrue("File [" + storeFile.name() + "] does not exist in store directory",
+                    directoryFiles.contains(storeFile.name()));
+                assertEquals(storeFile.length(), shard.store().directory().fileLength(storeFile.name()));
+                Store.checkIntegrity(storeFile, shard.store().directory());
+            }
+            for (String directoryFile : directoryFiles) {
+                assertTrue("Unexpected file [" + directoryFile + "] in store directory",
+                    storeFiles.get(directoryFile) != null || directoryFile.equals(IndexWriter.WRITE_LOCK_NAME)
+                        || directoryFile.startsWith("extra"));
+            }
+            final RecoveryState.Index recoveryIndex = shard.recoveryState().getIndex();
+            assertEquals(recoveryIndex.totalRecoverBytes(), recoveryIndex.recoveredBytes());
+        } finally {
+            if (shard != null && shard.state() != IndexShardState.CLOSED) {
+                try {
+                    shard.close("test", false);
+                } finally {
+                    IOUtils.close(shard.store());
+                }
+            }
+        }
+    }
+
+    /**
+     * Identical files of different indices must only be stored once in the content addressed store and must only be deleted once the
+     * last snapshot referencing them was deleted.
+     */
+    public void testContentAddressedStoreDeduplicatesFilesAcrossIndices() throws IOException {
+        final IndexId indexId = new IndexId(randomAlphaOfLength(10), UUIDs.randomBase64UUID());
+        final ShardId shardId = new ShardId(indexId.getName(), indexId.getId(), 0);
+
+        IndexShard shard = newShard(shardId, true);
+        try {
+            final int numDocs = scaledRandomIntBetween(1, 500);
+            recoverShardFromStore(shard);
+            for (int i = 0; i < numDocs; i++) {
+                indexDoc(shard, "_doc", Integer.toString(i));
+            }
+            flushShard(shard, true);
+
+            final BlobStoreRepository repository = (BlobStoreRepository) createRepository(Settings.builder()
+                .put(BlobStoreRepository.CONTENT_ADDRESSED_STORE.getKey(), true)
+                .put("chunk_size", new ByteSizeValue(randomIntBetween(64, 1024 * 1024), ByteSizeUnit.BYTES)).build());
+            // snapshot the same shard as part of two different indices
+            final IndexMetaData indexMetaData = shard.indexSettings().getIndexMetaData();
+            final IndexId otherIndexId = new IndexId(randomAlphaOfLength(11), UUIDs.randomBase64UUID());
+            final IndexMetaData otherIndexMetaData = IndexMetaData.builder(indexMetaData).index(otherIndexId.getName()).build();
+            final SnapshotId firstSnapshot = new SnapshotId(randomAlphaOfLength(10), "_uuid1");
+            final SnapshotId secondSnapshot = new SnapshotId(randomAlphaOfLength(10), "_uuid2");
+            snapshotAndFinalize(shard, repository, firstSnapshot, indexId, indexMetaData);
+            snapshotAndFinalize(shard, repository, secondSnapshot, otherIndexId, otherIndexMetaData);
+
+            final int storeFiles = shard.snapshotStoreMetadata().size();
+            assertThat(countContentReferences(repository), equalTo(2L * storeFiles));
+            assertThat(contentBlobs(repository).keySet().stream().map(BlobStoreIndexShardSnapshot.FileInfo::canonicalName)
+                .filter(blob -> blob.contains(".ref.") == false).distinct().count(), equalTo((long) storeFiles));
+
+            // the files stay available as long as the second snapshot references them
+            deleteSnapshot(repository, firstSnapshot);
+            assertThat(countContentReferences(repository), equalTo((long) storeFiles));
+            closeShards(shard);
+            shard = newShard(new ShardId(otherIndexId.getName(), otherIndexId.getId(), 0), true);
+            recoverShardFromSnapshot(shard, new Snapshot(repository.getMetadata().name(), secondSnapshot), repository);
+            TestUtil.checkIndex(shard.store().directory());
+
+            deleteSnapshot(repository, secondSnapshot);
+            assertThat(contentBlobs(repository), anEmptyMap());
+        } finally {
+            if (shard != null && shard.state() != IndexShardState.CLOSED) {
+                try {
+                    shard.close("test", false);
+                } finally {
+                    IOUtils.close(shard.store());
+                }
+            }
+        }
+    }
+
+    /**
+     * The references and content that a snapshot which never completed wrote to the content addressed store must be removed by the next
+     * cleanup, while the content of completed snapshots of the same shard stays available.
+     */
+    public void testContentAddressedStoreRemovesReferencesOfFailedSnapshots() throws IOException {
+        final IndexId indexId = new IndexId(randomAlphaOfLength(10), UUIDs.randomBase64UUID());
+        final ShardId shardId = new ShardId(indexId.getName(), indexId.getId(), 0);
+
+        IndexShard shard = newShard(shardId, true);
+        try {
+            recoverShardFromStore(shard);
+            final int numDocs = scaledRandomIntBetween(1, 500);
+            for (int i = 0; i < numDocs; i++) {
+                indexDoc(shard, "_doc", Integer.toString(i));
+            }
+            flushShard(shard, true);
+
+            final BlobStoreRepository repository = (BlobStoreRepository) createRepository(
+                Settings.builder().put(BlobStoreRepository.CONTENT_ADDRESSED_STORE.getKey(), true).build());
+            final IndexMetaData indexMetaData = shard.indexSettings().getIndexMetaData();
+            final SnapshotId completedSnapshot = new SnapshotId(randomAlphaOfLength(10), "_uuid1");
+            final String shardGen = snapshotAndFinalize(shard, repository, completedSnapshot, indexId, indexMetaData);
+            final Map<String, BlobMetaData> completedContent = contentBlobs(repository);
+
+            // a snapshot of newer files of the shard that uploads its files but is never finalized
+            for (int i = numDocs; i < numDocs + scaledRandomIntBetween(1, 500); i++) {
+                indexDoc(shard, "_doc", Integer.toString(i));
+            }
+            flushShard(shard, true);
+            final IndexShard failedShard = shard;
+            try (Engine.IndexCommitRef indexCommitRef = failedShard.acquireLastIndexCommit(true)) {
+                PlainActionFuture.<String, IOException>get(f -> repository.snapshotShard(failedShard.store(), failedShard.mapperService(),
+                    new SnapshotId(randomAlphaOfLength(10), "_uuid2"), indexId, indexCommitRef.getIndexCommit(),
+                    IndexShardSnapshotStatus.newInitializing(shardGen), true, f));
+            }
+            assertThat(contentBlobs(repository).size(), greaterThan(completedContent.size()));
+
+            PlainActionFuture.<RepositoryCleanupResult, IOException>get(f -> repository.cleanup(
+                ESBlobStoreRepositoryIntegTestCase.getRepositoryData(repository).getGenId(), true, f));
+            assertThat(contentBlobs(repository).keySet(), equalTo(completedContent.keySet()));
+
+            closeShards(shard);
+            shard = newShard(shardId, true);
+            recoverShardFromSnapshot(shard, new Snapshot(repository.getMetadata().name(), completedSnapshot), repository);
+            TestUtil.checkIndex(shard.store().directory());
+            try (DirectoryReader reader = DirectoryReader.open(shard.store().directory())) {
+                assertThat(reader.numDocs(), equalTo(numDocs));
+            }
+        } finally {
+            if (shard != null && shard.state() != IndexShardState.CLOSED) {
+                try {
+                    shard.close("test", false);
+                } finally {
+                    IOUtils.close(shard.store());
+                }
+            }
+        }
+    }
+
+    private String snapshotAndFinalize(IndexShard shard, BlobStoreRepository repository, SnapshotId snapshotId, IndexId indexId,
+                                       IndexMetaData indexMetaData) throws IOException {
+        final PlainActionFuture<String> shardGenFuture = PlainActionFuture.newFuture();
+        try (Engine.IndexCommitRef indexCommitRef = shard.acquireLastIndexCommit(true)) {
+            repository.snapshotShard(shard.store(), shard.mapperService(), snapshotId, indexId, indexCommitRef.getIndexCommit(),
+                IndexShardSnapshotStatus.newInitializing(null), true, shardGenFuture);
+        }
+        final PlainActionFuture<SnapshotInfo> future = PlainActionFuture.newFuture();
+        repository.finalizeSnapshot(snapshotId, ShardGenerations.builder().put(indexId, 0, shardGenFuture.actionGet()).build(),
+            0L, null, 1, Collections.emptyList(), ESBlobStoreRepositoryIntegTestCase.getRepositoryData(repository).getGenId(), false,
+            MetaData.builder().put(indexMetaData, false).build(), Collections.emptyMap(), true, future);
+        future.actionGet();
+        return shardGenFuture.actionGet();
+    }
+
+    private static void deleteSnapshot(BlobStoreRepository repository, SnapshotId snapshotId) {
+        PlainActionFuture.<Void, RuntimeException>get(f -> repository.deleteSnapshots(Collections.singletonList(snapshotId),
+            ESBlobStoreRepositoryIntegTestCase.getRepositoryData(repository).getGenId(), true, f));
+    }
+
+    private static long countContentReferences(BlobStoreRepository repository) throws IOException {
+        return contentBlobs(repository).keySet().stream().filter(blob -> blob.contains(".ref.")).count();
+    }
+
+    private static Map<String, BlobMetaData> contentBlobs(BlobStoreRepository repository) throws IOException {
+        final Map<String, BlobMetaData> blobs =
+            new HashMap<>(repository.blobStore().blobContainer(repository.basePath().add("content")).listBlobs());
+        // ignore the files that the test file system randomly adds to directories
+        blobs.keySet().removeIf(blob -> blob.startsWith("extra"));
+        return blobs;
+    }
+
     public void testSnapshotWithConflictingName() throws IOException {
         final IndexId indexId = new IndexId(randomAlphaOfLength(10), UUIDs.randomBase64UUID());
         final ShardId shardId = new ShardId(indexId.getName(), indexId.getId(), 0);
@@ -192,10 +423,16 @@ public class BlobStoreRepositoryRestoreTests extends IndexShardTestCase {
 
     /** Create a {@link Repository} with a random name **/
     private Repository createRepository() {
-        Settings settings = Settings.builder().put("location", randomAlphaOfLength(10)).build();
+        return createRepository(Settings.EMPTY);
+    }
+
+    /** Create a {@link Repository} with a random name and the given additional settings **/
+    private Repository createRepository(Settings additionalSettings) {
+        Settings settings = Settings.builder().put("location", randomAlphaOfLength(10)).put(additionalSettings).build();
         RepositoryMetaData repositoryMetaData = new RepositoryMetaData(randomAlphaOfLength(10), FsRepository.TYPE, settings);
         final ClusterService clusterService = BlobStoreTestUtil.mockClusterService(repositoryMetaData);
-        final FsRepository repository = new FsRepository(repositoryMetaData, createEnvironment(), xContentRegistry(), clusterService) {
+        final FsRepository repository = new FsRepository(repositoryMetaData, createEnvironment(), xContentRegistry(), clusterService,
+            new RecoverySettings(Settings.EMPTY, new ClusterSettings(Settings.EMPTY, ClusterSettings.BUILT_IN_CLUSTER_SETTINGS))) {
             @Override
             protected void assertSnapshotOrGenericThread() {
                 // eliminate thread name check as we create repo manually
@@ -19,6 +19,7 @@
 
 package org.elasticsearch.repositories.blobstore;
 
+import org.elasticsearch.action.ActionRunnable;
 import org.elasticsearch.action.admin.cluster.snapshots.create.CreateSnapshotResponse;
 import org.elasticsearch.action.support.PlainActionFuture;
 import org.elasticsearch.action.support.master.AcknowledgedResponse;
@@ -29,6 +30,7 @@ import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.unit.ByteSizeUnit;
 import org.elasticsearch.common.xcontent.NamedXContentRegistry;
 import org.elasticsearch.env.Environment;
+import org.elasticsearch.indices.recovery.RecoverySettings;
 import org.elasticsearch.plugins.Plugin;
 import org.elasticsearch.plugins.RepositoryPlugin;
 import org.elasticsearch.repositories.IndexId;
@@ -43,10 +45,12 @@ import org.elasticsearch.snapshots.SnapshotState;
 import org.elasticsearch.test.ESIntegTestCase;
 import org.elasticsearch.test.ESSingleNodeTestCase;
 
+import java.io.InputStream;
 import java.nio.file.Path;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -71,9 +75,9 @@ public class BlobStoreRepositoryTests extends ESSingleNodeTestCase {
 
         @Override
         public Map<String, Repository.Factory> getRepositories(Environment env, NamedXContentRegistry namedXContentRegistry,
-                                                               ClusterService clusterService) {
+                                                               ClusterService clusterService, RecoverySettings recoverySettings) {
             return Collections.singletonMap(REPO_TYPE,
-                (metadata) -> new FsRepository(metadata, env, namedXContentRegistry, clusterService) {
+                (metadata) -> new FsRepository(metadata, env, namedXContentRegistry, clusterService, recoverySettings) {
                     @Override
                     protected void assertSnapshotOrGenericThread() {
                         // eliminate thread name check as we access blobStore on test/main threads
@@ -181,14 +185,46 @@ public class BlobStoreRepositoryTests extends ESSingleNodeTestCase {
         assertThat(repository.readSnapshotIndexLatestBlob(), equalTo(expectedGeneration + 1L));
 
         // removing a snapshot and writing to a new index generational file
-        repositoryData = ESBlobStoreRepositoryIntegTestCase.getRepositoryData(repository).removeSnapshot(
-            repositoryData.getSnapshotIds().iterator().next(), ShardGenerations.EMPTY);
+        repositoryData = ESBlobStoreRepositoryIntegTestCase.getRepositoryData(repository).removeSnapshots(
+            Collections.singleton(repositoryData.getSnapshotIds().iterator().next()), ShardGenerations.EMPTY);
         writeIndexGen(repository, repositoryData, repositoryData.getGenId());
         assertEquals(ESBlobStoreRepositoryIntegTestCase.getRepositoryData(repository), repositoryData);
         assertThat(repository.latestIndexBlobId(), equalTo(expectedGeneration + 2L));
         assertThat(repository.readSnapshotIndexLatestBlob(), equalTo(expectedGeneration + 2L));
     }
 
+    public void testReadRepositoryDataFromIndexBlob() throws Exception {
+        final BlobStoreRepository repository = setupRepo();
+        final RepositoryData repositoryData = generateRandomRepoData();
+        writeIndexGen(repository, repositoryData, RepositoryData.EMPTY_REPO_GEN);
+        final long generation = repository.latestIndexBlobId();
+        final PlainActionFuture<RepositoryData> future = PlainActionFuture.newFuture();
+        repository.threadPool().generic().execute(ActionRunnable.supply(future, () -> {
+            try (InputStream blob = repository.blobContainer().readBlob(BlobStoreRepository.INDEX_FILE_PREFIX + generation)) {
+                return BlobStoreRepository.readRepositoryData(blob, generation);
+            }
+        }));
+        assertEquals(repositoryData.withGenId(generation), future.actionGet());
+    }
+
+    public void testRepositoryDataIsCachedByGeneration() throws Exception {
+        final BlobStoreRepository repository = setupRepo();
+        final boolean cached = BlobStoreRepository.CACHE_REPOSITORY_DATA.get(repository.getMetadata().settings());
+        RepositoryData repositoryData = generateRandomRepoData();
+        writeIndexGen(repository, repositoryData, RepositoryData.EMPTY_REPO_GEN);
+        final RepositoryData first = ESBlobStoreRepositoryIntegTestCase.getRepositoryData(repository);
+        final RepositoryData second = ESBlobStoreRepositoryIntegTestCase.getRepositoryData(repository);
+        assertEquals(first, second);
+        assertEquals(cached, first == second);
+
+        // a new generation invalidates the cached instance
+        repositoryData = addRandomSnapshotsToRepoData(second, true);
+        writeIndexGen(repository, repositoryData, repositoryData.getGenId());
+        final RepositoryData third = ESBlobStoreRepositoryIntegTestCase.getRepositoryData(repository);
+        assertEquals(repositoryData.getGenId() + 1, third.getGenId());
+        assertEquals(new HashSet<>(repositoryData.getSnapshotIds()), new HashSet<>(third.getSnapshotIds()));
+    }
+
     public void testRepositoryDataConcurrentModificationNotAllowed() {
         final BlobStoreRepository repository = setupRepo();
 
@@ -234,6 +270,8 @@ public class BlobStoreRepositoryTests extends ESSingleNodeTestCase {
         if (compress == false) {
             repoSettings.put(BlobStoreRepository.COMPRESS_SETTING.getKey(), false);
         }
+        repoSettings.put(BlobStoreRepository.CACHE_REPOSITORY_DATA.getKey(), randomBoolean());
+        repoSettings.put(BlobStoreRepository.COMPACT_REPOSITORY_DATA.getKey(), randomBoolean());
         AcknowledgedResponse putRepositoryResponse =
             client.admin().cluster().preparePutRepository(repositoryName)
                                     .setType(REPO_TYPE)
@@ -56,6 +56,10 @@ public class FsBlobStoreRepositoryIT extends ESBlobStoreRepositoryIntegTestCase
             long size = 1 << randomInt(10);
             settings.put("chunk_size", new ByteSizeValue(size, ByteSizeUnit.KB));
         }
+        if (randomBoolean()) {
+            settings.put("concurrent_part_writes", randomIntBetween(1, 4));
+            settings.put("multipart_write_threshold", new ByteSizeValue(randomIntBetween(1, 1024), ByteSizeUnit.BYTES));
+        }
         return settings.build();
     }
 
@@ -35,6 +35,7 @@ import org.elasticsearch.common.xcontent.NamedXContentRegistry;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.common.xcontent.XContentType;
 import org.elasticsearch.common.xcontent.yaml.YamlXContent;
+import org.elasticsearch.http.HttpContentStream;
 import org.elasticsearch.http.HttpInfo;
 import org.elasticsearch.http.HttpRequest;
 import org.elasticsearch.http.HttpResponse;
@@ -442,6 +443,61 @@ public class RestControllerTests extends ESTestCase {
         assertTrue(channel.getSendResponseCalled());
     }
 
+    public void testSupportsIncrementalContent() {
+        restController.registerHandler(RestRequest.Method.POST, "/{index}/_incremental", new RestHandler() {
+            @Override
+            public void handleRequest(RestRequest request, RestChannel channel, NodeClient client) {
+                channel.sendResponse(new BytesRestResponse(RestStatus.OK, BytesRestResponse.TEXT_CONTENT_TYPE, BytesArray.EMPTY));
+            }
+
+            @Override
+            public boolean supportsIncrementalContent() {
+                return true;
+            }
+        });
+        restController.registerHandler(RestRequest.Method.PUT, "/{index}/_incremental",
+            (request, channel, client) -> channel.sendResponse(
+                new BytesRestResponse(RestStatus.OK, BytesRestResponse.TEXT_CONTENT_TYPE, BytesArray.EMPTY)));
+
+        assertTrue(restController.supportsIncrementalContent(RestRequest.Method.POST, "/index/_incremental"));
+        assertTrue(restController.supportsIncrementalContent(RestRequest.Method.POST, "/index/_incremental?refresh=true"));
+        assertFalse(restController.supportsIncrementalContent(RestRequest.Method.PUT, "/index/_incremental"));
+        assertFalse(restController.supportsIncrementalContent(RestRequest.Method.GET, "/index/_incremental"));
+        assertFalse(restController.supportsIncrementalContent(RestRequest.Method.POST, "/index/_other"));
+    }
+
+    public void testDispatchWithIncrementalContentRequiresContentType() {
+        final HttpContentStream contentStream = new HttpContentStream() {
+            @Override
+            public void setHandler(Handler handler) {
+                throw new AssertionError("content must not be consumed");
+            }
+
+            @Override
+            public void next() {
+                throw new AssertionError("content must not be consumed");
+            }
+        };
+        FakeRestRequest fakeRestRequest = new FakeRestRequest.Builder(NamedXContentRegistry.EMPTY)
+            .withContentStream(contentStream, null).withPath("/foo").withMethod(RestRequest.Method.POST).build();
+        AssertingChannel channel = new AssertingChannel(fakeRestRequest, true, RestStatus.NOT_ACCEPTABLE);
+        restController.registerHandler(RestRequest.Method.POST, "/foo", new RestHandler() {
+            @Override
+            public void handleRequest(RestRequest request, RestChannel channel, NodeClient client) {
+                channel.sendResponse(new BytesRestResponse(RestStatus.OK, BytesRestResponse.TEXT_CONTENT_TYPE, BytesArray.EMPTY));
+            }
+
+            @Override
+            public boolean supportsIncrementalContent() {
+                return true;
+            }
+        });
+
+        assertFalse(channel.getSendResponseCalled());
+        restController.dispatchRequest(fakeRestRequest, channel, new ThreadContext(Settings.EMPTY));
+        assertTrue(channel.getSendResponseCalled());
+    }
+
     public void testNonStreamingXContentCausesErrorResponse() throws IOException {
         FakeRestRequest fakeRestRequest = new FakeRestRequest.Builder(NamedXContentRegistry.EMPTY)
             .withContent(BytesReference.bytes(YamlXContent.contentBuilder().startObject().endObject()),
@@ -20,13 +20,18 @@
 package org.elasticsearch.rest.action.cat;
 
 import org.elasticsearch.common.Table;
+import org.elasticsearch.common.bytes.ReleasableBytesReference;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.util.BigArrays;
 import org.elasticsearch.common.xcontent.XContentType;
 import org.elasticsearch.rest.AbstractRestChannel;
+import org.elasticsearch.rest.ChunkedRestResponseBody;
 import org.elasticsearch.rest.RestResponse;
 import org.elasticsearch.test.ESTestCase;
 import org.elasticsearch.test.rest.FakeRestRequest;
 import org.junit.Before;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -276,7 +281,18 @@ public class RestTableTests extends ESTestCase {
 
     private void assertResponse(Map<String, List<String>> headers, String mediaType, String body) throws Exception {
         RestResponse response = assertResponseContentType(headers, mediaType);
-        assertThat(response.content().utf8ToString(), equalTo(body));
+        assertThat(readChunkedContent(response), equalTo(body));
+    }
+
+    private static String readChunkedContent(RestResponse response) throws IOException {
+        ChunkedRestResponseBody body = response.chunkedContent();
+        BytesStreamOutput out = new BytesStreamOutput();
+        while (body.isDone() == false) {
+            try (ReleasableBytesReference chunk = body.encodeChunk(randomIntBetween(1, 64), BigArrays.NON_RECYCLING_INSTANCE)) {
+                chunk.writeTo(out);
+            }
+        }
+        return out.bytes().utf8ToString();
     }
 
     private List<String> getHeaderNames(List<RestTable.DisplayHeader> headers) {
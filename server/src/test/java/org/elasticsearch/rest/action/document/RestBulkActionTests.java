@@ -19,14 +19,37 @@
 
 package org.elasticsearch.rest.action.document;
 
+import java.nio.channels.ClosedChannelException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
 import org.elasticsearch.Version;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.DocWriteRequest;
+import org.elasticsearch.action.bulk.BulkItemResponse;
 import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkRequestParser;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.index.IndexResponse;
+import org.elasticsearch.action.support.PlainActionFuture;
+import org.elasticsearch.action.support.WriteRequest;
 import org.elasticsearch.action.update.UpdateRequest;
+import org.elasticsearch.client.Requests;
 import org.elasticsearch.client.node.NodeClient;
 import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.bytes.ReleasableBytesReference;
+import org.elasticsearch.common.collect.Tuple;
+import org.elasticsearch.common.unit.ByteSizeUnit;
 import org.elasticsearch.common.xcontent.XContentType;
+import org.elasticsearch.http.HttpContentStream;
+import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.rest.RestChannel;
 import org.elasticsearch.rest.RestController;
 import org.elasticsearch.rest.RestRequest;
@@ -35,8 +58,12 @@ import org.elasticsearch.test.rest.FakeRestRequest;
 import org.hamcrest.CustomMatcher;
 import org.mockito.Mockito;
 
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.instanceOf;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.argThat;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
 
 /**
@@ -73,4 +100,167 @@ public class RestBulkActionTests extends ESTestCase {
                 }
             }), any());
     }
+
+    public void testIncrementalContentIsExecutedInBatches() throws Exception {
+        final NodeClient mockClient = mock(NodeClient.class);
+        final List<Tuple<BulkRequest, ActionListener<BulkResponse>>> batches = new ArrayList<>();
+        doAnswer(invocation -> {
+            @SuppressWarnings("unchecked")
+            final ActionListener<BulkResponse> listener = (ActionListener<BulkResponse>) invocation.getArguments()[1];
+            batches.add(new Tuple<>((BulkRequest) invocation.getArguments()[0], listener));
+            return null;
+        }).when(mockClient).bulk(any(), any());
+
+        final int items = between(1, 20);
+        final StringBuilder content = new StringBuilder();
+        for (int i = 0; i < items; i++) {
+            content.append("{\"index\":{\"_id\":\"").append(i).append("\"}}\n");
+            content.append("{\"field\":\"").append(randomAlphaOfLengthBetween(1, 50)).append("\"}\n");
+        }
+        final List<BytesReference> parts = splitIntoParts(content.toString());
+        final int numberOfParts = parts.size();
+        final AtomicInteger releasedParts = new AtomicInteger();
+        final FakeContentStream contentStream = new FakeContentStream();
+        final PlainActionFuture<BulkResponse> future = new PlainActionFuture<>();
+        final RestBulkAction.IncrementalBulk incrementalBulk =
+            new RestBulkAction.IncrementalBulk(mockClient, Requests::bulkRequest, between(1, 200), this::newParser);
+        incrementalBulk.start(contentStream, future);
+
+        int executedBatches = 0;
+        int nextItemId = 0;
+        while (future.isDone() == false) {
+            if (contentStream.requested && parts.isEmpty() == false && randomBoolean()) {
+                contentStream.requested = false;
+                final BytesReference part = parts.remove(0);
+                contentStream.handler.onPart(new ReleasableBytesReference(part, releasedParts::incrementAndGet), parts.isEmpty());
+            } else if (batches.size() > executedBatches) {
+                assertThat("only one batch is executed at a time", batches.size(), equalTo(executedBatches + 1));
+                final BulkRequest batch = batches.get(executedBatches).v1();
+                final BulkItemResponse[] itemResponses = new BulkItemResponse[batch.numberOfActions()];
+                for (int i = 0; i < itemResponses.length; i++) {
+                    final String id = batch.requests().get(i).id();
+                    assertThat(id, equalTo(Integer.toString(nextItemId++)));
+                    itemResponses[i] = new BulkItemResponse(i, DocWriteRequest.OpType.INDEX,
+                        new IndexResponse(new ShardId("index", "_na_", 0), id, 1, 1, 1, true));
+                }
+                batches.get(executedBatches++).v2().onResponse(new BulkResponse(itemResponses, 1L));
+            } else {
+                assertTrue("must request content or execute a batch", contentStream.requested);
+            }
+        }
+
+        final BulkResponse response = future.actionGet();
+        assertFalse(response.hasFailures());
+        assertThat(response.getItems().length, equalTo(items));
+        for (int i = 0; i < items; i++) {
+            assertThat(response.getItems()[i].getItemId(), equalTo(i));
+            assertThat(response.getItems()[i].getId(), equalTo(Integer.toString(i)));
+        }
+        assertThat(nextItemId, equalTo(items));
+        assertThat(releasedParts.get(), equalTo(numberOfParts));
+    }
+
+    public void testIncrementalContentFailsOnMalformedContent() {
+        final NodeClient mockClient = mock(NodeClient.class);
+        final FakeContentStream contentStream = new FakeContentStream();
+        final PlainActionFuture<BulkResponse> future = new PlainActionFuture<>();
+        new RestBulkAction.IncrementalBulk(mockClient, Requests::bulkRequest, ByteSizeUnit.MB.toBytes(1), this::newParser)
+            .start(contentStream, future);
+
+        final AtomicInteger releasedParts = new AtomicInteger();
+        assertTrue(contentStream.requested);
+        contentStream.requested = false;
+        contentStream.handler.onPart(new ReleasableBytesReference(new BytesArray("{\"index\":{\"_id\":\"1\"}}\n{}\n"),
+            releasedParts::incrementAndGet), false);
+        assertTrue(contentStream.requested);
+        contentStream.requested = false;
+        contentStream.handler.onPart(new ReleasableBytesReference(new BytesArray("[\"invalid\"]\n"),
+            releasedParts::incrementAndGet), false);
+
+        final IllegalArgumentException e = expectThrows(IllegalArgumentException.class, future::actionGet);
+        assertThat(e.getMessage(), containsString("Malformed action/metadata line [3]"));
+        assertThat(releasedParts.get(), equalTo(2));
+        assertFalse("no more content is requested after a failure", contentStream.requested);
+        Mockito.verify(mockClient, Mockito.never()).bulk(any(), any());
+    }
+
+    public void testIncrementalContentFailsIfContentCannotBeReceived() {
+        final NodeClient mockClient = mock(NodeClient.class);
+        final FakeContentStream contentStream = new FakeContentStream();
+        final PlainActionFuture<BulkResponse> future = new PlainActionFuture<>();
+        new RestBulkAction.IncrementalBulk(mockClient, Requests::bulkRequest, ByteSizeUnit.MB.toBytes(1), this::newParser)
+            .start(contentStream, future);
+
+        final AtomicInteger releasedParts = new AtomicInteger();
+        contentStream.requested = false;
+        contentStream.handler.onPart(new ReleasableBytesReference(new BytesArray("{\"index\":{\"_id\":\"1\"}}\n{}\n{\"del"),
+            releasedParts::incrementAndGet), false);
+        contentStream.requested = false;
+        contentStream.handler.onFailure(new ClosedChannelException());
+
+        assertThat(expectThrows(ExecutionException.class, future::get).getCause(), instanceOf(ClosedChannelException.class));
+        assertThat(releasedParts.get(), equalTo(1));
+        Mockito.verify(mockClient, Mockito.never()).bulk(any(), any());
+    }
+
+    public void testRequestWithContentStreamIsExecutedIncrementally() throws Exception {
+        final NodeClient mockClient = mock(NodeClient.class);
+        final FakeContentStream contentStream = new FakeContentStream();
+        final RestBulkAction action = new RestBulkAction(settings(Version.CURRENT).build(), mock(RestController.class));
+        assertTrue(action.supportsIncrementalContent());
+        final RestRequest request = new FakeRestRequest.Builder(xContentRegistry()).withPath("my_index/_bulk")
+            .withParams(new HashMap<>(Map.of("index", "my_index", "refresh", "wait_for")))
+            .withContentStream(contentStream, XContentType.JSON).withMethod(RestRequest.Method.POST).build();
+        action.handleRequest(request, mock(RestChannel.class), mockClient);
+
+        assertTrue(contentStream.requested);
+        contentStream.handler.onPart(new ReleasableBytesReference(new BytesArray("{\"index\":{\"_id\":\"1\"}}\n{}\n"), () -> {}),
+            true);
+        Mockito.verify(mockClient)
+            .bulk(argThat(new CustomMatcher<BulkRequest>("Bulk request with a single item") {
+                @Override
+                public boolean matches(final Object item) {
+                    BulkRequest request = (BulkRequest) item;
+                    return request.numberOfActions() == 1 && "my_index".equals(request.requests().get(0).index())
+                        && request.getRefreshPolicy() == WriteRequest.RefreshPolicy.WAIT_UNTIL;
+                }
+            }), any());
+    }
+
+    private BulkRequestParser.IncrementalParser newParser(Supplier<BulkRequest> batch) {
+        return new BulkRequestParser(true).incrementalParser("index", null, null, null, true, XContentType.JSON,
+            (indexRequest, type) -> batch.get().add(indexRequest), updateRequest -> batch.get().add(updateRequest),
+            deleteRequest -> batch.get().add(deleteRequest));
+    }
+
+    private static List<BytesReference> splitIntoParts(String content) {
+        final byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        final List<BytesReference> parts = new ArrayList<>();
+        int from = 0;
+        while (from < bytes.length) {
+            final int length = randomIntBetween(1, bytes.length - from);
+            parts.add(new BytesArray(bytes, from, length));
+            from += length;
+        }
+        return parts;
+    }
+
+    private static class FakeContentStream implements HttpContentStream {
+
+        private HttpContentStream.Handler handler;
+        private boolean requested;
+
+        @Override
+        public void setHandler(HttpContentStream.Handler handler) {
+            assertNull(this.handler);
+            this.handler = handler;
+        }
+
+        @Override
+        public void next() {
+            assertNotNull(handler);
+            assertFalse("content requested twice", requested);
+            requested = true;
+        }
+    }
 }
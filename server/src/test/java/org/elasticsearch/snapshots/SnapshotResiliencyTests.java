@@ -94,6 +94,7 @@ import org.elasticsearch.cluster.ClusterName;
 import org.elasticsearch.cluster.ClusterState;
 import org.elasticsearch.cluster.ESAllocationTestCase;
 import org.elasticsearch.cluster.NodeConnectionsService;
+import org.elasticsearch.cluster.SnapshotDeletionsInProgress;
 import org.elasticsearch.cluster.SnapshotsInProgress;
 import org.elasticsearch.cluster.action.index.MappingUpdatedAction;
 import org.elasticsearch.cluster.action.index.NodeMappingRefreshAction;
@@ -438,6 +439,51 @@ public class SnapshotResiliencyTests extends ESTestCase {
         assertEquals(0, snapshotInfo.failedShards());
     }
 
+    public void testBulkSnapshotDelete() {
+        setupTestCluster(randomFrom(1, 3, 5), randomIntBetween(2, 10));
+
+        String repoName = "repo";
+        final String index = "test";
+        final int shards = randomIntBetween(1, 10);
+
+        TestClusterNodes.TestClusterNode masterNode =
+            testClusterNodes.currentMaster(testClusterNodes.nodes.values().iterator().next().clusterService.state());
+
+        final StepListener<CreateSnapshotResponse> createFirstSnapshotResponseStepListener = new StepListener<>();
+
+        continueOrDie(createRepoAndIndex(repoName, index, shards),
+            createIndexResponse -> client().admin().cluster().prepareCreateSnapshot(repoName, "snapshot-1")
+                .setWaitForCompletion(true).execute(createFirstSnapshotResponseStepListener));
+
+        final StepListener<CreateSnapshotResponse> createSecondSnapshotResponseStepListener = new StepListener<>();
+
+        continueOrDie(createFirstSnapshotResponseStepListener, createSnapshotResponse -> client().admin().cluster()
+            .prepareCreateSnapshot(repoName, "snapshot-2").setWaitForCompletion(true).execute(createSecondSnapshotResponseStepListener));
+
+        final StepListener<CreateSnapshotResponse> createThirdSnapshotResponseStepListener = new StepListener<>();
+
+        continueOrDie(createSecondSnapshotResponseStepListener, createSnapshotResponse -> client().admin().cluster()
+            .prepareCreateSnapshot(repoName, "snapshot-3").setWaitForCompletion(true).execute(createThirdSnapshotResponseStepListener));
+
+        final StepListener<AcknowledgedResponse> deleteSnapshotsStepListener = new StepListener<>();
+
+        continueOrDie(createThirdSnapshotResponseStepListener, createSnapshotResponse -> client().admin().cluster().deleteSnapshot(
+            new DeleteSnapshotRequest(repoName, "snapshot-1", "snapshot-3"), deleteSnapshotsStepListener));
+
+        deterministicTaskQueue.runAllRunnableTasks();
+
+        assertTrue(deleteSnapshotsStepListener.result().isAcknowledged());
+        SnapshotDeletionsInProgress deletionsInProgress = masterNode.clusterService.state().custom(SnapshotDeletionsInProgress.TYPE);
+        assertFalse(deletionsInProgress.hasDeletionsInProgress());
+        final Repository repository = masterNode.repositoriesService.repository(repoName);
+        final RepositoryData repositoryData = getRepositoryData(repository);
+        Collection<SnapshotId> snapshotIds = repositoryData.getSnapshotIds();
+        assertThat(snapshotIds, hasSize(1));
+        assertEquals("snapshot-2", snapshotIds.iterator().next().getName());
+        // three snapshots and the single bulk delete each move the repository generation forward once
+        assertEquals(3L, repositoryData.getGenId());
+    }
+
     public void testConcurrentSnapshotCreateAndDeleteOther() {
         setupTestCluster(randomFrom(1, 3, 5), randomIntBetween(2, 10));
 
@@ -1139,9 +1185,10 @@ public class SnapshotResiliencyTests extends ESTestCase {
                     a -> node, null, emptySet()
                 );
                 final IndexNameExpressionResolver indexNameExpressionResolver = new IndexNameExpressionResolver();
+                final RecoverySettings recoverySettings = new RecoverySettings(settings, clusterSettings);
                 repositoriesService = new RepositoriesService(
                     settings, clusterService, transportService,
-                    Collections.singletonMap(FsRepository.TYPE, getRepoFactory(environment)), emptyMap(), threadPool
+                    Collections.singletonMap(FsRepository.TYPE, getRepoFactory(environment, recoverySettings)), emptyMap(), threadPool
                 );
                 snapshotsService =
                     new SnapshotsService(settings, clusterService, indexNameExpressionResolver, repositoriesService, threadPool);
@@ -1175,7 +1222,6 @@ public class SnapshotResiliencyTests extends ESTestCase {
                     Collections.emptyList(),
                     emptyMap()
                 );
-                final RecoverySettings recoverySettings = new RecoverySettings(settings, clusterSettings);
                 final ActionFilters actionFilters = new ActionFilters(emptySet());
                 snapshotShardsService = new SnapshotShardsService(
                     settings, clusterService, repositoriesService, threadPool,
@@ -1196,13 +1242,14 @@ public class SnapshotResiliencyTests extends ESTestCase {
                     indicesService,
                     clusterService,
                     threadPool,
-                    new PeerRecoveryTargetService(threadPool, transportService, recoverySettings, clusterService),
+                    new PeerRecoveryTargetService(threadPool, transportService, recoverySettings, clusterService,
+                        repositoriesService),
                     shardStateAction,
                     new NodeMappingRefreshAction(transportService, metaDataMappingService),
                     repositoriesService,
                     mock(SearchService.class),
                     new SyncedFlushService(indicesService, clusterService, transportService, indexNameExpressionResolver),
-                    new PeerRecoverySourceService(transportService, indicesService, recoverySettings),
+                    new PeerRecoverySourceService(transportService, indicesService, recoverySettings, repositoriesService),
                     snapshotShardsService,
                     new PrimaryReplicaSyncer(
                         transportService,
@@ -1303,18 +1350,18 @@ public class SnapshotResiliencyTests extends ESTestCase {
                     () -> clusterService.localNode().getId(), transportService.getRemoteClusterService());
             }
 
-            private Repository.Factory getRepoFactory(Environment environment) {
+            private Repository.Factory getRepoFactory(Environment environment, RecoverySettings recoverySettings) {
                 // Run half the tests with the eventually consistent repository
                 if (blobStoreContext == null) {
-                    return metaData -> new FsRepository(metaData, environment, xContentRegistry(), clusterService) {
+                    return metaData -> new FsRepository(metaData, environment, xContentRegistry(), clusterService, recoverySettings) {
                         @Override
                         protected void assertSnapshotOrGenericThread() {
                             // eliminate thread name check as we create repo in the test thread
                         }
                     };
                 } else {
-                    return metaData ->
-                        new MockEventuallyConsistentRepository(metaData, xContentRegistry(), clusterService, blobStoreContext, random());
+                    return metaData -> new MockEventuallyConsistentRepository(metaData, xContentRegistry(), clusterService,
+                        recoverySettings, blobStoreContext, random());
                 }
             }
             public void restart() {
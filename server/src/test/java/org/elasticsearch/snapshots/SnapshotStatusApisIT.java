@@ -23,6 +23,8 @@ import org.elasticsearch.action.ActionFuture;
 import org.elasticsearch.action.admin.cluster.snapshots.create.CreateSnapshotResponse;
 import org.elasticsearch.action.admin.cluster.snapshots.get.GetSnapshotsRequest;
 import org.elasticsearch.action.admin.cluster.snapshots.get.GetSnapshotsResponse;
+import org.elasticsearch.action.admin.cluster.snapshots.status.SnapshotIndexShardStage;
+import org.elasticsearch.action.admin.cluster.snapshots.status.SnapshotIndexShardStatus;
 import org.elasticsearch.action.admin.cluster.snapshots.status.SnapshotStatus;
 import org.elasticsearch.action.admin.cluster.snapshots.status.SnapshotsStatusRequest;
 import org.elasticsearch.client.Client;
@@ -30,6 +32,8 @@ import org.elasticsearch.cluster.SnapshotsInProgress;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.core.internal.io.IOUtils;
+import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.index.snapshots.IndexShardSnapshotStatus;
 import org.elasticsearch.repositories.RepositoriesService;
 import org.elasticsearch.repositories.Repository;
 import org.elasticsearch.repositories.blobstore.BlobStoreRepository;
@@ -37,15 +41,24 @@ import org.elasticsearch.repositories.blobstore.BlobStoreRepository;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
 import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertAcked;
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.aMapWithSize;
 import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.Matchers.instanceOf;
 
 public class SnapshotStatusApisIT extends AbstractSnapshotIntegTestCase {
 
+    @Override
+    protected Settings nodeSettings(int nodeOrdinal) {
+        return Settings.builder().put(super.nodeSettings(nodeOrdinal))
+            .put(SnapshotShardsService.SHARD_PROGRESS_REPORT_INTERVAL_SETTING.getKey(), TimeValue.timeValueMillis(100))
+            .build();
+    }
+
     public void testStatusApiConsistency() {
         Client client = client();
 
@@ -120,6 +133,49 @@ public class SnapshotStatusApisIT extends AbstractSnapshotIntegTestCase {
         createSnapshotResponseActionFuture.actionGet();
     }
 
+    public void testStatusOfInProgressSnapshotUsesReportedProgress() throws Exception {
+        logger.info("-->  creating repository");
+        assertAcked(client().admin().cluster().preparePutRepository("test-repo").setType("mock").setSettings(
+            Settings.builder().put("location", randomRepoPath()).put("block_on_data", true)));
+
+        createIndex("test-idx-1", Settings.builder().put("number_of_shards", 1).put("number_of_replicas", 0).build());
+        ensureGreen();
+
+        logger.info("--> indexing some data");
+        for (int i = 0; i < 100; i++) {
+            indexDoc("test-idx-1", Integer.toString(i), "foo", "bar" + i);
+        }
+        refresh();
+
+        logger.info("--> snapshot");
+        final ActionFuture<CreateSnapshotResponse> createSnapshotResponseActionFuture =
+            client().admin().cluster().prepareCreateSnapshot("test-repo", "test-snap").setWaitForCompletion(true).execute();
+        waitForBlockOnAnyDataNode("test-repo", TimeValue.timeValueMinutes(1));
+
+        final Snapshot snapshot = client().admin().cluster().snapshotsStatus(new SnapshotsStatusRequest("test-repo",
+            new String[]{"test-snap"})).actionGet().getSnapshots().get(0).getSnapshot();
+        final SnapshotShardsService masterSnapshotShardsService =
+            internalCluster().getCurrentMasterNodeInstance(SnapshotShardsService.class);
+        assertBusy(() -> {
+            final Map<ShardId, IndexShardSnapshotStatus.Copy> reported = masterSnapshotShardsService.reportedSnapshotShards(snapshot);
+            assertThat(reported, aMapWithSize(1));
+            final IndexShardSnapshotStatus.Copy shardStatus = reported.values().iterator().next();
+            assertThat(shardStatus.getStage(), equalTo(IndexShardSnapshotStatus.Stage.STARTED));
+            assertThat(shardStatus.getTotalFileCount(), greaterThan(0));
+        });
+
+        final SnapshotStatus snapshotStatus = client().admin().cluster().snapshotsStatus(
+            new SnapshotsStatusRequest("test-repo", new String[]{"test-snap"})).actionGet().getSnapshots().get(0);
+        assertThat(snapshotStatus.getState(), equalTo(SnapshotsInProgress.State.STARTED));
+        final SnapshotIndexShardStatus shardStatus = snapshotStatus.getShards().get(0);
+        assertThat(shardStatus.getStage(), equalTo(SnapshotIndexShardStage.STARTED));
+        assertThat(shardStatus.getStats().getTotalFileCount(), greaterThan(0));
+
+        logger.info("--> unblock all data nodes");
+        unblockAllDataNodes("test-repo");
+        createSnapshotResponseActionFuture.actionGet();
+    }
+
     public void testExceptionOnMissingSnapBlob() throws IOException {
         disableRepoConsistencyCheck("This test intentionally corrupts the repository");
 
@@ -0,0 +1,52 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.snapshots;
+
+import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.index.snapshots.IndexShardSnapshotStatus;
+import org.elasticsearch.index.snapshots.IndexShardSnapshotStatusCopyTests;
+import org.elasticsearch.test.ESTestCase;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.equalTo;
+
+public class UpdateSnapshotProgressRequestTests extends ESTestCase {
+
+    public void testSerialization() throws IOException {
+        final Map<Snapshot, Map<ShardId, IndexShardSnapshotStatus.Copy>> progress = new HashMap<>();
+        for (int i = between(0, 3); i > 0; i--) {
+            final Snapshot snapshot = new Snapshot(randomAlphaOfLength(5), new SnapshotId(randomAlphaOfLength(5), randomAlphaOfLength(5)));
+            final Map<ShardId, IndexShardSnapshotStatus.Copy> shards = new HashMap<>();
+            for (int j = between(0, 5); j > 0; j--) {
+                shards.put(new ShardId(randomAlphaOfLength(5), randomAlphaOfLength(5), between(0, 10)),
+                    IndexShardSnapshotStatusCopyTests.randomCopy());
+            }
+            progress.put(snapshot, shards);
+        }
+        final SnapshotShardsService.UpdateSnapshotProgressRequest request =
+            new SnapshotShardsService.UpdateSnapshotProgressRequest(progress);
+        final SnapshotShardsService.UpdateSnapshotProgressRequest copy =
+            copyWriteable(request, writableRegistry(), SnapshotShardsService.UpdateSnapshotProgressRequest::new);
+        assertThat(copy.progress(), equalTo(progress));
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.transport;
+
+import org.elasticsearch.Version;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.concurrent.ThreadContext;
+import org.elasticsearch.tasks.TaskId;
+import org.elasticsearch.test.ESTestCase;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.hamcrest.Matchers.sameInstance;
+
+public class CoalescingTransportRequestHandlerTests extends ESTestCase {
+
+    public void testIdenticalRequestsShareExecution() throws Exception {
+        final ThreadContext threadContext = new ThreadContext(Settings.EMPTY);
+        final List<TransportChannel> executions = new ArrayList<>();
+        final CoalescingTransportRequestHandler<TestRequest> handler =
+            new CoalescingTransportRequestHandler<>((request, channel, task) -> executions.add(channel), threadContext);
+
+        final TestChannel first = new TestChannel(Version.CURRENT);
+        final TestChannel second = new TestChannel(Version.CURRENT);
+        final TestChannel other = new TestChannel(Version.CURRENT);
+        handler.messageReceived(new TestRequest("foo", new TaskId("node1", 1)), first, null);
+        handler.messageReceived(new TestRequest("foo", new TaskId("node2", 2)), second, null);
+        handler.messageReceived(new TestRequest("bar", new TaskId("node1", 1)), other, null);
+        assertEquals(2, executions.size());
+        assertEquals(2, handler.inFlightCount());
+        assertEquals(Version.CURRENT, executions.get(0).getVersion());
+
+        final TransportResponse response = TransportResponse.Empty.INSTANCE;
+        executions.get(0).sendResponse(response);
+        assertThat(first.response.get(), sameInstance(response));
+        assertThat(second.response.get(), sameInstance(response));
+        assertNull(other.response.get());
+        assertEquals(1, handler.inFlightCount());
+
+        final RuntimeException failure = new RuntimeException("simulated");
+        executions.get(1).sendResponse(failure);
+        assertThat(other.failure.get(), sameInstance(failure));
+        assertEquals(0, handler.inFlightCount());
+
+        // once completed, an identical request is executed again
+        final TestChannel third = new TestChannel(Version.CURRENT);
+        handler.messageReceived(new TestRequest("foo", new TaskId("node1", 1)), third, null);
+        assertEquals(3, executions.size());
+        assertNull(third.response.get());
+    }
+
+    public void testRequestsWithDifferentHeadersOrVersionsAreNotCoalesced() throws Exception {
+        final ThreadContext threadContext = new ThreadContext(Settings.EMPTY);
+        final List<TransportChannel> executions = new ArrayList<>();
+        final CoalescingTransportRequestHandler<TestRequest> handler =
+            new CoalescingTransportRequestHandler<>((request, channel, task) -> executions.add(channel), threadContext);
+
+        handler.messageReceived(new TestRequest("foo", TaskId.EMPTY_TASK_ID), new TestChannel(Version.CURRENT), null);
+        handler.messageReceived(new TestRequest("foo", TaskId.EMPTY_TASK_ID),
+            new TestChannel(Version.CURRENT.minimumCompatibilityVersion()), null);
+        try (ThreadContext.StoredContext ignored = threadContext.stashContext()) {
+            threadContext.putHeader("user", randomAlphaOfLength(5));
+            handler.messageReceived(new TestRequest("foo", TaskId.EMPTY_TASK_ID), new TestChannel(Version.CURRENT), null);
+        }
+        assertEquals(3, executions.size());
+        assertEquals(3, handler.inFlightCount());
+    }
+
+    public void testDelegateFailureCompletesExecution() throws Exception {
+        final ThreadContext threadContext = new ThreadContext(Settings.EMPTY);
+        final RuntimeException failure = new RuntimeException("simulated");
+        final TestChannel joined = new TestChannel(Version.CURRENT);
+        final AtomicReference<CoalescingTransportRequestHandler<TestRequest>> handlerRef = new AtomicReference<>();
+        final List<TransportChannel> executions = new ArrayList<>();
+        handlerRef.set(new CoalescingTransportRequestHandler<>((request, channel, task) -> {
+            executions.add(channel);
+            if (executions.size() == 1) {
+                // an identical request arrives while the first one is still being handled
+                handlerRef.get().messageReceived(new TestRequest("foo", new TaskId("node2", 2)), joined, null);
+                throw failure;
+            }
+        }, threadContext));
+        final CoalescingTransportRequestHandler<TestRequest> handler = handlerRef.get();
+
+        final TestChannel first = new TestChannel(Version.CURRENT);
+        handler.messageReceived(new TestRequest("foo", new TaskId("node1", 1)), first, null);
+        assertEquals(1, executions.size());
+        assertThat(first.failure.get(), sameInstance(failure));
+        assertThat(joined.failure.get(), sameInstance(failure));
+        assertEquals(0, handler.inFlightCount());
+
+        // the failed execution is not reused
+        final TestChannel next = new TestChannel(Version.CURRENT);
+        handler.messageReceived(new TestRequest("foo", new TaskId("node1", 1)), next, null);
+        assertEquals(2, executions.size());
+        assertEquals(1, handler.inFlightCount());
+    }
+
+    public void testDelegateFailureAfterResponseIsNotSent() throws Exception {
+        final ThreadContext threadContext = new ThreadContext(Settings.EMPTY);
+        final CoalescingTransportRequestHandler<TestRequest> handler = new CoalescingTransportRequestHandler<>((request, channel, task) -> {
+            channel.sendResponse(TransportResponse.Empty.INSTANCE);
+            throw new RuntimeException("simulated");
+        }, threadContext);
+
+        final TestChannel channel = new TestChannel(Version.CURRENT);
+        handler.messageReceived(new TestRequest("foo", TaskId.EMPTY_TASK_ID), channel, null);
+        assertThat(channel.response.get(), sameInstance(TransportResponse.Empty.INSTANCE));
+        assertNull(channel.failure.get());
+        assertEquals(0, handler.inFlightCount());
+    }
+
+    private static final class TestRequest extends TransportRequest {
+
+        private final String value;
+
+        TestRequest(String value, TaskId parentTaskId) {
+            this.value = value;
+            setParentTask(parentTaskId);
+        }
+
+        @Override
+        public void writeTo(StreamOutput out) throws IOException {
+            super.writeTo(out);
+            out.writeString(value);
+        }
+    }
+
+    private static final class TestChannel implements TransportChannel {
+
+        private final Version version;
+        private final AtomicReference<TransportResponse> response = new AtomicReference<>();
+        private final AtomicReference<Exception> failure = new AtomicReference<>();
+
+        TestChannel(Version version) {
+            this.version = version;
+        }
+
+        @Override
+        public String getProfileName() {
+            return "default";
+        }
+
+        @Override
+        public String getChannelType() {
+            return "test";
+        }
+
+        @Override
+        public Version getVersion() {
+            return version;
+        }
+
+        @Override
+        public void sendResponse(TransportResponse response) {
+            assertTrue(this.response.compareAndSet(null, response));
+        }
+
+        @Override
+        public void sendResponse(Exception exception) {
+            assertTrue(failure.compareAndSet(null, exception));
+        }
+    }
+}
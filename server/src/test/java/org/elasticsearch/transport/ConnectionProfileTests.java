@@ -24,9 +24,12 @@ import org.elasticsearch.test.ESTestCase;
 import org.hamcrest.Matchers;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.EnumSet;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import static org.hamcrest.Matchers.equalTo;
 
@@ -152,6 +155,37 @@ public class ConnectionProfileTests extends ESTestCase {
         expectThrows(IllegalStateException.class, () -> build.getHandles().get(1).getChannel(array));
     }
 
+    public void testChannelWithFewestPendingBytesIsSelected() {
+        ConnectionProfile.Builder builder = new ConnectionProfile.Builder();
+        builder.addConnections(1, TransportRequestOptions.Type.BULK,
+            TransportRequestOptions.Type.STATE,
+            TransportRequestOptions.Type.REG,
+            TransportRequestOptions.Type.PING);
+        builder.addConnections(3, TransportRequestOptions.Type.RECOVERY);
+        ConnectionProfile build = builder.build();
+        ConnectionProfile.ConnectionTypeHandle recoveryHandle = build.getHandles().get(1);
+        assertEquals(EnumSet.of(TransportRequestOptions.Type.RECOVERY), recoveryHandle.getTypes());
+
+        List<Integer> channels = Arrays.asList(0, 1, 2, 3);
+        long[] pendingBytes = new long[channels.size()];
+        for (int i = 0; i < pendingBytes.length; i++) {
+            pendingBytes[i] = randomLongBetween(1, 1000);
+        }
+        final int leastLoaded = randomIntBetween(1, 3);
+        pendingBytes[leastLoaded] = 0;
+        for (int i = 0; i < 10; i++) {
+            assertEquals(Integer.valueOf(leastLoaded), recoveryHandle.getChannel(channels, channel -> pendingBytes[channel]));
+        }
+
+        // without any pending bytes the channels are used in turn
+        Arrays.fill(pendingBytes, 0);
+        final Set<Integer> selected = new HashSet<>();
+        for (int i = 0; i < recoveryHandle.length; i++) {
+            selected.add(recoveryHandle.getChannel(channels, channel -> pendingBytes[channel]));
+        }
+        assertEquals(new HashSet<>(channels.subList(1, 4)), selected);
+    }
+
     public void testConnectionProfileResolve() {
         final ConnectionProfile defaultProfile = ConnectionProfile.buildDefaultConnectionProfile(Settings.EMPTY);
         assertEquals(defaultProfile, ConnectionProfile.resolveConnectionProfile(null, defaultProfile));
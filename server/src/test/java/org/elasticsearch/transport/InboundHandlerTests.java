@@ -39,6 +39,7 @@ import org.junit.After;
 import org.junit.Before;
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
@@ -152,6 +153,14 @@ public class InboundHandlerTests extends ESTestCase {
         } else {
             assertEquals(responseValue, responseCaptor.get().value);
         }
+
+        channel.getListenerCaptor().get().onResponse(null);
+        TransportActionStats actionStats = registry.getStatsTracker().getStats();
+        assertEquals(1, actionStats.getRequestCount());
+        assertEquals(bytes.length(), actionStats.getTotalRequestSize().getBytes());
+        assertEquals(1, actionStats.getResponseCount());
+        assertEquals(serializedResponse.length(), actionStats.getTotalResponseSize().getBytes());
+        assertEquals(1, Arrays.stream(actionStats.getHandlingTimeHistogram()).sum());
     }
 
     private static class TestRequest extends TransportRequest {
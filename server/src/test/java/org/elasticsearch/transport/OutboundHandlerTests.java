@@ -42,6 +42,7 @@ import java.nio.charset.StandardCharsets;
 import java.util.Collections;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 
@@ -186,15 +187,20 @@ public class OutboundHandlerTests extends ESTestCase {
                 responseRef.set(response);
             }
         });
-        handler.sendResponse(version, channel, requestId, action, response, compress, isHandshake);
+        AtomicInteger responseSizeRef = new AtomicInteger(-1);
+        handler.sendResponse(version, channel, requestId, action, response, compress, isHandshake, responseSizeRef::set);
 
         BytesReference reference = channel.getMessageCaptor().get();
         ActionListener<Void> sendListener  = channel.getListenerCaptor().get();
+        assertEquals(reference.length(), channel.getChannelStats().pendingOutboundBytes());
         if (randomBoolean()) {
             sendListener.onResponse(null);
+            assertEquals(reference.length(), responseSizeRef.get());
         } else {
             sendListener.onFailure(new IOException("failed"));
+            assertEquals(-1, responseSizeRef.get());
         }
+        assertEquals(0, channel.getChannelStats().pendingOutboundBytes());
         assertEquals(requestId, requestIdRef.get());
         assertEquals(action, actionRef.get());
         assertEquals(response, responseRef.get());
@@ -250,7 +256,7 @@ public class OutboundHandlerTests extends ESTestCase {
                 responseRef.set(error);
             }
         });
-        handler.sendErrorResponse(version, channel, requestId, action, error);
+        handler.sendErrorResponse(version, channel, requestId, action, error, ResponseStatsConsumer.NONE);
 
         BytesReference reference = channel.getMessageCaptor().get();
         ActionListener<Void> sendListener  = channel.getListenerCaptor().get();
@@ -247,6 +247,30 @@ public class TcpTransportTests extends ESTestCase {
         assertNull(message);
     }
 
+    public void testReadFrameLength() throws IOException {
+        BytesStreamOutput streamOutput = new BytesStreamOutput(1 << 14);
+        streamOutput.write('E');
+        streamOutput.write('S');
+        assertEquals(-1, TcpTransport.readFrameLength(streamOutput.bytes()));
+
+        streamOutput.writeInt(2);
+        // only the size header is needed to know how many bytes the frame occupies
+        assertEquals(8, TcpTransport.readFrameLength(streamOutput.bytes()));
+
+        streamOutput.write('M');
+        streamOutput.write('A');
+        assertEquals(8, TcpTransport.readFrameLength(streamOutput.bytes()));
+    }
+
+    public void testReadFrameLengthOfPing() throws IOException {
+        BytesStreamOutput streamOutput = new BytesStreamOutput(1 << 14);
+        streamOutput.write('E');
+        streamOutput.write('S');
+        streamOutput.writeInt(-1);
+
+        assertEquals(6, TcpTransport.readFrameLength(streamOutput.bytes()));
+    }
+
     public void testInvalidLength() throws IOException {
         BytesStreamOutput streamOutput = new BytesStreamOutput(1 << 14);
         streamOutput.write('E');
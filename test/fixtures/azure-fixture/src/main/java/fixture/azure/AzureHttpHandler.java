@@ -78,6 +78,11 @@ public class AzureHttpHandler implements HttpHandler {
 
             } else if (Regex.simpleMatch("PUT /" + container + "/*comp=blocklist*", request)) {
                 // Put Block List (https://docs.microsoft.com/en-us/rest/api/storageservices/put-block-list)
+                if ("*".equals(exchange.getRequestHeaders().getFirst("If-None-Match"))
+                    && blobs.containsKey(exchange.getRequestURI().getPath())) {
+                    sendError(exchange, RestStatus.CONFLICT);
+                    return;
+                }
                 final String blockList = Streams.copyToString(new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8));
                 final List<String> blockIds = Arrays.stream(blockList.split("<Latest>"))
                     .filter(line -> line.contains("</Latest>"))
@@ -28,8 +28,11 @@ import org.elasticsearch.common.bytes.BytesArray;
 import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.collect.Tuple;
 import org.elasticsearch.common.io.Streams;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
 import org.elasticsearch.common.network.InetAddresses;
 import org.elasticsearch.common.regex.Regex;
+import org.elasticsearch.common.xcontent.XContentHelper;
+import org.elasticsearch.common.xcontent.XContentType;
 import org.elasticsearch.rest.RestStatus;
 import org.elasticsearch.rest.RestUtils;
 
@@ -165,6 +168,39 @@ public class GoogleCloudStorageHttpHandler implements HttpHandler {
                 exchange.sendResponseHeaders(RestStatus.OK.getStatus(), response.length);
                 exchange.getResponseBody().write(response);
 
+            } else if (Regex.simpleMatch("POST /storage/v1/b/" + bucket + "/o/*/compose*", request)) {
+                // Compose Object https://cloud.google.com/storage/docs/json_api/v1/objects/compose
+                final String path = exchange.getRequestURI().getPath();
+                final String blobName = path.substring(("/storage/v1/b/" + bucket + "/o/").length(), path.lastIndexOf("/compose"));
+                final Map<String, String> params = new HashMap<>();
+                RestUtils.decodeQueryString(exchange.getRequestURI().getQuery(), 0, params);
+                final InputStream body = "gzip".equals(exchange.getRequestHeaders().getFirst("Content-Encoding"))
+                    ? new GZIPInputStream(wrappedRequest) : wrappedRequest;
+                final Map<String, Object> composeRequest = XContentHelper.convertToMap(XContentType.JSON.xContent(), body, false);
+                Streams.readFully(wrappedRequest);
+                if ("0".equals(params.get("ifGenerationMatch")) && blobs.containsKey(blobName)) {
+                    exchange.sendResponseHeaders(RestStatus.PRECONDITION_FAILED.getStatus(), -1);
+                    return;
+                }
+                final BytesStreamOutput composed = new BytesStreamOutput();
+                @SuppressWarnings("unchecked")
+                final List<Map<String, Object>> sourceObjects = (List<Map<String, Object>>) composeRequest.get("sourceObjects");
+                for (Map<String, Object> sourceObject : sourceObjects) {
+                    final BytesReference source = blobs.get((String) sourceObject.get("name"));
+                    if (source == null) {
+                        exchange.sendResponseHeaders(RestStatus.NOT_FOUND.getStatus(), -1);
+                        return;
+                    }
+                    source.writeTo(composed);
+                }
+                blobs.put(blobName, composed.bytes());
+
+                byte[] response = ("{\"kind\":\"storage#object\",\"bucket\":\"" + bucket + "\",\"name\":\"" + blobName
+                    + "\",\"id\":\"" + blobName + "\",\"size\":\"" + composed.size() + "\"}").getBytes(UTF_8);
+                exchange.getResponseHeaders().add("Content-Type", "application/json; charset=utf-8");
+                exchange.sendResponseHeaders(RestStatus.OK.getStatus(), response.length);
+                exchange.getResponseBody().write(response);
+
             } else if (Regex.simpleMatch("POST /upload/storage/v1/b/" + bucket + "/*uploadType=multipart*", request)) {
                 // Multipart upload
                 Optional<Tuple<String, BytesArray>> content = parseMultipartRequestBody(wrappedRequest);
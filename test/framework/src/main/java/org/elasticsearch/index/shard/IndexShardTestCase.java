@@ -634,7 +634,7 @@ public abstract class IndexShardTestCase extends ESTestCase {
             logger, rNode, recoveryTarget, startingSeqNo);
         final RecoverySourceHandler recovery = new RecoverySourceHandler(primary,
             new AsyncRecoveryTarget(recoveryTarget, threadPool.generic()), threadPool,
-            request, Math.toIntExact(ByteSizeUnit.MB.toBytes(1)), between(1, 8));
+            request, Math.toIntExact(ByteSizeUnit.MB.toBytes(1)), between(1, 8), between(1, 4));
         primary.updateShardState(primary.routingEntry(), primary.getPendingPrimaryTerm(), null,
             currentClusterStateVersion.incrementAndGet(), inSyncIds, routingTable);
         try {
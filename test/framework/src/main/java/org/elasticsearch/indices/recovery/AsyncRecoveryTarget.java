@@ -28,6 +28,7 @@ import org.elasticsearch.index.seqno.RetentionLeases;
 import org.elasticsearch.index.store.Store;
 import org.elasticsearch.index.store.StoreFileMetaData;
 import org.elasticsearch.index.translog.Translog;
+import org.elasticsearch.repositories.IndexId;
 
 import java.util.List;
 import java.util.concurrent.Executor;
@@ -80,6 +81,13 @@ public class AsyncRecoveryTarget implements RecoveryTargetHandler {
         executor.execute(() -> target.cleanFiles(totalTranslogOps, globalCheckpoint, sourceMetaData, listener));
     }
 
+    @Override
+    public void restoreFilesFromSnapshot(String repository, IndexId indexId, String shardGeneration, String snapshot,
+                                         List<StoreFileMetaData> files, int totalTranslogOps, ActionListener<List<String>> listener) {
+        executor.execute(() -> target.restoreFilesFromSnapshot(repository, indexId, shardGeneration, snapshot, files, totalTranslogOps,
+            listener));
+    }
+
     @Override
     public void writeFileChunk(StoreFileMetaData fileMetaData, long position, BytesReference content,
                                boolean lastChunk, int totalTranslogOps, ActionListener<Void> listener) {
@@ -22,6 +22,7 @@ import org.elasticsearch.common.blobstore.BlobContainer;
 import org.elasticsearch.common.blobstore.BlobMetaData;
 import org.elasticsearch.common.blobstore.BlobPath;
 import org.elasticsearch.common.blobstore.DeleteResult;
+import org.elasticsearch.common.blobstore.MultipartBlobWrite;
 
 import java.io.IOException;
 import java.io.InputStream;
@@ -56,6 +57,17 @@ public class BlobContainerWrapper implements BlobContainer {
         delegate.writeBlobAtomic(blobName, inputStream, blobSize, failIfAlreadyExists);
     }
 
+    @Override
+    public boolean supportsMultipartWrites() {
+        return delegate.supportsMultipartWrites();
+    }
+
+    @Override
+    public MultipartBlobWrite startMultipartWrite(String blobName, long blobSize, int targetPartCount,
+                                                  boolean failIfAlreadyExists) throws IOException {
+        return delegate.startMultipartWrite(blobName, blobSize, targetPartCount, failIfAlreadyExists);
+    }
+
     @Override
     public DeleteResult delete() throws IOException {
         return delegate.delete();
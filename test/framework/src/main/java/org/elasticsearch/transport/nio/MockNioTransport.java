@@ -49,6 +49,7 @@ import org.elasticsearch.nio.ServerChannelContext;
 import org.elasticsearch.threadpool.ThreadPool;
 import org.elasticsearch.transport.ConnectionProfile;
 import org.elasticsearch.transport.TcpChannel;
+import org.elasticsearch.transport.TcpHeader;
 import org.elasticsearch.transport.TcpServerChannel;
 import org.elasticsearch.transport.TcpTransport;
 import org.elasticsearch.transport.TransportRequestOptions;
@@ -272,7 +273,12 @@ public class MockNioTransport extends TcpTransport {
 
         @Override
         public int consumeReads(InboundChannelBuffer channelBuffer) throws IOException {
-            BytesReference bytesReference = BytesReference.fromByteBuffers(channelBuffer.sliceBuffersTo(channelBuffer.getIndex()));
+            int headerLength = (int) Math.min(channelBuffer.getIndex(), TcpHeader.BYTES_REQUIRED_FOR_MESSAGE_SIZE);
+            int frameLength = TcpTransport.readFrameLength(BytesReference.fromByteBuffers(channelBuffer.sliceBuffersTo(headerLength)));
+            if (frameLength == -1 || frameLength > channelBuffer.getIndex()) {
+                return 0;
+            }
+            BytesReference bytesReference = BytesReference.fromByteBuffers(channelBuffer.sliceBuffersTo(frameLength));
             return transport.consumeNetworkReads(channel, bytesReference);
         }
     }
@@ -0,0 +1,185 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License;
+ * you may not use this file except in compliance with the Elastic License.
+ */
+package org.elasticsearch.snapshots;
+
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.SimpleFSDirectory;
+import org.apache.lucene.util.Bits;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.util.concurrent.ParallelTaskRunner;
+import org.elasticsearch.core.internal.io.IOUtils;
+import org.elasticsearch.index.engine.EngineConfig;
+import org.elasticsearch.index.engine.EngineException;
+import org.elasticsearch.index.engine.InternalEngine;
+import org.elasticsearch.index.fieldvisitor.FieldsVisitor;
+import org.elasticsearch.index.translog.Translog;
+import org.elasticsearch.threadpool.ThreadPool;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An engine for shards that were restored from a source only snapshot with {@code restore_minimal} disabled. The restore puts the
+ * source only segments aside and leaves the shard with an empty index. Once the translog was recovered this engine reindexes the live
+ * documents of the restored segments by replaying them like translog operations, so that they are parsed with the mapping of the index,
+ * and then removes the restored segments. The documents are split into slices that are replayed concurrently on the write thread pool.
+ */
+final class SourceOnlyReindexingEngine extends InternalEngine {
+
+    /**
+     * The maximum number of documents of a slice.
+     */
+    static final int SLICE_SIZE = 1024;
+
+    private final Path restorePath;
+    private volatile boolean reindexing;
+
+    SourceOnlyReindexingEngine(EngineConfig engineConfig, Path restorePath) {
+        super(engineConfig);
+        this.restorePath = restorePath;
+    }
+
+    @Override
+    public InternalEngine recoverFromTranslog(TranslogRecoveryRunner translogRecoveryRunner, long recoverUpToSeqNo) throws IOException {
+        super.recoverFromTranslog(translogRecoveryRunner, recoverUpToSeqNo);
+        if (Files.exists(restorePath)) {
+            reindexing = true;
+            try {
+                reindex(translogRecoveryRunner);
+                syncTranslog();
+                flush(false, true);
+            } catch (Exception e) {
+                try {
+                    failEngine("failed to reindex source only snapshot", e);
+                } catch (Exception inner) {
+                    e.addSuppressed(inner);
+                }
+                throw new EngineException(shardId, "failed to reindex source only snapshot", e);
+            } finally {
+                reindexing = false;
+            }
+            IOUtils.rm(restorePath);
+        }
+        return this;
+    }
+
+    @Override
+    public IndexResult index(Index index) throws IOException {
+        if (reindexing && index.origin() == Operation.Origin.LOCAL_TRANSLOG_RECOVERY) {
+            // unlike replayed translog operations the reindexed documents are not in the translog yet, but peer recoveries may need
+            // them from there, so they are indexed like operations that were copied from a peer
+            index = new Index(index.uid(), index.parsedDoc(), index.seqNo(), index.primaryTerm(), index.version(), index.versionType(),
+                Operation.Origin.PEER_RECOVERY, index.startTime(), index.getAutoGeneratedIdTimestamp(), index.isRetry(),
+                index.getIfSeqNo(), index.getIfPrimaryTerm());
+        }
+        return super.index(index);
+    }
+
+    private void reindex(TranslogRecoveryRunner translogRecoveryRunner) throws IOException {
+        try (Directory directory = new SimpleFSDirectory(restorePath); DirectoryReader reader = DirectoryReader.open(directory)) {
+            final List<Slice> slices = new ArrayList<>();
+            // the documents get consecutive sequence numbers in the order of the restored segments
+            long seqNo = 0;
+            for (LeafReaderContext context : reader.leaves()) {
+                final LeafReader leafReader = context.reader();
+                final Bits liveDocs = leafReader.getLiveDocs();
+                for (int from = 0; from < leafReader.maxDoc(); from += SLICE_SIZE) {
+                    final int to = Math.min(from + SLICE_SIZE, leafReader.maxDoc());
+                    slices.add(new Slice(leafReader, liveDocs, from, to, seqNo));
+                    for (int docId = from; docId < to; docId++) {
+                        if (liveDocs == null || liveDocs.get(docId)) {
+                            seqNo++;
+                        }
+                    }
+                }
+            }
+            final int totalOperations = Math.toIntExact(seqNo);
+            logger.debug("reindexing [{}] documents restored from a source only snapshot in [{}] slices", totalOperations, slices.size());
+            runSlices(translogRecoveryRunner, slices, totalOperations);
+        }
+    }
+
+    /**
+     * Replays the slices on this thread and on up to one helper per write thread, see {@link ParallelTaskRunner}.
+     */
+    private void runSlices(TranslogRecoveryRunner translogRecoveryRunner, List<Slice> slices, int totalOperations) throws IOException {
+        final ThreadPool threadPool = engineConfig.getThreadPool();
+        final long primaryTerm = engineConfig.getPrimaryTermSupplier().getAsLong();
+        try {
+            ParallelTaskRunner.run(slices.size(), threadPool.info(ThreadPool.Names.WRITE).getMax(),
+                threadPool.executor(ThreadPool.Names.WRITE), slice -> {
+                    try (Translog.Snapshot snapshot = slices.get(slice).snapshot(primaryTerm, totalOperations)) {
+                        translogRecoveryRunner.run(this, snapshot);
+                    }
+                });
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new EngineException(shardId, "interrupted while reindexing source only snapshot", e);
+        }
+    }
+
+    /**
+     * A range of documents of a restored segment.
+     */
+    private static final class Slice {
+
+        private final LeafReader reader;
+        private final Bits liveDocs;
+        private final int from;
+        private final int to;
+        private final long firstSeqNo;
+
+        Slice(LeafReader reader, Bits liveDocs, int from, int to, long firstSeqNo) {
+            this.reader = reader;
+            this.liveDocs = liveDocs;
+            this.from = from;
+            this.to = to;
+            this.firstSeqNo = firstSeqNo;
+        }
+
+        /**
+         * Returns the live documents of this slice as index operations. The snapshot reports the number of operations of all slices
+         * as its total so that the recovery stats reflect the whole reindex.
+         */
+        Translog.Snapshot snapshot(long primaryTerm, int totalOperations) {
+            return new Translog.Snapshot() {
+
+                private int docId = from;
+                private long seqNo = firstSeqNo;
+
+                @Override
+                public int totalOperations() {
+                    return totalOperations;
+                }
+
+                @Override
+                public Translog.Operation next() throws IOException {
+                    while (docId < to) {
+                        final int current = docId++;
+                        if (liveDocs != null && liveDocs.get(current) == false) {
+                            continue;
+                        }
+                        final FieldsVisitor fieldsVisitor = new FieldsVisitor(true);
+                        reader.document(current, fieldsVisitor);
+                        return new Translog.Index(fieldsVisitor.id(), seqNo++, primaryTerm, 1L,
+                            BytesReference.toBytes(fieldsVisitor.source()), fieldsVisitor.routing(), -1L);
+                    }
+                    return null;
+                }
+
+                @Override
+                public void close() {
+                }
+            };
+        }
+    }
+}
@@ -28,9 +28,11 @@ import org.elasticsearch.env.ShardLock;
 import org.elasticsearch.index.engine.EngineFactory;
 import org.elasticsearch.index.engine.ReadOnlyEngine;
 import org.elasticsearch.index.mapper.MapperService;
+import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.index.snapshots.IndexShardSnapshotStatus;
 import org.elasticsearch.index.store.Store;
 import org.elasticsearch.index.translog.TranslogStats;
+import org.elasticsearch.indices.recovery.RecoveryState;
 import org.elasticsearch.repositories.FilterRepository;
 import org.elasticsearch.repositories.IndexId;
 import org.elasticsearch.repositories.Repository;
@@ -62,18 +64,27 @@ import java.util.function.Supplier;
  * at repository creation time.
  * </p>
  * Snapshots restored from source only snapshots are minimal indices that are read-only and only allow
- * match_all scroll searches in order to reindex the data.
+ * match_all scroll searches in order to reindex the data. If the repository is created with <i>settings.restore_minimal=false</i>
+ * snapshots are instead restored as regular indices with their original mapping, whose shards reindex the restored documents locally
+ * while they recover, see {@link SourceOnlyReindexingEngine}.
  */
 public final class SourceOnlySnapshotRepository extends FilterRepository {
     private static final Setting<String> DELEGATE_TYPE = new Setting<>("delegate_type", "", Function.identity(), Setting.Property
         .NodeScope);
+    private static final Setting<Boolean> RESTORE_MINIMAL = Setting.boolSetting("restore_minimal", true, Setting.Property.NodeScope);
     public static final Setting<Boolean> SOURCE_ONLY = Setting.boolSetting("index.source_only", false, Setting
         .Property.IndexScope, Setting.Property.Final, Setting.Property.PrivateIndex);
+    public static final Setting<Boolean> REINDEX_ON_RESTORE = Setting.boolSetting("index.source_only.reindex_on_restore", false, Setting
+        .Property.IndexScope, Setting.Property.Final, Setting.Property.PrivateIndex);
 
     private static final String SNAPSHOT_DIR_NAME = "_snapshot";
+    private static final String RESTORE_DIR_NAME = "_source_only_restore";
+
+    private final boolean restoreMinimal;
 
     SourceOnlySnapshotRepository(Repository in) {
         super(in);
+        this.restoreMinimal = RESTORE_MINIMAL.get(in.getMetadata().settings());
     }
 
     @Override
@@ -116,6 +127,87 @@ public final class SourceOnlySnapshotRepository extends FilterRepository {
     }
 
 
+    @Override
+    public IndexMetaData getSnapshotIndexMetaData(SnapshotId snapshotId, IndexId index) throws IOException {
+        final IndexMetaData indexMetaData = super.getSnapshotIndexMetaData(snapshotId, index);
+        if (restoreMinimal || SOURCE_ONLY.get(indexMetaData.getSettings()) == false) {
+            return indexMetaData;
+        }
+        return metadataToReindex(indexMetaData);
+    }
+
+    /**
+     * Reverts the changes of {@link #metadataToSnapshot} so that the index is restored with its original mapping and is writable, and
+     * marks it so that its shards reindex the restored documents.
+     */
+    @SuppressWarnings("unchecked")
+    private static IndexMetaData metadataToReindex(IndexMetaData index) {
+        IndexMetaData.Builder indexMetadataBuilder = IndexMetaData.builder(index);
+        MappingMetaData mmd = index.mapping();
+        if (mmd != null) {
+            final Map<String, Object> originalMapping = (Map<String, Object>) mmd.sourceAsMap().get("_meta");
+            indexMetadataBuilder.putMapping(originalMapping == null ? null : new MappingMetaData(mmd.type(), originalMapping));
+            indexMetadataBuilder.mappingVersion(1 + indexMetadataBuilder.mappingVersion());
+        }
+        indexMetadataBuilder.settings(Settings.builder().put(index.getSettings())
+            .put(SOURCE_ONLY.getKey(), false)
+            .put(REINDEX_ON_RESTORE.getKey(), true)
+            .put("index.blocks.write", false));
+        indexMetadataBuilder.settingsVersion(1 + indexMetadataBuilder.settingsVersion());
+        return indexMetadataBuilder.build();
+    }
+
+    @Override
+    public void restoreShard(Store store, SnapshotId snapshotId, IndexId indexId, ShardId snapshotShardId, RecoveryState recoveryState,
+                             ActionListener<Void> listener) {
+        if (REINDEX_ON_RESTORE.get(store.indexSettings().getSettings()) == false) {
+            super.restoreShard(store, snapshotId, indexId, snapshotShardId, recoveryState, listener);
+            return;
+        }
+        // restore the source only segments next to the shard's index, which starts out empty, and reindex them once the engine opened
+        final Path restorePath = restorePath(store.directory());
+        final List<Closeable> toClose = new ArrayList<>(2);
+        try {
+            IOUtils.rm(restorePath);
+            FSDirectory directory = new SimpleFSDirectory(restorePath);
+            toClose.add(directory);
+            Store tempStore = new Store(store.shardId(), store.indexSettings(), directory, new ShardLock(store.shardId()) {
+                @Override
+                protected void closeInternal() {
+                    // do nothing;
+                }
+            }, Store.OnClose.EMPTY);
+            store.incRef();
+            toClose.add(store::decRef);
+            final ActionListener<Void> restoreListener = ActionListener.runBefore(listener, () -> IOUtils.close(toClose));
+            super.restoreShard(tempStore, snapshotId, indexId, snapshotShardId, recoveryState,
+                ActionListener.delegateFailure(restoreListener, (l, v) -> {
+                    try {
+                        store.createEmpty(tempStore.readLastCommittedSegmentsInfo().getCommitLuceneVersion());
+                    } catch (Exception e) {
+                        l.onFailure(e);
+                        return;
+                    }
+                    l.onResponse(null);
+                }));
+        } catch (IOException e) {
+            try {
+                IOUtils.close(toClose);
+            } catch (IOException ex) {
+                e.addSuppressed(ex);
+            }
+            listener.onFailure(e);
+        }
+    }
+
+    private static Path restorePath(Directory storeDirectory) {
+        Directory unwrap = FilterDirectory.unwrap(storeDirectory);
+        if (unwrap instanceof FSDirectory == false) {
+            throw new AssertionError("expected FSDirectory but got " + unwrap.toString());
+        }
+        return ((FSDirectory) unwrap).getDirectory().getParent().resolve(RESTORE_DIR_NAME);
+    }
+
     @Override
     public void snapshotShard(Store store, MapperService mapperService, SnapshotId snapshotId, IndexId indexId,
                               IndexCommit snapshotIndexCommit, IndexShardSnapshotStatus snapshotStatus, boolean writeShardGens,
@@ -184,6 +276,13 @@ public final class SourceOnlySnapshotRepository extends FilterRepository {
             });
     }
 
+    /**
+     * Returns an {@link EngineFactory} for indices restored from source only snapshots that reindex the restored documents.
+     */
+    public static EngineFactory getReindexingEngineFactory() {
+        return config -> new SourceOnlyReindexingEngine(config, restorePath(config.getStore().directory()));
+    }
+
     /**
      * Returns a new source only repository factory
      */
@@ -36,6 +36,7 @@ import org.elasticsearch.env.Environment;
 import org.elasticsearch.env.NodeEnvironment;
 import org.elasticsearch.index.IndexSettings;
 import org.elasticsearch.index.engine.EngineFactory;
+import org.elasticsearch.indices.recovery.RecoverySettings;
 import org.elasticsearch.license.LicenseService;
 import org.elasticsearch.license.LicensesMetaData;
 import org.elasticsearch.license.Licensing;
@@ -321,7 +322,7 @@ public class XPackPlugin extends XPackClientPlugin implements ExtensiblePlugin,
 
     @Override
     public Map<String, Repository.Factory> getRepositories(Environment env, NamedXContentRegistry namedXContentRegistry,
-                                                           ClusterService clusterService) {
+                                                           ClusterService clusterService, RecoverySettings recoverySettings) {
         return Collections.singletonMap("source", SourceOnlySnapshotRepository.newRepositoryFactory());
     }
 
@@ -330,6 +331,9 @@ public class XPackPlugin extends XPackClientPlugin implements ExtensiblePlugin,
         if (indexSettings.getValue(SourceOnlySnapshotRepository.SOURCE_ONLY)) {
             return Optional.of(SourceOnlySnapshotRepository.getEngineFactory());
         }
+        if (indexSettings.getValue(SourceOnlySnapshotRepository.REINDEX_ON_RESTORE)) {
+            return Optional.of(SourceOnlySnapshotRepository.getReindexingEngineFactory());
+        }
 
         return Optional.empty();
     }
@@ -338,6 +342,7 @@ public class XPackPlugin extends XPackClientPlugin implements ExtensiblePlugin,
     public List<Setting<?>> getSettings() {
         List<Setting<?>> settings = super.getSettings();
         settings.add(SourceOnlySnapshotRepository.SOURCE_ONLY);
+        settings.add(SourceOnlySnapshotRepository.REINDEX_ON_RESTORE);
         return settings;
     }
 }
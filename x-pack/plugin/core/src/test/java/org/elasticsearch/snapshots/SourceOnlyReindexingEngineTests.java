@@ -0,0 +1,196 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License;
+ * you may not use this file except in compliance with the Elastic License.
+ */
+package org.elasticsearch.snapshots;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.NoMergePolicy;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.store.AlreadyClosedException;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.SimpleFSDirectory;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.lucene.Lucene;
+import org.elasticsearch.core.internal.io.IOUtils;
+import org.elasticsearch.index.engine.Engine;
+import org.elasticsearch.index.engine.EngineConfig;
+import org.elasticsearch.index.engine.EngineException;
+import org.elasticsearch.index.engine.EngineTestCase;
+import org.elasticsearch.index.engine.InternalEngine;
+import org.elasticsearch.index.fieldvisitor.FieldsVisitor;
+import org.elasticsearch.index.mapper.IdFieldMapper;
+import org.elasticsearch.index.mapper.SourceFieldMapper;
+import org.elasticsearch.index.mapper.Uid;
+import org.elasticsearch.index.seqno.SequenceNumbers;
+import org.elasticsearch.index.store.Store;
+import org.elasticsearch.index.translog.Translog;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+
+public class SourceOnlyReindexingEngineTests extends EngineTestCase {
+
+    public void testReindexesRestoredDocuments() throws IOException {
+        final Path restorePath = createTempDir().resolve("_source_only_restore");
+        final Map<String, String> expected = createRestoredIndex(restorePath,
+            randomIntBetween(SourceOnlyReindexingEngine.SLICE_SIZE + 1, 4 * SourceOnlyReindexingEngine.SLICE_SIZE));
+        final Path translogPath = createTempDir();
+        try (Store store = createStore()) {
+            final EngineConfig config = newEngineConfig(store, translogPath);
+            try (SourceOnlyReindexingEngine engine = new SourceOnlyReindexingEngine(config, restorePath)) {
+                engine.recoverFromTranslog(translogHandler, Long.MAX_VALUE);
+                assertFalse(Files.exists(restorePath));
+                assertReindexed(engine, expected);
+                // the reindexed documents are in the translog for peer recoveries that replay it
+                assertThat(engine.getTranslogStats().estimatedNumberOfOperations(), equalTo(expected.size()));
+            }
+        }
+    }
+
+    public void testSliceFailureFailsEngine() throws IOException {
+        final Path restorePath = createTempDir().resolve("_source_only_restore");
+        createRestoredIndex(restorePath,
+            randomIntBetween(SourceOnlyReindexingEngine.SLICE_SIZE + 1, 4 * SourceOnlyReindexingEngine.SLICE_SIZE));
+        final Path translogPath = createTempDir();
+        try (Store store = createStore()) {
+            final EngineConfig config = newEngineConfig(store, translogPath);
+            final SourceOnlyReindexingEngine engine = new SourceOnlyReindexingEngine(config, restorePath);
+            try {
+                final EngineException e = expectThrows(EngineException.class,
+                    () -> engine.recoverFromTranslog(failingRunner(randomIntBetween(1, 2)), Long.MAX_VALUE));
+                assertThat(e.getCause().getMessage(), equalTo("simulated slice failure"));
+                assertTrue(Files.exists(restorePath));
+                expectThrows(AlreadyClosedException.class, () -> engine.refresh("test"));
+            } finally {
+                IOUtils.close(engine);
+            }
+        }
+    }
+
+    public void testReindexAfterRestartWithReplayedOperationsInTranslog() throws IOException {
+        final Path restorePath = createTempDir().resolve("_source_only_restore");
+        final Map<String, String> expected = createRestoredIndex(restorePath,
+            randomIntBetween(2 * SourceOnlyReindexingEngine.SLICE_SIZE + 1, 4 * SourceOnlyReindexingEngine.SLICE_SIZE));
+        final Path translogPath = createTempDir();
+        try (Store store = createStore()) {
+            final EngineConfig config = newEngineConfig(store, translogPath);
+            // the first slice always completes before the failure, which leaves its replayed operations in the translog
+            final SourceOnlyReindexingEngine failedEngine = new SourceOnlyReindexingEngine(config, restorePath);
+            try {
+                expectThrows(EngineException.class, () -> failedEngine.recoverFromTranslog(failingRunner(2), Long.MAX_VALUE));
+            } finally {
+                IOUtils.close(failedEngine);
+            }
+            assertTrue(Files.exists(restorePath));
+
+            final AtomicInteger invocations = new AtomicInteger();
+            final AtomicInteger replayedFromTranslog = new AtomicInteger();
+            final Engine.TranslogRecoveryRunner countingRunner = (engine, snapshot) -> {
+                final int recovered = translogHandler.run(engine, snapshot);
+                if (invocations.getAndIncrement() == 0) {
+                    replayedFromTranslog.set(recovered);
+                }
+                return recovered;
+            };
+            try (SourceOnlyReindexingEngine engine = new SourceOnlyReindexingEngine(newEngineConfig(store, translogPath), restorePath)) {
+                engine.recoverFromTranslog(countingRunner, Long.MAX_VALUE);
+                assertThat(replayedFromTranslog.get(), greaterThan(0));
+                assertFalse(Files.exists(restorePath));
+                assertReindexed(engine, expected);
+            }
+        }
+    }
+
+    private EngineConfig newEngineConfig(Store store, Path translogPath) throws IOException {
+        if (Lucene.indexExists(store.directory()) == false) {
+            // the restore leaves the shard with an empty index next to the restored segments
+            store.createEmpty(defaultSettings.getIndexVersionCreated().luceneVersion);
+            final String translogUuid = Translog.createEmptyTranslog(translogPath, SequenceNumbers.NO_OPS_PERFORMED, shardId,
+                primaryTerm.get());
+            store.associateIndexWithNewTranslog(translogUuid);
+        }
+        return config(defaultSettings, store, translogPath, newMergePolicy(), null);
+    }
+
+    /**
+     * Returns a runner that replays the translog and the slices, but fails on the given invocation. The first invocation replays the
+     * translog, the following ones replay a slice each.
+     */
+    private Engine.TranslogRecoveryRunner failingRunner(int failingInvocation) {
+        final AtomicInteger invocations = new AtomicInteger();
+        return (engine, snapshot) -> {
+            if (invocations.getAndIncrement() == failingInvocation) {
+                throw new IOException("simulated slice failure");
+            }
+            return translogHandler.run(engine, snapshot);
+        };
+    }
+
+    /**
+     * Writes an index with the stored fields of a source only snapshot to the given path, spread over several segments and with some
+     * deleted documents, and returns the sources of its live documents by id.
+     */
+    private Map<String, String> createRestoredIndex(Path path, int numberOfDocs) throws IOException {
+        final Map<String, String> liveDocs = new HashMap<>();
+        try (Directory directory = new SimpleFSDirectory(path);
+             IndexWriter writer = new IndexWriter(directory, new IndexWriterConfig().setMergePolicy(NoMergePolicy.INSTANCE))) {
+            for (int i = 0; i < numberOfDocs; i++) {
+                final String id = Integer.toString(i);
+                final String source = "{\"value\":" + i + "}";
+                final Document document = new Document();
+                document.add(new Field(IdFieldMapper.NAME, Uid.encodeId(id), IdFieldMapper.Defaults.FIELD_TYPE));
+                document.add(new StoredField(SourceFieldMapper.NAME, new BytesRef(source)));
+                writer.addDocument(document);
+                liveDocs.put(id, source);
+                if (rarely()) {
+                    writer.commit();
+                }
+            }
+            for (int i = 0; i < numberOfDocs; i++) {
+                if (rarely()) {
+                    final String id = Integer.toString(i);
+                    writer.deleteDocuments(new Term(IdFieldMapper.NAME, Uid.encodeId(id)));
+                    liveDocs.remove(id);
+                }
+            }
+            writer.commit();
+        }
+        return liveDocs;
+    }
+
+    private static void assertReindexed(InternalEngine engine, Map<String, String> expected) throws IOException {
+        assertThat(engine.getProcessedLocalCheckpoint(), equalTo((long) expected.size() - 1));
+        assertThat(engine.getPersistedLocalCheckpoint(), equalTo((long) expected.size() - 1));
+        engine.refresh("test");
+        final Map<String, String> actual = new HashMap<>();
+        try (Engine.Searcher searcher = engine.acquireSearcher("test")) {
+            for (LeafReaderContext context : searcher.getIndexReader().leaves()) {
+                final Bits liveDocs = context.reader().getLiveDocs();
+                for (int docId = 0; docId < context.reader().maxDoc(); docId++) {
+                    if (liveDocs == null || liveDocs.get(docId)) {
+                        final FieldsVisitor fieldsVisitor = new FieldsVisitor(true);
+                        context.reader().document(docId, fieldsVisitor);
+                        assertNull("duplicate document [" + fieldsVisitor.id() + "]",
+                            actual.put(fieldsVisitor.id(), fieldsVisitor.source().utf8ToString()));
+                    }
+                }
+            }
+        }
+        assertThat(actual, equalTo(expected));
+    }
+}
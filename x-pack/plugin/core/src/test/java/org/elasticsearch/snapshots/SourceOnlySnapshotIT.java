@@ -5,12 +5,15 @@
  */
 package org.elasticsearch.snapshots;
 
+import org.apache.lucene.search.join.ScoreMode;
+import org.elasticsearch.action.DocWriteResponse;
 import org.elasticsearch.action.admin.cluster.snapshots.create.CreateSnapshotResponse;
 import org.elasticsearch.action.admin.cluster.snapshots.restore.RestoreSnapshotResponse;
 import org.elasticsearch.action.admin.indices.create.CreateIndexRequestBuilder;
 import org.elasticsearch.action.admin.indices.mapping.get.GetMappingsResponse;
 import org.elasticsearch.action.admin.indices.stats.IndicesStatsResponse;
 import org.elasticsearch.action.index.IndexRequestBuilder;
+import org.elasticsearch.action.get.GetResponse;
 import org.elasticsearch.action.search.SearchPhaseExecutionException;
 import org.elasticsearch.action.search.SearchResponse;
 import org.elasticsearch.client.Client;
@@ -27,6 +30,7 @@ import org.elasticsearch.index.IndexSettings;
 import org.elasticsearch.index.engine.EngineFactory;
 import org.elasticsearch.index.mapper.SeqNoFieldMapper;
 import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.indices.recovery.RecoverySettings;
 import org.elasticsearch.plugins.EnginePlugin;
 import org.elasticsearch.plugins.Plugin;
 import org.elasticsearch.plugins.RepositoryPlugin;
@@ -70,7 +74,7 @@ public class SourceOnlySnapshotIT extends ESIntegTestCase {
     public static final class MyPlugin extends Plugin implements RepositoryPlugin, EnginePlugin {
         @Override
         public Map<String, Repository.Factory> getRepositories(Environment env, NamedXContentRegistry namedXContentRegistry,
-                                                               ClusterService clusterService) {
+                                                               ClusterService clusterService, RecoverySettings recoverySettings) {
             return Collections.singletonMap("source", SourceOnlySnapshotRepository.newRepositoryFactory());
         }
         @Override
@@ -78,6 +82,9 @@ public class SourceOnlySnapshotIT extends ESIntegTestCase {
             if (indexSettings.getValue(SourceOnlySnapshotRepository.SOURCE_ONLY)) {
                 return Optional.of(SourceOnlySnapshotRepository.getEngineFactory());
             }
+            if (indexSettings.getValue(SourceOnlySnapshotRepository.REINDEX_ON_RESTORE)) {
+                return Optional.of(SourceOnlySnapshotRepository.getReindexingEngineFactory());
+            }
             return Optional.empty();
         }
 
@@ -85,6 +92,7 @@ public class SourceOnlySnapshotIT extends ESIntegTestCase {
         public List<Setting<?>> getSettings() {
             List<Setting<?>> settings = new ArrayList<>(super.getSettings());
             settings.add(SourceOnlySnapshotRepository.SOURCE_ONLY);
+            settings.add(SourceOnlySnapshotRepository.REINDEX_ON_RESTORE);
             return settings;
         }
     }
@@ -144,6 +152,40 @@ public class SourceOnlySnapshotIT extends ESIntegTestCase {
         assertHits(sourceIdx, builders.length, true);
     }
 
+    public void testSnapshotAndReindexOnRestore() throws Exception {
+        final String sourceIdx = "test-idx";
+        boolean requireRouting = randomBoolean();
+        boolean useNested = randomBoolean();
+        IndexRequestBuilder[] builders = snashotAndRestore(sourceIdx, randomIntBetween(1, 3), false, requireRouting, useNested);
+        ensureGreen(sourceIdx);
+        GetMappingsResponse getMappingsResponse = client().admin().indices().prepareGetMappings(sourceIdx).get();
+        Map<String, Object> mapping = getMappingsResponse.getMappings().get(sourceIdx).sourceAsMap();
+        assertFalse(mapping.containsKey("enabled"));
+        assertTrue(mapping.containsKey("properties"));
+        // the restored documents were reindexed with the original mapping
+        assertHitCount(client().prepareSearch(sourceIdx).setSize(0).get(), builders.length);
+        assertHitCount(client().prepareSearch(sourceIdx).setQuery(QueryBuilders.termQuery("field1", "bar")).setSize(0).get(),
+            builders.length);
+        String id = Integer.toString(randomIntBetween(0, builders.length - 1));
+        assertHitCount(client().prepareSearch(sourceIdx).setQuery(QueryBuilders.idsQuery().addIds(id)).get(), 1);
+        GetResponse getResponse = client().prepareGet(sourceIdx, id).setRouting("r" + id).get();
+        assertTrue(getResponse.isExists());
+        assertEquals("bar " + id, getResponse.getSource().get("field1"));
+        if (useNested) {
+            assertHitCount(client().prepareSearch(sourceIdx).setSize(0).setQuery(QueryBuilders.nestedQuery("nested",
+                QueryBuilders.rangeQuery("nested.value").gte(1), ScoreMode.None)).get(), builders.length);
+        }
+        // the restored index is writable
+        assertEquals(DocWriteResponse.Result.DELETED, client().prepareDelete(sourceIdx, id).setRouting("r" + id).get().getResult());
+        refresh(sourceIdx);
+        assertHitCount(client().prepareSearch(sourceIdx).setSize(0).get(), builders.length - 1);
+        internalCluster().ensureAtLeastNumDataNodes(2);
+        client().admin().indices().prepareUpdateSettings(sourceIdx).setSettings(Settings.builder().put("index.number_of_replicas", 1))
+            .get();
+        ensureGreen(sourceIdx);
+        assertHitCount(client().prepareSearch(sourceIdx).setSize(0).get(), builders.length - 1);
+    }
+
     private void assertMappings(String sourceIdx, boolean requireRouting, boolean useNested) throws IOException {
         GetMappingsResponse getMappingsResponse = client().admin().indices().prepareGetMappings(sourceIdx).get();
         MappingMetaData mapping = getMappingsResponse.getMappings().get(sourceIdx);
@@ -86,6 +86,11 @@ public class SecurityRestFilter implements RestHandler {
         return restHandler.supportsContentStream();
     }
 
+    @Override
+    public boolean supportsIncrementalContent() {
+        return restHandler.supportsIncrementalContent();
+    }
+
     @Override
     public boolean allowsUnsafeBuffers() {
         return restHandler.allowsUnsafeBuffers();
@@ -70,13 +70,7 @@ public abstract class AbstractRepository {
         final String snapshotsIndexBlobName = fullPath(BlobStoreRepository.INDEX_FILE_PREFIX + indexFileGeneration);
 
         try (InputStream blob = getBlobInputStream(snapshotsIndexBlobName)) {
-            BytesStreamOutput out = new BytesStreamOutput();
-            Streams.copy(blob, out);
-            // EMPTY is safe here because RepositoryData#fromXContent calls namedObject
-            try (XContentParser parser = XContentHelper.createParser(NamedXContentRegistry.EMPTY,
-                    LoggingDeprecationHandler.INSTANCE, out.bytes(), XContentType.JSON)) {
-                return RepositoryData.snapshotsFromXContent(parser, indexFileGeneration);
-            }
+            return BlobStoreRepository.readRepositoryData(blob, indexFileGeneration);
         } catch (IOException e) {
             terminal.println("Failed to read " + snapshotsIndexBlobName + " file");
             throw e;